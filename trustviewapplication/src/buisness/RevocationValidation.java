@@ -17,20 +17,34 @@
  */
 package buisness;
 
+import java.security.cert.X509CRL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
 
 import support.RevocationService;
 import support.Service;
 import support.revocation.RevocationInfo;
 import util.Option;
+import util.TimerWheel;
+import data.CRLAccessException;
 import data.CRLInfo;
 import data.OCSPInfo;
+import data.RevocationStatus;
 import data.TrustCertificate;
 import data.TrustView;
 
@@ -49,8 +63,39 @@ public final class RevocationValidation {
 	 * revocation and update the <code>TrustView</code>
 	 * @see RevocationValidation#createValidator(List, int, int)
 	 * @see RevocationValidation#createValidator(TrustView, int, int)
+	 * @see RevocationValidation#createValidators(List, int, int, int)
 	 */
 	public static interface Validator {
+		/**
+		 * Starts querying the external revocation services that are needed to
+		 * check the given certificates for revocation based on the information
+		 * contained in the given {@link TrustView} without modifying it.
+		 * The <code>TrustView</code> can be closed afterwards, so that no
+		 * transaction needs to be kept open while waiting for the revocation
+		 * services using {@link #await()}. Validators may not support
+		 * querying the revocation services in advance, in which case this
+		 * method does nothing.
+		 * @param trustView
+		 */
+		void prepare(TrustView trustView);
+
+		/**
+		 * Starts querying the external revocation services that are needed to
+		 * check the given maximum number of certificates for revocation with
+		 * the next call to {@link #validate(TrustView, int)}
+		 * @see #prepare(TrustView)
+		 * @param trustView
+		 * @param maxCertificates
+		 */
+		void prepare(TrustView trustView, int maxCertificates);
+
+		/**
+		 * Waits until the revocation services queried by
+		 * {@link #prepare(TrustView)} responded, one of the certificates is
+		 * known to be revoked or the validator's timeout passed
+		 */
+		void await();
+
 		/**
 		 * Checks the given certificates for revocation and updates the given
 		 * {@link TrustView} accordingly. If needed, external revocation
@@ -128,16 +173,173 @@ public final class RevocationValidation {
 		}
 	}
 
+	/**
+	 * Represents a task querying a revocation service that notifies the
+	 * given monitor object when it is finished
+	 * @param <T> the type of the result of the query
+	 */
+	private static final class RevocationTask<T> extends FutureTask<T> {
+		private final Object monitor;
+
+		/**
+		 * Creates a new <code>RevocationTask</code> instance
+		 * @param monitor
+		 * @param callable
+		 */
+		private RevocationTask(Object monitor, Callable<T> callable) {
+			super(callable);
+			this.monitor = monitor;
+		}
+
+		@Override
+		protected void done() {
+			synchronized (monitor) {
+				monitor.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Represents the locally available revocation information for a
+	 * certificate and the tasks querying the external revocation services
+	 * if the local information is not sufficient
+	 */
+	private static final class ValidatorEvidence {
+		private final CRLInfo crlLocalInfo;
+		private final RevocationTask<CRLInfo> crlTask;
+		private final OCSPInfo ocspLocalInfo;
+		private final RevocationTask<Boolean> ocspTask;
+
+		/**
+		 * Creates a new <code>ValidatorEvidence</code> instance
+		 * @param crlLocalInfo
+		 * @param crlTask
+		 * @param ocspLocalInfo
+		 * @param ocspTask
+		 */
+		private ValidatorEvidence(
+				CRLInfo crlLocalInfo, RevocationTask<CRLInfo> crlTask,
+				OCSPInfo ocspLocalInfo, RevocationTask<Boolean> ocspTask) {
+			this.crlLocalInfo = crlLocalInfo;
+			this.crlTask = crlTask;
+			this.ocspLocalInfo = ocspLocalInfo;
+			this.ocspTask = ocspTask;
+		}
+
+		/** @return the locally available CRL information or <code>null</code> */
+		private CRLInfo getCRLLocalInfo() {
+			return crlLocalInfo;
+		}
+
+		/** @return the task downloading the CRL or <code>null</code> */
+		private RevocationTask<CRLInfo> getCRLTask() {
+			return crlTask;
+		}
+
+		/** @return the locally available OCSP information or <code>null</code> */
+		private OCSPInfo getOCSPLocalInfo() {
+			return ocspLocalInfo;
+		}
+
+		/** @return the task querying the OCSP service or <code>null</code> */
+		private RevocationTask<Boolean> getOCSPTask() {
+			return ocspTask;
+		}
+
+		/**
+		 * @return whether all tasks querying the revocation services
+		 * are finished
+		 */
+		private boolean isComplete() {
+			return (crlTask == null || crlTask.isDone()) &&
+			       (ocspTask == null || ocspTask.isDone());
+		}
+
+		/**
+		 * Waits until all tasks querying the revocation services are finished
+		 */
+		private void await() {
+			if (crlTask != null)
+				getResult(crlTask);
+			if (ocspTask != null)
+				getResult(ocspTask);
+		}
+
+		/**
+		 * @return whether a finished task already revealed that the given
+		 * certificate is revoked
+		 * @param certificate
+		 */
+		private boolean isRevoked(TrustCertificate certificate) {
+			if (ocspTask != null && ocspTask.isDone() &&
+					Boolean.TRUE.equals(getResult(ocspTask)))
+				return true;
+
+			if (crlTask != null && crlTask.isDone()) {
+				CRLInfo crlInfo = getResult(crlTask);
+				if (crlInfo != null && crlInfo.isRevoked(certificate))
+					return true;
+			}
+
+			return false;
+		}
+	}
+
+	/**
+	 * State shared by the validators for certificate paths that are validated
+	 * together, so that revocation services and the tasks querying them are
+	 * shared by paths that contain the same certificates
+	 */
+	private static final class ValidatorContext {
+		private final Map<CRLInfo, CRLInfo> crlPool = new HashMap<>();
+		private final Map<OCSPInfo, OCSPInfo> ocspPool = new HashMap<>();
+		private final Map<List<TrustCertificate>, ValidatorEntry> entryPool =
+				new HashMap<>();
+
+		// tasks querying the revocation services are kept,
+		// so that they are not repeated if the validation is repeated
+		private final Object monitor = new Object();
+		private final Map<CRLInfo, RevocationTask<CRLInfo>> crlTasks =
+				new HashMap<>();
+		private final Map<ValidatorEntry, RevocationTask<Boolean>> ocspTasks =
+				new HashMap<>();
+	}
+
 	/** minimum amount of time to wait before checking a certificate again */
 	private static final long CHECK_MIN_PERSISTENCE_MILLIS = 1800000;
 
 	/** maximum amount of time to wait before checking a certificate again */
 	private static final long CHECK_MAX_PERSISTENCE_MILLIS = 172800000;
 
-	/** already checked certificates */
+	/** number of slots of the timer wheel for checked certificates */
+	private static final int CHECK_EXPIRATION_SLOTS = 512;
+
+	/** time span covered by each slot of the timer wheel */
+	private static final long CHECK_EXPIRATION_TICK_MILLIS = 60000;
+
+	/**
+	 * already checked certificates and the time they need to be checked again;
+	 * certificates checked before the application was started are loaded
+	 * from the {@link TrustView} when they are validated for the first time
+	 */
 	private static ConcurrentMap<TrustCertificate, Long> checkedCertificates =
 			new ConcurrentHashMap<>(4);
 
+	/** expiration of the already checked certificates */
+	private static TimerWheel<TrustCertificate> checkedCertificatesExpiration =
+			new TimerWheel<>(CHECK_EXPIRATION_SLOTS, CHECK_EXPIRATION_TICK_MILLIS);
+
+	/** executor for querying revocation services concurrently */
+	private static final ExecutorService executor =
+			Executors.newCachedThreadPool(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "revocation-checking");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
 	/**
 	 * @return a <code>Validator</code> instance for the given certificate path;
 	 * the actual revocation checking can be performed using
@@ -148,19 +350,114 @@ public final class RevocationValidation {
 	 * was already checked recently depending on the next update time for the
 	 * revocation service or a timeout if the revocation service could not be
 	 * reached
+	 * @see #createValidator(List, int, int, int)
 	 * @param certificatePath
 	 * @param crlTimeoutMillis
 	 * @param ocspTimeoutMillis
 	 */
 	public static Validator createValidator(List<TrustCertificate> certificatePath,
 			int crlTimeoutMillis, int ocspTimeoutMillis) {
-		final List<ValidatorEntry> entries = createValidatorEntriesFromPath(
-				certificatePath, crlTimeoutMillis, ocspTimeoutMillis);
+		return createValidator(certificatePath,
+				crlTimeoutMillis, ocspTimeoutMillis,
+				crlTimeoutMillis + ocspTimeoutMillis);
+	}
 
+	/**
+	 * @return a <code>Validator</code> instance for the given certificate path;
+	 * the actual revocation checking can be performed using
+	 * {@link Validator#validate(TrustView)};
+	 * if needed, external revocation services are queried concurrently for
+	 * all certificates of the path using the given timeouts;
+	 * the validation does not wait for the revocation services any longer
+	 * than the given path timeout or as soon as one of the certificates is
+	 * known to be revoked; certificates whose revocation services did not
+	 * respond in time are not considered revoked;
+	 * the revocation services will not be queried again for a certificate that
+	 * was already checked recently depending on the next update time for the
+	 * revocation service or a timeout if the revocation service could not be
+	 * reached
+	 * @param certificatePath
+	 * @param crlTimeoutMillis
+	 * @param ocspTimeoutMillis
+	 * @param pathTimeoutMillis
+	 */
+	public static Validator createValidator(List<TrustCertificate> certificatePath,
+			int crlTimeoutMillis, int ocspTimeoutMillis,
+			int pathTimeoutMillis) {
+		final ValidatorContext context = new ValidatorContext();
+		return createValidator(
+				createValidatorEntriesFromPath(certificatePath,
+						crlTimeoutMillis, ocspTimeoutMillis, context),
+				context, pathTimeoutMillis);
+	}
+
+	/**
+	 * @return a <code>Validator</code> instance for each of the given
+	 * certificate paths at the index of the respective path;
+	 * the validators behave like validators created by
+	 * {@link #createValidator(List, int, int, int)} for each path, but share
+	 * the revocation services and the queries to them, so that certificates
+	 * that are contained in several paths, e.g. common intermediate
+	 * certificates, are only checked once when preparing the validators
+	 * @param certificatePaths
+	 * @param crlTimeoutMillis
+	 * @param ocspTimeoutMillis
+	 * @param pathTimeoutMillis
+	 */
+	public static List<Validator> createValidators(
+			List<List<TrustCertificate>> certificatePaths,
+			int crlTimeoutMillis, int ocspTimeoutMillis,
+			int pathTimeoutMillis) {
+		final ValidatorContext context = new ValidatorContext();
+		final List<Validator> validators = new ArrayList<>(certificatePaths.size());
+		for (List<TrustCertificate> certificatePath : certificatePaths)
+			validators.add(createValidator(
+					createValidatorEntriesFromPath(certificatePath,
+							crlTimeoutMillis, ocspTimeoutMillis, context),
+					context, pathTimeoutMillis));
+		return validators;
+	}
+
+	/**
+	 * @return a <code>Validator</code> instance for the given entries of a
+	 * certificate path querying the revocation services using the tasks of
+	 * the given context
+	 * @param entries
+	 * @param context
+	 * @param pathTimeoutMillis
+	 */
+	private static Validator createValidator(final List<ValidatorEntry> entries,
+			final ValidatorContext context, final int pathTimeoutMillis) {
 		return new Validator() {
 			final long nowMillis = new Date().getTime();
 			final Map<TrustCertificate, Long> certificates = new HashMap<>();
 
+			final Object monitor = context.monitor;
+			final Map<CRLInfo, RevocationTask<CRLInfo>> crlTasks = context.crlTasks;
+			final Map<ValidatorEntry, RevocationTask<Boolean>> ocspTasks = context.ocspTasks;
+			final Map<ValidatorEntry, ValidatorEvidence> preparedEvidences = new HashMap<>();
+			long deadlineMillis = Long.MAX_VALUE;
+
+			@Override
+			public void prepare(TrustView trustView) {
+				prepare(trustView, entries.size());
+			}
+
+			@Override
+			public void prepare(TrustView trustView, int maxCertificates) {
+				final int count = Math.min(entries.size(), maxCertificates);
+				final List<ValidatorEntry> uncheckedEntries = new ArrayList<>();
+				if (getUncheckedEntries(trustView, count, uncheckedEntries))
+					preparedEvidences.putAll(
+							prepareEvidences(trustView, uncheckedEntries));
+			}
+
+			@Override
+			public void await() {
+				awaitEvidences(preparedEvidences);
+				preparedEvidences.clear();
+			}
+
 			@Override
 			public boolean validate(TrustView trustView) {
 				return validate(trustView, entries.size());
@@ -176,9 +473,9 @@ public final class RevocationValidation {
 					public void saved() {
 						for (Map.Entry<TrustCertificate, Long> entry : certificates.entrySet())
 							if (entry.getValue() < 0)
-								checkedCertificates.remove(entry.getKey());
+								removeCheckedCertificate(entry.getKey());
 							else
-								checkedCertificates.put(entry.getKey(), entry.getValue());
+								putCheckedCertificate(entry.getKey(), entry.getValue());
 						certificates.clear();
 
 						int count = entries.size() - remaining;
@@ -187,12 +484,63 @@ public final class RevocationValidation {
 					}
 				});
 
-				// clean up checked certificates
-				for (Map.Entry<TrustCertificate, Long> entry : checkedCertificates.entrySet())
-					if (entry.getValue() <= nowMillis)
-						checkedCertificates.remove(entry.getKey());
+				// determine the certificates that need to be checked
+				final List<ValidatorEntry> uncheckedEntries = new ArrayList<>();
+				if (!getUncheckedEntries(trustView, count, uncheckedEntries))
+					return false;
+
+				// query the revocation services for all certificates at once
+				// and wait for them if they were not already queried before
+				final Map<ValidatorEntry, ValidatorEvidence> evidences =
+						prepareEvidences(trustView, uncheckedEntries);
+				awaitEvidences(evidences);
 
 				// check the certificates for revocation
+				for (ValidatorEntry entry : uncheckedEntries) {
+					final TrustCertificate certificate = entry.getCertificate();
+					final ValidatorEvidence evidence = evidences.get(entry);
+
+					// a finished task may already have revealed that the
+					// certificate is revoked; the tasks that are still running
+					// are not cancelled, since they are shared with the other
+					// paths validated using the same context
+					if (!evidence.isRevoked(certificate) && !evidence.isComplete()) {
+						System.out.println(
+								"Revocation services did not respond in time. " +
+								"Assuming certificate is not revoked.");
+						continue;
+					}
+
+					final RevocationStatus status =
+							RevocationValidation.validate(trustView, entry, evidence);
+					trustView.setRevocationStatus(status);
+
+					if (status.getStatus() == RevocationStatus.Status.REVOKED) {
+						certificates.put(certificate, -1l);
+						return false;
+					}
+
+					certificates.put(certificate, status.getExpires().getTime());
+				}
+
+				return true;
+			}
+
+			/**
+			 * Determines the certificates among the given number of
+			 * certificates of the path that need to be checked for revocation
+			 * @return <code>false</code> if one of the certificates is already
+			 * known to be revoked, <code>true</code> otherwise
+			 * @param trustView
+			 * @param count
+			 * @param uncheckedEntries receives the entries of the certificates
+			 * that need to be checked
+			 */
+			private boolean getUncheckedEntries(TrustView trustView, int count,
+					List<ValidatorEntry> uncheckedEntries) {
+				// clean up checked certificates
+				expireCheckedCertificates(nowMillis);
+
 				for (ValidatorEntry entry : entries.subList(0, count)) {
 					final TrustCertificate certificate = entry.getCertificate();
 
@@ -203,25 +551,79 @@ public final class RevocationValidation {
 						return false;
 					}
 
-					if (!checkedCertificates.containsKey(certificate)) {
-						long nextCheckMillis = RevocationValidation.validate(trustView, entry);
-
-						if (nextCheckMillis == -1) {
-							certificates.put(certificate, -1l);
-							return false;
-						}
+					final long nextCheckMillis =
+							getNextCheckMillis(trustView, certificate, nowMillis);
 
-						nextCheckMillis = Math.max(nextCheckMillis,
-								nowMillis + CHECK_MIN_PERSISTENCE_MILLIS);
-						nextCheckMillis = Math.min(nextCheckMillis,
-								nowMillis + CHECK_MAX_PERSISTENCE_MILLIS);
-						certificates.put(certificate, nextCheckMillis);
+					if (nextCheckMillis == -1) {
+						certificates.put(certificate, -1l);
+						return false;
 					}
+
+					if (nextCheckMillis == 0)
+						uncheckedEntries.add(entry);
 				}
 
 				return true;
 			}
 
+			/**
+			 * @return the revocation information for the given entries;
+			 * starts querying the revocation services if needed
+			 * @param trustView
+			 * @param uncheckedEntries
+			 */
+			private Map<ValidatorEntry, ValidatorEvidence> prepareEvidences(
+					TrustView trustView, List<ValidatorEntry> uncheckedEntries) {
+				// the deadline for the whole path starts
+				// when the revocation services are queried for the first time
+				if (deadlineMillis == Long.MAX_VALUE)
+					deadlineMillis = new Date().getTime() + pathTimeoutMillis;
+
+				final Map<ValidatorEntry, ValidatorEvidence> evidences = new HashMap<>();
+				for (ValidatorEntry entry : uncheckedEntries)
+					evidences.put(entry, RevocationValidation.prepare(trustView,
+							entry, executor, monitor, crlTasks, ocspTasks));
+				return evidences;
+			}
+
+			/**
+			 * Waits until all revocation services for the given revocation
+			 * information responded, a certificate is known to be revoked or
+			 * the deadline passed
+			 * @param evidences
+			 */
+			private void awaitEvidences(
+					Map<ValidatorEntry, ValidatorEvidence> evidences) {
+				synchronized (monitor) {
+					boolean waiting = true;
+					while (waiting) {
+						waiting = false;
+						for (Map.Entry<ValidatorEntry, ValidatorEvidence> evidence :
+								evidences.entrySet()) {
+							if (evidence.getValue().isRevoked(
+									evidence.getKey().getCertificate())) {
+								waiting = false;
+								break;
+							}
+							if (!evidence.getValue().isComplete())
+								waiting = true;
+						}
+
+						final long remainingMillis = deadlineMillis - new Date().getTime();
+						if (waiting && remainingMillis > 0)
+							try {
+								monitor.wait(remainingMillis);
+							}
+							catch (InterruptedException e) {
+								Thread.currentThread().interrupt();
+								waiting = false;
+							}
+						else
+							waiting = false;
+					}
+				}
+			}
+
 			@Override
 			public boolean isFinished() {
 				return entries.isEmpty();
@@ -253,6 +655,33 @@ public final class RevocationValidation {
 			final List<TrustCertificate> certificates = new ArrayList<>();
 			int entriesStart = 0;
 
+			final Object monitor = new Object();
+			final Map<CRLInfo, RevocationTask<CRLInfo>> crlTasks = new HashMap<>();
+			final Map<ValidatorEntry, RevocationTask<Boolean>> ocspTasks = new HashMap<>();
+			final Map<ValidatorEntry, ValidatorEvidence> preparedEvidences = new HashMap<>();
+
+			@Override
+			public void prepare(TrustView trustView) {
+				prepare(trustView, entries.size());
+			}
+
+			@Override
+			public void prepare(TrustView trustView, int maxCertificates) {
+				final int count = Math.min(entries.size() - entriesStart, maxCertificates);
+				for (ValidatorEntry entry : entries.subList(entriesStart, entriesStart + count))
+					if (!preparedEvidences.containsKey(entry) &&
+							!trustView.isCertificateRevoked(entry.getCertificate()))
+						preparedEvidences.put(entry, RevocationValidation.prepare(
+								trustView, entry, executor, monitor, crlTasks, ocspTasks));
+			}
+
+			@Override
+			public void await() {
+				// the revocation services time out on their own
+				for (ValidatorEvidence evidence : preparedEvidences.values())
+					evidence.await();
+			}
+
 			@Override
 			public boolean validate(TrustView trustView) {
 				return validate(trustView, entries.size());
@@ -267,14 +696,21 @@ public final class RevocationValidation {
 					@Override
 					public void saved() {
 						for (TrustCertificate entry : certificates)
-							checkedCertificates.remove(entry);
+							removeCheckedCertificate(entry);
 						certificates.clear();
 
 						int count = entries.size() - entriesStart - remaining;
-						if (count > 0)
+						if (count > 0) {
+							for (ValidatorEntry entry :
+									entries.subList(entriesStart, entriesStart + count))
+								preparedEvidences.remove(entry);
 							entriesStart += count;
-						if (remaining == 0)
+						}
+						if (remaining == 0) {
 							entries.clear();
+							crlTasks.clear();
+							ocspTasks.clear();
+						}
 					}
 				});
 
@@ -287,8 +723,16 @@ public final class RevocationValidation {
 						continue;
 					}
 
-					long nextCheckMillis = RevocationValidation.validate(trustView, entry);
-					if (nextCheckMillis == -1)
+					// use the revocation information gathered in advance
+					// or query the revocation services sequentially
+					final ValidatorEvidence evidence = preparedEvidences.get(entry);
+					final RevocationStatus status =
+							evidence != null && evidence.isComplete()
+								? RevocationValidation.validate(trustView, entry, evidence)
+								: RevocationValidation.validate(trustView, entry);
+					trustView.setRevocationStatus(status);
+
+					if (status.getStatus() == RevocationStatus.Status.REVOKED)
 						certificates.add(certificate);
 				}
 
@@ -315,17 +759,17 @@ public final class RevocationValidation {
 	/**
 	 * @return a collection of certificates and associated revocation services
 	 * for the given certificate path using the given timeouts for revocation
-	 * checking
+	 * checking; entries for the same certificate and issuer that were already
+	 * created for the given context are reused
 	 * @param certificatePath
 	 * @param crlTimeoutMillis
 	 * @param ocspTimeoutMillis
+	 * @param context
 	 */
 	private static List<ValidatorEntry> createValidatorEntriesFromPath(
 			List<TrustCertificate> certificatePath,
-			int crlTimeoutMillis, int ocspTimeoutMillis) {
-		Map<CRLInfo, CRLInfo> crlPool = new HashMap<>();
-		Map<OCSPInfo, OCSPInfo> ocspPool = new HashMap<>();
-
+			int crlTimeoutMillis, int ocspTimeoutMillis,
+			ValidatorContext context) {
 		List<ValidatorEntry> entries = new ArrayList<>(certificatePath.size());
 
 		for (int i = certificatePath.size() - 1; i >= 0; i--) {
@@ -335,10 +779,17 @@ public final class RevocationValidation {
 			final TrustCertificate issuerCertificate =
 					certificatePath.get(i == 0 ? 0 : i - 1);
 
-			entries.add(
-				createValidatorEntry(certificate, issuerCertificate,
-					crlTimeoutMillis, ocspTimeoutMillis,
-					crlPool, ocspPool));
+			final List<TrustCertificate> key =
+					Arrays.asList(certificate, issuerCertificate);
+			ValidatorEntry entry = context.entryPool.get(key);
+			if (entry == null) {
+				entry = createValidatorEntry(certificate, issuerCertificate,
+						crlTimeoutMillis, ocspTimeoutMillis,
+						context.crlPool, context.ocspPool);
+				context.entryPool.put(key, entry);
+			}
+
+			entries.add(entry);
 		}
 
 		return entries;
@@ -485,83 +936,159 @@ public final class RevocationValidation {
 	}
 
 	/**
-	 * @return <code>-1</code> if the given certificate is revoked or
-	 * <code>0</code> if the given certificate is not to be considered revoked,
-	 * but a next update date time for revocation checking could not be
-	 * determined; otherwise the milliseconds time value that can be used to
-	 * construct a {@link Date} object representing the next update time for
-	 * revocation checking
+	 * @return <code>-1</code> if the given certificate is known to be revoked,
+	 * <code>0</code> if the given certificate needs to be checked for
+	 * revocation; otherwise the milliseconds time value representing the
+	 * time the certificate needs to be checked again
+	 * @param trustView
+	 * @param certificate
+	 * @param nowMillis
+	 */
+	private static long getNextCheckMillis(TrustView trustView,
+			TrustCertificate certificate, long nowMillis) {
+		final Long nextCheckMillis = checkedCertificates.get(certificate);
+		if (nextCheckMillis != null && nextCheckMillis > nowMillis)
+			return nextCheckMillis;
+
+		// load the revocation status of a previous revocation check, so that
+		// the revocation services are not queried again after a restart
+		final RevocationStatus status = trustView.getRevocationStatus(certificate);
+		if (status != null) {
+			if (status.getStatus() == RevocationStatus.Status.REVOKED)
+				return -1;
+
+			final long expiresMillis = status.getExpires().getTime();
+			if (expiresMillis > nowMillis) {
+				putCheckedCertificate(certificate, expiresMillis);
+				return expiresMillis;
+			}
+		}
+
+		return 0;
+	}
+
+	/**
+	 * @return whether all certificates of the given path were found not to be
+	 * revoked by a revocation check that does not need to be repeated yet,
+	 * i.e. whether validating the path would not query any revocation service;
+	 * only uses the information kept in memory and does not access the
+	 * {@link TrustView}
+	 * @param certificatePath
+	 */
+	public static boolean isRevocationChecked(List<TrustCertificate> certificatePath) {
+		final long nowMillis = new Date().getTime();
+		for (TrustCertificate certificate : certificatePath) {
+			final Long nextCheckMillis = checkedCertificates.get(certificate);
+			if (nextCheckMillis == null || nextCheckMillis <= nowMillis)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Remembers that the given certificate does not need to be checked
+	 * for revocation until the given time
+	 * @param certificate
+	 * @param nextCheckMillis
+	 */
+	private static void putCheckedCertificate(TrustCertificate certificate,
+			long nextCheckMillis) {
+		checkedCertificates.put(certificate, nextCheckMillis);
+		checkedCertificatesExpiration.schedule(certificate, nextCheckMillis);
+	}
+
+	/**
+	 * Forgets that the given certificate was checked for revocation
+	 * @param certificate
+	 */
+	private static void removeCheckedCertificate(TrustCertificate certificate) {
+		checkedCertificates.remove(certificate);
+		checkedCertificatesExpiration.cancel(certificate);
+	}
+
+	/**
+	 * Forgets all checked certificates that need to be checked again
+	 * @param nowMillis
+	 */
+	private static void expireCheckedCertificates(long nowMillis) {
+		for (TrustCertificate certificate :
+				checkedCertificatesExpiration.advance(nowMillis)) {
+			final Long nextCheckMillis = checkedCertificates.get(certificate);
+			if (nextCheckMillis != null && nextCheckMillis <= nowMillis)
+				checkedCertificates.remove(certificate, nextCheckMillis);
+		}
+	}
+
+	/**
+	 * @return the revocation information for the given certificate retrieved
+	 * from the {@link TrustView} and the tasks that query the revocation
+	 * services if the information is not available or outdated; the tasks
+	 * are started using the given executor; tasks that are already contained
+	 * in the given maps are reused instead of querying the revocation services
+	 * again
 	 * @param trustView
 	 * @param entry
+	 * @param executor
+	 * @param monitor the object that is notified when a task finished
+	 * @param crlTasks
+	 * @param ocspTasks
 	 */
-	private static long validate(TrustView trustView, ValidatorEntry entry) {
+	private static ValidatorEvidence prepare(TrustView trustView,
+			final ValidatorEntry entry, Executor executor, Object monitor,
+			Map<CRLInfo, RevocationTask<CRLInfo>> crlTasks,
+			Map<ValidatorEntry, RevocationTask<Boolean>> ocspTasks) {
 		final long nowMillis = new Date().getTime();
 		final TrustCertificate certificate = entry.getCertificate();
-		long nextCheckMillis = Long.MAX_VALUE;
 
-		// directly invalidate revocation check for the certificate chain
-		// if we already know that the certificate has been revoked
-		if (trustView.isCertificateRevoked(certificate))
-			return -1;
+		CRLInfo crlLocalInfo = null;
+		RevocationTask<CRLInfo> crlTask = null;
+		OCSPInfo ocspLocalInfo = null;
+		RevocationTask<Boolean> ocspTask = null;
 
-		// revocation checking using CRLs
 		final Option<RevocationService<CRLInfo>> crlServiceOption =
 				entry.getCRLService();
 		if (crlServiceOption.isSet()) {
 			final RevocationService<CRLInfo> crlService = crlServiceOption.get();
-			final CRLInfo crlLocalInfo = trustView.getCRL(crlService.getInfo());
+			crlLocalInfo = trustView.getCRL(crlService.getInfo());
 
 			// download latest CRL if
 			// the CRL information is not already locally available or
 			// the CRL data is not already locally available or
 			// the CRL may have been updated in the meantime
-			CRLInfo crlInfo = crlLocalInfo;
 			if (crlLocalInfo == null ||
 					!crlLocalInfo.getCRL().isSet() ||
 					!crlLocalInfo.getNextUpdate().isSet() ||
 					crlLocalInfo.getNextUpdate().get().getTime() <= nowMillis) {
-				// retrieve CRL data
-				if (!crlService.getInfo().getCRL().isSet() ||
-						!crlService.getNextUpdate().isSet() ||
-						crlService.getNextUpdate().get().getTime() <= nowMillis) {
-					System.out.println("Updating local information for CRL ...");
-					for (String url : crlService.getInfo().getURLs())
-						System.out.println("  URL: " + url);
-
-					crlService.update();
-				}
-
-				// update local information if CRL was retrieved successfully
-				// base next check waiting time on CRL next update date
-				Option<Date> nextUpdate = crlService.getNextUpdate();
-				if (nextUpdate.isSet() && nextUpdate.get().getTime() > nowMillis) {
-					System.out.println("Local information for CRL updated.");
-
-					crlInfo = crlService.getInfo();
-					trustView.addCRL(crlService.getInfo());
-				}
-				else
-					System.out.println("Failed to update local information for CRL.");
-			}
-
-			// check previously fetched and locally saved CRL if available
-			if (crlInfo != null && crlInfo.getCRL().isSet()) {
-				nextCheckMillis = Math.min(nextCheckMillis,
-						crlInfo.getNextUpdate().get().getTime());
-
-				if (crlInfo.isRevoked(certificate)) {
-					trustView.setRevokedCertificate(certificate);
-					return -1;
+				crlTask = crlTasks.get(crlService.getInfo());
+				if (crlTask == null) {
+					crlTask = new RevocationTask<>(monitor, new Callable<CRLInfo>() {
+						@Override
+						public CRLInfo call() {
+							// retrieve CRL data
+							final long nowMillis = new Date().getTime();
+							if (!crlService.getInfo().getCRL().isSet() ||
+									!crlService.getNextUpdate().isSet() ||
+									crlService.getNextUpdate().get().getTime() <= nowMillis) {
+								System.out.println("Updating local information for CRL ...");
+								for (String url : crlService.getInfo().getURLs())
+									System.out.println("  URL: " + url);
+
+								crlService.update();
+							}
+							return crlService.getInfo();
+						}
+					});
+					crlTasks.put(crlService.getInfo(), crlTask);
+					executor.execute(crlTask);
 				}
 			}
 		}
 
-		// revocation checking using OCSP
 		final Option<RevocationService<OCSPInfo>> ocspServiceOption =
 				entry.getOCSPService();
 		if (ocspServiceOption.isSet()) {
 			final RevocationService<OCSPInfo> ocspService = ocspServiceOption.get();
-			final OCSPInfo ocspLocalInfo = trustView.getOCSP(ocspService.getInfo());
+			ocspLocalInfo = trustView.getOCSP(ocspService.getInfo());
 
 			// query OCSP service if
 			// the certificate is not yet contained in the trust view
@@ -571,35 +1098,220 @@ public final class RevocationValidation {
 					ocspLocalInfo == null ||
 					!ocspLocalInfo.getNextUpdate().isSet() ||
 					ocspLocalInfo.getNextUpdate().get().getTime() <= nowMillis) {
-				System.out.println("Querying OCSP service ...");
-				for (String url : ocspService.getInfo().getURLs())
-					System.out.println("  URL: " + url);
+				ocspTask = ocspTasks.get(entry);
+				if (ocspTask == null) {
+					ocspTask = new RevocationTask<>(monitor, new Callable<Boolean>() {
+						@Override
+						public Boolean call() {
+							System.out.println("Querying OCSP service ...");
+							for (String url : ocspService.getInfo().getURLs())
+								System.out.println("  URL: " + url);
+
+							return ocspService.isRevoked(certificate);
+						}
+					});
+					ocspTasks.put(entry, ocspTask);
+					executor.execute(ocspTask);
+				}
+			}
+		}
+
+		return new ValidatorEvidence(
+				crlLocalInfo, crlTask, ocspLocalInfo, ocspTask);
+	}
 
-				// query OCSP service
-				final boolean certificateRevoked =
-						ocspService.isRevoked(certificate);
+	/**
+	 * @return the revocation status of the given certificate; the revocation
+	 * services are queried sequentially in the current thread if needed
+	 * @see #validate(TrustView, ValidatorEntry, ValidatorEvidence)
+	 * @param trustView
+	 * @param entry
+	 */
+	private static RevocationStatus validate(TrustView trustView, ValidatorEntry entry) {
+		final Executor executor = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				command.run();
+			}
+		};
+
+		return validate(trustView, entry,
+				prepare(trustView, entry, executor, new Object(),
+					new HashMap<CRLInfo, RevocationTask<CRLInfo>>(),
+					new HashMap<ValidatorEntry, RevocationTask<Boolean>>()));
+	}
+
+	/**
+	 * @return the revocation status of the given certificate based on the
+	 * given revocation information, whose tasks must be completed unless a
+	 * completed task already revealed that the certificate is revoked, in
+	 * which case the tasks that are still running are ignored; if the
+	 * certificate is not revoked, the status expires on the next update time
+	 * of the queried revocation services within the bounds of
+	 * {@link #CHECK_MIN_PERSISTENCE_MILLIS} and
+	 * {@link #CHECK_MAX_PERSISTENCE_MILLIS}
+	 * @param trustView
+	 * @param entry
+	 * @param evidence
+	 */
+	private static RevocationStatus validate(TrustView trustView,
+			ValidatorEntry entry, ValidatorEvidence evidence) {
+		final long nowMillis = new Date().getTime();
+		final TrustCertificate certificate = entry.getCertificate();
+		long nextCheckMillis = Long.MAX_VALUE;
+		Option<RevocationStatus.Source> source = new Option<>();
+		Option<Date> sourceThisUpdate = new Option<>();
+		Option<Date> sourceNextUpdate = new Option<>();
+
+		// directly invalidate revocation check for the certificate chain
+		// if we already know that the certificate has been revoked
+		if (trustView.isCertificateRevoked(certificate))
+			return createRevokedStatus(certificate, nowMillis, source,
+					sourceThisUpdate, sourceNextUpdate);
 
-				// update local information if it is not yet available
-				// base next check waiting time on OCSP next update date
-				Option<Date> nextUpdate = ocspService.getNextUpdate();
+		// revocation checking using CRLs
+		if (entry.getCRLService().isSet()) {
+			CRLInfo crlInfo = evidence.getCRLLocalInfo();
+
+			// update local information if CRL was retrieved successfully
+			// base next check waiting time on CRL next update date;
+			// a task that is still running is not waited for, which is only
+			// the case if the certificate is already known to be revoked
+			if (evidence.getCRLTask() != null && evidence.getCRLTask().isDone()) {
+				CRLInfo crlRemoteInfo = getResult(evidence.getCRLTask());
+				Option<Date> nextUpdate = crlRemoteInfo != null
+						? crlRemoteInfo.getNextUpdate()
+						: new Option<Date>();
 				if (nextUpdate.isSet() && nextUpdate.get().getTime() > nowMillis) {
-					System.out.println("OCSP service queried.");
+					System.out.println("Local information for CRL updated.");
 
-					if (ocspLocalInfo == null)
-						trustView.addOCSP(ocspService.getInfo());
-					nextCheckMillis = Math.min(nextCheckMillis,
-							nextUpdate.get().getTime());
+					crlInfo = crlRemoteInfo;
+					trustView.addCRL(crlRemoteInfo);
 				}
 				else
-					System.out.println("Failed to query OCSP service.");
+					System.out.println("Failed to update local information for CRL.");
+			}
 
-				if (certificateRevoked) {
+			// check previously fetched and locally saved CRL if available
+			Boolean crlRevoked = null;
+			if (crlInfo != null && crlInfo.getCRL().isSet())
+				try {
+					crlRevoked = crlInfo.isRevoked(certificate);
+				}
+				catch (CRLAccessException e) {
+					e.printStackTrace();
+					System.out.println("Failed to check local information for CRL.");
+
+					// the CRL is unavailable and downloaded again
+					// when the certificate is checked the next time
+					trustView.addCRL(new CRLInfo(
+							crlInfo.getCRLIssuer(), crlInfo.getURLs()));
+				}
+
+			if (crlRevoked != null) {
+				nextCheckMillis = Math.min(nextCheckMillis,
+						crlInfo.getNextUpdate().get().getTime());
+
+				source = new Option<>(RevocationStatus.Source.CRL);
+				sourceThisUpdate = crlInfo.getCRL().get() instanceof X509CRL
+						? new Option<>(((X509CRL) crlInfo.getCRL().get()).getThisUpdate())
+						: new Option<Date>();
+				sourceNextUpdate = crlInfo.getNextUpdate();
+
+				if (crlRevoked) {
 					trustView.setRevokedCertificate(certificate);
-					return -1;
+					return createRevokedStatus(certificate, nowMillis, source,
+							sourceThisUpdate, sourceNextUpdate);
 				}
 			}
 		}
 
-		return nextCheckMillis == Long.MAX_VALUE ? 0 : nextCheckMillis;
+		// revocation checking using OCSP
+		if (entry.getOCSPService().isSet() && evidence.getOCSPTask() != null &&
+				evidence.getOCSPTask().isDone()) {
+			final RevocationService<OCSPInfo> ocspService =
+					entry.getOCSPService().get();
+			final boolean certificateRevoked =
+					Boolean.TRUE.equals(getResult(evidence.getOCSPTask()));
+
+			// update local information if it is not yet available
+			// base next check waiting time on OCSP next update date
+			Option<Date> nextUpdate = ocspService.getNextUpdate();
+			if (nextUpdate.isSet() && nextUpdate.get().getTime() > nowMillis) {
+				System.out.println("OCSP service queried.");
+
+				if (evidence.getOCSPLocalInfo() == null)
+					trustView.addOCSP(ocspService.getInfo());
+				if (nextUpdate.get().getTime() < nextCheckMillis) {
+					nextCheckMillis = nextUpdate.get().getTime();
+					source = new Option<>(RevocationStatus.Source.OCSP);
+					sourceThisUpdate = new Option<>();
+					sourceNextUpdate = nextUpdate;
+				}
+			}
+			else
+				System.out.println("Failed to query OCSP service.");
+
+			if (certificateRevoked) {
+				trustView.setRevokedCertificate(certificate);
+				return createRevokedStatus(certificate, nowMillis,
+						new Option<>(RevocationStatus.Source.OCSP),
+						new Option<Date>(), nextUpdate);
+			}
+		}
+
+		// base the next check on the next update time of the revocation
+		// services, which could not be determined if it is still unset
+		if (nextCheckMillis == Long.MAX_VALUE)
+			nextCheckMillis = 0;
+		nextCheckMillis = Math.max(nextCheckMillis,
+				nowMillis + CHECK_MIN_PERSISTENCE_MILLIS);
+		nextCheckMillis = Math.min(nextCheckMillis,
+				nowMillis + CHECK_MAX_PERSISTENCE_MILLIS);
+
+		return new RevocationStatus(certificate,
+				RevocationStatus.Status.GOOD, source,
+				sourceThisUpdate, sourceNextUpdate,
+				new Date(nowMillis), new Date(nextCheckMillis));
+	}
+
+	/**
+	 * @return the result of the given completed task or <code>null</code>
+	 * if the task failed
+	 * @param task
+	 */
+	private static <T> T getResult(Future<T> task) {
+		try {
+			return task.get();
+		}
+		catch (ExecutionException e) {
+			e.getCause().printStackTrace();
+		}
+		catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+		catch (CancellationException e) {
+			// the query was cancelled and is treated as failed
+		}
+		return null;
+	}
+
+	/**
+	 * @return the revocation status of the given revoked certificate,
+	 * which expires when the certificate leaves its validity period
+	 * @param certificate
+	 * @param nowMillis
+	 * @param source
+	 * @param thisUpdate
+	 * @param nextUpdate
+	 */
+	private static RevocationStatus createRevokedStatus(
+			TrustCertificate certificate, long nowMillis,
+			Option<RevocationStatus.Source> source,
+			Option<Date> thisUpdate, Option<Date> nextUpdate) {
+		return new RevocationStatus(certificate,
+				RevocationStatus.Status.REVOKED, source,
+				thisUpdate, nextUpdate,
+				new Date(nowMillis), certificate.getNotAfter());
 	}
 }
@@ -20,15 +20,17 @@ package buisness;
 import java.security.cert.CertPath;
 import java.security.cert.Certificate;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import services.ValidationResult;
 import support.ValidationService;
 import util.Option;
 import CertainTrust.CertainTrust;
+import data.CertificateTrustState;
 import data.Configuration;
+import data.IssuerTrustExpectations;
 import data.TrustAssessment;
 import data.TrustCertificate;
 import data.TrustView;
@@ -72,27 +74,19 @@ public final class TrustComputation {
 				: new Option<CertainTrust>();
 
 		// determine o_it
-		Collection<TrustAssessment> assessments = trustView.getAssessments();
+		TrustAssessment assessment = trustView.getAssessmentForCA(ca);
 		CertainTrust o_it_ca = null, o_it_ee = null;
 
-		for (TrustAssessment assessment : assessments)
-			if (assessment.getCa().equals(ca)) {
-				o_it_ca = assessment.getO_it_ca();
-				o_it_ee = assessment.getO_it_ee();
-				break;
-			}
+		if (assessment != null) {
+			o_it_ca = assessment.getO_it_ca();
+			o_it_ee = assessment.getO_it_ee();
+		}
 
 		if (o_it_ca == null || o_it_ee == null) {
-			int n = 0;
-			double f_ca = 0.0, f_ee = 0.0;
-			for (TrustAssessment assessment : assessments)
-				for (TrustCertificate S_i : assessment.getS())
-					if (S_i.getIssuer().equals(S.getIssuer())) {
-						f_ca += assessment.getO_it_ca().getExpectation();
-						f_ee += assessment.getO_it_ee().getExpectation();
-						n++;
-						break;
-					}
+			IssuerTrustExpectations expectations =
+					trustView.getIssuerTrustExpectations(S.getIssuer());
+			int n = expectations.getN();
+			double f_ca = expectations.getF_ca(), f_ee = expectations.getF_ee();
 
 			o_it_ca = new CertainTrust(
 					0.5, 0.0, n == 0 ? 0.5 : Math.min(opinionMaxF, f_ca / n), opinionN);
@@ -253,7 +247,14 @@ public final class TrustComputation {
 		}
 	}
 
-	private static void updateAssessmentsTimestamps(TrustView trustView, List<TrustCertificate> p) {
+	/**
+	 * Marks the assessments of the CA certificates of the given path as valid
+	 * @param trustView the Trust View to be used
+	 * @param p a certificate path
+	 *        (starting with the self-signed root certificate and ending with
+	 *        the certificate for the end entity)
+	 */
+	static void updateAssessmentsTimestamps(TrustView trustView, List<TrustCertificate> p) {
 		for (int i = 0; i < p.size() - 1; i++)
 			trustView.setAssessmentValid(
 					p.get(i).getPublicKey(), p.get(i).getSubject());
@@ -294,8 +295,8 @@ public final class TrustComputation {
 
 		int i = certs.size();
 		for (Certificate cert : certs)
-			p.set(i--, new TrustCertificate(cert));
-		p.set(0, new TrustCertificate(pathAnchor));
+			p.set(i--, TrustCertificate.intern(new TrustCertificate(cert)));
+		p.set(0, TrustCertificate.intern(new TrustCertificate(pathAnchor)));
 
 		return validate(trustView, config, p, l, VS);
 	}
@@ -321,7 +322,7 @@ public final class TrustComputation {
 
 		int i = path.length - 1;
 		for (Certificate cert : path)
-			p.set(i--, new TrustCertificate(cert));
+			p.set(i--, TrustCertificate.intern(new TrustCertificate(cert)));
 
 		return validate(trustView, config, p, l, VS);
 	}
@@ -342,24 +343,33 @@ public final class TrustComputation {
 	 */
 	public static ValidationResult validate(TrustView trustView, Configuration config,
 			List<TrustCertificate> p, double l, ValidationService VS) {
+		// retrieve the state of all certificates of p at once
+		Map<TrustCertificate, CertificateTrustState> states =
+				trustView.getTrustStates(p);
+
 		// check if the last certificate is already trusted
-		if (trustView.isCertificateTrusted(p.get(p.size() - 1))) {
+		CertificateTrustState state = states.get(p.get(p.size() - 1));
+		if (state != null && state.isTrusted()) {
 			updateAssessmentsTimestamps(trustView, p);
 			return ValidationResult.TRUSTED;
 		}
 
 		// check if p contains untrusted certificate
-		for (TrustCertificate cert : p)
-			if (trustView.isCertificateUntrusted(cert)) {
+		for (TrustCertificate cert : p) {
+			state = states.get(cert);
+			if (state != null && state.isUntrusted()) {
 				updateAssessmentsTimestamps(trustView, p);
 				return ValidationResult.UNTRUSTED;
 			}
+		}
 
 		// update trust assessments
 		List<TrustAssessment> TL = new ArrayList<>(p.size() - 1);
 		List<TrustAssessment> pAssessments = new ArrayList<>(p.size() - 1);
+		List<TrustAssessment> storedAssessments =
+				trustView.getAssessments(p.subList(0, p.size() - 1));
 		for (int i = 0; i < p.size() - 1; i++) {
-			TrustAssessment assessment = trustView.getAssessment(p.get(i));
+			TrustAssessment assessment = storedAssessments.get(i);
 			if (assessment == null) {
 				assessment = createAssessment(trustView, config, p.get(i), i == 0);
 				TL.add(assessment);
@@ -20,6 +20,7 @@ package buisness;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import services.ValidationInformation;
 import services.ValidationRequest;
@@ -28,7 +29,10 @@ import services.ValidationResult;
 import services.ValidationResultSpec;
 import support.Service;
 import support.ValidationService;
+import data.CertificateTrustState;
 import data.Configuration;
+import data.Model;
+import data.ModelAccessException;
 import data.TrustCertificate;
 import data.TrustView;
 
@@ -46,6 +50,132 @@ import data.TrustView;
 public final class TrustValidation {
 	private TrustValidation() { }
 
+	/**
+	 * @return the validation result for the given request if its end entity
+	 * certificate is known to be trusted and not to be on the watchlist and
+	 * all certificates of its path are known not to be revoked without
+	 * accessing the {@link TrustView}; <code>null</code> otherwise, in which
+	 * case the request needs to be validated using
+	 * {@link #validate(TrustView, Configuration, ValidationRequest, ValidationService)};
+	 * the updates of the <code>TrustView</code> the validation implies can
+	 * be deferred using {@link #updateKnownTrusted(TrustView, ValidationRequest)};
+	 * does not check if the certificate path is valid
+	 * @param request the trust validation request
+	 * @throws ModelAccessException if the data model could not be accessed
+	 */
+	public static ValidationInformation validateKnownTrusted(
+			ValidationRequest request) throws ModelAccessException {
+		List<TrustCertificate> certificatePath = request.getCertificatePath();
+		ValidationRequestSpec spec = request.getValidationRequestSpec();
+
+		if (spec == ValidationRequestSpec.RETRIEVE_RECOMMENDATION ||
+				spec == ValidationRequestSpec.VALIDATE_TRUST_END_CERTIFICATE)
+			return null;
+
+		if (!Model.isCertificateKnownTrusted(
+				certificatePath.get(certificatePath.size() - 1)) ||
+				!RevocationValidation.isRevocationChecked(certificatePath))
+			return null;
+
+		return new ValidationInformation(
+				ValidationResult.TRUSTED,
+				ValidationResultSpec.VALIDATED);
+	}
+
+	/**
+	 * @return a provisional validation result for the given request that is
+	 * derived only from the states of the certificates of its path stored in
+	 * the given {@link TrustView} without querying any external service and
+	 * without modifying the <code>TrustView</code>; certificates that would
+	 * need to be validated by the trust validation algorithm are provisionally
+	 * considered {@link ValidationResult#UNKNOWN}; the actual result of the
+	 * request is computed by
+	 * {@link #validate(TrustView, Configuration, ValidationRequest, ValidationService)};
+	 * does not check if the certificate path is valid
+	 * @param trustView the Trust View to be used
+	 * @param config the configuration to be used
+	 * @param request the trust validation request
+	 */
+	public static ValidationInformation validateProvisionally(
+			TrustView trustView, Configuration config,
+			ValidationRequest request) {
+		List<TrustCertificate> certificatePath = request.getCertificatePath();
+		ValidationRequestSpec spec = request.getValidationRequestSpec();
+
+		if (spec == ValidationRequestSpec.RETRIEVE_RECOMMENDATION)
+			return new ValidationInformation(
+					ValidationResult.UNKNOWN,
+					ValidationResultSpec.RECOMMENDED);
+
+		if (spec == ValidationRequestSpec.VALIDATE_TRUST_END_CERTIFICATE)
+			return new ValidationInformation(
+					ValidationResult.TRUSTED,
+					ValidationResultSpec.VALIDATED_ON_WATCHLIST);
+
+		final TrustCertificate hostCertificate =
+				certificatePath.get(certificatePath.size() - 1);
+		final Map<TrustCertificate, CertificateTrustState> states =
+				trustView.getTrustStates(certificatePath);
+
+		// check if a certificate is already known to be revoked
+		for (TrustCertificate certificate : certificatePath) {
+			CertificateTrustState state = states.get(certificate);
+			if (state != null && state.isRevoked())
+				return new ValidationInformation(
+						ValidationResult.UNTRUSTED,
+						ValidationResultSpec.VALIDATED_REVOKED);
+		}
+
+		// check if certificate is on the watchlist and has not expired yet
+		CertificateTrustState hostState = states.get(hostCertificate);
+		if (hostState != null && hostState.isOnWatchlist()) {
+			final long watchlistExpirationMillis =
+					config.get(Configuration.WATCHLIST_EXPIRATION_MILLIS, Long.class);
+			Date timestamp = trustView.getWatchlistCerrtificateTimestamp(
+					hostCertificate);
+			if (timestamp != null && new Date().getTime() - timestamp.getTime() <=
+					watchlistExpirationMillis)
+				return new ValidationInformation(
+						ValidationResult.TRUSTED,
+						ValidationResultSpec.VALIDATED_ON_WATCHLIST);
+		}
+
+		// check if the host certificate is already trusted
+		if (hostState != null && hostState.isTrusted())
+			return new ValidationInformation(
+					ValidationResult.TRUSTED,
+					ValidationResultSpec.VALIDATED);
+
+		// check if the path contains an untrusted certificate
+		for (TrustCertificate certificate : certificatePath) {
+			CertificateTrustState state = states.get(certificate);
+			if (state != null && state.isUntrusted())
+				return new ValidationInformation(
+						ValidationResult.UNTRUSTED,
+						ValidationResultSpec.VALIDATED);
+		}
+
+		return new ValidationInformation(
+				ValidationResult.UNKNOWN,
+				ValidationResultSpec.VALIDATED);
+	}
+
+	/**
+	 * Performs the updates of the {@link TrustView} implied by validating
+	 * the given request using {@link #validateKnownTrusted(ValidationRequest)}
+	 * @param trustView the Trust View to be used
+	 * @param request the trust validation request
+	 */
+	public static void updateKnownTrusted(TrustView trustView,
+			ValidationRequest request) {
+		List<TrustCertificate> certificatePath = request.getCertificatePath();
+
+		TrustComputation.updateAssessmentsTimestamps(trustView, certificatePath);
+		TrustViewControl.insertHostsForCertificate(trustView,
+				certificatePath.get(certificatePath.size() - 1),
+				request.getURL());
+	}
+
 	/**
 	 * @return the validation result for the given argument; does not check
 	 * if the certificate path is valid
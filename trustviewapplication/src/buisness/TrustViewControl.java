@@ -23,11 +23,13 @@ import java.security.cert.Certificate;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import services.ValidationResultSpec;
 
+import data.CertificateTrustState;
 import data.TrustCertificate;
 import data.TrustView;
 
@@ -119,6 +121,13 @@ public final class TrustViewControl {
 		       !isCertificateRevoked(trustView, certificate);
 	}
 
+	private static boolean isCertificateValid(
+			Map<TrustCertificate, CertificateTrustState> states,
+			TrustCertificate certificate) {
+		return !isCertificateExpired(certificate) &&
+		       !states.get(certificate).isRevoked();
+	}
+
 	/**
 	 * @return whether the given certificate is expired (or has not entered its
 	 * validity period yet); does not check if the certificate is revoked
@@ -153,7 +162,8 @@ public final class TrustViewControl {
 	public static ValidationResultSpec deriveValidationSpec(
 			TrustView trustView, Certificate hostCertificate, String hostURL) {
 		return deriveValidationSpec(trustView,
-				new TrustCertificate(hostCertificate), hostURL);
+				TrustCertificate.intern(new TrustCertificate(hostCertificate)),
+				hostURL);
 	}
 
 	/**
@@ -173,30 +183,36 @@ public final class TrustViewControl {
 		Collection<TrustCertificate> existingCertificates =
 				retrieveCertificatesForHost(trustView, hostURL);
 
+		// retrieve the state of all existing certificates for the host at once
+		Map<TrustCertificate, CertificateTrustState> states =
+				trustView.getTrustStates(existingCertificates);
+
 		Iterator<TrustCertificate> iterator = existingCertificates.iterator();
-		while (iterator.hasNext())
-			if (!trustView.isCertificateTrusted(iterator.next()))
+		while (iterator.hasNext()) {
+			CertificateTrustState state = states.get(iterator.next());
+			if (state == null || !state.isTrusted())
 				iterator.remove();
+		}
 
 		for (TrustCertificate cert : existingCertificates)
-			if (isCertificateExpired(cert) && !isCertificateRevoked(trustView, cert) &&
+			if (isCertificateExpired(cert) && !states.get(cert).isRevoked() &&
 					cert.getIssuer().equals(hostCertificate.getIssuer()) &&
 					cert.getPublicKey().equals(hostCertificate.getPublicKey()))
 				return ValidationResultSpec.VALIDATED_EXISTING_EXPIRED_SAME_CA_KEY;
 
 		for (TrustCertificate cert : existingCertificates)
-			if (isCertificateValid(trustView, cert) &&
+			if (isCertificateValid(states, cert) &&
 					!cert.getIssuer().equals(hostCertificate.getIssuer()) &&
 					cert.getPublicKey().equals(hostCertificate.getPublicKey()))
 				return ValidationResultSpec.VALIDATED_EXISTING_VALID_SAME_KEY;
 
 		for (TrustCertificate cert : existingCertificates)
-			if (!isCertificateValid(trustView, cert) &&
+			if (!isCertificateValid(states, cert) &&
 					cert.getIssuer().equals(hostCertificate.getIssuer()))
 				return ValidationResultSpec.VALIDATED_EXISTING_EXPIRED_SAME_CA;
 
 		for (TrustCertificate cert : existingCertificates)
-			if (isCertificateValid(trustView, cert) &&
+			if (isCertificateValid(states, cert) &&
 					cert.getIssuer().equals(hostCertificate.getIssuer()))
 				return ValidationResultSpec.VALIDATED_EXISTING_VALID_SAME_CA;
 
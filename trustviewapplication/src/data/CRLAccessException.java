@@ -0,0 +1,32 @@
+/*
+ * This file is part of the CA Trust Management System (CA-TMS)
+ *
+ * Copyright 2015 by CA-TMS Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package data;
+
+/**
+ * Indicates that the revoked certificates of a stored CRL could not be
+ * looked up, in which case the CRL has to be considered unavailable
+ * 
+ * @author Pascal Weisenburger
+ */
+public class CRLAccessException extends RuntimeException {
+	private static final long serialVersionUID = 3360214738615097283L;
+
+	public CRLAccessException(Throwable cause) {
+		super("Error accessing the stored CRL", cause);
+	}
+}
@@ -95,6 +95,8 @@ public class CRLInfo {
 	 * <code>false</code> if the CRL data is not available
 	 * @see #getCRL()
 	 * @param certificate
+	 * @throws CRLAccessException if the CRL is stored in the data model
+	 * and its revoked certificates could not be looked up
 	 */
 	public boolean isRevoked(TrustCertificate certificate) {
 		if (!crl.isSet())
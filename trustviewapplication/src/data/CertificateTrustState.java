@@ -0,0 +1,99 @@
+/*
+ * This file is part of the CA Trust Management System (CA-TMS)
+ *
+ * Copyright 2015 by CA-TMS Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package data;
+
+/**
+ * Represents the state of a certificate stored in the {@link TrustView}
+ *
+ * @author Pascal Weisenburger
+ */
+public class CertificateTrustState {
+	/** state of a certificate that is not stored in the trust view */
+	public static final CertificateTrustState ABSENT =
+			new CertificateTrustState(false, false, false, false, false);
+
+	private final boolean stored;
+	private final boolean trusted;
+	private final boolean untrusted;
+	private final boolean revoked;
+	private final boolean onWatchlist;
+
+	/**
+	 * Creates a new <code>CertificateTrustState</code> instance
+	 * @param stored whether the certificate is stored in the trust view
+	 * @param trusted whether the certificate is trusted
+	 * @param untrusted whether the certificate is untrusted
+	 * @param revoked whether the certificate is revoked
+	 * @param onWatchlist whether the certificate is on the watchlist
+	 */
+	public CertificateTrustState(boolean stored, boolean trusted,
+			boolean untrusted, boolean revoked, boolean onWatchlist) {
+		this.stored = stored;
+		this.trusted = trusted;
+		this.untrusted = untrusted;
+		this.revoked = revoked;
+		this.onWatchlist = onWatchlist;
+	}
+
+	/**
+	 * @return whether the certificate is stored in the trust view
+	 * @see TrustView#hasCertificate(TrustCertificate)
+	 */
+	public boolean isStored() {
+		return stored;
+	}
+
+	/**
+	 * @return whether the certificate is trusted
+	 * @see TrustView#isCertificateTrusted(TrustCertificate)
+	 */
+	public boolean isTrusted() {
+		return trusted;
+	}
+
+	/**
+	 * @return whether the certificate is untrusted
+	 * @see TrustView#isCertificateUntrusted(TrustCertificate)
+	 */
+	public boolean isUntrusted() {
+		return untrusted;
+	}
+
+	/**
+	 * @return whether the certificate is revoked
+	 * @see TrustView#isCertificateRevoked(TrustCertificate)
+	 */
+	public boolean isRevoked() {
+		return revoked;
+	}
+
+	/**
+	 * @return whether the certificate is on the watchlist
+	 * @see TrustView#isCertificateOnWatchlist(TrustCertificate)
+	 */
+	public boolean isOnWatchlist() {
+		return onWatchlist;
+	}
+
+	@Override
+	public String toString() {
+		return "CertificateTrustState[stored=" + stored +
+				", trusted=" + trusted + ", untrusted=" + untrusted +
+				", revoked=" + revoked + ", onWatchlist=" + onWatchlist + "]";
+	}
+}
@@ -44,12 +44,23 @@ public interface Configuration extends AutoCloseable {
 	static String BOOTSTRAPPING_MODE = "bootstrapping-mode";
 	static String SERVER_PORT = "server-port";
 	static String SERVER_REQUEST_TIMEOUT_MILLIS = "server-request-timeout-millis";
+	static String SERVER_KEEP_ALIVE_MILLIS = "server-keep-alive-millis";
+	static String SERVER_WORKER_THREADS = "server-worker-threads";
+	static String SERVER_WORKER_QUEUE_SIZE = "server-worker-queue-size";
 	static String VALIDATION_SERVICE_TIMEOUT_MILLIS = "validation-service-timeout-millis";
 	static String REVOCATION_CRL_TIMEOUT_MILLIS = "revocation-crl-timeout-millis";
 	static String REVOCATION_OCSP_TIMEOUT_MILLIS = "revocation-ocsp-timeout-millis";
+	static String REVOCATION_PATH_TIMEOUT_MILLIS = "revocation-path-timeout-millis";
 	static String REVOCATION_CHECKING_INTERVAL_MILLIS = "revocation-checking-interval-millis";
 	static String WATCHLIST_EXPIRATION_MILLIS = "watchlist-expiration-millis";
+	static String CLEANING_INTERVAL_MILLIS = "cleaning-interval-millis";
+	static String CLEANING_CHUNK_SIZE = "cleaning-chunk-size";
 	static String OVERRIDE_VALIDATION_SERVICE_RESULT = "override-validation-service-result";
+	static String STORAGE_PROFILE = "storage-profile";
+	static String STORAGE_BUSY_TIMEOUT_MILLIS = "storage-busy-timeout-millis";
+	static String STORAGE_CACHE_SIZE_PAGES = "storage-cache-size-pages";
+	static String STORAGE_MMAP_SIZE_BYTES = "storage-mmap-size-bytes";
+	static String STORAGE_WAL_AUTOCHECKPOINT_PAGES = "storage-wal-autocheckpoint-pages";
 
 	/**
 	 * @return Determines whether the given key exists
@@ -0,0 +1,103 @@
+/*
+ * This file is part of the CA Trust Management System (CA-TMS)
+ *
+ * Copyright 2015 by CA-TMS Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package data;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import data.file.PropertiesFileBackedConfiguration;
+
+/**
+ * Immutable in-memory copy of the complete configuration, i.e. the custom
+ * values stored in the data model together with the default values for keys
+ * that are not set to a custom value.
+ *
+ * <p>A snapshot is published by the {@link Model} whenever modifications to
+ * the configuration are saved. Reading values does not access the data model
+ * and every value is only parsed the first time it is retrieved as a specific
+ * type. Snapshots are read-only, any attempt to modify them fails with an
+ * {@link UnsupportedOperationException}; they need not be closed.</p>
+ *
+ * @author Pascal Weisenburger
+ */
+public final class ConfigurationSnapshot implements Configuration {
+	private final long version;
+	private final Configuration values;
+	private final ConcurrentMap<String, Object> parsedValues =
+			new ConcurrentHashMap<>();
+
+	ConfigurationSnapshot(long version, Map<String, String> values) {
+		Properties properties = new Properties();
+		properties.putAll(values);
+
+		this.version = version;
+		this.values = new PropertiesFileBackedConfiguration(properties);
+	}
+
+	/**
+	 * @return the version of the snapshot, which increases with every
+	 * published snapshot
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	@Override
+	public boolean exists(String key) {
+		return values.exists(key);
+	}
+
+	@Override
+	public <T> T get(String key, Class<T> type) {
+		Object value = parsedValues.get(key);
+		if (type.isInstance(value))
+			return type.cast(value);
+
+		T result = values.get(key, type);
+		parsedValues.put(key, result);
+		return result;
+	}
+
+	@Override
+	public <T> void set(String key, T value) {
+		notSupported();
+	}
+
+	@Override
+	public void delete(String key) {
+		notSupported();
+	}
+
+	@Override
+	public void erase() {
+		notSupported();
+	}
+
+	@Override
+	public void save() { }
+
+	@Override
+	public void close() { }
+
+	private void notSupported() {
+		throw new UnsupportedOperationException(
+				"ConfigurationSnapshot is read-only");
+	}
+}
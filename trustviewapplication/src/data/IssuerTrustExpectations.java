@@ -0,0 +1,73 @@
+/*
+ * This file is part of the CA Trust Management System (CA-TMS)
+ *
+ * Copyright 2015 by CA-TMS Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package data;
+
+/**
+ * Represents the issuer trust expectations aggregated over all
+ * {@link TrustAssessment}s whose S set contains a certificate
+ * issued by a specific issuer
+ *
+ * @author Pascal Weisenburger
+ */
+public class IssuerTrustExpectations {
+	private final int n;
+	private final double f_ca;
+	private final double f_ee;
+
+	/**
+	 * Creates a new <code>IssuerTrustExpectations</code> instance
+	 * @param n the number of aggregated assessments
+	 * @param f_ca the sum of the expectations of the issuer trust
+	 * (to sign CAs) of the aggregated assessments
+	 * @param f_ee the sum of the expectations of the issuer trust
+	 * (to sign end entities) of the aggregated assessments
+	 */
+	public IssuerTrustExpectations(int n, double f_ca, double f_ee) {
+		this.n = n;
+		this.f_ca = f_ca;
+		this.f_ee = f_ee;
+	}
+
+	/**
+	 * @return the number of aggregated assessments
+	 */
+	public int getN() {
+		return n;
+	}
+
+	/**
+	 * @return the sum of the expectations of the issuer trust (to sign CAs)
+	 */
+	public double getF_ca() {
+		return f_ca;
+	}
+
+	/**
+	 * @return the sum of the expectations of the issuer trust
+	 * (to sign end entities)
+	 */
+	public double getF_ee() {
+		return f_ee;
+	}
+
+	@Override
+	public String toString() {
+		return "IssuerTrustExpectations[n=" + n +
+				", f_ca=" + f_ca + ", f_ee=" + f_ee + "]";
+	}
+}
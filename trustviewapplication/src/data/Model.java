@@ -20,12 +20,16 @@ package data;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 
 import util.Util;
 
 import data.file.PropertiesFileBackedConfiguration;
+import data.sqlite.SQLiteBackedConfiguration;
 import data.sqlite.SQLiteBackedModel;
+import data.sqlite.SQLiteStorageProfile;
 
 /**
  * Provides the central access point for the data model that stores the
@@ -40,12 +44,20 @@ public final class Model {
 			"/configuration.properties";
 
 	private static SQLiteBackedModel model = null;
+	private static Properties defaultProperties = null;
 	private static Configuration configuration = null;
+	private static volatile ConfigurationSnapshot configurationSnapshot = null;
 
 	private static synchronized SQLiteBackedModel getModel() throws ModelAccessException {
-		if (model == null)
+		if (model == null) {
 			model = new SQLiteBackedModel(new File(
-							Util.getDataDirectory() + DATABASE_FILE_NAME));
+							Util.getDataDirectory() + DATABASE_FILE_NAME),
+					SQLiteStorageProfile.fromConfiguration(getConfiguration()));
+
+			// the first snapshot is taken before any connection is used
+			// by other threads
+			publishConfigurationSnapshot();
+		}
 		return model;
 	}
 
@@ -59,11 +71,30 @@ public final class Model {
 			catch (IOException e) {
 				throw new ModelAccessException(e);
 			}
+			defaultProperties = properties;
 			configuration = new PropertiesFileBackedConfiguration(properties);
 		}
 		return configuration;
 	}
 
+	private static synchronized ConfigurationSnapshot publishConfigurationSnapshot()
+			throws ModelAccessException {
+		getConfiguration();
+
+		Map<String, String> values = new HashMap<>();
+		for (String key : defaultProperties.stringPropertyNames())
+			values.put(key, defaultProperties.getProperty(key));
+		try (SQLiteBackedConfiguration configuration = getModel().openConfiguration()) {
+			values.putAll(configuration.getValues());
+		}
+
+		ConfigurationSnapshot snapshot = new ConfigurationSnapshot(
+				configurationSnapshot != null ? configurationSnapshot.getVersion() + 1 : 0,
+				values);
+		configurationSnapshot = snapshot;
+		return snapshot;
+	}
+
 	private Model() { }
 
 	/**
@@ -83,6 +114,64 @@ public final class Model {
 		return getModel().openTrustView();
 	}
 
+	/**
+	 * Checks whether the given certificate is trusted without accessing the
+	 * stored data, i.e. without opening a {@link TrustView}. Only data that
+	 * is cached from previous accesses to the stored data is used.
+	 *
+	 * @return <code>true</code> if the certificate is known to be trusted,
+	 * neither untrusted nor revoked and not on the watchlist;
+	 * <code>false</code> if this is not the case or not known
+	 * @param certificate
+	 *
+	 * @throws ModelAccessException if the data model could not be accessed
+	 */
+	public static boolean isCertificateKnownTrusted(TrustCertificate certificate)
+			throws ModelAccessException {
+		return getModel().isCertificateKnownTrusted(certificate);
+	}
+
+	/**
+	 * Opens a {@link TrustView} that can only be used to retrieve information
+	 * and must be closed afterwards in order to release acquired resources.
+	 * Any attempt to modify the <code>TrustView</code> fails with an
+	 * {@link UnsupportedOperationException}.
+	 *
+	 * Read-only <code>TrustView</code>s do not compete with <code>TrustView</code>s
+	 * opened using {@link #openTrustView()} for database connections and
+	 * all information retrieved from the same <code>TrustView</code>
+	 * is consistent.
+	 *
+	 * @return the open <code>TrustView</code> instance
+	 *
+	 * @throws ModelAccessException if the <code>TrustView</code> could not be opened
+	 */
+	public static TrustView openReadOnlyTrustView() throws ModelAccessException {
+		return getModel().openReadOnlyTrustView();
+	}
+
+	/**
+	 * Returns the current immutable {@link ConfigurationSnapshot} that reflects
+	 * the saved configuration. Retrieving values from the snapshot does not
+	 * access the stored data. A new snapshot is published whenever
+	 * modifications to a <code>Configuration</code> opened using
+	 * {@link #openConfiguration()} are saved.
+	 *
+	 * @return the current <code>ConfigurationSnapshot</code> instance
+	 *
+	 * @throws ModelAccessException if the configuration could not be read
+	 */
+	public static ConfigurationSnapshot getConfigurationSnapshot()
+			throws ModelAccessException {
+		ConfigurationSnapshot snapshot = configurationSnapshot;
+		if (snapshot != null)
+			return snapshot;
+
+		// the first snapshot is published when the data model is set up
+		getModel();
+		return configurationSnapshot;
+	}
+
 	/**
 	 * Opens a {@link Configuration} that can be used to retrieve and/or store
 	 * information and must be closed afterwards in order for any modification
@@ -94,7 +183,8 @@ public final class Model {
 	 * a fallback default value will be used.
 	 *
 	 * Note: closing the <code>Configuration</code> may fail in case of concurrent
-	 * modifications.
+	 * modifications. Values that are only read should be retrieved using
+	 * {@link #getConfigurationSnapshot()} instead.
 	 *
 	 * @return the open <code>Configuration</code> instance
 	 *
@@ -138,6 +228,7 @@ public final class Model {
 			@Override
 			public void save() throws ModelAccessException {
 				configuration.save();
+				publishConfigurationSnapshot();
 			}
 
 			@Override
@@ -166,6 +257,7 @@ public final class Model {
 	 */
 	public static void restore(File file) throws ModelAccessException {
 		getModel().restore(file);
+		publishConfigurationSnapshot();
 	}
 
 	/**
@@ -176,5 +268,6 @@ public final class Model {
 	 */
 	public static void erase() throws ModelAccessException {
 		getModel().erase();
+		publishConfigurationSnapshot();
 	}
 }
@@ -0,0 +1,133 @@
+/*
+ * This file is part of the CA Trust Management System (CA-TMS)
+ *
+ * Copyright 2015 by CA-TMS Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package data;
+
+import java.util.Date;
+
+import util.Option;
+
+/**
+ * Represents the result of a revocation check for a certificate
+ * 
+ * @author Pascal Weisenburger
+ */
+public class RevocationStatus {
+	/**
+	 * Represents whether the certificate has been revoked
+	 */
+	public static enum Status { GOOD, REVOKED }
+
+	/**
+	 * Represents the kind of revocation service the status was retrieved from
+	 */
+	public static enum Source { CRL, OCSP }
+
+	private final TrustCertificate certificate;
+	private final Status status;
+	private final Option<Source> source;
+	private final Option<Date> thisUpdate;
+	private final Option<Date> nextUpdate;
+	private final Date checked;
+	private final Date expires;
+
+	/**
+	 * Creates a new <code>RevocationStatus</code> instance
+	 * @param certificate the checked certificate
+	 * @param status the revocation status of the certificate
+	 * @param source the kind of revocation service the status was retrieved
+	 * from if any revocation service was available
+	 * @param thisUpdate the date the revocation service issued the
+	 * revocation information if available
+	 * @param nextUpdate the next update date of the revocation service
+	 * if available
+	 * @param checked the date the revocation check was performed
+	 * @param expires the date after which the certificate has to be
+	 * checked again
+	 */
+	public RevocationStatus(TrustCertificate certificate,
+			Status status, Option<Source> source,
+			Option<Date> thisUpdate, Option<Date> nextUpdate,
+			Date checked, Date expires) {
+		this.certificate = certificate;
+		this.status = status;
+		this.source = source;
+		this.thisUpdate = thisUpdate;
+		this.nextUpdate = nextUpdate;
+		this.checked = checked;
+		this.expires = expires;
+	}
+
+	/**
+	 * @return the checked certificate
+	 */
+	public TrustCertificate getCertificate() {
+		return certificate;
+	}
+
+	/**
+	 * @return the revocation status of the certificate
+	 */
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return the kind of revocation service the status was retrieved from
+	 * if any revocation service was available
+	 */
+	public Option<Source> getSource() {
+		return source;
+	}
+
+	/**
+	 * @return the date the revocation service issued the revocation
+	 * information if available
+	 */
+	public Option<Date> getThisUpdate() {
+		return thisUpdate;
+	}
+
+	/**
+	 * @return the next update date of the revocation service if available
+	 */
+	public Option<Date> getNextUpdate() {
+		return nextUpdate;
+	}
+
+	/**
+	 * @return the date the revocation check was performed
+	 */
+	public Date getChecked() {
+		return checked;
+	}
+
+	/**
+	 * @return the date after which the certificate has to be checked again
+	 */
+	public Date getExpires() {
+		return expires;
+	}
+
+	@Override
+	public String toString() {
+		return "RevocationStatus[" + certificate.getSerial() +
+				", " + certificate.getIssuer() + ", " + status +
+				(source.isSet() ? ", " + source.get() : "") +
+				", expires=" + expires + "]";
+	}
+}
@@ -17,13 +17,19 @@
  */
 package data;
 
+import java.lang.ref.WeakReference;
 import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateException;
 import java.security.cert.CertificateParsingException;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import javax.security.auth.x500.X500Principal;
 import javax.xml.bind.DatatypeConverter;
@@ -32,17 +38,48 @@ import javax.xml.bind.DatatypeConverter;
  * Represents a certificate as used by the CA Trust Management System
  * abstracting over the underlying {@link Certificate} implementation
  * (which has to be {@link X509Certificate})
+ *
+ * <p>A <code>TrustCertificate</code> may only carry the certificate metadata
+ * and load the underlying <code>Certificate</code> using a
+ * {@link CertificateLoader} when it is first accessed.</p>
+ *
+ * <p>Certificates are identified by their serial number, issuer, subject
+ * and public key. Equal certificates can be shared using
+ * {@link #intern(TrustCertificate)}.</p>
  * 
  * @author Pascal Weisenburger
  */
 public class TrustCertificate {
+	/**
+	 * Loads the underlying {@link Certificate} of a
+	 * <code>TrustCertificate</code> on demand
+	 */
+	public static interface CertificateLoader {
+		/**
+		 * @return the underlying certificate of the given
+		 * <code>TrustCertificate</code> or <code>null</code>
+		 * if it is not available
+		 * @param certificate
+		 * @throws CertificateException if the certificate could not be loaded
+		 */
+		Certificate loadCertificate(TrustCertificate certificate)
+				throws CertificateException;
+	}
+
+	// canonical instances by themselves;
+	// instances are removed when they are no longer referenced
+	private static final Map<TrustCertificate, WeakReference<TrustCertificate>> pool =
+			new WeakHashMap<>();
+
 	private final String serial;
 	private final String issuer;
 	private final String subject;
 	private final String publicKey;
-	private final Date notBefore;
-	private final Date notAfter;
-	private final X509Certificate certificate;
+	private final long notBefore;
+	private final long notAfter;
+	private final int hashCode;
+	private volatile X509Certificate certificate;
+	private volatile CertificateLoader loader;
 	private List<String> subjectHosts;
 
 	/**
@@ -55,9 +92,31 @@ public class TrustCertificate {
 		this.issuer = issuer;
 		this.subject = subject;
 		this.publicKey = publicKey;
-		this.notBefore = notBefore;
-		this.notAfter = notAfter;
+		this.notBefore = notBefore.getTime();
+		this.notAfter = notAfter.getTime();
+		this.hashCode = hashCode(serial, issuer, subject, publicKey);
 		this.certificate = null;
+		this.loader = null;
+	}
+
+	/**
+	 * Creates a new <code>Certificate</code> initializing it with all data that
+	 * is needed for a certificate in the CA Trust Management System;
+	 * the underlying {@link Certificate} is loaded using the given loader
+	 * when it is first accessed using {@link #getCertificate()}
+	 */
+	public TrustCertificate(String serial, String issuer, String subject,
+			String publicKey, Date notBefore, Date notAfter,
+			CertificateLoader loader) {
+		this.serial = serial;
+		this.issuer = issuer;
+		this.subject = subject;
+		this.publicKey = publicKey;
+		this.notBefore = notBefore.getTime();
+		this.notAfter = notAfter.getTime();
+		this.hashCode = hashCode(serial, issuer, subject, publicKey);
+		this.certificate = null;
+		this.loader = loader;
 	}
 
 	/**
@@ -77,9 +136,11 @@ public class TrustCertificate {
 					X500Principal.CANONICAL);
 			this.publicKey = DatatypeConverter.printBase64Binary(
 					x509cert.getPublicKey().getEncoded());
-			this.notBefore = x509cert.getNotBefore();
-			this.notAfter = x509cert.getNotAfter();
+			this.notBefore = x509cert.getNotBefore().getTime();
+			this.notAfter = x509cert.getNotAfter().getTime();
+			this.hashCode = hashCode(serial, issuer, subject, publicKey);
 			this.certificate = x509cert;
+			this.loader = null;
 		}
 		else
 			throw new UnsupportedOperationException(
@@ -119,33 +180,47 @@ public class TrustCertificate {
 	 * @return the date which before the certificate is not valid
 	 */
 	public Date getNotBefore() {
-		return notBefore;
+		return new Date(notBefore);
 	}
 
 	/**
 	 * @return the date which after the certificate is not valid
 	 */
 	public Date getNotAfter() {
-		return notAfter;
+		return new Date(notAfter);
 	}
 
 	/**
-	 * @return the underlying {@link Certificate} implementation;
+	 * @return the underlying {@link Certificate} implementation, which is
+	 * loaded if it was not loaded yet;
 	 * will return <code>null</code> if the <code>TrustCertificate</code>
-	 * instance was not created using the {@link #TrustCertificate(Certificate)}
-	 * constructor
+	 * instance was neither created using the {@link #TrustCertificate(Certificate)}
+	 * constructor nor can the certificate be loaded
 	 */
 	public Certificate getCertificate() {
+		X509Certificate certificate = this.certificate;
+		if (certificate == null && loader != null)
+			certificate = loadCertificate();
 		return certificate;
 	}
 
+	/**
+	 * @return whether the underlying {@link Certificate} is available without
+	 * loading it, i.e. {@link #getCertificate()} returns immediately
+	 */
+	public boolean isCertificateLoaded() {
+		return certificate != null || loader == null;
+	}
+
 	/**
 	 * @return the subject common names of the underlying {@link Certificate}
 	 * implementation; will return <code>null</code> if the
-	 * <code>TrustCertificate</code> instance was not created using the
-	 * {@link #TrustCertificate(Certificate)} constructor
+	 * <code>TrustCertificate</code> instance was neither created using the
+	 * {@link #TrustCertificate(Certificate)} constructor nor can the
+	 * certificate be loaded
 	 */
-	public List<String> getSubjectHosts() {
+	public synchronized List<String> getSubjectHosts() {
+		X509Certificate certificate = (X509Certificate) getCertificate();
 		if (certificate == null)
 			return null;
 
@@ -184,12 +259,91 @@ public class TrustCertificate {
 		return subjectHosts;
 	}
 
-	@Override
-	public int hashCode() {
+	private synchronized X509Certificate loadCertificate() {
+		if (certificate == null && loader != null)
+			try {
+				Certificate loaded = loader.loadCertificate(this);
+
+				// only use the loaded certificate if it matches the metadata
+				if (loaded instanceof X509Certificate) {
+					TrustCertificate other = new TrustCertificate(loaded);
+					if (equals(other) &&
+							notBefore == other.notBefore &&
+							notAfter == other.notAfter)
+						certificate = (X509Certificate) loaded;
+				}
+			}
+			catch (CertificateException e) {
+				e.printStackTrace();
+			}
+			finally {
+				// the loader is kept if the certificate was loaded,
+				// since it identifies where the certificate was loaded from
+				if (certificate == null)
+					loader = null;
+			}
+		return certificate;
+	}
+
+	// whether this certificate and the given equal certificate can be
+	// represented by the same instance, i.e. both load their underlying
+	// certificates using the same loader, i.e. from the same stored data,
+	// or both carry underlying certificates of the same encoding
+	private boolean isInterchangeable(TrustCertificate other) {
+		if (notBefore != other.notBefore || notAfter != other.notAfter)
+			return false;
+
+		CertificateLoader loader = this.loader;
+		if (loader != null && loader == other.loader)
+			return true;
+
+		X509Certificate certificate = this.certificate;
+		X509Certificate otherCertificate = other.certificate;
+		if (certificate == null || otherCertificate == null)
+			return false;
+
+		try {
+			return certificate == otherCertificate ||
+			       Arrays.equals(certificate.getEncoded(),
+			                     otherCertificate.getEncoded());
+		}
+		catch (CertificateEncodingException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return the canonical instance that is equal to the given certificate
+	 * and carries the same underlying {@link Certificate}, which is the given
+	 * certificate itself if there is no such canonical instance; certificates
+	 * with differently encoded underlying certificates are never shared
+	 * @param certificate
+	 */
+	public static TrustCertificate intern(TrustCertificate certificate) {
+		synchronized (pool) {
+			WeakReference<TrustCertificate> reference = pool.get(certificate);
+			TrustCertificate canonical = reference != null ? reference.get() : null;
+			if (canonical == null) {
+				pool.put(certificate, new WeakReference<>(certificate));
+				return certificate;
+			}
+			if (canonical == certificate || canonical.isInterchangeable(certificate))
+				return canonical;
+			return certificate;
+		}
+	}
+
+	private static int hashCode(String serial, String issuer,
+			String subject, String publicKey) {
 		return 29791 * serial.hashCode() + 961 * issuer.hashCode() +
 		       31 * subject.hashCode() + publicKey.hashCode();
 	}
 
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		if (this == obj)
@@ -199,9 +353,10 @@ public class TrustCertificate {
 		if (getClass() != obj.getClass())
 			return false;
 		TrustCertificate other = (TrustCertificate) obj;
-		return serial.equals(other.getSerial()) &&
-		       issuer.equals(other.getIssuer()) &&
-		       subject.equals(other.getSubject()) &&
-		       publicKey.equals(other.getPublicKey());
+		return hashCode == other.hashCode &&
+		       serial.equals(other.serial) &&
+		       issuer.equals(other.issuer) &&
+		       subject.equals(other.subject) &&
+		       publicKey.equals(other.publicKey);
 	}
 }
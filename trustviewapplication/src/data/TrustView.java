@@ -19,6 +19,8 @@ package data;
 
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 
 /**
  * <p>Provides access to the Trust View.
@@ -59,6 +61,18 @@ public interface TrustView extends AutoCloseable {
 	 */
 	TrustAssessment getAssessment(String k, String ca);
 
+	/**
+	 * Retrieves the {@link TrustAssessment}s for several certificates at once,
+	 * e.g. for all certificates of a certificate path
+	 *
+	 * @param S certificates certifying CAs
+	 *
+	 * @return the <code>TrustAssessment</code>s for the CAs that are certified
+	 * by the given certificates at the index of the respective certificate;
+	 * <code>null</code> for certificates without a stored assessment
+	 */
+	List<TrustAssessment> getAssessments(List<TrustCertificate> S);
+
 	/**
 	 * Sets the given {@link TrustAssessment} by incorporating it into the
 	 * <code>TrustView</code>, potentially overwriting a previous
@@ -77,6 +91,8 @@ public interface TrustView extends AutoCloseable {
 	 *
 	 * This updates the internal assessment time stamp used
 	 * when cleaning the trust view using {@link #clean()}.
+	 * The time stamp may be stored with a delay and even if the
+	 * <code>TrustView</code> is not saved.
 	 *
 	 * @param k public key for the given CA
 	 * @param ca the CA which the public key belongs to
@@ -98,6 +114,48 @@ public interface TrustView extends AutoCloseable {
 	 */
 	Collection<TrustAssessment> getAssessments();
 
+	/**
+	 * @return a collection of all {@link TrustAssessment}s that are
+	 * currently stored in the <code>TrustView</code>, where the certificates
+	 * of the S sets only carry the certificate metadata, which avoids parsing
+	 * the stored certificates; their X.509 certificate data is loaded when
+	 * {@link TrustCertificate#getCertificate()} is first called or, if the
+	 * <code>TrustView</code> does not support loading it, the method
+	 * returns <code>null</code>
+	 */
+	Collection<TrustAssessment> getAssessmentsWithoutCertificateData();
+
+	/**
+	 * @param ca the CA
+	 *
+	 * @return a {@link TrustAssessment} for the given CA regardless of the
+	 * public key or <code>null</code> if the <code>TrustView</code> does not
+	 * contain any assessment for the CA
+	 */
+	TrustAssessment getAssessmentForCA(String ca);
+
+	/**
+	 * @param issuer the certificate issuer
+	 *
+	 * @return the issuer trust expectations aggregated over all
+	 * {@link TrustAssessment}s whose S set contains a certificate
+	 * issued by the given issuer
+	 */
+	IssuerTrustExpectations getIssuerTrustExpectations(String issuer);
+
+	/**
+	 * Retrieves the states of several certificates at once,
+	 * e.g. for all certificates of a certificate path
+	 *
+	 * @param certificates
+	 *
+	 * @return the {@link CertificateTrustState} of each of the given
+	 * certificates; certificates whose state could not be retrieved are not
+	 * contained
+	 */
+	Map<TrustCertificate, CertificateTrustState> getTrustStates(
+			Collection<TrustCertificate> certificates);
+
 	/**
 	 * @return a collection of all trusted certificates that are
 	 * currently stored in the <code>TrustView</code>
@@ -246,15 +304,43 @@ public interface TrustView extends AutoCloseable {
 	 */
 	OCSPInfo getOCSP(OCSPInfo ocspInfo);
 
+	/**
+	 * Sets the result of the latest revocation check for the certificate
+	 * of the given revocation status
+	 * @param status
+	 */
+	void setRevocationStatus(RevocationStatus status);
+
+	/**
+	 * @return the result of the latest revocation check for the given
+	 * certificate or <code>null</code> if the <code>TrustView</code> does not
+	 * contain a revocation status for the certificate
+	 * @param certificate
+	 */
+	RevocationStatus getRevocationStatus(TrustCertificate certificate);
+
 	/**
 	 * Cleans the trust view.
 	 *
 	 * This means all expired assessments will be removed
 	 * (see {@link Configuration#ASSESSMENT_EXPIRATION_MILLIS})
-	 * as well as all certificates that left their validity period.
+	 * as well as all certificates that left their validity period
+	 * and all expired revocation statuses.
 	 */
 	void clean();
 
+	/**
+	 * Cleans the trust view incrementally.
+	 *
+	 * This removes the same data as {@link #clean()} but removes at most the
+	 * given number of entries per kind of data, so that cleaning a large
+	 * trust view can be split into multiple short transactions.
+	 *
+	 * @param limit the maximum number of entries to be removed per kind
+	 * @return whether there may be further data to be removed
+	 */
+	boolean clean(int limit);
+
 	/**
 	 * Erases all data stored in the trust view
 	 */
@@ -0,0 +1,86 @@
+/*
+ * This file is part of the CA Trust Management System (CA-TMS)
+ *
+ * Copyright 2015 by CA-TMS Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package data.sqlite;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the last access times of assessments in memory until they are
+ * written to the database by a {@link SQLiteBackedTrustView}, so that
+ * marking assessments as valid does not require a write transaction.
+ * Multiple accesses to the same assessment are coalesced, keeping the
+ * latest access time.
+ *
+ * @author Pascal Weisenburger
+ */
+final class AssessmentTimestamps {
+	private final ConcurrentMap<TrustViewCache.Key, Long> timestamps =
+			new ConcurrentHashMap<>();
+
+	/**
+	 * Records an access to the given assessment at the given time
+	 * @param key the public key and CA of the assessment
+	 * @param timestampMillis
+	 */
+	void touch(TrustViewCache.Key key, long timestampMillis) {
+		while (true) {
+			Long previous = timestamps.putIfAbsent(key, timestampMillis);
+			if (previous == null || previous >= timestampMillis ||
+					timestamps.replace(key, previous, timestampMillis))
+				return;
+		}
+	}
+
+	/**
+	 * Records the accesses contained in the given map again,
+	 * e.g., if writing them to the database failed
+	 * @param timestamps
+	 */
+	void touchAll(Map<TrustViewCache.Key, Long> timestamps) {
+		for (Map.Entry<TrustViewCache.Key, Long> entry : timestamps.entrySet())
+			touch(entry.getKey(), entry.getValue());
+	}
+
+	/**
+	 * @return the recorded accesses, which are removed
+	 */
+	Map<TrustViewCache.Key, Long> drain() {
+		Map<TrustViewCache.Key, Long> drained = new HashMap<>();
+		for (Map.Entry<TrustViewCache.Key, Long> entry : timestamps.entrySet())
+			if (timestamps.remove(entry.getKey(), entry.getValue()))
+				drained.put(entry.getKey(), entry.getValue());
+		return drained;
+	}
+
+	/**
+	 * @return whether there are no recorded accesses
+	 */
+	boolean isEmpty() {
+		return timestamps.isEmpty();
+	}
+
+	/**
+	 * Removes all recorded accesses
+	 */
+	void clear() {
+		timestamps.clear();
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * This file is part of the CA Trust Management System (CA-TMS)
+ *
+ * Copyright 2015 by CA-TMS Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package data.sqlite;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Database connection that caches the statements prepared on it, so that
+ * each statement is compiled only once, when it is first requested on the
+ * connection, and is reused by all subsequent users of the connection.
+ *
+ * <p>A connection that belongs to a {@link ConnectionPool} is returned to
+ * the pool when it is closed, keeping its statements prepared. A connection
+ * that does not belong to a pool is closed together with its statements.
+ * A connection must only be used by one thread at a time.</p>
+ *
+ * @author Pascal Weisenburger
+ */
+final class CachingConnection implements AutoCloseable {
+	private final Connection connection;
+	private final ConnectionPool pool;
+	private final Map<String, PreparedStatement> statements = new HashMap<>();
+	private final Map<String, UpdateInsertStmnt> updateInsertStatements =
+			new HashMap<>();
+
+	/**
+	 * Creates a new <code>CachingConnection</code> instance for the given
+	 * database connection that does not belong to a pool
+	 * @param connection
+	 */
+	CachingConnection(Connection connection) {
+		this(connection, null);
+	}
+
+	CachingConnection(Connection connection, ConnectionPool pool) {
+		this.connection = connection;
+		this.pool = pool;
+	}
+
+	/**
+	 * @return the underlying database connection
+	 */
+	Connection getConnection() {
+		return connection;
+	}
+
+	/**
+	 * @return the cached statement for the given SQL, which is prepared
+	 * if it is requested for the first time on this connection
+	 * @param sql
+	 * @throws SQLException
+	 */
+	PreparedStatement prepareStatement(String sql) throws SQLException {
+		PreparedStatement statement = statements.get(sql);
+		if (statement == null) {
+			statement = connection.prepareStatement(sql);
+			statements.put(sql, statement);
+		}
+		return statement;
+	}
+
+	/**
+	 * @return the cached {@link UpdateInsertStmnt} for the given table and
+	 * key-value pairs, which is prepared if it is requested for the first time
+	 * on this connection
+	 * @param table
+	 * @param primaryValues
+	 * @param values
+	 * @throws SQLException
+	 * @see UpdateInsertStmnt#UpdateInsertStmnt(Connection, String, String[], String[])
+	 */
+	UpdateInsertStmnt prepareUpdateInsertStatement(String table,
+			String[] primaryValues, String[] values) throws SQLException {
+		String key = table + Arrays.toString(primaryValues) +
+				Arrays.toString(values);
+		UpdateInsertStmnt statement = updateInsertStatements.get(key);
+		if (statement == null) {
+			statement = new UpdateInsertStmnt(
+					connection, table, primaryValues, values);
+			updateInsertStatements.put(key, statement);
+		}
+		return statement;
+	}
+
+	/**
+	 * Rolls back the current transaction, discards all queued batches and
+	 * returns the connection to its pool. If the connection does not belong
+	 * to a pool or cannot be reset, it is closed together with its statements.
+	 * The connection must not be used after closing it.
+	 * @throws SQLException
+	 */
+	@Override
+	public void close() throws SQLException {
+		boolean reusable = false;
+		try {
+			if (!connection.isClosed()) {
+				if (!connection.getAutoCommit())
+					connection.rollback();
+				for (PreparedStatement statement : statements.values())
+					statement.clearBatch();
+				for (UpdateInsertStmnt statement : updateInsertStatements.values())
+					statement.clearBatch();
+				reusable = pool != null;
+			}
+		}
+		finally {
+			if (reusable)
+				pool.release(this);
+			else
+				try {
+					dispose();
+				}
+				finally {
+					if (pool != null)
+						pool.discard(this);
+				}
+		}
+	}
+
+	/**
+	 * Closes the connection together with its statements
+	 * @throws SQLException
+	 */
+	void dispose() throws SQLException {
+		try {
+			for (PreparedStatement statement : statements.values())
+				statement.close();
+			for (UpdateInsertStmnt statement : updateInsertStatements.values())
+				statement.close();
+		}
+		finally {
+			statements.clear();
+			updateInsertStatements.clear();
+			if (!connection.isClosed())
+				connection.close();
+		}
+	}
+}
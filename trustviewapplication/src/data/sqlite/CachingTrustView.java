@@ -0,0 +1,416 @@
+/*
+ * This file is part of the CA Trust Management System (CA-TMS)
+ *
+ * Copyright 2015 by CA-TMS Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package data.sqlite;
+
+import java.security.cert.CertificateException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import util.Option;
+
+import data.CRLInfo;
+import data.CertificateTrustState;
+import data.IssuerTrustExpectations;
+import data.ModelAccessException;
+import data.OCSPInfo;
+import data.RevocationStatus;
+import data.TrustAssessment;
+import data.TrustCertificate;
+import data.TrustView;
+
+/**
+ * Implementation of the {@link TrustView} that serves the certificate trust
+ * flags and the assessments looked up during trust validation from a
+ * {@link TrustViewCache} shared by all trust views of the model and falls back
+ * to a {@link SQLiteBackedTrustView} for any data that is not cached.
+ *
+ * <p>All modifications are written through to the underlying trust view.
+ * Entries that were modified by this trust view are read from the underlying
+ * trust view until the modifications are saved, after which the
+ * respective cache entries are invalidated.</p>
+ *
+ * @author Pascal Weisenburger
+ */
+public class CachingTrustView implements TrustView {
+	private final SQLiteBackedTrustView trustView;
+	private final TrustViewCache cache;
+	private final long generation;
+
+	private final Set<TrustViewCache.Key> modifiedCertificates = new HashSet<>();
+	private final Set<TrustViewCache.Key> modifiedAssessments = new HashSet<>();
+	private boolean modifiedAll = false;
+
+	CachingTrustView(SQLiteBackedTrustView trustView, TrustViewCache cache) {
+		this.trustView = trustView;
+		this.cache = cache;
+		this.generation = cache.getGeneration();
+
+		trustView.notify(new Notification() {
+			@Override
+			public void saved() {
+				invalidate();
+			}
+		});
+	}
+
+	@Override
+	public TrustAssessment getAssessment(TrustCertificate S) {
+		return getAssessment(S.getPublicKey(), S.getSubject());
+	}
+
+	@Override
+	public TrustAssessment getAssessment(String k, String ca) {
+		TrustViewCache.Key key = new TrustViewCache.Key(k, ca);
+		if (modifiedAll || modifiedAssessments.contains(key))
+			return trustView.getAssessment(k, ca);
+
+		Option<TrustAssessment> cached = cache.getAssessment(key);
+		if (cached != null)
+			return cached.isSet() ? cached.get() : null;
+
+		try {
+			TrustAssessment assessment = trustView.findAssessment(k, ca);
+			cache.putAssessment(generation, key, assessment);
+			return assessment;
+		}
+		catch (SQLException | CertificateException e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	@Override
+	public List<TrustAssessment> getAssessments(List<TrustCertificate> S) {
+		List<TrustViewCache.Key> keys = new ArrayList<>(S.size());
+		for (TrustCertificate certificate : S)
+			keys.add(new TrustViewCache.Key(
+					certificate.getPublicKey(), certificate.getSubject()));
+
+		// serve cached assessments and look up all others at once
+		Map<TrustViewCache.Key, TrustAssessment> assessments = new HashMap<>();
+		Set<TrustViewCache.Key> uncachedKeys = new LinkedHashSet<>();
+		for (TrustViewCache.Key key : keys) {
+			Option<TrustAssessment> cached = null;
+			if (!modifiedAll && !modifiedAssessments.contains(key))
+				cached = cache.getAssessment(key);
+
+			if (cached != null)
+				assessments.put(key, cached.isSet() ? cached.get() : null);
+			else
+				uncachedKeys.add(key);
+		}
+
+		if (!uncachedKeys.isEmpty())
+			try {
+				Map<TrustViewCache.Key, TrustAssessment> storedAssessments =
+						trustView.findAssessments(uncachedKeys);
+				for (TrustViewCache.Key key : uncachedKeys) {
+					TrustAssessment assessment = storedAssessments.get(key);
+					assessments.put(key, assessment);
+					if (!modifiedAll && !modifiedAssessments.contains(key))
+						cache.putAssessment(generation, key, assessment);
+				}
+			}
+			catch (SQLException | CertificateException e) {
+				e.printStackTrace();
+			}
+
+		return SQLiteBackedTrustView.assessmentsFor(keys, assessments);
+	}
+
+	@Override
+	public void setAssessment(TrustAssessment assessment) {
+		modifiedAssessments.add(
+				new TrustViewCache.Key(assessment.getK(), assessment.getCa()));
+		for (TrustCertificate cert : assessment.getS())
+			modifiedCertificates.add(certificateKey(cert));
+		trustView.setAssessment(assessment);
+	}
+
+	@Override
+	public void setAssessmentValid(String k, String ca) {
+		// only updates the time stamp, which is not cached
+		trustView.setAssessmentValid(k, ca);
+	}
+
+	@Override
+	public void removeAssessment(String k, String ca) {
+		modifiedAssessments.add(new TrustViewCache.Key(k, ca));
+		trustView.removeAssessment(k, ca);
+	}
+
+	@Override
+	public Collection<TrustAssessment> getAssessments() {
+		return trustView.getAssessments();
+	}
+
+	@Override
+	public Collection<TrustAssessment> getAssessmentsWithoutCertificateData() {
+		return trustView.getAssessmentsWithoutCertificateData();
+	}
+
+	@Override
+	public TrustAssessment getAssessmentForCA(String ca) {
+		return trustView.getAssessmentForCA(ca);
+	}
+
+	@Override
+	public IssuerTrustExpectations getIssuerTrustExpectations(String issuer) {
+		return trustView.getIssuerTrustExpectations(issuer);
+	}
+
+	@Override
+	public Collection<TrustCertificate> getTrustedCertificates() {
+		return trustView.getTrustedCertificates();
+	}
+
+	@Override
+	public boolean isCertificateTrusted(TrustCertificate certificate) {
+		CertificateTrustState state = getCertificateState(certificate);
+		return state != null && state.isTrusted();
+	}
+
+	@Override
+	public Collection<TrustCertificate> getUntrustedCertificates() {
+		return trustView.getUntrustedCertificates();
+	}
+
+	@Override
+	public boolean isCertificateUntrusted(TrustCertificate certificate) {
+		CertificateTrustState state = getCertificateState(certificate);
+		return state != null && state.isUntrusted();
+	}
+
+	@Override
+	public Collection<TrustCertificate> getAllCertificates() {
+		return trustView.getAllCertificates();
+	}
+
+	@Override
+	public boolean hasCertificate(TrustCertificate certificate) {
+		CertificateTrustState state = getCertificateState(certificate);
+		return state != null && state.isStored();
+	}
+
+	@Override
+	public Map<TrustCertificate, CertificateTrustState> getTrustStates(
+			Collection<TrustCertificate> certificates) {
+		// serve cached states and look up all others at once
+		Map<TrustViewCache.Key, CertificateTrustState> states = new HashMap<>();
+		Set<TrustViewCache.Key> uncachedKeys = new LinkedHashSet<>();
+		for (TrustCertificate certificate : certificates) {
+			TrustViewCache.Key key = certificateKey(certificate);
+			CertificateTrustState state = null;
+			if (!modifiedAll && !modifiedCertificates.contains(key))
+				state = cache.getCertificate(key);
+
+			if (state != null)
+				states.put(key, state);
+			else
+				uncachedKeys.add(key);
+		}
+
+		if (!uncachedKeys.isEmpty())
+			try {
+				Map<TrustViewCache.Key, CertificateTrustState> storedStates =
+						trustView.findCertificateStates(uncachedKeys);
+				for (TrustViewCache.Key key : uncachedKeys) {
+					CertificateTrustState state = storedStates.get(key);
+					states.put(key, state);
+					if (!modifiedAll && !modifiedCertificates.contains(key))
+						cache.putCertificate(generation, key, state);
+				}
+			}
+			catch (SQLException e) {
+				e.printStackTrace();
+				return new HashMap<>();
+			}
+
+		Map<TrustCertificate, CertificateTrustState> result = new HashMap<>();
+		for (TrustCertificate certificate : certificates)
+			result.put(certificate, states.get(certificateKey(certificate)));
+		return result;
+	}
+
+	@Override
+	public void setTrustedCertificate(TrustCertificate S) {
+		modifiedCertificates.add(certificateKey(S));
+		trustView.setTrustedCertificate(S);
+	}
+
+	@Override
+	public void setUntrustedCertificate(TrustCertificate S) {
+		modifiedCertificates.add(certificateKey(S));
+		trustView.setUntrustedCertificate(S);
+	}
+
+	@Override
+	public void removeCertificate(TrustCertificate S) {
+		modifiedCertificates.add(certificateKey(S));
+		trustView.removeCertificate(S);
+	}
+
+	@Override
+	public void setRevokedCertificate(TrustCertificate certificate) {
+		modifiedCertificates.add(certificateKey(certificate));
+		trustView.setRevokedCertificate(certificate);
+	}
+
+	@Override
+	public boolean isCertificateRevoked(TrustCertificate certificate) {
+		CertificateTrustState state = getCertificateState(certificate);
+		return state != null && state.isRevoked();
+	}
+
+	@Override
+	public Collection<TrustCertificate> getCertificatesForHost(String host) {
+		return trustView.getCertificatesForHost(host);
+	}
+
+	@Override
+	public void addHostForCertificate(TrustCertificate certificate, String host) {
+		trustView.addHostForCertificate(certificate, host);
+	}
+
+	@Override
+	public void addCertificateToWatchlist(TrustCertificate certificate) {
+		modifiedCertificates.add(certificateKey(certificate));
+		trustView.addCertificateToWatchlist(certificate);
+	}
+
+	@Override
+	public void removeCertificateFromWatchlist(TrustCertificate certificate) {
+		modifiedCertificates.add(certificateKey(certificate));
+		trustView.removeCertificateFromWatchlist(certificate);
+	}
+
+	@Override
+	public boolean isCertificateOnWatchlist(TrustCertificate certificate) {
+		return trustView.isCertificateOnWatchlist(certificate);
+	}
+
+	@Override
+	public Collection<TrustCertificate> getWatchlist() {
+		return trustView.getWatchlist();
+	}
+
+	@Override
+	public Date getWatchlistCerrtificateTimestamp(TrustCertificate certificate) {
+		return trustView.getWatchlistCerrtificateTimestamp(certificate);
+	}
+
+	@Override
+	public void addCRL(CRLInfo crlInfo) {
+		modifiedCertificates.add(certificateKey(crlInfo.getCRLIssuer()));
+		trustView.addCRL(crlInfo);
+	}
+
+	@Override
+	public CRLInfo getCRL(CRLInfo crlInfo) {
+		return trustView.getCRL(crlInfo);
+	}
+
+	@Override
+	public void addOCSP(OCSPInfo ocspInfo) {
+		modifiedCertificates.add(certificateKey(ocspInfo.getCertificateIssuer()));
+		trustView.addOCSP(ocspInfo);
+	}
+
+	@Override
+	public OCSPInfo getOCSP(OCSPInfo ocspInfo) {
+		return trustView.getOCSP(ocspInfo);
+	}
+
+	@Override
+	public void setRevocationStatus(RevocationStatus status) {
+		trustView.setRevocationStatus(status);
+	}
+
+	@Override
+	public RevocationStatus getRevocationStatus(TrustCertificate certificate) {
+		return trustView.getRevocationStatus(certificate);
+	}
+
+	@Override
+	public void clean() {
+		modifiedAll = true;
+		trustView.clean();
+	}
+
+	@Override
+	public boolean clean(int limit) {
+		modifiedAll = true;
+		return trustView.clean(limit);
+	}
+
+	@Override
+	public void erase() {
+		modifiedAll = true;
+		trustView.erase();
+	}
+
+	@Override
+	public void notify(Notification notification) {
+		trustView.notify(notification);
+	}
+
+	@Override
+	public void save() throws ModelAccessException {
+		trustView.save();
+	}
+
+	@Override
+	public void close() throws ModelAccessException {
+		trustView.close();
+	}
+
+	private void invalidate() {
+		if (modifiedAll)
+			cache.clear();
+		else if (!modifiedCertificates.isEmpty() || !modifiedAssessments.isEmpty())
+			cache.invalidate(modifiedCertificates, modifiedAssessments);
+	}
+
+	private CertificateTrustState getCertificateState(
+			TrustCertificate certificate) {
+		TrustViewCache.Key key = certificateKey(certificate);
+		if (modifiedAll || modifiedCertificates.contains(key))
+			return trustView.getCertificateState(certificate);
+
+		CertificateTrustState state = cache.getCertificate(key);
+		if (state == null) {
+			state = trustView.getCertificateState(certificate);
+			if (state != null)
+				cache.putCertificate(generation, key, state);
+		}
+		return state;
+	}
+
+	static TrustViewCache.Key certificateKey(TrustCertificate certificate) {
+		return new TrustViewCache.Key(
+				certificate.getSerial(), certificate.getIssuer());
+	}
+}
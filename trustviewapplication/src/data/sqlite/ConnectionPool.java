@@ -0,0 +1,151 @@
+/*
+ * This file is part of the CA Trust Management System (CA-TMS)
+ *
+ * Copyright 2015 by CA-TMS Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package data.sqlite;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.sqlite.SQLiteConfig;
+
+/**
+ * Pool of {@link CachingConnection}s to a SQLite database.
+ *
+ * <p>Physical connections are opened on demand up to the maximum number of
+ * connections and are kept open when they are returned to the pool, so that
+ * the statements prepared on them can be reused. The most recently returned
+ * connection is handed out first. Checking out a connection does not require
+ * any lock to be held and only waits if all connections are in use.</p>
+ *
+ * @author Pascal Weisenburger
+ */
+final class ConnectionPool {
+	private static final long TIMEOUT_MILLIS = 60000;
+
+	private final String url;
+	private final SQLiteConfig config;
+	private final SQLiteStorageProfile storageProfile;
+	private final Semaphore permits;
+	private final Deque<CachingConnection> idleConnections =
+			new ConcurrentLinkedDeque<>();
+	private volatile boolean disposed = false;
+
+	/**
+	 * Creates a new <code>ConnectionPool</code> instance
+	 * @param url the JDBC URL of the database
+	 * @param config the driver configuration the connections are opened with
+	 * @param storageProfile the storage profile whose per-connection settings
+	 * are applied to every opened connection
+	 * @param maxConnections the maximum number of connections
+	 */
+	ConnectionPool(String url, SQLiteConfig config,
+			SQLiteStorageProfile storageProfile, int maxConnections) {
+		this.url = url;
+		this.config = config;
+		this.storageProfile = storageProfile;
+		this.permits = new Semaphore(maxConnections, true);
+	}
+
+	/**
+	 * @return a connection of the pool, which is to be closed to return it to
+	 * the pool; waits for a connection to become available if all connections
+	 * are in use
+	 * @throws SQLException if no connection became available in time or a
+	 * new connection could not be opened
+	 */
+	CachingConnection getConnection() throws SQLException {
+		if (disposed)
+			throw new SQLException("The connection pool has been disposed.");
+
+		try {
+			if (!permits.tryAcquire(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+				throw new SQLException(
+						"Timeout while waiting for a free database connection.");
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException(
+					"Interrupted while waiting for a free database connection.", e);
+		}
+
+		try {
+			CachingConnection connection = idleConnections.pollFirst();
+			if (connection == null)
+				connection = new CachingConnection(open(), this);
+			return connection;
+		}
+		catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Closes all idle connections. Connections that are in use are closed
+	 * when they are returned to the pool.
+	 */
+	void dispose() {
+		disposed = true;
+		for (CachingConnection connection;
+				(connection = idleConnections.pollFirst()) != null; )
+			dispose(connection);
+	}
+
+	void release(CachingConnection connection) {
+		idleConnections.offerFirst(connection);
+
+		// the pool may have been disposed concurrently
+		if (disposed && idleConnections.remove(connection))
+			dispose(connection);
+
+		permits.release();
+	}
+
+	void discard(CachingConnection connection) {
+		permits.release();
+	}
+
+	private Connection open() throws SQLException {
+		Connection connection = config.createConnection(url);
+		try {
+			storageProfile.applyConnectionSettings(connection);
+		}
+		catch (SQLException e) {
+			try {
+				connection.close();
+			}
+			catch (Throwable t) {
+				e.addSuppressed(t);
+			}
+			throw e;
+		}
+		return connection;
+	}
+
+	private static void dispose(CachingConnection connection) {
+		try {
+			connection.dispose();
+		}
+		catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,261 @@
+/*
+ * This file is part of the CA Trust Management System (CA-TMS)
+ *
+ * Copyright 2015 by CA-TMS Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package data.sqlite;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import data.CRLInfo;
+import data.CertificateTrustState;
+import data.IssuerTrustExpectations;
+import data.ModelAccessException;
+import data.OCSPInfo;
+import data.RevocationStatus;
+import data.TrustAssessment;
+import data.TrustCertificate;
+import data.TrustView;
+
+/**
+ * Implementation of the {@link TrustView} that provides read-only access to
+ * another trust view. All methods that would modify the trust view throw an
+ * {@link UnsupportedOperationException}. Saving the trust view only closes it,
+ * since there are no modifications to be saved.
+ *
+ * @author Pascal Weisenburger
+ */
+class ReadOnlyTrustView implements TrustView {
+	private final TrustView trustView;
+
+	ReadOnlyTrustView(TrustView trustView) {
+		this.trustView = trustView;
+	}
+
+	@Override
+	public TrustAssessment getAssessment(TrustCertificate S) {
+		return trustView.getAssessment(S);
+	}
+
+	@Override
+	public TrustAssessment getAssessment(String k, String ca) {
+		return trustView.getAssessment(k, ca);
+	}
+
+	@Override
+	public List<TrustAssessment> getAssessments(List<TrustCertificate> S) {
+		return trustView.getAssessments(S);
+	}
+
+	@Override
+	public void setAssessment(TrustAssessment assessment) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setAssessmentValid(String k, String ca) {
+		throw readOnly();
+	}
+
+	@Override
+	public void removeAssessment(String k, String ca) {
+		throw readOnly();
+	}
+
+	@Override
+	public Collection<TrustAssessment> getAssessments() {
+		return trustView.getAssessments();
+	}
+
+	@Override
+	public Collection<TrustAssessment> getAssessmentsWithoutCertificateData() {
+		return trustView.getAssessmentsWithoutCertificateData();
+	}
+
+	@Override
+	public TrustAssessment getAssessmentForCA(String ca) {
+		return trustView.getAssessmentForCA(ca);
+	}
+
+	@Override
+	public IssuerTrustExpectations getIssuerTrustExpectations(String issuer) {
+		return trustView.getIssuerTrustExpectations(issuer);
+	}
+
+	@Override
+	public Collection<TrustCertificate> getTrustedCertificates() {
+		return trustView.getTrustedCertificates();
+	}
+
+	@Override
+	public boolean isCertificateTrusted(TrustCertificate certificate) {
+		return trustView.isCertificateTrusted(certificate);
+	}
+
+	@Override
+	public Collection<TrustCertificate> getUntrustedCertificates() {
+		return trustView.getUntrustedCertificates();
+	}
+
+	@Override
+	public boolean isCertificateUntrusted(TrustCertificate certificate) {
+		return trustView.isCertificateUntrusted(certificate);
+	}
+
+	@Override
+	public Collection<TrustCertificate> getAllCertificates() {
+		return trustView.getAllCertificates();
+	}
+
+	@Override
+	public boolean hasCertificate(TrustCertificate certificate) {
+		return trustView.hasCertificate(certificate);
+	}
+
+	@Override
+	public Map<TrustCertificate, CertificateTrustState> getTrustStates(
+			Collection<TrustCertificate> certificates) {
+		return trustView.getTrustStates(certificates);
+	}
+
+	@Override
+	public void setTrustedCertificate(TrustCertificate S) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setUntrustedCertificate(TrustCertificate S) {
+		throw readOnly();
+	}
+
+	@Override
+	public void removeCertificate(TrustCertificate S) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setRevokedCertificate(TrustCertificate certificate) {
+		throw readOnly();
+	}
+
+	@Override
+	public boolean isCertificateRevoked(TrustCertificate certificate) {
+		return trustView.isCertificateRevoked(certificate);
+	}
+
+	@Override
+	public Collection<TrustCertificate> getCertificatesForHost(String host) {
+		return trustView.getCertificatesForHost(host);
+	}
+
+	@Override
+	public void addHostForCertificate(TrustCertificate certificate, String host) {
+		throw readOnly();
+	}
+
+	@Override
+	public void addCertificateToWatchlist(TrustCertificate certificate) {
+		throw readOnly();
+	}
+
+	@Override
+	public void removeCertificateFromWatchlist(TrustCertificate certificate) {
+		throw readOnly();
+	}
+
+	@Override
+	public boolean isCertificateOnWatchlist(TrustCertificate certificate) {
+		return trustView.isCertificateOnWatchlist(certificate);
+	}
+
+	@Override
+	public Collection<TrustCertificate> getWatchlist() {
+		return trustView.getWatchlist();
+	}
+
+	@Override
+	public Date getWatchlistCerrtificateTimestamp(TrustCertificate certificate) {
+		return trustView.getWatchlistCerrtificateTimestamp(certificate);
+	}
+
+	@Override
+	public void addCRL(CRLInfo crlInfo) {
+		throw readOnly();
+	}
+
+	@Override
+	public CRLInfo getCRL(CRLInfo crlInfo) {
+		return trustView.getCRL(crlInfo);
+	}
+
+	@Override
+	public void addOCSP(OCSPInfo ocspInfo) {
+		throw readOnly();
+	}
+
+	@Override
+	public OCSPInfo getOCSP(OCSPInfo ocspInfo) {
+		return trustView.getOCSP(ocspInfo);
+	}
+
+	@Override
+	public void setRevocationStatus(RevocationStatus status) {
+		throw readOnly();
+	}
+
+	@Override
+	public RevocationStatus getRevocationStatus(TrustCertificate certificate) {
+		return trustView.getRevocationStatus(certificate);
+	}
+
+	@Override
+	public void clean() {
+		throw readOnly();
+	}
+
+	@Override
+	public boolean clean(int limit) {
+		throw readOnly();
+	}
+
+	@Override
+	public void erase() {
+		throw readOnly();
+	}
+
+	@Override
+	public void notify(Notification notification) {
+		trustView.notify(notification);
+	}
+
+	@Override
+	public void save() throws ModelAccessException {
+		// there are no modifications to be saved
+		trustView.close();
+	}
+
+	@Override
+	public void close() throws ModelAccessException {
+		trustView.close();
+	}
+
+	private static UnsupportedOperationException readOnly() {
+		return new UnsupportedOperationException(
+				"The trust view is opened for reading only");
+	}
+}
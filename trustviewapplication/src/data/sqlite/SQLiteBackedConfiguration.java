@@ -21,6 +21,8 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
 
 import data.Configuration;
 import data.ConfigurationValueAccessException;
@@ -34,16 +36,24 @@ import data.ModelAccessException;
  * @author Pascal Weisenburger
  */
 public class SQLiteBackedConfiguration implements Configuration {
+	private final CachingConnection cachingConnection;
 	private final Connection connection;
+	private boolean closed = false;
+
 	private final PreparedStatement getValue;
 	private final PreparedStatement setValue;
 	private final PreparedStatement deleteValue;
 	private final PreparedStatement eraseConfiguration;
 
 	public SQLiteBackedConfiguration(Connection connection) throws ModelAccessException {
-		try {
-			this.connection = connection;
+		this(new CachingConnection(connection));
+	}
 
+	SQLiteBackedConfiguration(CachingConnection connection) throws ModelAccessException {
+		this.cachingConnection = connection;
+		this.connection = connection.getConnection();
+
+		try {
 			try {
 				getValue = connection.prepareStatement(
 						"SELECT * FROM configuration WHERE key=?");
@@ -92,6 +102,27 @@ public class SQLiteBackedConfiguration implements Configuration {
 		throw new ConfigurationValueAccessException(key);
 	}
 
+	/**
+	 * @return all stored key-value pairs
+	 * @throws ModelAccessException if the values could not be retrieved
+	 */
+	public Map<String, String> getValues() throws ModelAccessException {
+		try {
+			validateDatabaseConnection();
+
+			Map<String, String> values = new HashMap<>();
+			try (ResultSet result = cachingConnection.prepareStatement(
+					"SELECT * FROM configuration").executeQuery()) {
+				while (result.next())
+					values.put(result.getString(1), result.getString(2));
+			}
+			return values;
+		}
+		catch (SQLException e) {
+			throw new ModelAccessException(e);
+		}
+	}
+
 	@Override
 	public <T> T get(String key, Class<T> type) {
 		String value = null;
@@ -180,18 +211,13 @@ public class SQLiteBackedConfiguration implements Configuration {
 
 	@Override
 	public void close() throws ModelAccessException {
+		if (closed)
+			return;
+		closed = true;
+
 		try {
-			try {
-				getValue.close();
-				deleteValue.close();
-				eraseConfiguration.close();
-			}
-			finally {
-				if (!connection.isClosed()) {
-					connection.rollback();
-					connection.close();
-				}
-			}
+			// rolls back and keeps the statements prepared for reuse
+			cachingConnection.close();
 		}
 		catch (SQLException e) {
 			throw new ModelAccessException(e);
@@ -199,7 +225,7 @@ public class SQLiteBackedConfiguration implements Configuration {
 	}
 
 	private void validateDatabaseConnection() throws SQLException {
-		if (connection.isClosed())
+		if (closed || connection.isClosed())
 			throw new UnsupportedOperationException(
 					"Cannot access a Configuration that is already closed.");
 	}
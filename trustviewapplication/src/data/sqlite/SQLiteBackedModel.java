@@ -22,17 +22,24 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.channels.FileChannel;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-import org.sqlite.SQLiteConfig;
-import org.sqlite.SQLiteConnectionPoolDataSource;
 
+import util.CertificateCache;
+
+import data.CertificateTrustState;
 import data.Model;
 import data.ModelAccessException;
-
-import biz.source_code.miniConnectionPoolManager.MiniConnectionPoolManager;
+import data.TrustCertificate;
+import data.TrustView;
 
 /**
  * Data model that is to be used by the {@link Model} to implement data storage
@@ -42,12 +49,85 @@ import biz.source_code.miniConnectionPoolManager.MiniConnectionPoolManager;
  */
 public class SQLiteBackedModel implements AutoCloseable {
 	private static final int MAX_CONNECTIONS = 16;
-
-	private MiniConnectionPoolManager poolManager;
+	private static final int MAX_READ_ONLY_CONNECTIONS = 16;
+	private static final int MAX_CACHED_CERTIFICATES = 4096;
+	private static final int MAX_CACHED_ASSESSMENTS = 1024;
+
+	// connections are checked out under the read lock, while the pools
+	// are only replaced under the write lock
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private volatile ConnectionPool pool;
+	private volatile ConnectionPool readOnlyPool;
 	private File databaseFile;
+	private final SQLiteStorageProfile storageProfile;
+	private final TrustViewCache cache =
+			new TrustViewCache(MAX_CACHED_CERTIFICATES, MAX_CACHED_ASSESSMENTS);
+	private final AssessmentTimestamps assessmentTimestamps =
+			new AssessmentTimestamps();
+	// loads the certificate data of certificates that were retrieved
+	// from a trust view without their data using a read-only connection
+	private final TrustCertificate.CertificateLoader certificateLoader =
+			new TrustCertificate.CertificateLoader() {
+		@Override
+		public Certificate loadCertificate(TrustCertificate certificate)
+				throws CertificateException {
+			try (CachingConnection connection = getConnection(true)) {
+				PreparedStatement statement = connection.prepareStatement(
+						"SELECT certdata FROM certificates WHERE serial=? AND issuer=?");
+				statement.setString(1, certificate.getSerial());
+				statement.setString(2, certificate.getIssuer());
+				try (ResultSet result = statement.executeQuery()) {
+					if (result.next()) {
+						byte[] blob = result.getBytes(1);
+						if (!result.wasNull())
+							return CertificateCache.getCertificate(blob);
+					}
+				}
+				return null;
+			}
+			catch (SQLException e) {
+				throw new CertificateException(e);
+			}
+		}
+	};
+	// looks up the revoked serials of stored CRLs using a read-only
+	// connection, so that stored CRLs outlive the trust view they were
+	// retrieved from
+	private final StoredCRL.EntryLookup crlEntryLookup =
+			new StoredCRL.EntryLookup() {
+		@Override
+		public boolean isRevoked(TrustCertificate crlIssuer, String urls,
+				String serial) throws SQLException {
+			try (CachingConnection connection = getConnection(true)) {
+				PreparedStatement statement = connection.prepareStatement(
+						"SELECT 1 FROM crl_entries" +
+						"  WHERE issuer_serial=? AND issuer=? AND urls=?" +
+						"  AND revoked_serial=?");
+				statement.setString(1, crlIssuer.getSerial());
+				statement.setString(2, crlIssuer.getIssuer());
+				statement.setString(3, urls);
+				statement.setString(4, serial);
+				try (ResultSet result = statement.executeQuery()) {
+					return result.next();
+				}
+			}
+		}
+	};
+	private final Thread shutdownHook = new Thread() {
+		@Override
+		public void run() {
+			writeAssessmentTimestamps();
+		}
+	};
 
 	public SQLiteBackedModel(File databaseFile) throws ModelAccessException {
+		this(databaseFile, SQLiteStorageProfile.DEFAULT);
+	}
+
+	public SQLiteBackedModel(File databaseFile, SQLiteStorageProfile storageProfile)
+			throws ModelAccessException {
 		this.databaseFile = databaseFile;
+		this.storageProfile = storageProfile;
 
 		try {
 			setup();
@@ -55,21 +135,25 @@ public class SQLiteBackedModel implements AutoCloseable {
 		catch (SQLException e) {
 			throw new ModelAccessException(e);
 		}
+
+		// assessment access times are kept in memory and written by every
+		// saved trust view as well as on shutdown
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
 	}
 
 	public void setup() throws SQLException {
 		databaseFile.getParentFile().mkdirs();
 
-		SQLiteConfig config = new SQLiteConfig();
-		config.enforceForeignKeys(true);
+		pool = new ConnectionPool("jdbc:sqlite:" + databaseFile.getPath(),
+				storageProfile.createConfig(), storageProfile, MAX_CONNECTIONS);
 
-		SQLiteConnectionPoolDataSource dataSource = new SQLiteConnectionPoolDataSource();
-		dataSource.setUrl("jdbc:sqlite:" + databaseFile.getPath());
-		dataSource.setConfig(config);
-		poolManager = new MiniConnectionPoolManager(dataSource, MAX_CONNECTIONS);
+		try (CachingConnection cachingConnection = pool.getConnection();
+		     Statement statement =
+		         cachingConnection.getConnection().createStatement()) {
+			Connection connection = cachingConnection.getConnection();
 
-		try (Connection connection = poolManager.getConnection();
-		     Statement statement = connection.createStatement()) {
+			// the journal mode cannot be changed within a transaction
+			storageProfile.applyJournalMode(connection);
 			connection.setAutoCommit(false);
 
 			statement.execute(
@@ -111,6 +195,14 @@ public class SQLiteBackedModel implements AutoCloseable {
 						"" +
 						"PRIMARY KEY (k))");
 
+			statement.execute(
+					"CREATE INDEX IF NOT EXISTS assessments_ca_index " +
+						"ON assessments (ca)");
+
+			statement.execute(
+					"CREATE INDEX IF NOT EXISTS assessments_timestamp_index " +
+						"ON assessments (timestamp)");
+
 			statement.execute(
 					"CREATE TABLE IF NOT EXISTS certificates (" +
 						"serial VARCHAR NOT NULL," +     // serial
@@ -140,6 +232,14 @@ public class SQLiteBackedModel implements AutoCloseable {
 					"CREATE INDEX IF NOT EXISTS certificates_trusted_index " +
 						"ON certificates (trusted, untrusted)");
 
+			statement.execute(
+					"CREATE INDEX IF NOT EXISTS certificates_issuer_index " +
+						"ON certificates (issuer, S)");
+
+			statement.execute(
+					"CREATE INDEX IF NOT EXISTS certificates_notafter_index " +
+						"ON certificates (notafter)");
+
 			statement.execute(
 					"CREATE TABLE IF NOT EXISTS certhosts (" +
 						"serial VARCHAR NOT NULL," +     // serial
@@ -166,6 +266,10 @@ public class SQLiteBackedModel implements AutoCloseable {
 						"  ON DELETE CASCADE," +
 						"PRIMARY KEY (serial, issuer))");
 
+			statement.execute(
+					"CREATE INDEX IF NOT EXISTS watchlist_timestamp_index " +
+						"ON watchlist (timestamp)");
+
 			statement.execute(
 					"CREATE TABLE IF NOT EXISTS crl (" +
 						"serial VARCHAR NOT NULL," +      // CRL issuer certificate serial
@@ -179,6 +283,37 @@ public class SQLiteBackedModel implements AutoCloseable {
 						"  ON DELETE CASCADE," +
 						"PRIMARY KEY (serial, issuer, urls))");
 
+			// revoked serials that were stored per CRL issuer instead of
+			// per CRL are discarded
+			boolean crlEntriesExist;
+			try (ResultSet result = statement.executeQuery(
+					"SELECT sql FROM sqlite_master " +
+						"WHERE type='table' AND name='crl_entries'")) {
+				crlEntriesExist = result.next() &&
+						result.getString(1).contains("urls");
+			}
+			if (!crlEntriesExist)
+				statement.execute("DROP TABLE IF EXISTS crl_entries");
+
+			statement.execute(
+					"CREATE TABLE IF NOT EXISTS crl_entries (" +
+						"issuer_serial VARCHAR NOT NULL," +  // CRL issuer certificate serial
+						"issuer VARCHAR NOT NULL," +         // CRL issuer certificate issuer
+						"urls VARCHAR NOT NULL," +           // CRL URLs
+						"revoked_serial VARCHAR NOT NULL," + // revoked certificate serial
+						"revocation_date DATETIME," +        // revocation date
+						"" +
+						"FOREIGN KEY (issuer_serial, issuer, urls)" +
+						"  REFERENCES crl(serial, issuer, urls)" +
+						"  ON DELETE CASCADE," +
+						"PRIMARY KEY (issuer_serial, issuer, urls, revoked_serial))");
+
+			// CRLs stored before the revoked serials were kept in their own
+			// table need to be downloaded again to populate the table
+			if (!crlEntriesExist)
+				statement.execute(
+						"UPDATE crl SET nextupdate=NULL, crldata=NULL");
+
 			statement.execute(
 					"CREATE TABLE IF NOT EXISTS ocsp (" +
 						"serial VARCHAR NOT NULL," +      // certificate serial of issuer certificate
@@ -191,6 +326,23 @@ public class SQLiteBackedModel implements AutoCloseable {
 						"  ON DELETE CASCADE," +
 						"PRIMARY KEY (serial, issuer, urls))");
 
+			statement.execute(
+					"CREATE TABLE IF NOT EXISTS revocation_status (" +
+						"serial VARCHAR NOT NULL," +      // certificate serial
+						"issuer VARCHAR NOT NULL," +      // certificate issuer
+						"status VARCHAR NOT NULL," +      // revocation status
+						"source VARCHAR," +               // CRL or OCSP
+						"thisupdate DATETIME," +          // this update of the source
+						"nextupdate DATETIME," +          // next update of the source
+						"checked DATETIME NOT NULL," +    // revocation check time
+						"expires DATETIME NOT NULL," +    // next revocation check time
+						"" +
+						"PRIMARY KEY (serial, issuer))");
+
+			statement.execute(
+					"CREATE INDEX IF NOT EXISTS revocation_status_expires_index " +
+						"ON revocation_status (expires)");
+
 			statement.execute(
 					"CREATE TABLE IF NOT EXISTS configuration (" +
 						"key VARCHAR NOT NULL," +    // key
@@ -200,70 +352,154 @@ public class SQLiteBackedModel implements AutoCloseable {
 
 			connection.commit();
 		}
+
+		// connections for reading only are opened read-only
+		// once the database file exists
+		readOnlyPool = new ConnectionPool("jdbc:sqlite:" + databaseFile.getPath(),
+				storageProfile.createReadOnlyConfig(), storageProfile,
+				MAX_READ_ONLY_CONNECTIONS);
 	}
 
-	private void teardown() throws SQLException {
-		poolManager.dispose();
-		poolManager = null;
+	private void teardown() {
+		pool.dispose();
+		pool = null;
+		if (readOnlyPool != null) {
+			readOnlyPool.dispose();
+			readOnlyPool = null;
+		}
 	}
 
 	@Override
 	public void close() throws Exception {
-		teardown();
-	}
+		try {
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		}
+		catch (IllegalStateException e) {
+			// the virtual machine is already shutting down
+		}
 
-	public synchronized SQLiteBackedTrustView openTrustView() throws ModelAccessException {
-		Connection connection = null;
+		writeAssessmentTimestamps();
+
+		lock.writeLock().lock();
 		try {
-			connection = poolManager.getConnection();
-			connection.setAutoCommit(false);
-			return new SQLiteBackedTrustView(connection);
+			teardown();
 		}
-		catch (SQLException e) {
-			try {
-				if (connection != null)
-					connection.close();
-			}
-			catch (Throwable t) {
-				e.addSuppressed(t);
-			}
-			throw new ModelAccessException(e);
+		finally {
+			lock.writeLock().unlock();
 		}
 	}
 
-	public synchronized SQLiteBackedConfiguration openConfiguration() throws ModelAccessException {
-		Connection connection = null;
-		try {
-			connection = poolManager.getConnection();
-			connection.setAutoCommit(false);
-			return new SQLiteBackedConfiguration(connection);
+	/**
+	 * Writes the assessment access times that are kept in memory
+	 * to the database
+	 */
+	public void writeAssessmentTimestamps() {
+		if (pool == null || assessmentTimestamps.isEmpty())
+			return;
+
+		// saving a trust view writes the access times
+		try (TrustView trustView = openTrustView()) {
+			trustView.save();
+		}
+		catch (ModelAccessException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * @return the storage profile the database is tuned with
+	 */
+	public SQLiteStorageProfile getStorageProfile() {
+		return storageProfile;
+	}
+
+	/**
+	 * Transfers the content of the write-ahead log into the database file;
+	 * does nothing if the database does not use write-ahead logging
+	 * @throws ModelAccessException if the checkpoint could not be run
+	 */
+	public void checkpoint() throws ModelAccessException {
+		if (storageProfile.getMode() != SQLiteStorageProfile.Mode.WAL)
+			return;
+
+		try (CachingConnection connection = getConnection(false);
+		     Statement statement =
+		         connection.getConnection().createStatement()) {
+			// the checkpoint is not run within a transaction
+			connection.getConnection().setAutoCommit(true);
+			statement.executeQuery("PRAGMA wal_checkpoint").close();
 		}
 		catch (SQLException e) {
-			try {
-				if (connection != null)
-					connection.close();
-			}
-			catch (Throwable t) {
-				e.addSuppressed(t);
-			}
 			throw new ModelAccessException(e);
 		}
 	}
 
-	public synchronized void backup(File file) throws ModelAccessException {
+	public TrustView openTrustView() throws ModelAccessException {
+		return new CachingTrustView(
+				new SQLiteBackedTrustView(
+						getTransactionConnection(false), assessmentTimestamps,
+						certificateLoader, crlEntryLookup),
+				cache);
+	}
+
+	/**
+	 * @return whether the given certificate is known to be trusted, neither
+	 * untrusted nor revoked and not on the watchlist; only takes the data into
+	 * account that is cached from previous accesses to the trust view, i.e.
+	 * returns <code>false</code> if the state of the certificate is not cached
+	 * @param certificate
+	 */
+	public boolean isCertificateKnownTrusted(TrustCertificate certificate) {
+		CertificateTrustState state =
+				cache.getCertificate(CachingTrustView.certificateKey(certificate));
+		return state != null && state.isStored() && state.isTrusted() &&
+				!state.isUntrusted() && !state.isRevoked() && !state.isOnWatchlist();
+	}
+
+	/**
+	 * @return a {@link TrustView} that can only be used for reading and that
+	 * uses a separate pool of read-only connections, so that readers do not
+	 * compete with writers for connections; using write-ahead logging, all
+	 * reads of the trust view see the same snapshot of the database, which
+	 * is taken by the first read
+	 * @throws ModelAccessException if the trust view could not be opened
+	 */
+	public TrustView openReadOnlyTrustView() throws ModelAccessException {
+		return new ReadOnlyTrustView(new CachingTrustView(
+				new SQLiteBackedTrustView(
+						getTransactionConnection(true), assessmentTimestamps,
+						certificateLoader, crlEntryLookup),
+				cache));
+	}
+
+	public SQLiteBackedConfiguration openConfiguration() throws ModelAccessException {
+		return new SQLiteBackedConfiguration(getTransactionConnection(false));
+	}
+
+	public void backup(File file) throws ModelAccessException {
+		lock.writeLock().lock();
 		try {
+			// make sure the database file contains all committed transactions
+			checkpoint();
 			copy(databaseFile, file);
 		}
 		catch (IOException e) {
 			throw new ModelAccessException(e);
 		}
+		finally {
+			lock.writeLock().unlock();
+		}
 	}
 
-	public synchronized void restore(File file) throws ModelAccessException {
+	public void restore(File file) throws ModelAccessException {
 		File databaseTempFile = new File(databaseFile.getPath() + ".temp");
 
+		lock.writeLock().lock();
 		try {
 			teardown();
+			cache.clear();
+			assessmentTimestamps.clear();
+			deleteWriteAheadLog();
 			databaseFile.renameTo(databaseTempFile);
 			copy(file, databaseFile);
 			setup();
@@ -276,17 +512,69 @@ public class SQLiteBackedModel implements AutoCloseable {
 			}
 			throw new ModelAccessException(e);
 		}
+		finally {
+			lock.writeLock().unlock();
+		}
 	}
 
-	public synchronized void erase() throws ModelAccessException {
+	public void erase() throws ModelAccessException {
+		lock.writeLock().lock();
 		try {
 			teardown();
+			cache.clear();
+			assessmentTimestamps.clear();
+			deleteWriteAheadLog();
 			databaseFile.delete();
 			setup();
 		}
 		catch (SQLException e) {
 			throw new ModelAccessException(e);
 		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void deleteWriteAheadLog() {
+		// the write-ahead log is regularly removed when the last connection
+		// is closed, but may remain if the application was not shut down
+		// properly and must not be applied to a different database file
+		new File(databaseFile.getPath() + "-wal").delete();
+		new File(databaseFile.getPath() + "-shm").delete();
+	}
+
+	private CachingConnection getConnection(boolean readOnly)
+			throws SQLException {
+		lock.readLock().lock();
+		try {
+			ConnectionPool pool = readOnly ? readOnlyPool : this.pool;
+			if (pool == null)
+				throw new SQLException("The data model has been closed.");
+			return pool.getConnection();
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private CachingConnection getTransactionConnection(boolean readOnly)
+			throws ModelAccessException {
+		CachingConnection connection = null;
+		try {
+			connection = getConnection(readOnly);
+			connection.getConnection().setAutoCommit(false);
+			return connection;
+		}
+		catch (SQLException e) {
+			try {
+				if (connection != null)
+					connection.close();
+			}
+			catch (Throwable t) {
+				e.addSuppressed(t);
+			}
+			throw new ModelAccessException(e);
+		}
 	}
 
 	private static void copy(File source, File destination) throws IOException {
@@ -17,13 +17,12 @@
  */
 package data.sqlite;
 
-import java.io.ByteArrayInputStream;
 import java.security.cert.CRL;
 import java.security.cert.CRLException;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
 import java.security.cert.X509CRL;
+import java.security.cert.X509CRLEntry;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -35,19 +34,24 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import CertainTrust.CertainTrust;
 
+import util.CertificateCache;
 import util.Option;
 
 import data.CRLInfo;
+import data.CertificateTrustState;
 import data.Configuration;
+import data.IssuerTrustExpectations;
 import data.Model;
 import data.ModelAccessException;
 import data.OCSPInfo;
+import data.RevocationStatus;
 import data.TrustAssessment;
 import data.TrustCertificate;
 import data.TrustView;
@@ -58,11 +62,42 @@ import data.TrustView;
  * @author Pascal Weisenburger
  */
 public class SQLiteBackedTrustView implements TrustView {
+	// number of columns of the assessments table
+	private static final int ASSESSMENT_COLUMNS = 18;
+
+	// maximum number of rows removed by a single cleaning step
+	private static final int CLEAN_LIMIT = 1000;
+
+	// maximum number of revoked serials inserted by a single batch
+	private static final int CRL_ENTRIES_BATCH_SIZE = 1000;
+
+	// maximum number of entries retrieved by a single lookup query
+	private static final int MAX_LOOKUPS_PER_QUERY = 64;
+
+	// columns of the certificates table with the certificate data left out,
+	// which is loaded when it is first accessed;
+	// the columns keep their positions in the certificates table
+	private static final String CERTIFICATE_COLUMNS =
+			"certificates.serial, certificates.issuer," +
+			"  certificates.subject, certificates.publickey," +
+			"  certificates.notbefore, certificates.notafter, NULL," +
+			"  certificates.revoked, certificates.trusted," +
+			"  certificates.untrusted, certificates.S";
+
+	private final CachingConnection cachingConnection;
 	private final Connection connection;
+	private final TrustCertificate.CertificateLoader certificateLoader;
+	private final StoredCRL.EntryLookup crlEntryLookup;
+	private boolean closed = false;
 
+	// statements are taken from the connection, which prepares them only
+	// once and keeps them prepared for subsequent trust views
 	private final PreparedStatement getAssessment;
-	private final PreparedStatement getAssessments;
 	private final PreparedStatement getAssessmentsS;
+	private final PreparedStatement getAssessmentsWithS;
+	private final PreparedStatement getAssessmentsWithSMetadata;
+	private final PreparedStatement getAssessmentForCA;
+	private final PreparedStatement getIssuerTrustExpectations;
 	private final UpdateInsertStmnt setAssessment;
 	private final UpdateInsertStmnt setAssessmentS;
 	private final PreparedStatement setAssessmentValid;
@@ -80,13 +115,24 @@ public class SQLiteBackedTrustView implements TrustView {
 	private final PreparedStatement getWatchlistCertificates;
 	private final UpdateInsertStmnt addCRL;
 	private final PreparedStatement getCRL;
+	private final PreparedStatement removeCRLEntries;
+	private final PreparedStatement addCRLEntry;
+	private final PreparedStatement getCRLEntry;
 	private final UpdateInsertStmnt addOCSP;
 	private final PreparedStatement getOCSP;
+	private final UpdateInsertStmnt setRevocationStatus;
+	private final PreparedStatement getRevocationStatus;
 	private final PreparedStatement removeAssessment;
-	private final PreparedStatement removeCertificate;
+	private final PreparedStatement cleanWatchlist;
+	private final PreparedStatement getExpiredAssessments;
+	private final PreparedStatement cleanAssessmentsS;
+	private final PreparedStatement cleanAssessments;
 	private final PreparedStatement cleanCertificates;
+	private final PreparedStatement cleanExpiredCertificates;
+	private final PreparedStatement cleanRevocationStatus;
 	private final PreparedStatement eraseAssessments;
 	private final PreparedStatement eraseCertificates;
+	private final PreparedStatement eraseRevocationStatus;
 
 	private final long watchlistExpirationMillis;
 	private final long assessmentExpirationMillis;
@@ -97,32 +143,122 @@ public class SQLiteBackedTrustView implements TrustView {
 	// when finalizing the connection for performance reasons
 	private final Map<CRLInfo, CRLInfo> deferredCRLBatch = new HashMap<>();
 
+	// other modifications are queued as batches of the respective statements
+	// and written before the next query or when finalizing the connection;
+	// only consecutive modifications using the same statement are queued in
+	// the same batch, so that the modifications are written in the order
+	// they were made
+	private Object deferredStatement = null;
+
+	// a failure to write queued modifications is reported when saving,
+	// so that the transaction is rolled back instead of being committed
+	// without the modifications that could not be written
+	private SQLException deferredWritesFailure = null;
+
+	// assessment access times are kept in memory and written when cleaning
+	// or when finalizing the connection; the written access times are kept
+	// until the transaction is committed, so they can be recorded again
+	// if the transaction is rolled back
+	private final AssessmentTimestamps assessmentTimestamps;
+	private final Map<TrustViewCache.Key, Long> writtenAssessmentTimestamps =
+			new HashMap<>();
+
 	public SQLiteBackedTrustView(Connection connection) throws ModelAccessException  {
+		this(new CachingConnection(connection), new AssessmentTimestamps(), null, null);
+	}
+
+	/**
+	 * Creates a new <code>SQLiteBackedTrustView</code> instance
+	 * @param connection
+	 * @param assessmentTimestamps
+	 * @param certificateLoader the loader for the data of certificates that
+	 * are retrieved without it or <code>null</code> if such certificates
+	 * only carry their metadata
+	 * @param crlEntryLookup the lookup for the revoked serial numbers of
+	 * stored CRLs or <code>null</code> if they are looked up using this trust
+	 * view, in which case stored CRLs can only be used as long as this trust
+	 * view is not closed
+	 * @throws ModelAccessException
+	 */
+	SQLiteBackedTrustView(CachingConnection connection,
+			AssessmentTimestamps assessmentTimestamps,
+			TrustCertificate.CertificateLoader certificateLoader,
+			StoredCRL.EntryLookup crlEntryLookup)
+			throws ModelAccessException  {
+		this.cachingConnection = connection;
+		this.connection = connection.getConnection();
+		this.certificateLoader = certificateLoader;
+		this.crlEntryLookup = crlEntryLookup != null
+				? crlEntryLookup
+				: new StoredCRL.EntryLookup() {
+					@Override
+					public boolean isRevoked(TrustCertificate crlIssuer,
+							String urls, String serial) throws SQLException {
+						return isRevokedByCRL(crlIssuer, urls, serial);
+					}
+				};
+
 		try {
-			this.connection = connection;
+			this.assessmentTimestamps = assessmentTimestamps;
 
 			// configuration values
-			try (Configuration config = Model.openConfiguration()) {
-				watchlistExpirationMillis =
-						config.get(Configuration.WATCHLIST_EXPIRATION_MILLIS, Long.class);
-				assessmentExpirationMillis =
-						config.get(Configuration.ASSESSMENT_EXPIRATION_MILLIS, Long.class);
-				opinionN = config.get(Configuration.OPINION_N, Integer.class);
-			}
+			Configuration config = Model.getConfigurationSnapshot();
+			watchlistExpirationMillis =
+					config.get(Configuration.WATCHLIST_EXPIRATION_MILLIS, Long.class);
+			assessmentExpirationMillis =
+					config.get(Configuration.ASSESSMENT_EXPIRATION_MILLIS, Long.class);
+			opinionN = config.get(Configuration.OPINION_N, Integer.class);
 
 			try {
 				// retrieving assessments
 				getAssessment = connection.prepareStatement(
 						"SELECT * FROM assessments WHERE k=? AND ca=?");
 
-				getAssessments = connection.prepareStatement(
-						"SELECT * FROM assessments");
-
 				getAssessmentsS = connection.prepareStatement(
-						"SELECT * FROM certificates WHERE publickey=? AND subject=? AND S=1");
+						"SELECT " + CERTIFICATE_COLUMNS +
+						"  FROM certificates WHERE publickey=? AND subject=? AND S=1");
+
+				// retrieving all assessments together with their S sets
+				// in a single scan ordered by assessment
+				getAssessmentsWithS = connection.prepareStatement(
+						"SELECT assessments.*," +
+						"  certificates.serial, certificates.issuer," +
+						"  certificates.subject, certificates.publickey," +
+						"  certificates.notbefore, certificates.notafter," +
+						"  certificates.certdata" +
+						"  FROM assessments LEFT JOIN certificates" +
+						"  ON certificates.publickey = assessments.k" +
+						"  AND certificates.subject = assessments.ca" +
+						"  AND certificates.S = 1" +
+						"  ORDER BY assessments.k, assessments.ca");
+
+				getAssessmentsWithSMetadata = connection.prepareStatement(
+						"SELECT assessments.*," +
+						"  certificates.serial, certificates.issuer," +
+						"  certificates.subject, certificates.publickey," +
+						"  certificates.notbefore, certificates.notafter" +
+						"  FROM assessments LEFT JOIN certificates" +
+						"  ON certificates.publickey = assessments.k" +
+						"  AND certificates.subject = assessments.ca" +
+						"  AND certificates.S = 1" +
+						"  ORDER BY assessments.k, assessments.ca");
+
+				// retrieving assessments using the CA index
+				getAssessmentForCA = connection.prepareStatement(
+						"SELECT * FROM assessments WHERE ca=? LIMIT 1");
+
+				// retrieving the issuer trust of all assessments whose S set
+				// contains a certificate of the given issuer
+				// using the certificate issuer index
+				getIssuerTrustExpectations = connection.prepareStatement(
+						"SELECT assessments.* FROM assessments JOIN" +
+						"  (SELECT DISTINCT publickey, subject FROM certificates" +
+						"    WHERE issuer=? AND S=1) AS issued" +
+						"  ON assessments.k = issued.publickey" +
+						"  AND assessments.ca = issued.subject");
 
 				// setting assessments
-				setAssessment = new UpdateInsertStmnt(connection, "assessments",
+				setAssessment = connection.prepareUpdateInsertStatement("assessments",
 						new String [] { "k", "?" }, new String [] { "ca", "?",
 						"o_kl_t", "?", "o_kl_c", "?", "o_kl_f", "?",
 						"o_kl_r", "?", "o_kl_s", "?",
@@ -132,47 +268,53 @@ public class SQLiteBackedTrustView implements TrustView {
 						"o_it_ee_r", "?", "o_it_ee_s", "?",
 						"timestamp", "?" });
 
-				setAssessmentS = new UpdateInsertStmnt(connection, "certificates",
+				setAssessmentS = connection.prepareUpdateInsertStatement("certificates",
 						new String [] { "serial", "?", "issuer", "?" }, new String [] {
 						"subject", "?", "publickey", "?",
-						"notbefore", "?", "notafter", "?", "certdata", "?",
+						"notbefore", "?", "notafter", "?", "certdata", "~?",
 						"revoked", "!0", "trusted", "!0", "untrusted", "!0", "S", "?" });
 
 				setAssessmentValid = connection.prepareStatement(
-						"UPDATE assessments SET timestamp=? WHERE k=? AND ca=?");
+						"UPDATE assessments SET timestamp=? WHERE k=? AND ca=? AND timestamp<?");
 
 				// retrieving certificates
 				getCertificate = connection.prepareStatement(
-						"SELECT * FROM certificates WHERE serial=? AND issuer=?");
+						"SELECT " + CERTIFICATE_COLUMNS + "," +
+						"  EXISTS (SELECT 1 FROM watchlist" +
+						"    WHERE watchlist.serial = certificates.serial" +
+						"    AND watchlist.issuer = certificates.issuer)" +
+						"  FROM certificates WHERE serial=? AND issuer=?");
 
 				getCertificates = connection.prepareStatement(
-						"SELECT * FROM certificates");
+						"SELECT " + CERTIFICATE_COLUMNS + " FROM certificates");
 
 				getCertificateTrust = connection.prepareStatement(
-						"SELECT * FROM certificates WHERE trusted=? AND untrusted=?");
+						"SELECT " + CERTIFICATE_COLUMNS +
+						"  FROM certificates WHERE trusted=? AND untrusted=?");
 
 				// setting certificates
-				setCertificateTrust = new UpdateInsertStmnt(connection, "certificates",
+				setCertificateTrust = connection.prepareUpdateInsertStatement("certificates",
 						new String [] { "serial", "?", "issuer", "?" }, new String [] {
 						"subject", "?", "publickey", "?",
-						"notbefore", "?", "notafter", "?", "certdata", "?",
+						"notbefore", "?", "notafter", "?", "certdata", "~?",
 						"revoked", "!0", "trusted", "?", "untrusted", "?", "S", "!0" });
 
-				setCertificate = new UpdateInsertStmnt(connection, "certificates",
+				setCertificate = connection.prepareUpdateInsertStatement("certificates",
 						new String [] { "serial", "?", "issuer", "?" }, new String [] {
 						"subject", "?", "publickey", "?",
-						"notbefore", "?", "notafter", "?", "certdata", "?",
+						"notbefore", "?", "notafter", "?", "certdata", "~?",
 						"revoked", "!0", "trusted", "!0", "untrusted", "!0", "S", "!0" });
 
-				setCertificateRevoked = new UpdateInsertStmnt(connection, "certificates",
+				setCertificateRevoked = connection.prepareUpdateInsertStatement("certificates",
 						new String [] { "serial", "?", "issuer", "?" }, new String [] {
 						"subject", "?", "publickey", "?",
-						"notbefore", "?", "notafter", "?", "certdata", "?",
+						"notbefore", "?", "notafter", "?", "certdata", "~?",
 						"revoked", "?", "trusted", "!0", "untrusted", "!0", "S", "!0" });
 
 				// accessing certificate hosts
 				getCertificatesForHost = connection.prepareStatement(
-						"SELECT * FROM certificates JOIN certhosts" +
+						"SELECT " + CERTIFICATE_COLUMNS +
+						"  FROM certificates JOIN certhosts" +
 						"  ON certificates.serial = certhosts.serial" +
 						"  AND certificates.issuer = certhosts.issuer" +
 						"  WHERE certhosts.host=?");
@@ -188,47 +330,102 @@ public class SQLiteBackedTrustView implements TrustView {
 						"DELETE FROM watchlist WHERE serial=? AND issuer=?");
 
 				getWatchlistCertificate = connection.prepareStatement(
-						"SELECT * FROM certificates JOIN watchlist" +
+						"SELECT " + CERTIFICATE_COLUMNS +
+						"  FROM certificates JOIN watchlist" +
 						"  ON certificates.serial = watchlist.serial" +
 						"  AND certificates.issuer = watchlist.issuer" +
 						"  WHERE certificates.serial=? AND certificates.issuer=?");
 
 				getWatchlistCertificates = connection.prepareStatement(
-						"SELECT * FROM certificates JOIN watchlist" +
+						"SELECT " + CERTIFICATE_COLUMNS +
+						"  FROM certificates JOIN watchlist" +
 						"  ON certificates.serial = watchlist.serial" +
 						"  AND certificates.issuer = watchlist.issuer");
 
 				// CRL
-				addCRL = new UpdateInsertStmnt(connection, "crl",
+				addCRL = connection.prepareUpdateInsertStatement("crl",
 							new String [] { "serial", "?", "issuer", "?", "urls", "?" },
 							new String [] { "nextupdate", "?", "crldata", "?" });
 
 				getCRL = connection.prepareStatement(
-						"SELECT * FROM certificates JOIN crl " +
+						"SELECT " + CERTIFICATE_COLUMNS + ", crl.urls, crl.nextupdate," +
+						"  crl.crldata IS NOT NULL" +
+						"  FROM certificates JOIN crl " +
 						"  ON certificates.serial = crl.serial" +
 						"  AND certificates.issuer = crl.issuer" +
 						"  WHERE crl.serial=? AND crl.issuer=? AND crl.urls=?");
 
+				removeCRLEntries = connection.prepareStatement(
+						"DELETE FROM crl_entries" +
+						"  WHERE issuer_serial=? AND issuer=? AND urls=?");
+
+				addCRLEntry = connection.prepareStatement(
+						"INSERT OR REPLACE INTO crl_entries VALUES (?, ?, ?, ?, ?)");
+
+				getCRLEntry = connection.prepareStatement(
+						"SELECT 1 FROM crl_entries" +
+						"  WHERE issuer_serial=? AND issuer=? AND urls=?" +
+						"  AND revoked_serial=?");
+
 				// OCSP
-				addOCSP = new UpdateInsertStmnt(connection, "ocsp",
+				addOCSP = connection.prepareUpdateInsertStatement("ocsp",
 						new String [] { "serial", "?", "issuer", "?", "urls", "?" },
 						new String [] { "nextupdate", "?" });
 
 				getOCSP = connection.prepareStatement(
-						"SELECT * FROM certificates JOIN ocsp " +
+						"SELECT " + CERTIFICATE_COLUMNS + ", ocsp.*" +
+						"  FROM certificates JOIN ocsp " +
 						"  ON certificates.serial = ocsp.serial" +
 						"  AND certificates.issuer = ocsp.issuer" +
 						"  WHERE ocsp.serial=? AND ocsp.issuer=? AND ocsp.urls=?");
 
+				// revocation status
+				// certificates that are checked for revocation are not
+				// necessarily contained in the certificates table
+				setRevocationStatus = connection.prepareUpdateInsertStatement("revocation_status",
+						new String [] { "serial", "?", "issuer", "?" },
+						new String [] { "status", "?", "source", "?",
+						"thisupdate", "?", "nextupdate", "?",
+						"checked", "?", "expires", "?" });
+
+				getRevocationStatus = connection.prepareStatement(
+						"SELECT * FROM revocation_status WHERE serial=? AND issuer=?");
+
 				// cleaning the trust view
 				removeAssessment = connection.prepareStatement(
 						"DELETE FROM assessments WHERE k=? AND ca=?");
 
-				removeCertificate = connection.prepareStatement(
-						"DELETE FROM certificates WHERE serial=? AND issuer=?");
+				// every cleaning step removes a bounded number of rows;
+				// the selection of expired rows uses the timestamp indices
+				cleanWatchlist = connection.prepareStatement(
+						"DELETE FROM watchlist WHERE rowid IN" +
+						"  (SELECT rowid FROM watchlist WHERE timestamp<? LIMIT ?)");
+
+				// the expired assessments are selected once and both
+				// their S sets and the assessments are removed by their keys
+				getExpiredAssessments = connection.prepareStatement(
+						"SELECT k, ca FROM assessments" +
+						"  WHERE timestamp<? ORDER BY timestamp LIMIT ?");
+
+				cleanAssessmentsS = connection.prepareStatement(
+						"UPDATE certificates SET S=0" +
+						"  WHERE S=1 AND publickey=? AND subject=?");
+
+				cleanAssessments = connection.prepareStatement(
+						"DELETE FROM assessments WHERE k=? AND ca=?");
 
 				cleanCertificates = connection.prepareStatement(
-						"DELETE FROM certificates WHERE trusted=0 AND untrusted=0 AND S=0");
+						"DELETE FROM certificates WHERE rowid IN" +
+						"  (SELECT rowid FROM certificates" +
+						"    WHERE trusted=0 AND untrusted=0 AND S=0 LIMIT ?)");
+
+				cleanExpiredCertificates = connection.prepareStatement(
+						"DELETE FROM certificates WHERE rowid IN" +
+						"  (SELECT rowid FROM certificates WHERE notafter<? LIMIT ?)");
+
+				cleanRevocationStatus = connection.prepareStatement(
+						"DELETE FROM revocation_status WHERE rowid IN" +
+						"  (SELECT rowid FROM revocation_status WHERE expires<? LIMIT ?)");
 
 				// erasing the trust view
 				eraseAssessments = connection.prepareStatement(
@@ -236,6 +433,9 @@ public class SQLiteBackedTrustView implements TrustView {
 
 				eraseCertificates = connection.prepareStatement(
 						"DELETE FROM certificates");
+
+				eraseRevocationStatus = connection.prepareStatement(
+						"DELETE FROM revocation_status");
 			}
 			catch (SQLException e) {
 				throw new ModelAccessException(e);
@@ -259,20 +459,97 @@ public class SQLiteBackedTrustView implements TrustView {
 
 	@Override
 	public TrustAssessment getAssessment(String k, String ca) {
-		TrustAssessment assessment = null;
 		try {
-			validateDatabaseConnection();
-			getAssessment.setString(1, k);
-			getAssessment.setString(2, ca);
-			try (ResultSet result = getAssessment.executeQuery()) {
-				if (result.next())
-					assessment = constructAssessment(result);
-			}
+			return findAssessment(k, ca);
 		}
 		catch (SQLException | CertificateException e) {
 			e.printStackTrace();
 		}
-		return assessment;
+		return null;
+	}
+
+	/**
+	 * @return the {@link TrustAssessment} for the given CA and its given
+	 * public key or <code>null</code> if no such assessment is stored
+	 * @param k
+	 * @param ca
+	 * @throws SQLException if the assessment could not be retrieved
+	 * @throws CertificateException if the assessment could not be retrieved
+	 */
+	TrustAssessment findAssessment(String k, String ca)
+			throws SQLException, CertificateException {
+		validateDatabaseConnection();
+		flushDeferredWrites();
+		getAssessment.setString(1, k);
+		getAssessment.setString(2, ca);
+		try (ResultSet result = getAssessment.executeQuery()) {
+			if (result.next())
+				return constructAssessment(result);
+		}
+		return null;
+	}
+
+	@Override
+	public List<TrustAssessment> getAssessments(List<TrustCertificate> S) {
+		List<TrustViewCache.Key> keys = new ArrayList<>(S.size());
+		for (TrustCertificate certificate : S)
+			keys.add(new TrustViewCache.Key(
+					certificate.getPublicKey(), certificate.getSubject()));
+
+		Map<TrustViewCache.Key, TrustAssessment> assessments = null;
+		try {
+			assessments = findAssessments(keys);
+		}
+		catch (SQLException | CertificateException e) {
+			e.printStackTrace();
+		}
+		return assessmentsFor(keys, assessments);
+	}
+
+	/**
+	 * @return the stored {@link TrustAssessment}s for the given pairs of
+	 * public key and CA, retrieved using a single query for up to
+	 * {@value #MAX_LOOKUPS_PER_QUERY} pairs; pairs without a stored assessment
+	 * are not contained
+	 * @param keys
+	 * @throws SQLException if the assessments could not be retrieved
+	 * @throws CertificateException if the assessments could not be retrieved
+	 */
+	Map<TrustViewCache.Key, TrustAssessment> findAssessments(
+			Collection<TrustViewCache.Key> keys)
+			throws SQLException, CertificateException {
+		validateDatabaseConnection();
+		flushDeferredWrites();
+
+		Map<TrustViewCache.Key, TrustAssessment> assessments = new HashMap<>();
+		List<TrustViewCache.Key> distinctKeys =
+				new ArrayList<>(new LinkedHashSet<>(keys));
+		for (int i = 0; i < distinctKeys.size(); i += MAX_LOOKUPS_PER_QUERY) {
+			List<TrustViewCache.Key> lookupKeys = distinctKeys.subList(
+					i, Math.min(i + MAX_LOOKUPS_PER_QUERY, distinctKeys.size()));
+
+			// the statement is prepared once per number of looked up entries
+			PreparedStatement statement = cachingConnection.prepareStatement(
+					"SELECT assessments.*," +
+					"  certificates.serial, certificates.issuer," +
+					"  certificates.subject, certificates.publickey," +
+					"  certificates.notbefore, certificates.notafter" +
+					"  FROM assessments LEFT JOIN certificates" +
+					"  ON certificates.publickey = assessments.k" +
+					"  AND certificates.subject = assessments.ca" +
+					"  AND certificates.S = 1" +
+					"  WHERE " + lookupCondition(
+							"assessments.k", "assessments.ca", lookupKeys.size()) +
+					"  ORDER BY assessments.k, assessments.ca");
+			setLookupParameters(statement, lookupKeys);
+
+			try (ResultSet result = statement.executeQuery()) {
+				for (TrustAssessment assessment : readAssessments(result, false))
+					assessments.put(new TrustViewCache.Key(
+							assessment.getK(), assessment.getCa()), assessment);
+			}
+		}
+		return assessments;
 	}
 
 	@Override
@@ -306,7 +583,8 @@ public class SQLiteBackedTrustView implements TrustView {
 			setAssessment.setDouble(16, assessment.getO_it_ee().getR());
 			setAssessment.setDouble(17, assessment.getO_it_ee().getS());
 			setAssessment.setTimestamp(18, new Timestamp(new Date().getTime()));
-			setAssessment.executeUpdate();
+			setAssessment.addBatch();
+			deferWrite(setAssessment);
 
 			for (TrustCertificate cert : assessment.getS()) {
 				setAssessmentS.setString(1, cert.getSerial());
@@ -315,12 +593,10 @@ public class SQLiteBackedTrustView implements TrustView {
 				setAssessmentS.setString(4, cert.getPublicKey());
 				setAssessmentS.setTimestamp(5, new Timestamp(cert.getNotBefore().getTime()));
 				setAssessmentS.setTimestamp(6, new Timestamp(cert.getNotAfter().getTime()));
-				if (cert.getCertificate() != null)
-					setAssessmentS.setBytes(7, cert.getCertificate().getEncoded());
-				else
-					setAssessmentS.setNull(7, Types.BLOB);
+				setCertificateData(setAssessmentS, 7, cert);
 				setAssessmentS.setBoolean(8, true);
-				setAssessmentS.executeUpdate();
+				setAssessmentS.addBatch();
+				deferWrite(setAssessmentS);
 			}
 		}
 		catch (SQLException | CertificateEncodingException e) {
@@ -332,10 +608,8 @@ public class SQLiteBackedTrustView implements TrustView {
 	public void setAssessmentValid(String k, String ca) {
 		try {
 			validateDatabaseConnection();
-			setAssessmentValid.setTimestamp(1, new Timestamp(new Date().getTime()));
-			setAssessmentValid.setString(2, k);
-			setAssessmentValid.setString(3, ca);
-			setAssessmentValid.executeUpdate();
+			assessmentTimestamps.touch(
+					new TrustViewCache.Key(k, ca), new Date().getTime());
 		}
 		catch (SQLException e) {
 			e.printStackTrace();
@@ -346,6 +620,7 @@ public class SQLiteBackedTrustView implements TrustView {
 	public void removeAssessment(String k, String ca) {
 		try {
 			validateDatabaseConnection();
+			flushDeferredWrites();
 			getAssessmentsS.setString(1, k);
 			getAssessmentsS.setString(2, ca);
 			try (ResultSet resultS = getAssessmentsS.executeQuery()) {
@@ -356,12 +631,14 @@ public class SQLiteBackedTrustView implements TrustView {
 					setAssessmentS.setString(4, resultS.getString(4));
 					setAssessmentS.setTimestamp(5, resultS.getTimestamp(5));
 					setAssessmentS.setTimestamp(6, resultS.getTimestamp(6));
-					setAssessmentS.setBytes(7, resultS.getBytes(7));
+					setAssessmentS.setNull(7, Types.BLOB);
 					setAssessmentS.setBoolean(8, false);
-					setAssessmentS.executeUpdate();
+					setAssessmentS.addBatch();
+					deferWrite(setAssessmentS);
 				}
 			}
 
+			flushDeferredWrites();
 			removeAssessment.setString(1, k);
 			removeAssessment.setString(2, ca);
 			removeAssessment.executeUpdate();
@@ -373,18 +650,51 @@ public class SQLiteBackedTrustView implements TrustView {
 
 	@Override
 	public Collection<TrustAssessment> getAssessments() {
-		List<TrustAssessment> assessments = new ArrayList<>();
+		return loadAssessments(getAssessmentsWithS, true);
+	}
+
+	@Override
+	public Collection<TrustAssessment> getAssessmentsWithoutCertificateData() {
+		return loadAssessments(getAssessmentsWithSMetadata, false);
+	}
+
+	@Override
+	public TrustAssessment getAssessmentForCA(String ca) {
 		try {
 			validateDatabaseConnection();
-			try (ResultSet result = getAssessments.executeQuery()) {
-				while (result.next())
-					assessments.add(constructAssessment(result));
+			flushDeferredWrites();
+			getAssessmentForCA.setString(1, ca);
+			try (ResultSet result = getAssessmentForCA.executeQuery()) {
+				if (result.next())
+					return constructAssessment(result);
 			}
 		}
 		catch (SQLException | CertificateException e) {
 			e.printStackTrace();
 		}
-		return assessments;
+		return null;
+	}
+
+	@Override
+	public IssuerTrustExpectations getIssuerTrustExpectations(String issuer) {
+		int n = 0;
+		double f_ca = 0.0, f_ee = 0.0;
+		try {
+			validateDatabaseConnection();
+			flushDeferredWrites();
+			getIssuerTrustExpectations.setString(1, issuer);
+			try (ResultSet result = getIssuerTrustExpectations.executeQuery()) {
+				while (result.next()) {
+					f_ca += constructOpinion(result, 8).getExpectation();
+					f_ee += constructOpinion(result, 13).getExpectation();
+					n++;
+				}
+			}
+		}
+		catch (SQLException e) {
+			e.printStackTrace();
+		}
+		return new IssuerTrustExpectations(n, f_ca, f_ee);
 	}
 
 	@Override
@@ -392,6 +702,7 @@ public class SQLiteBackedTrustView implements TrustView {
 		Set<TrustCertificate> certificates = new HashSet<>();
 		try {
 			validateDatabaseConnection();
+			flushDeferredWrites();
 			getCertificateTrust.setBoolean(1, true);
 			getCertificateTrust.setBoolean(2, false);
 			try (ResultSet result = getCertificateTrust.executeQuery()) {
@@ -409,6 +720,7 @@ public class SQLiteBackedTrustView implements TrustView {
 	public boolean isCertificateTrusted(TrustCertificate certificate) {
 		try {
 			validateDatabaseConnection();
+			flushDeferredWrites();
 			getCertificate.setString(1, certificate.getSerial());
 			getCertificate.setString(2, certificate.getIssuer());
 			try (ResultSet result = getCertificate.executeQuery()) {
@@ -427,6 +739,7 @@ public class SQLiteBackedTrustView implements TrustView {
 		Set<TrustCertificate> certificates = new HashSet<>();
 		try {
 			validateDatabaseConnection();
+			flushDeferredWrites();
 			getCertificateTrust.setBoolean(1, false);
 			getCertificateTrust.setBoolean(2, true);
 			try (ResultSet result = getCertificateTrust.executeQuery()) {
@@ -444,6 +757,7 @@ public class SQLiteBackedTrustView implements TrustView {
 	public boolean isCertificateUntrusted(TrustCertificate certificate) {
 		try {
 			validateDatabaseConnection();
+			flushDeferredWrites();
 			getCertificate.setString(1, certificate.getSerial());
 			getCertificate.setString(2, certificate.getIssuer());
 			try (ResultSet result = getCertificate.executeQuery()) {
@@ -462,6 +776,7 @@ public class SQLiteBackedTrustView implements TrustView {
 		Set<TrustCertificate> certificates = new HashSet<>();
 		try {
 			validateDatabaseConnection();
+			flushDeferredWrites();
 			try (ResultSet result = getCertificates.executeQuery()) {
 				while (result.next())
 					certificates.add(constructCertificate(result));
@@ -477,6 +792,7 @@ public class SQLiteBackedTrustView implements TrustView {
 	public boolean hasCertificate(TrustCertificate certificate) {
 		try {
 			validateDatabaseConnection();
+			flushDeferredWrites();
 			getCertificate.setString(1, certificate.getSerial());
 			getCertificate.setString(2, certificate.getIssuer());
 			try (ResultSet result = getCertificate.executeQuery()) {
@@ -533,12 +849,10 @@ public class SQLiteBackedTrustView implements TrustView {
 			setCertificateRevoked.setString(4, certificate.getPublicKey());
 			setCertificateRevoked.setTimestamp(5, new Timestamp(certificate.getNotBefore().getTime()));
 			setCertificateRevoked.setTimestamp(6, new Timestamp(certificate.getNotAfter().getTime()));
-			if (certificate.getCertificate() != null)
-				setCertificateRevoked.setBytes(7, certificate.getCertificate().getEncoded());
-			else
-				setCertificateRevoked.setNull(7, Types.BLOB);
+			setCertificateData(setCertificateRevoked, 7, certificate);
 			setCertificateRevoked.setBoolean(8, true);
-			setCertificateRevoked.executeUpdate();
+			setCertificateRevoked.addBatch();
+			deferWrite(setCertificateRevoked);
 		}
 		catch (SQLException | CertificateEncodingException e) {
 			e.printStackTrace();
@@ -549,6 +863,7 @@ public class SQLiteBackedTrustView implements TrustView {
 	public boolean isCertificateRevoked(TrustCertificate certificate) {
 		try {
 			validateDatabaseConnection();
+			flushDeferredWrites();
 			getCertificate.setString(1, certificate.getSerial());
 			getCertificate.setString(2, certificate.getIssuer());
 			try (ResultSet result = getCertificate.executeQuery()) {
@@ -562,11 +877,103 @@ public class SQLiteBackedTrustView implements TrustView {
 		return false;
 	}
 
+	/**
+	 * @return the stored state of the given certificate,
+	 * retrieved using a single query, or <code>null</code> if the state could
+	 * not be retrieved
+	 * @param certificate
+	 */
+	CertificateTrustState getCertificateState(TrustCertificate certificate) {
+		try {
+			validateDatabaseConnection();
+			flushDeferredWrites();
+			getCertificate.setString(1, certificate.getSerial());
+			getCertificate.setString(2, certificate.getIssuer());
+			try (ResultSet result = getCertificate.executeQuery()) {
+				if (result.next())
+					return new CertificateTrustState(true,
+							result.getBoolean(9), result.getBoolean(10),
+							result.getBoolean(8), result.getBoolean(12));
+			}
+			return CertificateTrustState.ABSENT;
+		}
+		catch (SQLException e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	@Override
+	public Map<TrustCertificate, CertificateTrustState> getTrustStates(
+			Collection<TrustCertificate> certificates) {
+		List<TrustViewCache.Key> keys = new ArrayList<>(certificates.size());
+		for (TrustCertificate certificate : certificates)
+			keys.add(new TrustViewCache.Key(
+					certificate.getSerial(), certificate.getIssuer()));
+
+		Map<TrustCertificate, CertificateTrustState> states = new HashMap<>();
+		try {
+			Map<TrustViewCache.Key, CertificateTrustState> storedStates =
+					findCertificateStates(keys);
+			for (TrustCertificate certificate : certificates)
+				states.put(certificate, storedStates.get(new TrustViewCache.Key(
+						certificate.getSerial(), certificate.getIssuer())));
+		}
+		catch (SQLException e) {
+			e.printStackTrace();
+		}
+		return states;
+	}
+
+	/**
+	 * @return the stored states of the given certificates identified by their
+	 * serial and issuer, retrieved using a single query for up to
+	 * {@value #MAX_LOOKUPS_PER_QUERY} certificates
+	 * @param keys
+	 * @throws SQLException if the states could not be retrieved
+	 */
+	Map<TrustViewCache.Key, CertificateTrustState> findCertificateStates(
+			Collection<TrustViewCache.Key> keys) throws SQLException {
+		validateDatabaseConnection();
+		flushDeferredWrites();
+
+		Map<TrustViewCache.Key, CertificateTrustState> states = new HashMap<>();
+		List<TrustViewCache.Key> distinctKeys =
+				new ArrayList<>(new LinkedHashSet<>(keys));
+		for (int i = 0; i < distinctKeys.size(); i += MAX_LOOKUPS_PER_QUERY) {
+			List<TrustViewCache.Key> lookupKeys = distinctKeys.subList(
+					i, Math.min(i + MAX_LOOKUPS_PER_QUERY, distinctKeys.size()));
+
+			// the statement is prepared once per number of looked up entries
+			PreparedStatement statement = cachingConnection.prepareStatement(
+					"SELECT " + CERTIFICATE_COLUMNS + "," +
+					"  EXISTS (SELECT 1 FROM watchlist" +
+					"    WHERE watchlist.serial = certificates.serial" +
+					"    AND watchlist.issuer = certificates.issuer)" +
+					"  FROM certificates WHERE " +
+					lookupCondition("serial", "issuer", lookupKeys.size()));
+			setLookupParameters(statement, lookupKeys);
+
+			for (TrustViewCache.Key key : lookupKeys)
+				states.put(key, CertificateTrustState.ABSENT);
+			try (ResultSet result = statement.executeQuery()) {
+				while (result.next())
+					states.put(new TrustViewCache.Key(
+							result.getString(1), result.getString(2)),
+							new CertificateTrustState(true,
+									result.getBoolean(9), result.getBoolean(10),
+									result.getBoolean(8), result.getBoolean(12)));
+			}
+		}
+		return states;
+	}
+
 	@Override
 	public Collection<TrustCertificate> getCertificatesForHost(String host) {
 		Set<TrustCertificate> certificates = new HashSet<>();
 		try {
 			validateDatabaseConnection();
+			flushDeferredWrites();
 			getCertificatesForHost.setString(1, host);
 			try (ResultSet result = getCertificatesForHost.executeQuery()) {
 				while (result.next())
@@ -584,6 +991,7 @@ public class SQLiteBackedTrustView implements TrustView {
 	public void addHostForCertificate(TrustCertificate certificate, String host) {
 		try {
 			validateDatabaseConnection();
+			flushDeferredWrites();
 			addCertificateToHost.setString(1, certificate.getSerial());
 			addCertificateToHost.setString(2, certificate.getIssuer());
 			addCertificateToHost.setString(3, host);
@@ -605,16 +1013,15 @@ public class SQLiteBackedTrustView implements TrustView {
 			setCertificate.setString(4, certificate.getPublicKey());
 			setCertificate.setTimestamp(5, new Timestamp(certificate.getNotBefore().getTime()));
 			setCertificate.setTimestamp(6, new Timestamp(certificate.getNotAfter().getTime()));
-			if (certificate.getCertificate() != null)
-				setCertificate.setBytes(7, certificate.getCertificate().getEncoded());
-			else
-				setCertificate.setNull(7, Types.BLOB);
-			setCertificate.executeUpdate();
+			setCertificateData(setCertificate, 7, certificate);
+			setCertificate.addBatch();
+			deferWrite(setCertificate);
 
 			addCertificateToWatchlist.setString(1, certificate.getSerial());
 			addCertificateToWatchlist.setString(2, certificate.getIssuer());
 			addCertificateToWatchlist.setTimestamp(3, new Timestamp(new Date().getTime()));
-			addCertificateToWatchlist.executeUpdate();
+			addCertificateToWatchlist.addBatch();
+			deferWrite(addCertificateToWatchlist);
 		}
 		catch (SQLException | CertificateException e) {
 			e.printStackTrace();
@@ -625,6 +1032,7 @@ public class SQLiteBackedTrustView implements TrustView {
 	public void removeCertificateFromWatchlist(TrustCertificate certificate) {
 		try {
 			validateDatabaseConnection();
+			flushDeferredWrites();
 			removeCertificateFromWatchlist.setString(1, certificate.getSerial());
 			removeCertificateFromWatchlist.setString(2, certificate.getIssuer());
 			removeCertificateFromWatchlist.executeUpdate();
@@ -637,6 +1045,8 @@ public class SQLiteBackedTrustView implements TrustView {
 	@Override
 	public boolean isCertificateOnWatchlist(TrustCertificate certificate) {
 		try {
+			validateDatabaseConnection();
+			flushDeferredWrites();
 			getWatchlistCertificate.setString(1, certificate.getSerial());
 			getWatchlistCertificate.setString(2, certificate.getIssuer());
 			try (ResultSet result = getWatchlistCertificate.executeQuery()) {
@@ -655,6 +1065,7 @@ public class SQLiteBackedTrustView implements TrustView {
 		List<TrustCertificate> watchlist = new ArrayList<>();
 		try {
 			validateDatabaseConnection();
+			flushDeferredWrites();
 			try (ResultSet result = getWatchlistCertificates.executeQuery()) {
 				while (result.next())
 					watchlist.add(constructCertificate(result));
@@ -670,6 +1081,7 @@ public class SQLiteBackedTrustView implements TrustView {
 	public Date getWatchlistCerrtificateTimestamp(TrustCertificate certificate) {
 		try {
 			validateDatabaseConnection();
+			flushDeferredWrites();
 			getWatchlistCertificate.setString(1, certificate.getSerial());
 			getWatchlistCertificate.setString(2, certificate.getIssuer());
 			try (ResultSet result = getWatchlistCertificate.executeQuery()) {
@@ -695,11 +1107,9 @@ public class SQLiteBackedTrustView implements TrustView {
 			setCertificate.setString(4, certificate.getPublicKey());
 			setCertificate.setTimestamp(5, new Timestamp(certificate.getNotBefore().getTime()));
 			setCertificate.setTimestamp(6, new Timestamp(certificate.getNotAfter().getTime()));
-			if (certificate.getCertificate() != null)
-				setCertificate.setBytes(7, certificate.getCertificate().getEncoded());
-			else
-				setCertificate.setNull(7, Types.BLOB);
-			setCertificate.executeUpdate();
+			setCertificateData(setCertificate, 7, certificate);
+			setCertificate.addBatch();
+			deferWrite(setCertificate);
 
 			deferredCRLBatch.put(crlInfo, crlInfo);
 		}
@@ -716,6 +1126,7 @@ public class SQLiteBackedTrustView implements TrustView {
 
 		try {
 			validateDatabaseConnection();
+			flushDeferredWrites();
 
 			getCRL.setString(1, crlInfo.getCRLIssuer().getSerial());
 			getCRL.setString(2, crlInfo.getCRLIssuer().getIssuer());
@@ -723,29 +1134,52 @@ public class SQLiteBackedTrustView implements TrustView {
 			try (ResultSet result = getCRL.executeQuery()) {
 				if (result.next()) {
 					TrustCertificate crlIssuer = constructCertificate(result);
-					List<String> urls = deserialize(result.getString(14));
-					Timestamp timestamp = result.getTimestamp(15);
+					List<String> urls = deserialize(result.getString(12));
+					Timestamp timestamp = result.getTimestamp(13);
 					Option<Date> nextUpdate = !result.wasNull()
 							? new Option<Date>(new Date(timestamp.getTime()))
 							: new Option<Date>();
 
-					byte[] blob = result.getBytes(16);
-					Option<CRL> crl = !result.wasNull()
-							? new Option<CRL>(
-								CertificateFactory.getInstance("X.509").
-									generateCRL(new ByteArrayInputStream(blob)))
+					// the CRL data is not parsed, revocation checks
+					// look up the revoked serials stored for the CRL
+					Option<CRL> crl = result.getBoolean(14)
+							? new Option<CRL>(new StoredCRL(crlEntryLookup,
+									crlIssuer, result.getString(12)))
 							: new Option<CRL>();
 
 					return new CRLInfo(crlIssuer, urls, nextUpdate, crl);
 				}
 			}
 		}
-		catch (SQLException | CertificateException | CRLException e) {
+		catch (SQLException | CertificateException e) {
 			e.printStackTrace();
 		}
 		return null;
 	}
 
+	/**
+	 * @return whether the certificate with the given serial number is listed
+	 * as revoked by the CRL of the given issuer with the given serialized URLs
+	 * that is stored in the trust view
+	 * @param crlIssuer
+	 * @param urls
+	 * @param serial
+	 * @throws SQLException if the trust view is closed or the lookup failed
+	 */
+	private boolean isRevokedByCRL(TrustCertificate crlIssuer, String urls,
+			String serial) throws SQLException {
+		if (closed || connection.isClosed())
+			throw new SQLException("Cannot access a TrustView that is already closed.");
+
+		getCRLEntry.setString(1, crlIssuer.getSerial());
+		getCRLEntry.setString(2, crlIssuer.getIssuer());
+		getCRLEntry.setString(3, urls);
+		getCRLEntry.setString(4, serial);
+		try (ResultSet result = getCRLEntry.executeQuery()) {
+			return result.next();
+		}
+	}
+
 	@Override
 	public void addOCSP(OCSPInfo ocspInfo) {
 		try {
@@ -758,11 +1192,9 @@ public class SQLiteBackedTrustView implements TrustView {
 			setCertificate.setString(4, certificate.getPublicKey());
 			setCertificate.setTimestamp(5, new Timestamp(certificate.getNotBefore().getTime()));
 			setCertificate.setTimestamp(6, new Timestamp(certificate.getNotAfter().getTime()));
-			if (certificate.getCertificate() != null)
-				setCertificate.setBytes(7, certificate.getCertificate().getEncoded());
-			else
-				setCertificate.setNull(7, Types.BLOB);
-			setCertificate.executeUpdate();
+			setCertificateData(setCertificate, 7, certificate);
+			setCertificate.addBatch();
+			deferWrite(setCertificate);
 
 			addOCSP.setString(1, certificate.getSerial());
 			addOCSP.setString(2, certificate.getIssuer());
@@ -771,7 +1203,8 @@ public class SQLiteBackedTrustView implements TrustView {
 				addOCSP.setTimestamp(4, new Timestamp(ocspInfo.getNextUpdate().get().getTime()));
 			else
 				addOCSP.setNull(4, Types.TIMESTAMP);
-			addOCSP.executeUpdate();
+			addOCSP.addBatch();
+			deferWrite(addOCSP);
 		}
 		catch (SQLException | CertificateException e) {
 			e.printStackTrace();
@@ -782,6 +1215,7 @@ public class SQLiteBackedTrustView implements TrustView {
 	public OCSPInfo getOCSP(OCSPInfo ocspInfo) {
 		try {
 			validateDatabaseConnection();
+			flushDeferredWrites();
 
 			getOCSP.setString(1, ocspInfo.getCertificateIssuer().getSerial());
 			getOCSP.setString(2, ocspInfo.getCertificateIssuer().getIssuer());
@@ -805,75 +1239,144 @@ public class SQLiteBackedTrustView implements TrustView {
 		return null;
 	}
 
+	@Override
+	public void setRevocationStatus(RevocationStatus status) {
+		try {
+			validateDatabaseConnection();
+
+			TrustCertificate certificate = status.getCertificate();
+			setRevocationStatus.setString(1, certificate.getSerial());
+			setRevocationStatus.setString(2, certificate.getIssuer());
+			setRevocationStatus.setString(3, status.getStatus().name());
+			if (status.getSource().isSet())
+				setRevocationStatus.setString(4, status.getSource().get().name());
+			else
+				setRevocationStatus.setNull(4, Types.VARCHAR);
+			if (status.getThisUpdate().isSet())
+				setRevocationStatus.setTimestamp(5, new Timestamp(status.getThisUpdate().get().getTime()));
+			else
+				setRevocationStatus.setNull(5, Types.TIMESTAMP);
+			if (status.getNextUpdate().isSet())
+				setRevocationStatus.setTimestamp(6, new Timestamp(status.getNextUpdate().get().getTime()));
+			else
+				setRevocationStatus.setNull(6, Types.TIMESTAMP);
+			setRevocationStatus.setTimestamp(7, new Timestamp(status.getChecked().getTime()));
+			setRevocationStatus.setTimestamp(8, new Timestamp(status.getExpires().getTime()));
+			setRevocationStatus.addBatch();
+			deferWrite(setRevocationStatus);
+		}
+		catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	public RevocationStatus getRevocationStatus(TrustCertificate certificate) {
+		try {
+			validateDatabaseConnection();
+			flushDeferredWrites();
+
+			getRevocationStatus.setString(1, certificate.getSerial());
+			getRevocationStatus.setString(2, certificate.getIssuer());
+			try (ResultSet result = getRevocationStatus.executeQuery()) {
+				if (result.next()) {
+					RevocationStatus.Status status =
+							RevocationStatus.Status.valueOf(result.getString(3));
+					String source = result.getString(4);
+					return new RevocationStatus(certificate, status,
+							source != null
+								? new Option<>(RevocationStatus.Source.valueOf(source))
+								: new Option<RevocationStatus.Source>(),
+							constructDate(result, 5),
+							constructDate(result, 6),
+							new Date(result.getTimestamp(7).getTime()),
+							new Date(result.getTimestamp(8).getTime()));
+				}
+			}
+		}
+		catch (SQLException | IllegalArgumentException e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
 	@Override
 	public void clean() {
+		while (clean(CLEAN_LIMIT));
+	}
+
+	@Override
+	public boolean clean(int limit) {
 		try {
 			validateDatabaseConnection();
+			flushDeferredWrites();
+			writeAssessmentTimestamps();
 			final long nowMillis = new Date().getTime();
+			boolean remaining = false;
 
 			// remove expired watchlist certificates
-			try (ResultSet result = getWatchlistCertificates.executeQuery()) {
-				while (result.next())
-					if (nowMillis - result.getTimestamp(14).getTime()
-							> watchlistExpirationMillis) {
-						removeCertificateFromWatchlist.setString(1, result.getString(1));
-						removeCertificateFromWatchlist.setString(2, result.getString(2));
-						removeCertificateFromWatchlist.executeUpdate();
-					}
-			}
+			cleanWatchlist.setTimestamp(1,
+					new Timestamp(nowMillis - watchlistExpirationMillis));
+			cleanWatchlist.setInt(2, limit);
+			remaining |= cleanWatchlist.executeUpdate() >= limit;
 
 			// remove expired assessments
-			try (ResultSet result = getAssessments.executeQuery()) {
-				while (result.next())
-					if (nowMillis - result.getTimestamp(18).getTime()
-							> assessmentExpirationMillis) {
-						getAssessmentsS.setString(1, result.getString(1));
-						getAssessmentsS.setString(2, result.getString(2));
-						try (ResultSet resultS = getAssessmentsS.executeQuery()) {
-							while (resultS.next()) {
-								setAssessmentS.setString(1, resultS.getString(1));
-								setAssessmentS.setString(2, resultS.getString(2));
-								setAssessmentS.setString(3, resultS.getString(3));
-								setAssessmentS.setString(4, resultS.getString(4));
-								setAssessmentS.setTimestamp(5, resultS.getTimestamp(5));
-								setAssessmentS.setTimestamp(6, resultS.getTimestamp(6));
-								setAssessmentS.setBytes(7, resultS.getBytes(7));
-								setAssessmentS.setBoolean(8, false);
-								setAssessmentS.executeUpdate();
-							}
-						}
+			// after removing their certificates from the S sets
+			getExpiredAssessments.setTimestamp(1,
+					new Timestamp(nowMillis - assessmentExpirationMillis));
+			getExpiredAssessments.setInt(2, limit);
+			int expiredAssessments = 0;
+			try (ResultSet result = getExpiredAssessments.executeQuery()) {
+				while (result.next()) {
+					cleanAssessmentsS.setString(1, result.getString(1));
+					cleanAssessmentsS.setString(2, result.getString(2));
+					cleanAssessmentsS.addBatch();
+
+					cleanAssessments.setString(1, result.getString(1));
+					cleanAssessments.setString(2, result.getString(2));
+					cleanAssessments.addBatch();
+
+					expiredAssessments++;
+				}
+			}
 
-						removeAssessment.setString(1, result.getString(1));
-						removeAssessment.setString(2, result.getString(2));
-						removeAssessment.executeUpdate();
-					}
+			if (expiredAssessments > 0) {
+				cleanAssessmentsS.executeBatch();
+				cleanAssessments.executeBatch();
 			}
+			remaining |= expiredAssessments >= limit;
 
 			// remove certificates that are no longer needed after
 			// the removal of expired assessments
-			cleanCertificates.executeUpdate();
+			cleanCertificates.setInt(1, limit);
+			remaining |= cleanCertificates.executeUpdate() >= limit;
 
 			// remove expired certificates
-			try (ResultSet result = getCertificates.executeQuery()) {
-				while (result.next())
-					if (result.getTimestamp(6).getTime() < nowMillis) {
-						removeCertificate.setString(1, result.getString(1));
-						removeCertificate.setString(2, result.getString(2));
-						removeCertificate.executeUpdate();
-					}
-			}
+			cleanExpiredCertificates.setTimestamp(1, new Timestamp(nowMillis));
+			cleanExpiredCertificates.setInt(2, limit);
+			remaining |= cleanExpiredCertificates.executeUpdate() >= limit;
+
+			// remove expired revocation statuses
+			cleanRevocationStatus.setTimestamp(1, new Timestamp(nowMillis));
+			cleanRevocationStatus.setInt(2, limit);
+			remaining |= cleanRevocationStatus.executeUpdate() >= limit;
+
+			return remaining;
 		}
 		catch (SQLException e) {
 			e.printStackTrace();
 		}
+		return false;
 	}
 
 	@Override
 	public void erase() {
 		try {
 			validateDatabaseConnection();
+			flushDeferredWrites();
 			eraseAssessments.executeUpdate();
 			eraseCertificates.executeUpdate();
+			eraseRevocationStatus.executeUpdate();
 		}
 		catch (SQLException e) {
 			e.printStackTrace();
@@ -888,12 +1391,23 @@ public class SQLiteBackedTrustView implements TrustView {
 	@Override
 	public void save() throws ModelAccessException {
 		try {
+			if (deferredWritesFailure != null)
+				throw deferredWritesFailure;
+
+			flushDeferredWrites();
+			writeAssessmentTimestamps();
+
 			if (!deferredCRLBatch.isEmpty()) {
 				// execute statements that update the CRL table as last
 				// statements of the transaction because it is much faster
 				validateDatabaseConnection();
 				for (CRLInfo crlInfo : deferredCRLBatch.values())
 					try {
+						// CRLs read from the trust view are already stored
+						if (crlInfo.getCRL().isSet() &&
+								crlInfo.getCRL().get() instanceof StoredCRL)
+							continue;
+
 						TrustCertificate certificate = crlInfo.getCRLIssuer();
 						addCRL.setString(1, certificate.getSerial());
 						addCRL.setString(2, certificate.getIssuer());
@@ -906,15 +1420,24 @@ public class SQLiteBackedTrustView implements TrustView {
 							addCRL.setBytes(5, ((X509CRL) crlInfo.getCRL().get()).getEncoded());
 						else
 							addCRL.setNull(5, Types.BLOB);
-						addCRL.executeUpdate();
+						addCRL.addBatch();
 					}
-					catch (SQLException | CRLException e) {
+					catch (CRLException e) {
 						e.printStackTrace();
 					}
+				addCRL.executeBatch();
+
+				// store the revoked serials of each CRL once, so that
+				// revocation checks do not need to parse the CRL data
+				for (CRLInfo crlInfo : deferredCRLBatch.values())
+					if (!crlInfo.getCRL().isSet() ||
+							!(crlInfo.getCRL().get() instanceof StoredCRL))
+						addCRLEntries(crlInfo);
 				deferredCRLBatch.clear();
 			}
 
 			connection.commit();
+			writtenAssessmentTimestamps.clear();
 
 			for (Notification notification : notifications)
 				notification.saved();
@@ -927,44 +1450,66 @@ public class SQLiteBackedTrustView implements TrustView {
 		}
 	}
 
+	/**
+	 * Stores the serials of the certificates revoked by the CRL of the given
+	 * CRL information, replacing the serials stored for a previous version of
+	 * the same CRL within the current transaction; the serials stored for
+	 * other CRLs of the CRL issuer are kept
+	 * @param crlInfo
+	 * @throws SQLException
+	 */
+	private void addCRLEntries(CRLInfo crlInfo) throws SQLException {
+		TrustCertificate crlIssuer = crlInfo.getCRLIssuer();
+		String urls = serialize(crlInfo.getURLs());
+
+		removeCRLEntries.setString(1, crlIssuer.getSerial());
+		removeCRLEntries.setString(2, crlIssuer.getIssuer());
+		removeCRLEntries.setString(3, urls);
+		removeCRLEntries.executeUpdate();
+
+		if (!crlInfo.getCRL().isSet() ||
+				!(crlInfo.getCRL().get() instanceof X509CRL))
+			return;
+
+		Set<? extends X509CRLEntry> entries =
+				((X509CRL) crlInfo.getCRL().get()).getRevokedCertificates();
+		if (entries == null)
+			return;
+
+		int batchSize = 0;
+		for (X509CRLEntry entry : entries) {
+			addCRLEntry.setString(1, crlIssuer.getSerial());
+			addCRLEntry.setString(2, crlIssuer.getIssuer());
+			addCRLEntry.setString(3, urls);
+			addCRLEntry.setString(4, entry.getSerialNumber().toString());
+			if (entry.getRevocationDate() != null)
+				addCRLEntry.setTimestamp(5, new Timestamp(entry.getRevocationDate().getTime()));
+			else
+				addCRLEntry.setNull(5, Types.TIMESTAMP);
+			addCRLEntry.addBatch();
+
+			if (++batchSize >= CRL_ENTRIES_BATCH_SIZE) {
+				addCRLEntry.executeBatch();
+				batchSize = 0;
+			}
+		}
+		if (batchSize > 0)
+			addCRLEntry.executeBatch();
+	}
+
 	@Override
 	public void close() throws ModelAccessException {
+		if (closed)
+			return;
+		closed = true;
+
+		// record the access times of the rolled back transaction again
+		assessmentTimestamps.touchAll(writtenAssessmentTimestamps);
+		writtenAssessmentTimestamps.clear();
+
 		try {
-			try {
-				getAssessment.close();
-				getAssessments.close();
-				getAssessmentsS.close();
-				setAssessment.close();
-				setAssessmentS.close();
-				setAssessmentValid.close();
-				getCertificate.close();
-				getCertificates.close();
-				getCertificateTrust.close();
-				setCertificateTrust.close();
-				setCertificateRevoked.close();
-				setCertificate.close();
-				getCertificatesForHost.close();
-				addCertificateToHost.close();
-				addCertificateToWatchlist.close();
-				removeCertificateFromWatchlist.close();
-				getWatchlistCertificate.close();
-				getWatchlistCertificates.close();
-				addCRL.close();
-				getCRL.close();
-				addOCSP.close();
-				getOCSP.close();
-				removeAssessment.close();
-				removeCertificate.close();
-				cleanCertificates.close();
-				eraseAssessments.close();
-				eraseCertificates.close();
-			}
-			finally {
-				if (!connection.isClosed()) {
-					connection.rollback();
-					connection.close();
-				}
-			}
+			// rolls back and keeps the statements prepared for reuse
+			cachingConnection.close();
 		}
 		catch (SQLException e) {
 			throw new ModelAccessException(e);
@@ -1030,42 +1575,154 @@ public class SQLiteBackedTrustView implements TrustView {
 		setCertificateTrust.setString(4, S.getPublicKey());
 		setCertificateTrust.setTimestamp(5, new Timestamp(S.getNotBefore().getTime()));
 		setCertificateTrust.setTimestamp(6, new Timestamp(S.getNotAfter().getTime()));
-		if (S.getCertificate() != null)
-			setCertificateTrust.setBytes(7, S.getCertificate().getEncoded());
-		else
-			setCertificateTrust.setNull(7, Types.BLOB);
+		setCertificateData(setCertificateTrust, 7, S);
 		setCertificateTrust.setBoolean(8, trusted);
 		setCertificateTrust.setBoolean(9, untrusted);
-		setCertificateTrust.executeUpdate();
+		setCertificateTrust.addBatch();
+		deferWrite(setCertificateTrust);
+	}
+
+	private Collection<TrustAssessment> loadAssessments(
+			PreparedStatement statement, boolean withCertificateData) {
+		try {
+			validateDatabaseConnection();
+			flushDeferredWrites();
+			try (ResultSet result = statement.executeQuery()) {
+				return readAssessments(result, withCertificateData);
+			}
+		}
+		catch (SQLException | CertificateException e) {
+			e.printStackTrace();
+		}
+		return new ArrayList<>();
+	}
+
+	private List<TrustAssessment> readAssessments(
+			ResultSet result, boolean withCertificateData)
+			throws SQLException, CertificateException {
+		List<TrustAssessment> assessments = new ArrayList<>();
+
+		// the result contains one row per certificate in the S set
+		// (or a single row with no certificate if the S set is empty)
+		// with the rows of the same assessment following each other
+		String k = null, ca = null;
+		Set<TrustCertificate> S = null;
+		while (result.next()) {
+			String currentK = result.getString(1);
+			String currentCa = result.getString(2);
+			if (!currentK.equals(k) || !currentCa.equals(ca)) {
+				k = currentK;
+				ca = currentCa;
+				S = new HashSet<>();
+				assessments.add(constructAssessment(result, S));
+			}
+
+			result.getString(ASSESSMENT_COLUMNS + 1);
+			if (!result.wasNull())
+				S.add(withCertificateData
+						? constructCertificate(result, ASSESSMENT_COLUMNS)
+						: constructCertificateMetadata(result, ASSESSMENT_COLUMNS));
+		}
+		return assessments;
+	}
+
+	/**
+	 * @return the assessments for the given keys at the index of the
+	 * respective key; assessments that are requested more than once
+	 * are copied, so that every returned assessment can be modified
+	 * independently
+	 * @param keys
+	 * @param assessments the assessments by their keys or <code>null</code>
+	 * if the assessments could not be retrieved
+	 */
+	static List<TrustAssessment> assessmentsFor(List<TrustViewCache.Key> keys,
+			Map<TrustViewCache.Key, TrustAssessment> assessments) {
+		List<TrustAssessment> result = new ArrayList<>(keys.size());
+		Set<TrustViewCache.Key> returnedKeys = new HashSet<>();
+		for (TrustViewCache.Key key : keys) {
+			TrustAssessment assessment =
+					assessments != null ? assessments.get(key) : null;
+			if (assessment != null && !returnedKeys.add(key))
+				assessment = assessment.clone();
+			result.add(assessment);
+		}
+		return result;
+	}
+
+	private static String lookupCondition(String first, String second,
+			int count) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			if (i != 0)
+				builder.append(" OR ");
+			builder.append("(");
+			builder.append(first);
+			builder.append("=? AND ");
+			builder.append(second);
+			builder.append("=?)");
+		}
+		return builder.toString();
+	}
+
+	private static void setLookupParameters(PreparedStatement statement,
+			List<TrustViewCache.Key> keys) throws SQLException {
+		int parameterIndex = 1;
+		for (TrustViewCache.Key key : keys) {
+			statement.setString(parameterIndex++, key.getFirst());
+			statement.setString(parameterIndex++, key.getSecond());
+		}
+	}
+
+	// the certificate data is only written if it is already loaded;
+	// the certificate data stored for an existing record is kept
+	// if no certificate data is written
+	private static void setCertificateData(UpdateInsertStmnt statement,
+			int parameterIndex, TrustCertificate certificate)
+			throws SQLException, CertificateEncodingException {
+		if (certificate.isCertificateLoaded() &&
+				certificate.getCertificate() != null)
+			statement.setBytes(parameterIndex,
+					certificate.getCertificate().getEncoded());
+		else
+			statement.setNull(parameterIndex, Types.BLOB);
 	}
 
 	private TrustCertificate constructCertificate(ResultSet result)
 			throws CertificateException, SQLException {
+		return constructCertificate(result, 0);
+	}
+
+	private TrustCertificate constructCertificate(ResultSet result, int offset)
+			throws CertificateException, SQLException {
 		TrustCertificate cert = null;
 
-		byte[] blob = result.getBytes(7);
+		byte[] blob = result.getBytes(offset + 7);
 		if (!result.wasNull())
-			cert = new TrustCertificate(
-					CertificateFactory.getInstance("X.509").
-						generateCertificate(
-								new ByteArrayInputStream(blob)));
+			cert = new TrustCertificate(CertificateCache.getCertificate(blob));
 
 		if (cert != null && (
-				!cert.getSerial().equals(result.getString(1)) ||
-				!cert.getIssuer().equals(result.getString(2)) ||
-				!cert.getSubject().equals(result.getString(3)) ||
-				!cert.getPublicKey().equals(result.getString(4)) ||
-				!cert.getNotBefore().equals(result.getTimestamp(5)) ||
-				!cert.getNotAfter().equals(result.getTimestamp(6))))
+				!cert.getSerial().equals(result.getString(offset + 1)) ||
+				!cert.getIssuer().equals(result.getString(offset + 2)) ||
+				!cert.getSubject().equals(result.getString(offset + 3)) ||
+				!cert.getPublicKey().equals(result.getString(offset + 4)) ||
+				!cert.getNotBefore().equals(result.getTimestamp(offset + 5)) ||
+				!cert.getNotAfter().equals(result.getTimestamp(offset + 6))))
 			cert = null;
 
 		if (cert == null)
-			cert = new TrustCertificate(
-					result.getString(1), result.getString(2),
-					result.getString(3), result.getString(4),
-					result.getTimestamp(5), result.getTimestamp(6));
+			return constructCertificateMetadata(result, offset);
+
+		return TrustCertificate.intern(cert);
+	}
 
-		return cert;
+	// the certificate data is loaded when it is first accessed
+	private TrustCertificate constructCertificateMetadata(ResultSet result, int offset)
+			throws SQLException {
+		return TrustCertificate.intern(new TrustCertificate(
+				result.getString(offset + 1), result.getString(offset + 2),
+				result.getString(offset + 3), result.getString(offset + 4),
+				result.getTimestamp(offset + 5), result.getTimestamp(offset + 6),
+				certificateLoader));
 	}
 
 	private TrustAssessment constructAssessment(ResultSet result)
@@ -1077,7 +1734,11 @@ public class SQLiteBackedTrustView implements TrustView {
 			while (resultS.next())
 				S.add(constructCertificate(resultS));
 		}
+		return constructAssessment(result, S);
+	}
 
+	private TrustAssessment constructAssessment(ResultSet result,
+			Set<TrustCertificate> S) throws SQLException {
 		Option<CertainTrust> o_kl = new Option<CertainTrust>();
 		double t = result.getDouble(3);
 		if (!result.wasNull()) {
@@ -1102,23 +1763,96 @@ public class SQLiteBackedTrustView implements TrustView {
 			}
 		}
 
-		CertainTrust o_it_ca = new CertainTrust(
-				result.getDouble(8), result.getDouble(9),
-				result.getDouble(10), opinionN);
-		o_it_ca.setRS(result.getDouble(11), result.getDouble(12));
-
-		CertainTrust o_it_ee = new CertainTrust(
-				result.getDouble(13), result.getDouble(14),
-				result.getDouble(15), opinionN);
-		o_it_ee.setRS(result.getDouble(16), result.getDouble(17));
+		CertainTrust o_it_ca = constructOpinion(result, 8);
+		CertainTrust o_it_ee = constructOpinion(result, 13);
 
 		return new TrustAssessment(
 				result.getString(1), result.getString(2), S,
 				o_kl, o_it_ca, o_it_ee);
 	}
 
+	private CertainTrust constructOpinion(ResultSet result, int column)
+			throws SQLException {
+		CertainTrust opinion = new CertainTrust(
+				result.getDouble(column), result.getDouble(column + 1),
+				result.getDouble(column + 2), opinionN);
+		opinion.setRS(result.getDouble(column + 3), result.getDouble(column + 4));
+		return opinion;
+	}
+
+	private void flushDeferredWrites() throws SQLException {
+		if (deferredStatement == null)
+			return;
+
+		final Object statement = deferredStatement;
+		deferredStatement = null;
+
+		try {
+			if (statement instanceof UpdateInsertStmnt)
+				((UpdateInsertStmnt) statement).executeBatch();
+			else
+				((PreparedStatement) statement).executeBatch();
+		}
+		catch (SQLException e) {
+			deferredWritesFailure = e;
+			throw e;
+		}
+	}
+
+	/**
+	 * Queues the modification that was just added to the batch of the given
+	 * statement; the queued modifications of a different statement are
+	 * written first, so that the modifications are written in order
+	 * @param statement an {@link UpdateInsertStmnt} or a
+	 * {@link PreparedStatement}
+	 * @throws SQLException
+	 */
+	private void deferWrite(Object statement) throws SQLException {
+		if (deferredStatement != statement) {
+			flushDeferredWrites();
+			deferredStatement = statement;
+		}
+	}
+
+	/**
+	 * Writes the assessment access times recorded so far
+	 * in a single batch
+	 * @throws SQLException
+	 */
+	private void writeAssessmentTimestamps() throws SQLException {
+		Map<TrustViewCache.Key, Long> timestamps = assessmentTimestamps.drain();
+		if (timestamps.isEmpty())
+			return;
+
+		// remember the access times before writing them,
+		// so they are recorded again if writing fails
+		for (Map.Entry<TrustViewCache.Key, Long> entry : timestamps.entrySet()) {
+			Long written = writtenAssessmentTimestamps.get(entry.getKey());
+			if (written == null || written < entry.getValue())
+				writtenAssessmentTimestamps.put(entry.getKey(), entry.getValue());
+		}
+
+		for (Map.Entry<TrustViewCache.Key, Long> entry : timestamps.entrySet()) {
+			Timestamp timestamp = new Timestamp(entry.getValue());
+			setAssessmentValid.setTimestamp(1, timestamp);
+			setAssessmentValid.setString(2, entry.getKey().getFirst());
+			setAssessmentValid.setString(3, entry.getKey().getSecond());
+			setAssessmentValid.setTimestamp(4, timestamp);
+			setAssessmentValid.addBatch();
+		}
+		setAssessmentValid.executeBatch();
+	}
+
+	private static Option<Date> constructDate(ResultSet result, int column)
+			throws SQLException {
+		Timestamp timestamp = result.getTimestamp(column);
+		return !result.wasNull()
+				? new Option<Date>(new Date(timestamp.getTime()))
+				: new Option<Date>();
+	}
+
 	private void validateDatabaseConnection() throws SQLException {
-		if (connection.isClosed())
+		if (closed || connection.isClosed())
 			throw new UnsupportedOperationException(
 					"Cannot access a TrustView that is already closed.");
 	}
@@ -0,0 +1,239 @@
+/*
+ * This file is part of the CA Trust Management System (CA-TMS)
+ *
+ * Copyright 2015 by CA-TMS Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package data.sqlite;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import org.sqlite.SQLiteConfig;
+
+import data.Configuration;
+import data.ConfigurationValueAccessException;
+
+/**
+ * Describes how the SQLite database backing the {@link SQLiteBackedModel} is
+ * tuned, i.e. the journal mode, the synchronization level, the page cache,
+ * the memory mapping, the busy timeout and the checkpointing behavior of the
+ * write-ahead log
+ *
+ * @author Pascal Weisenburger
+ */
+public final class SQLiteStorageProfile {
+	/**
+	 * Represents the journal mode and synchronization level pairs
+	 * that can be selected using {@link Configuration#STORAGE_PROFILE}
+	 */
+	public static enum Mode {
+		/** rollback journal with full synchronization;
+		 *  readers and writers block each other */
+		COMPATIBLE("DELETE", "FULL"),
+		/** write-ahead logging with normal synchronization;
+		 *  readers never block the writer and vice versa */
+		WAL("WAL", "NORMAL");
+
+		private final String journalMode;
+		private final String synchronous;
+
+		private Mode(String journalMode, String synchronous) {
+			this.journalMode = journalMode;
+			this.synchronous = synchronous;
+		}
+	}
+
+	/** the profile used if no configuration is available */
+	public static final SQLiteStorageProfile DEFAULT =
+			new SQLiteStorageProfile(Mode.WAL, 5000, 2000, 0, 1000);
+
+	private final Mode mode;
+	private final int busyTimeoutMillis;
+	private final int cacheSizePages;
+	private final long mmapSizeBytes;
+	private final int walAutocheckpointPages;
+
+	/**
+	 * Creates a new <code>SQLiteStorageProfile</code> instance
+	 * @param mode the journal mode and synchronization level
+	 * @param busyTimeoutMillis the time a connection waits for a lock held by
+	 * another connection before failing
+	 * @param cacheSizePages the number of database pages each connection
+	 * keeps in memory
+	 * @param mmapSizeBytes the maximum number of bytes of the database file
+	 * that are memory-mapped; <code>0</code> disables memory mapping
+	 * (ignored by SQLite versions that do not support memory mapping)
+	 * @param walAutocheckpointPages the write-ahead log size in pages that
+	 * triggers an automatic checkpoint; <code>0</code> disables automatic
+	 * checkpoints, which then have to be run using
+	 * {@link SQLiteBackedModel#checkpoint()}
+	 */
+	public SQLiteStorageProfile(Mode mode, int busyTimeoutMillis,
+			int cacheSizePages, long mmapSizeBytes, int walAutocheckpointPages) {
+		if (busyTimeoutMillis < 0 || cacheSizePages < 0 ||
+				mmapSizeBytes < 0 || walAutocheckpointPages < 0)
+			throw new IllegalArgumentException(
+					"Storage profile values must not be negative");
+
+		this.mode = mode;
+		this.busyTimeoutMillis = busyTimeoutMillis;
+		this.cacheSizePages = cacheSizePages;
+		this.mmapSizeBytes = mmapSizeBytes;
+		this.walAutocheckpointPages = walAutocheckpointPages;
+	}
+
+	/**
+	 * @return the storage profile as specified by the given configuration;
+	 * missing values are taken from the {@link #DEFAULT} profile
+	 * @param config
+	 * @throws ConfigurationValueAccessException if a configured value cannot
+	 * be interpreted
+	 */
+	public static SQLiteStorageProfile fromConfiguration(Configuration config) {
+		Mode mode = DEFAULT.mode;
+		if (config.exists(Configuration.STORAGE_PROFILE)) {
+			String value = config.get(Configuration.STORAGE_PROFILE, String.class);
+			try {
+				mode = Mode.valueOf(value.trim().toUpperCase());
+			}
+			catch (IllegalArgumentException e) {
+				throw new ConfigurationValueAccessException(
+						Configuration.STORAGE_PROFILE, e);
+			}
+		}
+
+		return new SQLiteStorageProfile(mode,
+				config.exists(Configuration.STORAGE_BUSY_TIMEOUT_MILLIS)
+					? config.get(Configuration.STORAGE_BUSY_TIMEOUT_MILLIS, Integer.class)
+					: DEFAULT.busyTimeoutMillis,
+				config.exists(Configuration.STORAGE_CACHE_SIZE_PAGES)
+					? config.get(Configuration.STORAGE_CACHE_SIZE_PAGES, Integer.class)
+					: DEFAULT.cacheSizePages,
+				config.exists(Configuration.STORAGE_MMAP_SIZE_BYTES)
+					? config.get(Configuration.STORAGE_MMAP_SIZE_BYTES, Long.class)
+					: DEFAULT.mmapSizeBytes,
+				config.exists(Configuration.STORAGE_WAL_AUTOCHECKPOINT_PAGES)
+					? config.get(Configuration.STORAGE_WAL_AUTOCHECKPOINT_PAGES, Integer.class)
+					: DEFAULT.walAutocheckpointPages);
+	}
+
+	/**
+	 * @return the journal mode and synchronization level
+	 */
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * @return the time a connection waits for a lock before failing
+	 */
+	public int getBusyTimeoutMillis() {
+		return busyTimeoutMillis;
+	}
+
+	/**
+	 * @return the number of database pages each connection keeps in memory
+	 */
+	public int getCacheSizePages() {
+		return cacheSizePages;
+	}
+
+	/**
+	 * @return the maximum number of memory-mapped bytes of the database file
+	 */
+	public long getMmapSizeBytes() {
+		return mmapSizeBytes;
+	}
+
+	/**
+	 * @return the write-ahead log size in pages that triggers an automatic
+	 * checkpoint
+	 */
+	public int getWalAutocheckpointPages() {
+		return walAutocheckpointPages;
+	}
+
+	/**
+	 * @return the driver configuration applied once when a physical connection
+	 * is established
+	 */
+	SQLiteConfig createConfig() {
+		Properties properties = new Properties();
+		properties.setProperty("synchronous", mode.synchronous);
+		if (cacheSizePages > 0)
+			properties.setProperty("cache_size", String.valueOf(cacheSizePages));
+
+		SQLiteConfig config = new SQLiteConfig(properties);
+		config.enforceForeignKeys(true);
+		return config;
+	}
+
+	/**
+	 * @return the driver configuration for connections that are only used
+	 * for reading and therefore open the database file read-only
+	 */
+	SQLiteConfig createReadOnlyConfig() {
+		SQLiteConfig config = createConfig();
+		config.setReadOnly(true);
+		return config;
+	}
+
+	/**
+	 * Sets the persistent journal mode of the database file
+	 * @param connection
+	 * @throws SQLException
+	 */
+	void applyJournalMode(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			// the journal mode pragma returns the resulting mode as a result
+			// and can therefore not be passed to the driver configuration
+			statement.executeQuery(
+					"PRAGMA journal_mode=" + mode.journalMode).close();
+		}
+	}
+
+	/**
+	 * Applies the per-connection settings that cannot be passed to the driver
+	 * configuration to a newly opened connection of the pool
+	 * @param connection
+	 * @throws SQLException
+	 */
+	void applyConnectionSettings(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			// the driver maps the query timeout to the SQLite busy timeout
+			// of the underlying connection
+			statement.setQueryTimeout(
+					(busyTimeoutMillis + 999) / 1000);
+
+			if (mode == Mode.WAL)
+				statement.execute(
+						"PRAGMA wal_autocheckpoint=" + walAutocheckpointPages);
+
+			// silently ignored by SQLite versions without memory mapping
+			if (mmapSizeBytes > 0)
+				statement.execute("PRAGMA mmap_size=" + mmapSizeBytes);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "SQLiteStorageProfile[" + mode + ", busy timeout " +
+				busyTimeoutMillis + " ms, cache " + cacheSizePages +
+				" pages, mmap " + mmapSizeBytes + " bytes, autocheckpoint " +
+				walAutocheckpointPages + " pages]";
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * This file is part of the CA Trust Management System (CA-TMS)
+ *
+ * Copyright 2015 by CA-TMS Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package data.sqlite;
+
+import java.security.cert.CRL;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.sql.SQLException;
+
+import data.CRLAccessException;
+import data.TrustCertificate;
+
+/**
+ * Represents a CRL that has been stored in the trust view. Instead of parsing
+ * the stored CRL data, revocation checks are answered by looking up the
+ * revoked serial numbers stored for the CRL in the database.
+ *
+ * <p>The lookups do not use the trust view the CRL was retrieved from, so
+ * instances can still be used after that trust view has been closed.</p>
+ *
+ * @author Pascal Weisenburger
+ */
+final class StoredCRL extends CRL {
+	/**
+	 * Looks up the revoked serial numbers stored for a CRL
+	 */
+	static interface EntryLookup {
+		/**
+		 * @return whether the certificate with the given serial number is
+		 * listed as revoked by the stored CRL of the given issuer with the
+		 * given serialized URLs
+		 * @param crlIssuer
+		 * @param urls
+		 * @param serial
+		 * @throws SQLException if the lookup failed
+		 */
+		boolean isRevoked(TrustCertificate crlIssuer, String urls,
+				String serial) throws SQLException;
+	}
+
+	private final EntryLookup entryLookup;
+	private final TrustCertificate crlIssuer;
+	private final String urls;
+
+	/**
+	 * Creates a new <code>StoredCRL</code> instance
+	 * @param entryLookup the lookup for the revoked serial numbers
+	 * @param crlIssuer the issuer of the CRL
+	 * @param urls the serialized URLs of the CRL
+	 */
+	StoredCRL(EntryLookup entryLookup, TrustCertificate crlIssuer,
+			String urls) {
+		super("X.509");
+		this.entryLookup = entryLookup;
+		this.crlIssuer = crlIssuer;
+		this.urls = urls;
+	}
+
+	/**
+	 * @throws CRLAccessException if the revoked serial numbers
+	 * could not be looked up
+	 */
+	@Override
+	public boolean isRevoked(Certificate certificate) {
+		if (!(certificate instanceof X509Certificate))
+			return false;
+
+		try {
+			return entryLookup.isRevoked(crlIssuer, urls,
+					((X509Certificate) certificate).getSerialNumber().toString());
+		}
+		catch (SQLException e) {
+			throw new CRLAccessException(e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "StoredCRL[issuer=" + crlIssuer.getSubject() + ", urls=" + urls + "]";
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ * This file is part of the CA Trust Management System (CA-TMS)
+ *
+ * Copyright 2015 by CA-TMS Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package data.sqlite;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import util.Option;
+
+import data.CertificateTrustState;
+import data.TrustAssessment;
+
+/**
+ * Size-bounded cache of committed trust view data that is shared by all
+ * {@link CachingTrustView}s of a {@link SQLiteBackedModel}.
+ *
+ * <p>Every invalidation advances the cache generation. Values read from the
+ * database are only put into the cache if no invalidation happened since the
+ * reading trust view was opened, so a trust view working on an outdated
+ * database snapshot cannot override more recent data.</p>
+ *
+ * @author Pascal Weisenburger
+ */
+final class TrustViewCache {
+	/**
+	 * Identifies an entry by a pair of strings, i.e. serial and issuer
+	 * of a certificate or public key and CA of an assessment
+	 */
+	static final class Key {
+		private final String first;
+		private final String second;
+
+		Key(String first, String second) {
+			this.first = first;
+			this.second = second;
+		}
+
+		String getFirst() {
+			return first;
+		}
+
+		String getSecond() {
+			return second;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * first.hashCode() + second.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return first.equals(other.first) && second.equals(other.second);
+		}
+	}
+
+	private static final class BoundedMap<K, V> extends LinkedHashMap<K, V> {
+		private static final long serialVersionUID = 1L;
+		private final int capacity;
+
+		BoundedMap(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			return size() > capacity;
+		}
+	}
+
+	private final Map<Key, CertificateTrustState> certificates;
+	private final Map<Key, Option<TrustAssessment>> assessments;
+	private long generation = 0;
+
+	/**
+	 * Creates a new <code>TrustViewCache</code> instance
+	 * @param maxCertificates the maximum number of cached certificate states
+	 * @param maxAssessments the maximum number of cached assessments
+	 */
+	TrustViewCache(int maxCertificates, int maxAssessments) {
+		certificates = new BoundedMap<>(maxCertificates);
+		assessments = new BoundedMap<>(maxAssessments);
+	}
+
+	/**
+	 * @return the current cache generation, which is to be passed when
+	 * putting values into the cache
+	 */
+	synchronized long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * @return the cached state of the given certificate or <code>null</code>
+	 * if the state is not cached
+	 * @param key
+	 */
+	synchronized CertificateTrustState getCertificate(Key key) {
+		return certificates.get(key);
+	}
+
+	/**
+	 * Caches the given certificate state if the cache was not invalidated
+	 * since the given generation
+	 * @param generation
+	 * @param key
+	 * @param state
+	 */
+	synchronized void putCertificate(long generation, Key key,
+			CertificateTrustState state) {
+		if (this.generation == generation)
+			certificates.put(key, state);
+	}
+
+	/**
+	 * @return a copy of the cached assessment, an unset <code>Option</code>
+	 * if the assessment is known not to exist or <code>null</code>
+	 * if the assessment is not cached
+	 * @param key
+	 */
+	synchronized Option<TrustAssessment> getAssessment(Key key) {
+		Option<TrustAssessment> assessment = assessments.get(key);
+		if (assessment != null && assessment.isSet())
+			return new Option<TrustAssessment>(assessment.get().clone());
+		return assessment;
+	}
+
+	/**
+	 * Caches a copy of the given assessment if the cache was not invalidated
+	 * since the given generation
+	 * @param generation
+	 * @param key
+	 * @param assessment the assessment or <code>null</code>
+	 * if the assessment does not exist
+	 */
+	synchronized void putAssessment(long generation, Key key,
+			TrustAssessment assessment) {
+		if (this.generation == generation)
+			assessments.put(key, assessment != null
+					? new Option<TrustAssessment>(assessment.clone())
+					: new Option<TrustAssessment>());
+	}
+
+	/**
+	 * Removes the given entries from the cache
+	 * @param certificateKeys
+	 * @param assessmentKeys
+	 */
+	synchronized void invalidate(Collection<Key> certificateKeys,
+			Collection<Key> assessmentKeys) {
+		generation++;
+		for (Key key : certificateKeys)
+			certificates.remove(key);
+		for (Key key : assessmentKeys)
+			assessments.remove(key);
+	}
+
+	/**
+	 * Removes all entries from the cache
+	 */
+	synchronized void clear() {
+		generation++;
+		certificates.clear();
+		assessments.clear();
+	}
+}
@@ -21,11 +21,21 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Prepared SQLite statement that provides UPSERT (UPDATE or INSERT)
  * functionality to UPDATE existing records or INSERT new records depending on
  * if records with the given primary key already exist
+ *
+ * <p>Records can either be written immediately using {@link #executeUpdate()}
+ * or be queued using {@link #addBatch()} and written together using
+ * {@link #executeBatch()}. Queued records with the same primary key are
+ * coalesced, i.e. only the last queued record is written.</p>
+ *
  * @see PreparedStatement
  * 
  * @author Pascal Weisenburger
@@ -35,6 +45,17 @@ class UpdateInsertStmnt implements AutoCloseable {
 	private final int allValuesCount;
 	private final PreparedStatement insertStatement;
 	private final PreparedStatement updateStatement;
+	private final Object[] parameters;
+	private final Map<List<Object>, Object[]> batch = new LinkedHashMap<>();
+
+	// marks a parameter that is set to SQL NULL
+	private static final class Null {
+		final int sqlType;
+
+		Null(int sqlType) {
+			this.sqlType = sqlType;
+		}
+	}
 
 	/**
 	 * Creates a new <code>InsertUpdateStmnt</code> instance for the given
@@ -45,7 +66,9 @@ class UpdateInsertStmnt implements AutoCloseable {
 	 * specified by <code>'?'</code> character. Default values that are to be
 	 * used for newly inserted records and ignored for updated records are
 	 * specified by a string starting with <code>'!'</code> character and
-	 * followed by the default value.
+	 * followed by the default value. Values that are to be kept for updated
+	 * records if the new value is <code>NULL</code> are specified by a string
+	 * starting with <code>'~'</code> character and followed by the value.
 	 * @param connection
 	 * @param table
 	 * @param primaryValues
@@ -75,6 +98,7 @@ class UpdateInsertStmnt implements AutoCloseable {
 
 		primaryValuesCount = primaryValuesCounter;
 		allValuesCount = allValuesCounter;
+		parameters = new Object[allValuesCount];
 
 		// create insert statement
 		StringBuilder builder = new StringBuilder();
@@ -100,7 +124,7 @@ class UpdateInsertStmnt implements AutoCloseable {
 		}
 		for (int i = 1; i < values.length; i+= 2) {
 			builder.append(", ");
-			builder.append(values[i].charAt(0) == '!'
+			builder.append(values[i].charAt(0) == '!' || values[i].charAt(0) == '~'
 					? values[i].substring(1)
 					: values[i]);
 		}
@@ -121,7 +145,16 @@ class UpdateInsertStmnt implements AutoCloseable {
 			builder.append(primaryValues[i + 1]);
 		}
 		for (int i = 0; i < values.length; i+= 2)
-			if (values[i + 1].charAt(0) != '!') {
+			if (values[i + 1].charAt(0) == '~') {
+				builder.append(", ");
+				builder.append(values[i]);
+				builder.append("=COALESCE(");
+				builder.append(values[i + 1].substring(1));
+				builder.append(", ");
+				builder.append(values[i]);
+				builder.append(")");
+			}
+			else if (values[i + 1].charAt(0) != '!') {
 				builder.append(", ");
 				builder.append(values[i]);
 				builder.append("=");
@@ -145,17 +178,97 @@ class UpdateInsertStmnt implements AutoCloseable {
 	 * @throws SQLException
 	 */
 	public int executeUpdate() throws SQLException {
+		setParameters(updateStatement, parameters, true);
 		int rowsChanged = updateStatement.executeUpdate();
-		if (rowsChanged == 0)
+		if (rowsChanged == 0) {
+			setParameters(insertStatement, parameters, false);
 			rowsChanged = insertStatement.executeUpdate();
+		}
 		if (rowsChanged != 1)
 			throw new SQLException(
 					"Insert/Update should change 1 row, but changed " + rowsChanged);
 		return rowsChanged;
 	}
 
+	/**
+	 * Queues the record described by the current parameters, replacing any
+	 * queued record with the same primary key
+	 * @see PreparedStatement#addBatch()
+	 */
+	public void addBatch() {
+		List<Object> key = Arrays.asList(
+				Arrays.copyOfRange(parameters, 0, primaryValuesCount));
+		batch.remove(key);
+		batch.put(key, parameters.clone());
+	}
+
+	/**
+	 * @return whether there are queued records
+	 */
+	public boolean hasBatch() {
+		return !batch.isEmpty();
+	}
+
+	/**
+	 * Writes all queued records by executing one batch of updates
+	 * and one batch of inserts for the records that did not exist
+	 * @see PreparedStatement#executeBatch()
+	 * @return the number of written records
+	 * @throws SQLException
+	 */
+	public int executeBatch() throws SQLException {
+		if (batch.isEmpty())
+			return 0;
+
+		try {
+			Object[][] records = batch.values().toArray(new Object[batch.size()][]);
+
+			for (Object[] record : records) {
+				setParameters(updateStatement, record, true);
+				updateStatement.addBatch();
+			}
+			int[] rowsUpdated = updateStatement.executeBatch();
+
+			boolean inserts = false;
+			for (int i = 0; i < records.length; i++)
+				if (rowsUpdated[i] == 0) {
+					setParameters(insertStatement, records[i], false);
+					insertStatement.addBatch();
+					inserts = true;
+				}
+				else if (rowsUpdated[i] != 1)
+					throw new SQLException(
+							"Update should change 1 row, but changed " + rowsUpdated[i]);
+
+			if (inserts)
+				for (int rowsInserted : insertStatement.executeBatch())
+					if (rowsInserted != 1)
+						throw new SQLException(
+								"Insert should change 1 row, but changed " + rowsInserted);
+
+			return records.length;
+		}
+		finally {
+			batch.clear();
+			updateStatement.clearBatch();
+			insertStatement.clearBatch();
+		}
+	}
+
+	/**
+	 * Discards all queued records
+	 * @see PreparedStatement#clearBatch()
+	 * @throws SQLException
+	 */
+	public void clearBatch() throws SQLException {
+		batch.clear();
+		updateStatement.clearBatch();
+		insertStatement.clearBatch();
+	}
+
 	@Override
 	public void close() throws SQLException {
+		batch.clear();
 		insertStatement.close();
 		updateStatement.close();
 	}
@@ -164,77 +277,80 @@ class UpdateInsertStmnt implements AutoCloseable {
 	 * @see PreparedStatement#setString(int, String)
 	 * @param parameterIndex
 	 * @param x
-	 * @throws SQLException
 	 */
-	public void setString(int parameterIndex, String x) throws SQLException {
-		insertStatement.setString(parameterIndex, x);
-		updateStatement.setString(parameterIndex, x);
-		if (parameterIndex <= primaryValuesCount)
-			updateStatement.setString(allValuesCount + parameterIndex, x);
+	public void setString(int parameterIndex, String x) {
+		parameters[parameterIndex - 1] = x;
 	}
 
 	/**
 	 * @see PreparedStatement#setBoolean(int, boolean)
 	 * @param parameterIndex
 	 * @param x
-	 * @throws SQLException
 	 */
-	public void setBoolean(int parameterIndex, boolean x) throws SQLException {
-		insertStatement.setBoolean(parameterIndex, x);
-		updateStatement.setBoolean(parameterIndex, x);
-		if (parameterIndex <= primaryValuesCount)
-			updateStatement.setBoolean(allValuesCount + parameterIndex, x);
+	public void setBoolean(int parameterIndex, boolean x) {
+		parameters[parameterIndex - 1] = x;
 	}
 
 	/**
 	 * @see PreparedStatement#setDouble(int, double)
 	 * @param parameterIndex
 	 * @param x
-	 * @throws SQLException
 	 */
-	public void setDouble(int parameterIndex, double x) throws SQLException {
-		insertStatement.setDouble(parameterIndex, x);
-		updateStatement.setDouble(parameterIndex, x);
-		if (parameterIndex <= primaryValuesCount)
-			updateStatement.setDouble(allValuesCount + parameterIndex, x);
+	public void setDouble(int parameterIndex, double x) {
+		parameters[parameterIndex - 1] = x;
 	}
 
 	/**
 	 * @see PreparedStatement#setBytes(int, byte[])
 	 * @param parameterIndex
 	 * @param x
-	 * @throws SQLException
 	 */
-	public void setBytes(int parameterIndex, byte[] x) throws SQLException {
-		insertStatement.setBytes(parameterIndex, x);
-		updateStatement.setBytes(parameterIndex, x);
-		if (parameterIndex <= primaryValuesCount)
-			updateStatement.setBytes(allValuesCount + parameterIndex, x);
+	public void setBytes(int parameterIndex, byte[] x) {
+		parameters[parameterIndex - 1] = x;
 	}
 
 	/**
 	 * @see PreparedStatement#setTimestamp(int, Timestamp)
 	 * @param parameterIndex
 	 * @param x
-	 * @throws SQLException
 	 */
-	public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
-		insertStatement.setTimestamp(parameterIndex, x);
-		updateStatement.setTimestamp(parameterIndex, x);
-		if (parameterIndex <= primaryValuesCount)
-			updateStatement.setTimestamp(allValuesCount + parameterIndex, x);
+	public void setTimestamp(int parameterIndex, Timestamp x) {
+		parameters[parameterIndex - 1] = x;
 	}
 
 	/**
 	 * @see PreparedStatement#setNull(int, int)
 	 * @param parameterIndex
 	 * @param sqlType
-	 * @throws SQLException
 	 */
-	public void setNull(int parameterIndex, int sqlType) throws SQLException {
-		insertStatement.setNull(parameterIndex, sqlType);
-		updateStatement.setNull(parameterIndex, sqlType);
-		if (parameterIndex <= primaryValuesCount)
-			updateStatement.setNull(allValuesCount + parameterIndex, sqlType);
+	public void setNull(int parameterIndex, int sqlType) {
+		parameters[parameterIndex - 1] = new Null(sqlType);
+	}
+
+	private void setParameters(PreparedStatement statement, Object[] values,
+			boolean update) throws SQLException {
+		for (int i = 0; i < values.length; i++) {
+			setParameter(statement, i + 1, values[i]);
+			if (update && i < primaryValuesCount)
+				setParameter(statement, allValuesCount + i + 1, values[i]);
+		}
+	}
+
+	private static void setParameter(PreparedStatement statement,
+			int parameterIndex, Object value) throws SQLException {
+		if (value instanceof String)
+			statement.setString(parameterIndex, (String) value);
+		else if (value instanceof Boolean)
+			statement.setBoolean(parameterIndex, (Boolean) value);
+		else if (value instanceof Double)
+			statement.setDouble(parameterIndex, (Double) value);
+		else if (value instanceof byte[])
+			statement.setBytes(parameterIndex, (byte[]) value);
+		else if (value instanceof Timestamp)
+			statement.setTimestamp(parameterIndex, (Timestamp) value);
+		else if (value instanceof Null)
+			statement.setNull(parameterIndex, ((Null) value).sqlType);
+		else
+			throw new SQLException("Parameter " + parameterIndex + " not set");
 	}
 }
@@ -76,6 +76,8 @@ import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableColumn;
 
 import services.RevocationValidator;
+import services.TrustViewCleaner;
+import services.TrustViewWriter;
 import services.bindings.WebServer;
 import support.Service;
 import CertainTrust.CertainTrust;
@@ -164,6 +166,7 @@ public class GUI {
 		});
 
 		RevocationValidator.start(false);
+		TrustViewCleaner.start();
 	}
 
 	/**
@@ -427,20 +430,16 @@ public class GUI {
 						return;
 					}
 
-					try (TrustView view = data.Model.openTrustView()) {
+					final TrustCertificate certificate;
+					try {
 						X509Certificate cert = GUILogic
 								.LoadCert(Cert_Path);
-						view.setTrustedCertificate(new TrustCertificate(cert));
-						view.save();
-
-						table_TC.setModel(GUILogic.refresh_TC_Table());
-						table_uTC.setModel(GUILogic
-								.refresh_uTC_Table());
-						refresh_ColWidth();
+						certificate = new TrustCertificate(cert);
 
 					} catch (CertificateException e) {
 						GUILogic.msg("Cannot create a TrustCertificate from not X.509 Certificate ");
 						e.printStackTrace();
+						return;
 					} catch (IOException e) {
 						if (Cert_Path.equals(""))
 							return;
@@ -448,12 +447,25 @@ public class GUI {
 							GUILogic.msg("Error reading Certificate File ");
 
 						e.printStackTrace();
-					} catch (ModelAccessException e) {
-						GUILogic.msg("Error reading or concurrent modifying the database! ");
-
-						e.printStackTrace();
+						return;
 					}
 
+					GUILogic.updateTrustView(new TrustViewWriter.Update<Void>() {
+						@Override
+						protected Void update(TrustView view) throws ModelAccessException {
+							view.setTrustedCertificate(certificate);
+							return null;
+						}
+					}, new Runnable() {
+						@Override
+						public void run() {
+							table_TC.setModel(GUILogic.refresh_TC_Table());
+							table_uTC.setModel(GUILogic
+									.refresh_uTC_Table());
+							refresh_ColWidth();
+						}
+					});
+
 				}
 			}
 		});
@@ -463,23 +475,23 @@ public class GUI {
 			public void mousePressed(MouseEvent arg0) {
 				if (arg0.getButton() == 1 || arg0.getButton() == 3) {
 
-					TrustCertificate Cert = GUILogic.getTCert_by_Click(table_TC);
+					final TrustCertificate Cert = GUILogic.getTCert_by_Click(table_TC);
 					if (Cert == null)
 						return;
 
-					try (TrustView view = data.Model.openTrustView()) {
-						view.removeCertificate(Cert);
-						view.save();
-
-						table_TC.setModel(GUILogic.refresh_TC_Table());
-						refresh_ColWidth();
-
-					} catch (ModelAccessException e) {
-
-						GUILogic.msg("Error reading or concurrent modifying the database! ");
-
-						e.printStackTrace();
-					}
+					GUILogic.updateTrustView(new TrustViewWriter.Update<Void>() {
+						@Override
+						protected Void update(TrustView view) throws ModelAccessException {
+							view.removeCertificate(Cert);
+							return null;
+						}
+					}, new Runnable() {
+						@Override
+						public void run() {
+							table_TC.setModel(GUILogic.refresh_TC_Table());
+							refresh_ColWidth();
+						}
+					});
 
 				}
 			}
@@ -491,25 +503,25 @@ public class GUI {
 			public void mousePressed(MouseEvent arg0) {
 				if (arg0.getButton() == 1 || arg0.getButton() == 3) {
 
-					TrustCertificate uTCertificate = GUILogic
+					final TrustCertificate uTCertificate = GUILogic
 							.getTCert_by_Click(table_TC);
 					if (uTCertificate == null)
 						return;
 
-					try (TrustView view = data.Model.openTrustView()) {
-						view.setUntrustedCertificate(uTCertificate);
-						view.save();
-
-						table_TC.setModel(GUILogic.refresh_TC_Table());
-						table_uTC.setModel(GUILogic.refresh_uTC_Table());
-						refresh_ColWidth();
-
-					} catch (ModelAccessException e) {
-
-						GUILogic.msg("Error reading or concurrent modifying the database !");
-
-						e.printStackTrace();
-					}
+					GUILogic.updateTrustView(new TrustViewWriter.Update<Void>() {
+						@Override
+						protected Void update(TrustView view) throws ModelAccessException {
+							view.setUntrustedCertificate(uTCertificate);
+							return null;
+						}
+					}, new Runnable() {
+						@Override
+						public void run() {
+							table_TC.setModel(GUILogic.refresh_TC_Table());
+							table_uTC.setModel(GUILogic.refresh_uTC_Table());
+							refresh_ColWidth();
+						}
+					});
 
 				}
 			}
@@ -603,21 +615,17 @@ public class GUI {
 						return;
 					}
 
-					try (TrustView view = data.Model.openTrustView()) {
+					final TrustCertificate certificate;
+					try {
 						X509Certificate cert = GUILogic
 								.LoadCert(Cert_Path);
-						view.setUntrustedCertificate(new TrustCertificate(cert));
-						view.save();
-
-						table_uTC.setModel(GUILogic
-								.refresh_uTC_Table());
-						table_TC.setModel(GUILogic.refresh_TC_Table());
-						refresh_ColWidth();
+						certificate = new TrustCertificate(cert);
 
 					} catch (CertificateException e) {
 						GUILogic.msg("Cannot create a TrustCertificate from not X.509 Certificate ");
 
 						e.printStackTrace();
+						return;
 					} catch (IOException e) {
 						if (Cert_Path.equals(""))
 							return;
@@ -625,12 +633,25 @@ public class GUI {
 							GUILogic.msg("Error reading Certificate File ");
 
 						e.printStackTrace();
-					} catch (ModelAccessException e) {
-						GUILogic.msg("Error reading or concurrent modifying the database! ");
-
-						e.printStackTrace();
+						return;
 					}
 
+					GUILogic.updateTrustView(new TrustViewWriter.Update<Void>() {
+						@Override
+						protected Void update(TrustView view) throws ModelAccessException {
+							view.setUntrustedCertificate(certificate);
+							return null;
+						}
+					}, new Runnable() {
+						@Override
+						public void run() {
+							table_uTC.setModel(GUILogic
+									.refresh_uTC_Table());
+							table_TC.setModel(GUILogic.refresh_TC_Table());
+							refresh_ColWidth();
+						}
+					});
+
 				}
 			}
 		});
@@ -640,26 +661,26 @@ public class GUI {
 			public void mousePressed(MouseEvent arg0) {
 				if (arg0.getButton() == 1 || arg0.getButton() == 3) {
 
-					TrustCertificate Cert = GUILogic
+					final TrustCertificate Cert = GUILogic
 							.getuTCert_by_Click(table_uTC);
 					if (Cert == null) {
 						return;
 					}
 
-					try (TrustView view = data.Model.openTrustView()) {
-						view.removeCertificate(Cert);
-						view.save();
-
-						table_uTC.setModel(GUILogic
-								.refresh_uTC_Table());
-						refresh_ColWidth();
-
-					} catch (ModelAccessException e) {
-
-						GUILogic.msg("Error reading or concurrent modifying the database! ");
-
-						e.printStackTrace();
-					}
+					GUILogic.updateTrustView(new TrustViewWriter.Update<Void>() {
+						@Override
+						protected Void update(TrustView view) throws ModelAccessException {
+							view.removeCertificate(Cert);
+							return null;
+						}
+					}, new Runnable() {
+						@Override
+						public void run() {
+							table_uTC.setModel(GUILogic
+									.refresh_uTC_Table());
+							refresh_ColWidth();
+						}
+					});
 
 				}
 			}
@@ -671,27 +692,27 @@ public class GUI {
 			public void mousePressed(MouseEvent arg0) {
 				if (arg0.getButton() == 1 || arg0.getButton() == 3) {
 
-					TrustCertificate TCertificate = GUILogic
+					final TrustCertificate TCertificate = GUILogic
 							.getuTCert_by_Click(table_uTC);
 
 					if (TCertificate == null)
 						return;
 
-					try (TrustView view = data.Model.openTrustView()) {
-						view.setTrustedCertificate(TCertificate);
-						view.save();
-
-						table_TC.setModel(GUILogic.refresh_TC_Table());
-						table_uTC.setModel(GUILogic
-								.refresh_uTC_Table());
-						refresh_ColWidth();
-
-					} catch (ModelAccessException e) {
-						GUILogic
-								.msg("Error reading or concurrent modifying the database! ");
-
-						e.printStackTrace();
-					}
+					GUILogic.updateTrustView(new TrustViewWriter.Update<Void>() {
+						@Override
+						protected Void update(TrustView view) throws ModelAccessException {
+							view.setTrustedCertificate(TCertificate);
+							return null;
+						}
+					}, new Runnable() {
+						@Override
+						public void run() {
+							table_TC.setModel(GUILogic.refresh_TC_Table());
+							table_uTC.setModel(GUILogic
+									.refresh_uTC_Table());
+							refresh_ColWidth();
+						}
+					});
 
 				}
 			}
@@ -766,25 +787,25 @@ public class GUI {
 			public void mousePressed(MouseEvent arg0) {
 				if (arg0.getButton() == 1 || arg0.getButton() == 3) {
 
-					TrustAssessment Ass = GUILogic
+					final TrustAssessment Ass = GUILogic
 							.getAss_by_Click(table_Ass);
 					if (Ass == null)
 						return;
 
-					try (TrustView view = data.Model.openTrustView()) {
-						view.removeAssessment(Ass.getK(), Ass.getCa());
-						view.save();
-
-						table_Ass.setModel(GUILogic
-								.refresh_Ass_Table());
-						refresh_ColWidth();
-
-					} catch (ModelAccessException e) {
-
-						GUILogic.msg("Error reading or concurrent modifying the database! ");
-
-						e.printStackTrace();
-					}
+					GUILogic.updateTrustView(new TrustViewWriter.Update<Void>() {
+						@Override
+						protected Void update(TrustView view) throws ModelAccessException {
+							view.removeAssessment(Ass.getK(), Ass.getCa());
+							return null;
+						}
+					}, new Runnable() {
+						@Override
+						public void run() {
+							table_Ass.setModel(GUILogic
+									.refresh_Ass_Table());
+							refresh_ColWidth();
+						}
+					});
 
 				}
 			}
@@ -807,21 +828,19 @@ public class GUI {
 			public void mousePressed(MouseEvent arg0) {
 				if (arg0.getButton() == 1 || arg0.getButton() == 3) {
 
-					String k = "";
-					String ca = "";
 					int row = table_Ass.getSelectedRow();
 					if (row == -1)
 						return;
-					k = (String) table_Ass.getValueAt(row, 0);
-					ca = (String) table_Ass.getValueAt(row, 1);
-
-					try (TrustView view = data.Model.openTrustView()) {
-						view.setAssessmentValid(k, ca);
-						view.save();
-					} catch (ModelAccessException e) {
-						GUILogic.msg("Error reading or concurrent modifying the database! ");
+					final String k = (String) table_Ass.getValueAt(row, 0);
+					final String ca = (String) table_Ass.getValueAt(row, 1);
 
-					}
+					GUILogic.updateTrustView(new TrustViewWriter.Update<Void>() {
+						@Override
+						protected Void update(TrustView view) throws ModelAccessException {
+							view.setAssessmentValid(k, ca);
+							return null;
+						}
+					}, null);
 
 				}
 			}
@@ -832,17 +851,13 @@ public class GUI {
 			public void mousePressed(MouseEvent arg0) {
 				if (arg0.getButton() == 1 || arg0.getButton() == 3) {
 
-					try (TrustView view = data.Model.openTrustView()) {
-						view.clean();
-						view.save();
-					} catch (ModelAccessException e) {
-						GUILogic.msg("Error reading or concurrent modifying the database! ");
-
-						e.printStackTrace();
-					}
-
-					table_Ass.setModel(GUILogic.refresh_Ass_Table());
-					refresh_ColWidth();
+					GUILogic.cleanTrustView(new Runnable() {
+						@Override
+						public void run() {
+							table_Ass.setModel(GUILogic.refresh_Ass_Table());
+							refresh_ColWidth();
+						}
+					});
 				}
 			}
 		});
@@ -1371,20 +1386,13 @@ public class GUI {
 						GUILogic.set_Configuration(
 								Configuration.ASSESSMENT_EXPIRATION_MILLIS,
 								assessment_expiration_millis);
-						try (TrustView view = data.Model.openTrustView()) {
-							view.clean();
-							view.save();
-						} catch (ModelAccessException arg) {
-							JOptionPane
-									.showConfirmDialog(
-											null,
-											"Error reading or concurrent modifying the database! ",
-											"Error", JOptionPane.DEFAULT_OPTION);
-							arg.printStackTrace();
-						}
-
-						table_Ass.setModel(GUILogic.refresh_Ass_Table());
-						refresh_ColWidth();
+						GUILogic.cleanTrustView(new Runnable() {
+							@Override
+							public void run() {
+								table_Ass.setModel(GUILogic.refresh_Ass_Table());
+								refresh_ColWidth();
+							}
+						});
 
 					} else {
 						textField_Expiration.setText(""
@@ -1408,21 +1416,21 @@ public class GUI {
 						"Are you sure to reset all the data in the database ?",
 						"Are you Sure ?", JOptionPane.YES_NO_OPTION);
 				if (n == JOptionPane.YES_OPTION) {
-					try (TrustView view = data.Model.openTrustView()) {
-						view.erase();
-						view.save();
-					} catch (ModelAccessException e) {
-						JOptionPane
-								.showConfirmDialog(
-										null,
-										"Error reading or concurrent modifying the database! ",
-										"Error", JOptionPane.DEFAULT_OPTION);
-						e.printStackTrace();
-					}
-					table_TC.setModel(GUILogic.refresh_TC_Table());
-					table_uTC.setModel(GUILogic.refresh_uTC_Table());
-					table_Ass.setModel(GUILogic.refresh_Ass_Table());
-					refresh_ColWidth();
+					GUILogic.updateTrustView(new TrustViewWriter.Update<Void>() {
+						@Override
+						protected Void update(TrustView view) throws ModelAccessException {
+							view.erase();
+							return null;
+						}
+					}, new Runnable() {
+						@Override
+						public void run() {
+							table_TC.setModel(GUILogic.refresh_TC_Table());
+							table_uTC.setModel(GUILogic.refresh_uTC_Table());
+							table_Ass.setModel(GUILogic.refresh_Ass_Table());
+							refresh_ColWidth();
+						}
+					});
 
 				}
 			}
@@ -1433,8 +1441,8 @@ public class GUI {
 			@Override
 			public void mouseReleased(MouseEvent evt) {
 				final double securityLevel;
-				try (Configuration config = Model.openConfiguration()) {
-					securityLevel = config.get(
+				try {
+					securityLevel = Model.getConfigurationSnapshot().get(
 							Configuration.SECURITY_LEVEL_MEDIUM, Double.class);
 				}
 				catch (ModelAccessException e) {
@@ -1789,18 +1797,20 @@ public class GUI {
 
 			}
 
-			try (TrustView view = data.Model.openTrustView()) {
-				view.setAssessment(new_Ass);
-				view.save();
-
-			} catch (ModelAccessException e1) {
-				GUILogic.msg("Error reading or concurrent modifying the database! ");
-
-				e1.printStackTrace();
-			}
-
-			table_Ass.setModel(GUILogic.refresh_Ass_Table());
-			refresh_ColWidth();
+			final TrustAssessment assessment = new_Ass;
+			GUILogic.updateTrustView(new TrustViewWriter.Update<Void>() {
+				@Override
+				protected Void update(TrustView view) throws ModelAccessException {
+					view.setAssessment(assessment);
+					return null;
+				}
+			}, new Runnable() {
+				@Override
+				public void run() {
+					table_Ass.setModel(GUILogic.refresh_Ass_Table());
+					refresh_ColWidth();
+				}
+			});
 
 		}
 	}
@@ -20,11 +20,10 @@ package presentation.ui;
 import java.awt.Component;
 import java.awt.Toolkit;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.security.interfaces.DSAPublicKey;
 import java.security.interfaces.ECPublicKey;
@@ -32,6 +31,8 @@ import java.security.interfaces.RSAPublicKey;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.JOptionPane;
 import javax.swing.JTable;
@@ -39,8 +40,11 @@ import javax.swing.ProgressMonitor;
 import javax.swing.SwingWorker;
 import javax.swing.table.DefaultTableModel;
 
+import services.TrustViewCleaner;
+import services.TrustViewWriter;
 import support.BootstrapService;
 import support.Service;
+import util.CertificateCache;
 
 import data.Configuration;
 import data.ModelAccessException;
@@ -64,15 +68,8 @@ public class GUILogic {
 	 */
 	public static X509Certificate LoadCert(String filepath)
 			throws CertificateException, IOException {
-		InputStream inStream;
-		X509Certificate Cert = null;
-
-		inStream = new FileInputStream(filepath);
-		CertificateFactory cf = CertificateFactory.getInstance("X.509");
-
-		Cert = (X509Certificate) cf.generateCertificate(inStream);
-		inStream.close();
-		return Cert;
+		return CertificateCache.getCertificate(
+				Files.readAllBytes(Paths.get(filepath)));
 	}
 
 	/**
@@ -148,6 +145,77 @@ public class GUILogic {
 		task.execute();
 	}
 
+	/**
+	 * Performs the given update of the trust view on the
+	 * {@link TrustViewWriter} with interactive priority without blocking the
+	 * event dispatch thread
+	 * @param update
+	 * @param refresh the task that is run on the event dispatch thread when
+	 * the update has been performed, e.g., for refreshing the tables
+	 */
+	public static void updateTrustView(final TrustViewWriter.Update<?> update,
+			Runnable refresh) {
+		runInBackground(new Callable<Void>() {
+			@Override
+			public Void call() throws ModelAccessException {
+				TrustViewWriter.update(update, TrustViewWriter.Priority.INTERACTIVE);
+				return null;
+			}
+		}, refresh);
+	}
+
+	/**
+	 * Removes the expired data from the trust view using
+	 * {@link TrustViewCleaner#clean(int)} without blocking the event
+	 * dispatch thread
+	 * @param refresh the task that is run on the event dispatch thread when
+	 * the trust view has been cleaned, e.g., for refreshing the tables
+	 */
+	public static void cleanTrustView(Runnable refresh) {
+		runInBackground(new Callable<Void>() {
+			@Override
+			public Void call() throws ModelAccessException {
+				TrustViewCleaner.clean(data.Model.getConfigurationSnapshot().get(
+						Configuration.CLEANING_CHUNK_SIZE, Integer.class));
+				return null;
+			}
+		}, refresh);
+	}
+
+	/**
+	 * Runs the given task in the background and the given refresh task on
+	 * the event dispatch thread afterwards, reporting a failed access to the
+	 * database
+	 * @param task
+	 * @param refresh
+	 */
+	private static void runInBackground(final Callable<Void> task,
+			final Runnable refresh) {
+		new SwingWorker<Void, Object>() {
+			@Override
+			protected Void doInBackground() throws Exception {
+				return task.call();
+			}
+
+			@Override
+			public void done() {
+				try {
+					get();
+				}
+				catch (ExecutionException e) {
+					msg("Error reading or concurrent modifying the database! ");
+					e.getCause().printStackTrace();
+				}
+				catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+
+				if (refresh != null)
+					refresh.run();
+			}
+		}.execute();
+	}
+
 	/**
 	 * @return the issuer string representation for the given certificate
 	 * @param certificate
@@ -244,7 +312,7 @@ public class GUILogic {
 
 		Collection<TrustCertificate> Certs_temp = null;
 
-		try (TrustView view = data.Model.openTrustView()) {
+		try (TrustView view = data.Model.openReadOnlyTrustView()) {
 			Certs_temp = view.getTrustedCertificates();
 
 		} catch (ModelAccessException e1) {
@@ -310,7 +378,7 @@ public class GUILogic {
 		};
 
 		Collection<TrustCertificate> Certs_temp = null;
-		try (TrustView view = data.Model.openTrustView()) {
+		try (TrustView view = data.Model.openReadOnlyTrustView()) {
 			Certs_temp = view.getUntrustedCertificates();
 
 		} catch (ModelAccessException e1) {
@@ -375,8 +443,8 @@ public class GUILogic {
 		};
 
 		Collection<TrustAssessment> Assessments_temp = null;
-		try (TrustView view = data.Model.openTrustView()) {
-			Assessments_temp = view.getAssessments();
+		try (TrustView view = data.Model.openReadOnlyTrustView()) {
+			Assessments_temp = view.getAssessmentsWithoutCertificateData();
 
 		} catch (ModelAccessException e1) {
 			JOptionPane.showConfirmDialog(null,
@@ -432,7 +500,7 @@ public class GUILogic {
 
 		Collection<TrustCertificate> Certs_temp = null;
 
-		try (TrustView view = data.Model.openTrustView()) {
+		try (TrustView view = data.Model.openReadOnlyTrustView()) {
 			Certs_temp = view.getTrustedCertificates();
 
 		} catch (ModelAccessException e1) {
@@ -474,7 +542,7 @@ public class GUILogic {
 
 		Collection<TrustCertificate> Certs_temp = null;
 
-		try (TrustView view = data.Model.openTrustView()) {
+		try (TrustView view = data.Model.openReadOnlyTrustView()) {
 			Certs_temp = view.getUntrustedCertificates();
 
 		} catch (ModelAccessException e1) {
@@ -516,8 +584,8 @@ public class GUILogic {
 
 		Collection<TrustAssessment> Certs_temp = null;
 
-		try (TrustView view = data.Model.openTrustView()) {
-			Certs_temp = view.getAssessments();
+		try (TrustView view = data.Model.openReadOnlyTrustView()) {
+			Certs_temp = view.getAssessmentsWithoutCertificateData();
 
 		} catch (ModelAccessException e1) {
 			JOptionPane.showConfirmDialog(null,
@@ -572,7 +640,8 @@ public class GUILogic {
 	 * @return
 	 */
 	public static <T> T get_Configuration(String key, Class<T> type) {
-		try (Configuration conf = data.Model.openConfiguration()) {
+		try {
+			Configuration conf = data.Model.getConfigurationSnapshot();
 			return conf.get(key, type);
 
 		} catch (ModelAccessException e) {
@@ -594,7 +663,8 @@ public class GUILogic {
 	 * @return
 	 */
 	public static <T> T get_Configuration(String key, Class<T> type, T defaultValue) {
-		try (Configuration conf = data.Model.openConfiguration()) {
+		try {
+			Configuration conf = data.Model.getConfigurationSnapshot();
 			if (conf.exists(key))
 				return conf.get(key, type);
 
@@ -0,0 +1,317 @@
+/*
+ * This file is part of the CA Trust Management System (CA-TMS)
+ *
+ * Copyright 2015 by CA-TMS Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package services;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.DatatypeConverter;
+
+import util.CertificatePathValidity;
+import util.TimerWheel;
+import buisness.TrustValidation;
+import data.Model;
+import data.ModelAccessException;
+import data.TrustView;
+
+/**
+ * Asynchronous validator for {@link ValidationRequest}s
+ *
+ * <p>A request is answered right away with a provisional result that is
+ * derived from the information stored in the <code>TrustView</code> only.
+ * The actual validation, which may query external validation and revocation
+ * services, is performed by the {@link Validator} in the background. Its
+ * result can be retrieved using the {@link Ticket} that is returned for the
+ * request. Requests whose result does not depend on any external service,
+ * e.g. requests for already trusted certificates, are validated right away
+ * and their tickets are already completed.</p>
+ *
+ * <p>Tickets can be looked up by their identifier until some time after
+ * they were issued. The number of validations that wait to be performed in
+ * the background and the number of tickets that can be looked up are
+ * limited; requests beyond these limits are rejected.</p>
+ *
+ * @author Pascal Weisenburger
+ */
+public final class AsyncValidator {
+	/** number of validations that are performed concurrently in the background */
+	static final int MAX_CONCURRENT_VALIDATIONS = 8;
+
+	/** number of validations that wait to be performed in the background */
+	static final int MAX_QUEUED_VALIDATIONS = 64;
+
+	/** number of tickets that can be looked up at the same time */
+	static final int MAX_OUTSTANDING_TICKETS = 4096;
+
+	/** amount of time a ticket is kept after it was issued */
+	static final long TICKET_EXPIRATION_MILLIS = 300000;
+
+	private static final int TICKET_ID_BYTES = 16;
+	private static final int TICKET_EXPIRATION_SLOTS = 64;
+	private static final long TICKET_EXPIRATION_TICK_MILLIS = 10000;
+
+	/**
+	 * Represents the validation of a request that is performed
+	 * in the background
+	 */
+	public static final class Ticket {
+		private final String id;
+		private final ValidationInformation provisionalResult;
+		private List<Runnable> listeners = new ArrayList<>();
+		private ValidationInformation result = null;
+		private ModelAccessException failure = null;
+
+		/**
+		 * Creates a new <code>Ticket</code> instance
+		 * @param id
+		 * @param provisionalResult
+		 */
+		private Ticket(String id, ValidationInformation provisionalResult) {
+			this.id = id;
+			this.provisionalResult = provisionalResult;
+		}
+
+		/**
+		 * @return the identifier of the ticket
+		 */
+		public String getId() {
+			return id;
+		}
+
+		/**
+		 * @return the provisional result, which was derived from the
+		 * information stored in the <code>TrustView</code> only
+		 */
+		public ValidationInformation getProvisionalResult() {
+			return provisionalResult;
+		}
+
+		/**
+		 * @return whether the validation completed
+		 */
+		public synchronized boolean isDone() {
+			return listeners == null;
+		}
+
+		/**
+		 * @return the result of the validation or <code>null</code>
+		 * if the validation has not completed yet
+		 * @throws ModelAccessException if the validation failed
+		 * to access the data model
+		 */
+		public synchronized ValidationInformation getResult()
+				throws ModelAccessException {
+			if (failure != null)
+				throw failure;
+			return result;
+		}
+
+		/**
+		 * Runs the given listener when the validation completed; the listener
+		 * is run right away in the current thread if the validation already
+		 * completed, otherwise it is run in the thread that performed the
+		 * validation
+		 * @param listener
+		 */
+		public void whenDone(Runnable listener) {
+			synchronized (this) {
+				if (listeners != null) {
+					listeners.add(listener);
+					return;
+				}
+			}
+			listener.run();
+		}
+
+		/**
+		 * Completes the validation with the given result or failure
+		 * @param result
+		 * @param failure
+		 */
+		private void complete(ValidationInformation result,
+				ModelAccessException failure) {
+			final List<Runnable> listeners;
+			synchronized (this) {
+				this.result = result;
+				this.failure = failure;
+				listeners = this.listeners;
+				this.listeners = null;
+			}
+
+			for (Runnable listener : listeners)
+				try {
+					listener.run();
+				}
+				catch (RuntimeException e) {
+					e.printStackTrace();
+				}
+		}
+	}
+
+	private static final ConcurrentMap<String, Ticket> tickets =
+			new ConcurrentHashMap<>();
+
+	private static final TimerWheel<String> ticketsExpiration =
+			new TimerWheel<>(TICKET_EXPIRATION_SLOTS, TICKET_EXPIRATION_TICK_MILLIS);
+
+	private static final SecureRandom random = new SecureRandom();
+
+	/** executor for performing the validations in the background */
+	private static final ExecutorService executor =
+			new ThreadPoolExecutor(
+				MAX_CONCURRENT_VALIDATIONS, MAX_CONCURRENT_VALIDATIONS,
+				0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(MAX_QUEUED_VALIDATIONS),
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "async-validation");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+
+	private AsyncValidator() { }
+
+	/**
+	 * @return a ticket for the validation of the given request, which carries
+	 * a provisional result and is completed with the actual result when the
+	 * validation, which is performed in the background, completed
+	 * @param request
+	 * @throws ModelAccessException if accessing the data model,
+	 * whose data the provisional result is based on, failed
+	 * @throws RejectedExecutionException if there are too many outstanding
+	 * tickets or too many validations waiting to be performed
+	 */
+	public static Ticket validate(final ValidationRequest request)
+			throws ModelAccessException {
+		expireTickets();
+
+		if (tickets.size() >= MAX_OUTSTANDING_TICKETS)
+			throw new RejectedExecutionException("Too many outstanding tickets");
+
+		final boolean retrieveRecommendation =
+				request.getValidationRequestSpec() ==
+					ValidationRequestSpec.RETRIEVE_RECOMMENDATION;
+
+		// validate requests right away
+		// that do not need any external service
+		if ((request.getCertificatePathValidity() != CertificatePathValidity.VALID &&
+					!retrieveRecommendation) ||
+				TrustValidation.validateKnownTrusted(request) != null) {
+			final ValidationInformation result = Validator.validate(request);
+			final Ticket ticket = register(result);
+			ticket.complete(result, null);
+			return ticket;
+		}
+
+		final ValidationInformation provisionalResult;
+		try (TrustView trustView = Model.openReadOnlyTrustView()) {
+			provisionalResult = TrustValidation.validateProvisionally(
+					trustView, Model.getConfigurationSnapshot(), request);
+		}
+
+		System.out.println("Trust validation continues in the background.");
+		System.out.println("  URL: " + request.getURL());
+		System.out.println("  Provisional result was " +
+				provisionalResult.getValidationResult() +
+				" (" + provisionalResult.getValidationResultSpec() + ")");
+
+		final Ticket ticket = register(provisionalResult);
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						ticket.complete(Validator.validate(request), null);
+					}
+					catch (ModelAccessException e) {
+						ticket.complete(null, e);
+					}
+					catch (RuntimeException e) {
+						e.printStackTrace();
+						ticket.complete(null, new ModelAccessException(e));
+					}
+				}
+			});
+		}
+		catch (RejectedExecutionException e) {
+			unregister(ticket);
+			throw e;
+		}
+
+		return ticket;
+	}
+
+	/**
+	 * @return the ticket with the given identifier or <code>null</code> if
+	 * there is no such ticket or the ticket already expired
+	 * @param id
+	 */
+	public static Ticket getTicket(String id) {
+		expireTickets();
+		return id != null ? tickets.get(id) : null;
+	}
+
+	/**
+	 * @return a new ticket with the given provisional result that can be
+	 * looked up by its identifier until it expires
+	 * @param provisionalResult
+	 */
+	private static Ticket register(ValidationInformation provisionalResult) {
+		byte[] bytes = new byte[TICKET_ID_BYTES];
+		Ticket ticket;
+		do {
+			random.nextBytes(bytes);
+			ticket = new Ticket(
+					DatatypeConverter.printHexBinary(bytes).toLowerCase(),
+					provisionalResult);
+		} while (tickets.putIfAbsent(ticket.getId(), ticket) != null);
+
+		// tickets expire even if their validation never completes
+		ticketsExpiration.schedule(ticket.getId(),
+				System.currentTimeMillis() + TICKET_EXPIRATION_MILLIS);
+		return ticket;
+	}
+
+	/**
+	 * Forgets the given ticket right away
+	 * @param ticket
+	 */
+	static void unregister(Ticket ticket) {
+		ticketsExpiration.cancel(ticket.getId());
+		tickets.remove(ticket.getId());
+	}
+
+	/**
+	 * Forgets all tickets that expired
+	 */
+	private static void expireTickets() {
+		for (String id : ticketsExpiration.advance(System.currentTimeMillis()))
+			tickets.remove(id);
+	}
+}
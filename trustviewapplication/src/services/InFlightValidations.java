@@ -0,0 +1,191 @@
+/*
+ * This file is part of the CA Trust Management System (CA-TMS)
+ *
+ * Copyright 2015 by CA-TMS Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package services;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import util.CertificatePathValidity;
+import data.ModelAccessException;
+import data.TrustCertificate;
+
+/**
+ * Validations that are currently being performed, so that identical requests
+ * that arrive concurrently, e.g. from several connections a browser opens to
+ * the same host, are validated only once.
+ *
+ * <p>Requests are identical if they carry the same certificate path for the
+ * same host and the same security level, certificate path validity and
+ * validation request specification. The certificates of the path are
+ * compared by their serial numbers, issuers, subjects and public keys.
+ * A request that is identical to a request whose validation is in progress
+ * waits for that validation and receives its result instead of querying the
+ * external services and updating the <code>TrustView</code> again.</p>
+ *
+ * @author Pascal Weisenburger
+ */
+final class InFlightValidations {
+	/**
+	 * Identifies identical validation requests
+	 */
+	private static final class Key {
+		private final List<TrustCertificate> certificatePath;
+		private final String host;
+		private final double securityLevel;
+		private final CertificatePathValidity certificatePathValidity;
+		private final ValidationRequestSpec validationRequestSpec;
+		private final int hashCode;
+
+		/**
+		 * Creates a new <code>Key</code> instance for the given request
+		 * @param request
+		 */
+		private Key(ValidationRequest request) {
+			this.certificatePath = request.getCertificatePath();
+			this.host = extractHost(request.getURL());
+			this.securityLevel = request.getSecurityLevel();
+			this.certificatePathValidity = request.getCertificatePathValidity();
+			this.validationRequestSpec = request.getValidationRequestSpec();
+
+			int hashCode = certificatePath.hashCode();
+			hashCode = 31 * hashCode + (host != null ? host.hashCode() : 0);
+			hashCode = 31 * hashCode + Double.valueOf(securityLevel).hashCode();
+			hashCode = 31 * hashCode + certificatePathValidity.hashCode();
+			hashCode = 31 * hashCode + validationRequestSpec.hashCode();
+			this.hashCode = hashCode;
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+
+			Key other = (Key) obj;
+			return hashCode == other.hashCode &&
+			       Double.compare(securityLevel, other.securityLevel) == 0 &&
+			       certificatePathValidity == other.certificatePathValidity &&
+			       validationRequestSpec == other.validationRequestSpec &&
+			       (host == null ? other.host == null : host.equals(other.host)) &&
+			       certificatePath.equals(other.certificatePath);
+		}
+	}
+
+	private static final ConcurrentMap<Key, FutureTask<ValidationInformation>>
+			validations = new ConcurrentHashMap<>();
+
+	private InFlightValidations() { }
+
+	/**
+	 * @return the result of the given validation for the given request;
+	 * if the validation of an identical request is in progress, waits for
+	 * that validation and returns its result instead of performing the given
+	 * validation
+	 * @param request
+	 * @param validation
+	 * @throws ModelAccessException if the validation failed to access the
+	 * data model
+	 */
+	static ValidationInformation validate(ValidationRequest request,
+			Callable<ValidationInformation> validation)
+					throws ModelAccessException {
+		final Key key = new Key(request);
+		final FutureTask<ValidationInformation> task = new FutureTask<>(validation);
+
+		FutureTask<ValidationInformation> inFlightTask =
+				validations.putIfAbsent(key, task);
+		if (inFlightTask == null) {
+			try {
+				task.run();
+			}
+			finally {
+				validations.remove(key, task);
+			}
+			inFlightTask = task;
+		}
+		else {
+			System.out.println("Waiting for identical trust validation in progress ...");
+			System.out.println("  URL: " + request.getURL());
+		}
+
+		return getResult(inFlightTask);
+	}
+
+	/**
+	 * @return the result of the given finished or running task; waits for
+	 * the task to finish if needed
+	 * @param task
+	 * @throws ModelAccessException if the task failed to access the
+	 * data model
+	 */
+	private static ValidationInformation getResult(
+			FutureTask<ValidationInformation> task) throws ModelAccessException {
+		boolean interrupted = false;
+		try {
+			while (true)
+				try {
+					return task.get();
+				}
+				catch (InterruptedException e) {
+					interrupted = true;
+				}
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof ModelAccessException)
+				throw (ModelAccessException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new ModelAccessException(cause);
+		}
+		finally {
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return the host part from a URL
+	 * @param url
+	 */
+	private static String extractHost(String url) {
+		if (url == null)
+			return null;
+
+		try {
+			return new URL(url).getHost();
+		}
+		catch (MalformedURLException e) {
+			return url;
+		}
+	}
+}
@@ -17,7 +17,6 @@
  */
 package services;
 
-import util.Util;
 import buisness.RevocationValidation;
 import data.Configuration;
 import data.Model;
@@ -30,9 +29,6 @@ import data.TrustView;
  * @author Pascal Weisenburger
  */
 public class RevocationValidator {
-	static final int MAX_ATTEMPTS = 60;
-	static final int WAIT_ATTEMPT_MILLIS = 1000;
-
 	private static Thread thread;
 
 	private RevocationValidator() { }
@@ -46,69 +42,52 @@ public class RevocationValidator {
 	 */
 	public static void validate() throws ModelAccessException {
 		System.out.println("Performing revocation validation for trust view ...");
-		RevocationValidation.Validator validator = null;
 
-		int attempts = 0;
-		while (true) {
-			try {
-				if (validator == null)
-					try (TrustView trustView = Model.openTrustView();
-					     Configuration config = Model.openConfiguration()) {
-						final int crlTimeoutMillis =
-								config.get(
-									Configuration.REVOCATION_CRL_TIMEOUT_MILLIS,
-									Integer.class);
-						final int ocspTimeoutMillis =
-								config.get(
-									Configuration.REVOCATION_OCSP_TIMEOUT_MILLIS,
-									Integer.class);
+		final RevocationValidation.Validator validator;
+		try (TrustView trustView = Model.openReadOnlyTrustView()) {
+			Configuration config = Model.getConfigurationSnapshot();
+			final int crlTimeoutMillis =
+					config.get(
+						Configuration.REVOCATION_CRL_TIMEOUT_MILLIS,
+						Integer.class);
+			final int ocspTimeoutMillis =
+					config.get(
+						Configuration.REVOCATION_OCSP_TIMEOUT_MILLIS,
+						Integer.class);
+
+			validator = RevocationValidation.createValidator(
+					trustView, crlTimeoutMillis, ocspTimeoutMillis);
+		}
 
-						validator = RevocationValidation.createValidator(
-								trustView, crlTimeoutMillis, ocspTimeoutMillis);
-					}
+		// validate the certificates one by one, so that validation
+		// requests can be served in between; the revocation services
+		// are queried without occupying the trust view writer, which
+		// only updates the trust view with their results and retries
+		// failed updates
+		try {
+			while (!validator.isFinished()) {
+				try (TrustView trustView = Model.openReadOnlyTrustView()) {
+					validator.prepare(trustView, 1);
+				}
+				validator.await();
 
-				while (!validator.isFinished()) {
-					try (TrustView trustView = Model.openTrustView()) {
+				TrustViewWriter.update(new TrustViewWriter.Update<Void>() {
+					@Override
+					protected Void update(TrustView trustView) {
 						validator.validate(trustView, 1);
-						trustView.save();
+						return null;
 					}
-
-					try {
-						Thread.sleep(1);
-					}
-					catch (InterruptedException e) { }
-				}
-			}
-			catch (ModelAccessException e) {
-				if (attempts == 0)
-					e.printStackTrace();
-
-				if (++attempts >= MAX_ATTEMPTS) {
-					System.err.println(
-							"Revocation information update failed. " +
-							"The TrustView could not be updated.");
-					throw e;
-				}
-
-				System.err.println(
-						"Revocation information update failed. " +
-						"This may happen due to concurrent access. " +
-						"Retrying ...");
-
-				try {
-					Thread.sleep(WAIT_ATTEMPT_MILLIS);
-				}
-				catch (InterruptedException i) {
-					i.printStackTrace();
-				}
-				continue;
+				}, TrustViewWriter.Priority.BACKGROUND);
 			}
-
-			System.out.println("Revocation validation completed.");
-			break;
+		}
+		catch (ModelAccessException e) {
+			System.err.println(
+					"Revocation information update failed. " +
+					"The TrustView could not be updated.");
+			throw e;
 		}
 
-		Util.tryClearCertificateFactoryCache();
+		System.out.println("Revocation validation completed.");
 	}
 
 	/**
@@ -126,9 +105,9 @@ public class RevocationValidator {
 					while(!Thread.currentThread().isInterrupted()) {
 						long revocationCheckingIntervalMillis = 1000;
 						if (checking)
-							try (Configuration config = Model.openConfiguration()) {
+							try {
 								revocationCheckingIntervalMillis =
-									config.get(
+									Model.getConfigurationSnapshot().get(
 										Configuration.REVOCATION_CHECKING_INTERVAL_MILLIS,
 										Long.class);
 							}
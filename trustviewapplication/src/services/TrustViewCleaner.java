@@ -0,0 +1,125 @@
+/*
+ * This file is part of the CA Trust Management System (CA-TMS)
+ *
+ * Copyright 2015 by CA-TMS Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package services;
+
+import data.Configuration;
+import data.Model;
+import data.ModelAccessException;
+import data.TrustView;
+
+/**
+ * Cleaner that regularly removes expired data from the trust view
+ * in small chunks, each in its own {@link TrustViewWriter} update, so that
+ * concurrent validations are not blocked for a long time
+ *
+ * @author Pascal Weisenburger
+ */
+public class TrustViewCleaner {
+	private static Thread thread;
+
+	private TrustViewCleaner() { }
+
+	/**
+	 * Cleans the <code>TrustView</code> using {@link TrustView#clean(int)}
+	 * until no expired data is left
+	 * @param chunkSize the maximum number of entries per kind of data that are
+	 * removed in a single transaction
+	 * @throws ModelAccessException if accessing the data model,
+	 * which is to be cleaned, failed
+	 */
+	public static void clean(final int chunkSize) throws ModelAccessException {
+		boolean remaining = true;
+		while (remaining) {
+			// the trust view writer retries failed updates
+			try {
+				remaining = TrustViewWriter.update(
+						new TrustViewWriter.Update<Boolean>() {
+					@Override
+					protected Boolean update(TrustView trustView) {
+						return trustView.clean(chunkSize);
+					}
+				}, TrustViewWriter.Priority.BACKGROUND);
+			}
+			catch (ModelAccessException e) {
+				System.err.println(
+						"Cleaning failed. " +
+						"The TrustView could not be updated.");
+				throw e;
+			}
+
+			Thread.yield();
+		}
+	}
+
+	/**
+	 * Starts a background task that regularly cleans the trust view
+	 * using {@link #clean(int)}
+	 */
+	public static synchronized void start() {
+		if (thread == null) {
+			thread = new Thread() {
+				@Override
+				public void run() {
+					while(!Thread.currentThread().isInterrupted()) {
+						long cleaningIntervalMillis;
+						int cleaningChunkSize;
+						try {
+							Configuration config = Model.getConfigurationSnapshot();
+							cleaningIntervalMillis =
+								config.get(
+									Configuration.CLEANING_INTERVAL_MILLIS,
+									Long.class);
+							cleaningChunkSize =
+								config.get(
+									Configuration.CLEANING_CHUNK_SIZE,
+									Integer.class);
+						}
+						catch (Exception e) {
+							// this should never happen, since we only read configuration values
+							e.printStackTrace();
+							return;
+						}
+
+						try {
+							Thread.sleep(cleaningIntervalMillis);
+							clean(cleaningChunkSize);
+						}
+						catch (InterruptedException e) {
+							// this happens regularly on stop
+							return;
+						}
+						catch (ModelAccessException e) {
+							e.printStackTrace();
+						}
+					}
+				}
+			};
+			thread.start();
+		}
+	}
+
+	/**
+	 * Stops the background task that regularly cleans the trust view
+	 */
+	public static synchronized void stop() {
+		if (thread != null) {
+			thread.interrupt();
+			thread = null;
+		}
+	}
+}
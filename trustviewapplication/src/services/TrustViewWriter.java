@@ -0,0 +1,322 @@
+/*
+ * This file is part of the CA Trust Management System (CA-TMS)
+ *
+ * Copyright 2015 by CA-TMS Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import data.Model;
+import data.ModelAccessException;
+import data.TrustView;
+
+/**
+ * Single writer for the trust view, which performs all updates of the
+ * services on a dedicated thread, so that updates never conflict with
+ * each other.
+ *
+ * <p>Updates are queued in priority lanes. Queued updates of a higher
+ * priority are performed before queued updates of a lower priority, updates
+ * of the same priority are performed in the order they were submitted.
+ * All updates that are queued when the writer becomes idle are performed
+ * in a single transaction, which is committed once for all of them.</p>
+ *
+ * <p>If an update fails or its modifications are to be discarded, the
+ * transaction is rolled back and the other updates of the transaction are
+ * performed again in a new transaction. If committing fails, all updates of
+ * the transaction are performed again after waiting for some time.
+ * Therefore, updates must not rely on being performed only once.</p>
+ *
+ * @author Pascal Weisenburger
+ */
+public final class TrustViewWriter {
+	static final int MAX_ATTEMPTS = 60;
+	static final int WAIT_ATTEMPT_MILLIS = 500;
+	static final int MAX_UPDATES_PER_TRANSACTION = 64;
+	static final long ASSESSMENT_TIMESTAMPS_WRITE_INTERVAL_MILLIS = 60000;
+
+	/**
+	 * Priority of an update
+	 */
+	public static enum Priority {
+		/** updates a user is waiting for, e.g., browser validation requests */
+		INTERACTIVE,
+
+		/** updates issued when bootstrapping the trust view */
+		BOOTSTRAP,
+
+		/** updates issued by background tasks */
+		BACKGROUND
+	}
+
+	/**
+	 * Update of the trust view that is performed by the writer
+	 *
+	 * @param <T> the type of the result of the update
+	 */
+	public static abstract class Update<T> {
+		/**
+		 * Performs the update on the given trust view, which is shared by all
+		 * updates that are committed in the same transaction.
+		 * The trust view must not be saved or closed by the update.
+		 * @return the result of the update
+		 * @param trustView
+		 * @throws ModelAccessException if accessing the data model failed
+		 */
+		protected abstract T update(TrustView trustView)
+				throws ModelAccessException;
+
+		/**
+		 * @return whether the modifications made by the update that yielded
+		 * the given result should be committed or discarded
+		 * @param result
+		 */
+		protected boolean isCommittable(T result) {
+			return true;
+		}
+	}
+
+	private static final class Command<T> implements Comparable<Command<?>> {
+		final Update<T> update;
+		final Priority priority;
+		final long sequence;
+		final boolean awaited;
+		final CountDownLatch done = new CountDownLatch(1);
+
+		T result;
+		boolean committable;
+		Exception exception;
+
+		Command(Update<T> update, Priority priority, long sequence,
+				boolean awaited) {
+			this.update = update;
+			this.priority = priority;
+			this.sequence = sequence;
+			this.awaited = awaited;
+		}
+
+		void complete() {
+			// report failures of updates nobody waits for
+			if (!awaited && exception != null)
+				exception.printStackTrace();
+			done.countDown();
+		}
+
+		void perform(TrustView trustView) {
+			try {
+				result = update.update(trustView);
+				committable = update.isCommittable(result);
+				exception = null;
+			}
+			catch (Exception e) {
+				result = null;
+				committable = false;
+				exception = e;
+			}
+		}
+
+		@Override
+		public int compareTo(Command<?> other) {
+			int compare = priority.compareTo(other.priority);
+			if (compare != 0)
+				return compare;
+			return Long.compare(sequence, other.sequence);
+		}
+	}
+
+	private static final PriorityBlockingQueue<Command<?>> queue =
+			new PriorityBlockingQueue<>();
+	private static final AtomicLong sequence = new AtomicLong();
+
+	private static Thread thread;
+	private static Timer timer;
+
+	private TrustViewWriter() { }
+
+	/**
+	 * Performs the given update on the writer thread and waits for it to be
+	 * committed. In case the update's modifications are not committable, they
+	 * are discarded and the result is returned nonetheless.
+	 * Must not be called from within an update.
+	 * @return the result of the update
+	 * @param update
+	 * @param priority
+	 * @throws ModelAccessException if accessing the data model failed or
+	 * the modifications could not be committed
+	 */
+	public static <T> T update(Update<T> update, Priority priority)
+			throws ModelAccessException {
+		if (Thread.currentThread() == thread)
+			throw new IllegalStateException(
+					"Updates cannot be performed from within an update");
+
+		start();
+
+		Command<T> command = new Command<>(
+				update, priority, sequence.getAndIncrement(), true);
+		queue.add(command);
+
+		boolean interrupted = false;
+		while (true)
+			try {
+				command.done.await();
+				break;
+			}
+			catch (InterruptedException e) {
+				interrupted = true;
+			}
+
+		if (interrupted)
+			Thread.currentThread().interrupt();
+
+		if (command.exception instanceof ModelAccessException)
+			throw (ModelAccessException) command.exception;
+		if (command.exception instanceof RuntimeException)
+			throw (RuntimeException) command.exception;
+		if (command.exception != null)
+			throw new ModelAccessException(command.exception);
+		return command.result;
+	}
+
+	/**
+	 * Queues the given update to be performed on the writer thread
+	 * without waiting for it to be committed. Failures are only reported
+	 * on the console.
+	 * @param update
+	 * @param priority
+	 */
+	public static void submit(Update<?> update, Priority priority) {
+		start();
+		queue.add(new Command<>(
+				update, priority, sequence.getAndIncrement(), false));
+	}
+
+	private static synchronized void start() {
+		if (thread == null) {
+			thread = new Thread("trust-view-writer") {
+				@Override
+				public void run() {
+					List<Command<?>> commands = new ArrayList<>();
+					while (true) {
+						try {
+							commands.add(queue.take());
+						}
+						catch (InterruptedException e) {
+							// the writer is never interrupted
+							e.printStackTrace();
+							continue;
+						}
+
+						queue.drainTo(commands, MAX_UPDATES_PER_TRANSACTION - 1);
+						perform(commands);
+						commands.clear();
+					}
+				}
+			};
+			thread.setDaemon(true);
+			thread.start();
+
+			// the access times of assessments are kept in memory and written
+			// by every saved trust view; if there are no other updates, they
+			// are written by a regular update in the background
+			timer = new Timer("assessment-timestamps", true);
+			timer.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					submit(new Update<Void>() {
+						@Override
+						protected Void update(TrustView trustView) {
+							return null;
+						}
+					}, Priority.BACKGROUND);
+				}
+			}, ASSESSMENT_TIMESTAMPS_WRITE_INTERVAL_MILLIS,
+					ASSESSMENT_TIMESTAMPS_WRITE_INTERVAL_MILLIS);
+		}
+	}
+
+	private static void perform(List<Command<?>> commands) {
+		List<Command<?>> pending = new ArrayList<>(commands);
+		int attempts = 0;
+
+		while (!pending.isEmpty()) {
+			List<Command<?>> discarded = new ArrayList<>();
+
+			try (TrustView trustView = Model.openTrustView()) {
+				for (Command<?> command : pending) {
+					command.perform(trustView);
+					if (!command.committable)
+						discarded.add(command);
+				}
+
+				// roll back if any update is not to be committed
+				// and perform the remaining updates again
+				if (!discarded.isEmpty()) {
+					pending.removeAll(discarded);
+					complete(discarded);
+					continue;
+				}
+
+				trustView.save();
+				complete(pending);
+				pending.clear();
+			}
+			catch (ModelAccessException e) {
+				if (attempts == 0)
+					e.printStackTrace();
+
+				if (++attempts >= MAX_ATTEMPTS) {
+					System.err.println(
+							"TrustView update failed. " +
+							"The TrustView could not be updated.");
+					for (Command<?> command : pending) {
+						command.exception = e;
+						command.complete();
+					}
+					return;
+				}
+
+				// updates that failed on their own are completed,
+				// the remaining updates are performed again
+				pending.removeAll(discarded);
+				complete(discarded);
+
+				System.err.println(
+						"TrustView update failed. " +
+						"This may happen due to concurrent access. " +
+						"Retrying ...");
+
+				try {
+					Thread.sleep(WAIT_ATTEMPT_MILLIS);
+				}
+				catch (InterruptedException i) {
+					i.printStackTrace();
+				}
+			}
+		}
+	}
+
+	private static void complete(List<Command<?>> commands) {
+		for (Command<?> command : commands)
+			command.complete();
+	}
+}
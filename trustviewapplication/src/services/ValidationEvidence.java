@@ -0,0 +1,77 @@
+/*
+ * This file is part of the CA Trust Management System (CA-TMS)
+ *
+ * Copyright 2015 by CA-TMS Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package services;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import support.ValidationService;
+import data.TrustCertificate;
+
+/**
+ * {@link ValidationService} that answers queries only from validation results
+ * that were retrieved from an external validation service beforehand, so that
+ * it can be used while a <code>TrustView</code> transaction is open without
+ * waiting for the external service.
+ *
+ * <p>Queries that cannot be answered yet are answered with
+ * {@link ValidationResult#UNKNOWN} and recorded, so that their results can be
+ * retrieved using {@link #retrieve(ValidationService)} after the transaction
+ * was closed.</p>
+ *
+ * @author Pascal Weisenburger
+ */
+final class ValidationEvidence implements ValidationService {
+	private final Map<TrustCertificate, ValidationResult> results = new HashMap<>();
+	private final Set<TrustCertificate> missing = new LinkedHashSet<>();
+
+	@Override
+	public ValidationResult query(TrustCertificate certificate) {
+		ValidationResult result = results.get(certificate);
+		if (result != null)
+			return result;
+
+		missing.add(certificate);
+		return ValidationResult.UNKNOWN;
+	}
+
+	/**
+	 * @return whether all queries since the last call to
+	 * {@link #retrieve(ValidationService)} could be answered
+	 */
+	public boolean isComplete() {
+		return missing.isEmpty();
+	}
+
+	/**
+	 * Retrieves the results for the queries that could not be answered
+	 * from the given validation service
+	 * @param validationService
+	 */
+	public void retrieve(ValidationService validationService) {
+		Iterator<TrustCertificate> iterator = missing.iterator();
+		while (iterator.hasNext()) {
+			TrustCertificate certificate = iterator.next();
+			results.put(certificate, validationService.query(certificate));
+			iterator.remove();
+		}
+	}
+}
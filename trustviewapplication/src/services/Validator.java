@@ -17,9 +17,18 @@
  */
 package services;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import support.Service;
 import support.ValidationService;
@@ -42,135 +51,446 @@ public final class Validator {
 	static final int MAX_ATTEMPTS = 60;
 	static final int WAIT_ATTEMPT_MILLIS = 500;
 
-	private static final ReentrantLock lock = new ReentrantLock(true);
+	/** executor for querying the validation services of several requests concurrently */
+	private static final ExecutorService executor =
+			Executors.newCachedThreadPool(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "validation-service");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	/**
+	 * State of the validation of a request that is validated
+	 * by the trust validation algorithm
+	 */
+	private static final class Validation {
+		final int index;
+		final ValidationRequest request;
+		final boolean retrieveRecommendation;
+
+		ValidationService validationService = null;
+		ValidationEvidence validationEvidence = null;
+		RevocationValidation.Validator revocationService = null;
+		int validationServiceAttempts = 0;
+
+		/**
+		 * Creates a new <code>Validation</code> instance
+		 * @param index the index of the request in the validated requests
+		 * @param request
+		 * @param retrieveRecommendation
+		 */
+		Validation(int index, ValidationRequest request,
+				boolean retrieveRecommendation) {
+			this.index = index;
+			this.request = request;
+			this.retrieveRecommendation = retrieveRecommendation;
+		}
+	}
 
 	private Validator() { }
 
 	/**
-	 * @return the validation result for the given request
+	 * @return the validation result for the given request, which is
+	 * performed with {@link TrustViewWriter.Priority#INTERACTIVE} priority
 	 * @param request
 	 * @throws ModelAccessException if accessing the data model,
 	 * whose data the validation is based on, failed
 	 */
 	public static ValidationInformation validate(ValidationRequest request)
 			throws ModelAccessException {
-		final boolean retrieveRecommendation =
-				request.getValidationRequestSpec() ==
-					ValidationRequestSpec.RETRIEVE_RECOMMENDATION;
+		return validate(request, TrustViewWriter.Priority.INTERACTIVE);
+	}
+
+	/**
+	 * @return the validation result for the given request; if an identical
+	 * request is being validated concurrently, the result of that validation
+	 * is returned instead of validating the request again
+	 * @param request
+	 * @param priority the priority of the trust view update
+	 * performed by the validation
+	 * @throws ModelAccessException if accessing the data model,
+	 * whose data the validation is based on, failed
+	 */
+	public static ValidationInformation validate(final ValidationRequest request,
+			final TrustViewWriter.Priority priority) throws ModelAccessException {
+		return InFlightValidations.validate(request,
+				new Callable<ValidationInformation>() {
+			@Override
+			public ValidationInformation call() throws ModelAccessException {
+				return validateAll(
+						Collections.singletonList(request), priority).get(0);
+			}
+		});
+	}
+
+	/**
+	 * @return the validation results for the given requests, which are
+	 * performed with {@link TrustViewWriter.Priority#INTERACTIVE} priority,
+	 * at the index of the respective request
+	 * @see #validateAll(List, TrustViewWriter.Priority)
+	 * @param requests
+	 * @throws ModelAccessException if accessing the data model,
+	 * whose data the validation is based on, failed
+	 */
+	public static List<ValidationInformation> validateAll(
+			List<ValidationRequest> requests) throws ModelAccessException {
+		return validateAll(requests, TrustViewWriter.Priority.INTERACTIVE);
+	}
+
+	/**
+	 * Validates several requests at once. The revocation services are queried
+	 * for the union of the certificates of all requests, so that certificates
+	 * that are contained in several certificate paths, e.g. common intermediate
+	 * certificates, are checked only once, and the validation services are
+	 * queried concurrently. All requests are validated by a single trust view
+	 * update, which looks up the stored information for the certificates of all
+	 * paths at once.
+	 * @return the validation results for the given requests at the index of
+	 * the respective request
+	 * @param requests
+	 * @param priority the priority of the trust view update
+	 * performed by the validation
+	 * @throws ModelAccessException if accessing the data model,
+	 * whose data the validation is based on, failed
+	 */
+	public static List<ValidationInformation> validateAll(
+			List<ValidationRequest> requests,
+			TrustViewWriter.Priority priority) throws ModelAccessException {
+		final List<ValidationInformation> results = new ArrayList<>(requests.size());
+		final List<Validation> validations = new ArrayList<>();
+		final List<ValidationRequest> knownTrustedRequests = new ArrayList<>();
+
+		for (ValidationRequest request : requests) {
+			final boolean retrieveRecommendation =
+					request.getValidationRequestSpec() ==
+						ValidationRequestSpec.RETRIEVE_RECOMMENDATION;
 
-		ValidationInformation result = new ValidationInformation(
-				ValidationResult.UNKNOWN,
-				retrieveRecommendation
-						? ValidationResultSpec.RECOMMENDED
-						: ValidationResultSpec.VALIDATED);
+			ValidationInformation result = new ValidationInformation(
+					ValidationResult.UNKNOWN,
+					retrieveRecommendation
+							? ValidationResultSpec.RECOMMENDED
+							: ValidationResultSpec.VALIDATED);
 
-		try {
 			if (request.getCertificatePathValidity() == CertificatePathValidity.VALID ||
 					retrieveRecommendation) {
+				ValidationInformation knownTrustedResult =
+						TrustValidation.validateKnownTrusted(request);
+				if (knownTrustedResult != null) {
+					knownTrustedRequests.add(request);
+					result = knownTrustedResult;
 
-				System.out.println("Performing trust validation ...");
-				System.out.println("  URL: " + request.getURL());
-				System.out.println("  Security Level: " + request.getSecurityLevel());
-
-				if (request.getValidationRequestSpec() ==
-						ValidationRequestSpec.VALIDATE_TRUST_END_CERTIFICATE) {
-					System.out.println("User trusts host certificate directly.");
-					System.out.println("Adding certificate to the certificate watch list " +
-							"bypassing trust validation algorithm.");
+					System.out.println("Trust validation completed " +
+							"for already trusted certificate.");
+					System.out.println("  URL: " + request.getURL());
 				}
+				else {
+					System.out.println("Performing trust validation ...");
+					System.out.println("  URL: " + request.getURL());
+					System.out.println("  Security Level: " + request.getSecurityLevel());
 
-				if (retrieveRecommendation)
-					System.out.println("Only querying validation services for recommendation.");
-
-				ValidationService validationService = null;
-				RevocationValidation.Validator revocationService = null;
-
-				int attempts = 0, validationServiceAttempts = 0;
-				while (true) {
-					try (TrustView trustView = Model.openTrustView();
-					     Configuration config = Model.openConfiguration()) {
-						// initialize validation service
-						if (validationService == null)
-							validationService = constructValidationService(
-									config, request.getURL());
-
-						// initialize revocation service
-						if (revocationService == null && !retrieveRecommendation)
-							revocationService = constructRevocationService(
-									config, request.getCertificatePath());
-
-						// perform validation
-						if (!retrieveRecommendation &&
-								!revocationService.validate(trustView))
-							result = new ValidationInformation(
-									ValidationResult.UNTRUSTED,
-									ValidationResultSpec.VALIDATED_REVOKED);
-						else
-							result = TrustValidation.validate(trustView, config,
-									request, validationService);
-
-						config.close();
-						trustView.save();
+					if (request.getValidationRequestSpec() ==
+							ValidationRequestSpec.VALIDATE_TRUST_END_CERTIFICATE) {
+						System.out.println("User trusts host certificate directly.");
+						System.out.println("Adding certificate to the certificate watch list " +
+								"bypassing trust validation algorithm.");
 					}
-					catch (ModelAccessException | CancellationException e) {
-						if (attempts == 0)
-							e.printStackTrace();
-
-						if (++attempts >= MAX_ATTEMPTS) {
-							System.err.println(
-									"Trust validation or TrustView update failed. " +
-									"The TrustView could not be updated. " +
-									"The validation request could not be fulfilled.");
-							throw e;
-						}
-
-						if (e instanceof CancellationException) {
-							if (++validationServiceAttempts >= MAX_VALIDATION_SERVICE_ATTEMPTS) {
-								validationService =
-									Service.getValidationService(ValidationResult.UNKNOWN);
-
-								System.err.println(
-										"Trust validation failed due validation service time out. " +
-										"Assuming result is unknown.");
-							}
+
+					if (retrieveRecommendation)
+						System.out.println("Only querying validation services for recommendation.");
+
+					validations.add(new Validation(
+							results.size(), request, retrieveRecommendation));
+				}
+			}
+
+			results.add(result);
+		}
+
+		// answer requests for already trusted certificates without
+		// a TrustView transaction and defer the implied updates
+		if (!knownTrustedRequests.isEmpty())
+			TrustViewWriter.submit(new TrustViewWriter.Update<Void>() {
+				@Override
+				protected Void update(TrustView trustView) {
+					for (ValidationRequest request : knownTrustedRequests)
+						TrustValidation.updateKnownTrusted(trustView, request);
+					return null;
+				}
+			}, TrustViewWriter.Priority.BACKGROUND);
+
+		if (validations.isEmpty())
+			return results;
+
+		int attempts = 0;
+		while (true) {
+			try {
+				// gather the evidence from external services
+				// without keeping a TrustView transaction open
+				prepareEvidences(validations);
+				retrieveEvidences(validations);
+
+				// perform validation based on the gathered evidence
+				// on the trust view writer
+				final List<ValidationInformation> validationResults =
+						TrustViewWriter.update(
+							new TrustViewWriter.Update<List<ValidationInformation>>() {
+					@Override
+					protected List<ValidationInformation> update(TrustView trustView)
+							throws ModelAccessException {
+						lookUpCertificates(trustView, validations);
+
+						final Configuration config = Model.getConfigurationSnapshot();
+						final List<ValidationInformation> results =
+								new ArrayList<>(validations.size());
+						for (Validation validation : validations)
+							if (!validation.retrieveRecommendation &&
+									!validation.revocationService.validate(trustView))
+								results.add(new ValidationInformation(
+										ValidationResult.UNTRUSTED,
+										ValidationResultSpec.VALIDATED_REVOKED));
 							else
-								System.err.println(
-										"Trust validation failed due validation service time out. " +
-										"Retrying ...");
-						}
-						else
-							System.err.println(
-									"Trust validation or TrustView update failed. " +
-									"This may happen due to concurrent access. " +
-									"Retrying ...");
-
-						if (!lock.isHeldByCurrentThread())
-							lock.lock();
-
-						try {
-							Thread.sleep(WAIT_ATTEMPT_MILLIS);
-						}
-						catch (InterruptedException i) {
-							i.printStackTrace();
-						}
-						continue;
+								results.add(TrustValidation.validate(trustView,
+										config, validation.request,
+										validation.validationEvidence));
+						return results;
 					}
 
-					System.out.println("Trust validation completed.");
-					System.out.println("  URL: " + request.getURL());
-					System.out.println("  Security Level: " + request.getSecurityLevel());
-					System.out.println("  Result was " + result.getValidationResult() +
-							           " (" + result.getValidationResultSpec() + ")");
-					break;
+					@Override
+					protected boolean isCommittable(List<ValidationInformation> results) {
+						return isComplete(validations);
+					}
+				}, priority);
+
+				// if the validation needs validation results that
+				// have not been gathered yet, the changes were discarded,
+				// retrieve the results and repeat the validation
+				if (!isComplete(validations))
+					continue;
+
+				for (int i = 0; i < validations.size(); i++)
+					results.set(validations.get(i).index, validationResults.get(i));
+			}
+			catch (ModelAccessException e) {
+				// the trust view writer already retried the update
+				System.err.println(
+						"Trust validation or TrustView update failed. " +
+						"The TrustView could not be updated. " +
+						"The validation request could not be fulfilled.");
+				throw e;
+			}
+			catch (CancellationException e) {
+				if (attempts == 0)
+					e.printStackTrace();
+
+				if (++attempts >= MAX_ATTEMPTS) {
+					System.err.println(
+							"Trust validation failed. " +
+							"The validation request could not be fulfilled.");
+					throw e;
 				}
+
+				try {
+					Thread.sleep(WAIT_ATTEMPT_MILLIS);
+				}
+				catch (InterruptedException i) {
+					i.printStackTrace();
+				}
+				continue;
 			}
+
+			for (Validation validation : validations) {
+				final ValidationInformation result = results.get(validation.index);
+				System.out.println("Trust validation completed.");
+				System.out.println("  URL: " + validation.request.getURL());
+				System.out.println("  Security Level: " + validation.request.getSecurityLevel());
+				System.out.println("  Result was " + result.getValidationResult() +
+						           " (" + result.getValidationResultSpec() + ")");
+			}
+			break;
+		}
+
+		return results;
+	}
+
+	/**
+	 * Initializes the validation services and the revocation services for the
+	 * given validations that do not have any evidence yet and queries the
+	 * revocation services for all of them at once
+	 * @param validations
+	 * @throws ModelAccessException if accessing the data model failed
+	 */
+	private static void prepareEvidences(List<Validation> validations)
+			throws ModelAccessException {
+		final List<Validation> unpreparedValidations = new ArrayList<>();
+		for (Validation validation : validations)
+			if (validation.validationEvidence == null)
+				unpreparedValidations.add(validation);
+
+		if (unpreparedValidations.isEmpty())
+			return;
+
+		final Configuration config = Model.getConfigurationSnapshot();
+		final List<Validation> revocationValidations = new ArrayList<>();
+		final List<List<TrustCertificate>> certificatePaths = new ArrayList<>();
+
+		// initialize validation services
+		for (Validation validation : unpreparedValidations) {
+			validation.validationService = constructValidationService(
+					config, validation.request.getURL());
+
+			if (!validation.retrieveRecommendation) {
+				revocationValidations.add(validation);
+				certificatePaths.add(validation.request.getCertificatePath());
+			}
+		}
+
+		// initialize revocation services
+		// and query the revocation services
+		if (!certificatePaths.isEmpty()) {
+			final List<RevocationValidation.Validator> revocationServices =
+					constructRevocationServices(config, certificatePaths);
+
+			// the revocation information retrieved from the read-only trust
+			// view, including stored CRLs, remains usable after it is closed
+			try (TrustView trustView = Model.openReadOnlyTrustView()) {
+				for (RevocationValidation.Validator revocationService :
+						revocationServices)
+					revocationService.prepare(trustView);
+			}
+			for (RevocationValidation.Validator revocationService :
+					revocationServices)
+				revocationService.await();
+
+			for (int i = 0; i < revocationValidations.size(); i++)
+				revocationValidations.get(i).revocationService =
+						revocationServices.get(i);
+		}
+
+		for (Validation validation : unpreparedValidations)
+			validation.validationEvidence = new ValidationEvidence();
+	}
+
+	/**
+	 * Retrieves the missing validation results of the given validations from
+	 * their validation services; the validation services are queried
+	 * concurrently if several validations miss validation results
+	 * @param validations
+	 * @throws CancellationException if a validation service timed out
+	 */
+	private static void retrieveEvidences(List<Validation> validations) {
+		final List<Validation> incompleteValidations = new ArrayList<>();
+		for (Validation validation : validations)
+			if (!validation.validationEvidence.isComplete())
+				incompleteValidations.add(validation);
+
+		CancellationException cancellation = null;
+
+		if (incompleteValidations.size() == 1) {
+			final Validation validation = incompleteValidations.get(0);
+			try {
+				validation.validationEvidence.retrieve(validation.validationService);
+			}
+			catch (CancellationException e) {
+				cancellation = e;
+				validationServiceCancelled(validation);
+			}
+		}
+		else if (!incompleteValidations.isEmpty()) {
+			final List<Future<?>> futures = new ArrayList<>();
+			for (final Validation validation : incompleteValidations)
+				futures.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						validation.validationEvidence.retrieve(
+								validation.validationService);
+					}
+				}));
+
+			for (int i = 0; i < futures.size(); i++)
+				try {
+					futures.get(i).get();
+				}
+				catch (ExecutionException e) {
+					if (e.getCause() instanceof CancellationException) {
+						cancellation = (CancellationException) e.getCause();
+						validationServiceCancelled(incompleteValidations.get(i));
+					}
+					else if (e.getCause() instanceof RuntimeException)
+						throw (RuntimeException) e.getCause();
+					else
+						throw new RuntimeException(e.getCause());
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					cancellation = new CancellationException(
+							"Interrupted while querying validation services");
+				}
+		}
+
+		if (cancellation != null)
+			throw cancellation;
+	}
+
+	/**
+	 * Falls back to an unknown validation result for the given validation
+	 * if its validation service timed out too often
+	 * @param validation
+	 */
+	private static void validationServiceCancelled(Validation validation) {
+		if (++validation.validationServiceAttempts >= MAX_VALIDATION_SERVICE_ATTEMPTS) {
+			validation.validationService =
+				Service.getValidationService(ValidationResult.UNKNOWN);
+
+			System.err.println(
+					"Trust validation failed due validation service time out. " +
+					"Assuming result is unknown.");
 		}
-		finally {
-			if (lock.isHeldByCurrentThread())
-				lock.unlock();
+		else
+			System.err.println(
+					"Trust validation failed due validation service time out. " +
+					"Retrying ...");
+	}
+
+	/**
+	 * @return whether the evidence of all given validations is complete
+	 * @param validations
+	 */
+	private static boolean isComplete(List<Validation> validations) {
+		for (Validation validation : validations)
+			if (!validation.validationEvidence.isComplete())
+				return false;
+		return true;
+	}
+
+	/**
+	 * Looks up the states and the assessments of the certificates of all
+	 * given validations at once, so that certificates that are contained in
+	 * several certificate paths are only looked up once and the lookups for
+	 * the single paths can be answered by the trust view's cache
+	 * @param trustView
+	 * @param validations
+	 */
+	private static void lookUpCertificates(TrustView trustView,
+			List<Validation> validations) {
+		if (validations.size() < 2)
+			return;
+
+		final Set<TrustCertificate> certificates = new LinkedHashSet<>();
+		final Set<TrustCertificate> caCertificates = new LinkedHashSet<>();
+		for (Validation validation : validations) {
+			final List<TrustCertificate> path =
+					validation.request.getCertificatePath();
+			if (!path.isEmpty()) {
+				certificates.addAll(path);
+				caCertificates.addAll(path.subList(0, path.size() - 1));
+			}
 		}
 
-		return result;
+		trustView.getTrustStates(certificates);
+		trustView.getAssessments(new ArrayList<>(caCertificates));
 	}
 
 	/**
@@ -222,13 +542,13 @@ public final class Validator {
 	}
 
 	/**
-	 * @return the certificates and associated revocation services for the
-	 * given certificate path taking account of the given configuration
+	 * @return the certificates and associated revocation services for each of
+	 * the given certificate paths taking account of the given configuration
 	 * @param config
-	 * @param certificatePath
+	 * @param certificatePaths
 	 */
-	private static RevocationValidation.Validator constructRevocationService(
-			Configuration config, List<TrustCertificate> certificatePath) {
+	private static List<RevocationValidation.Validator> constructRevocationServices(
+			Configuration config, List<List<TrustCertificate>> certificatePaths) {
 		final int crlTimeoutMillis =
 				config.get(
 					Configuration.REVOCATION_CRL_TIMEOUT_MILLIS,
@@ -237,8 +557,12 @@ public final class Validator {
 				config.get(
 					Configuration.REVOCATION_OCSP_TIMEOUT_MILLIS,
 					Integer.class);
+		final int pathTimeoutMillis =
+				config.get(
+					Configuration.REVOCATION_PATH_TIMEOUT_MILLIS,
+					Integer.class);
 
-		return RevocationValidation.createValidator(certificatePath,
-				crlTimeoutMillis, ocspTimeoutMillis);
+		return RevocationValidation.createValidators(certificatePaths,
+				crlTimeoutMillis, ocspTimeoutMillis, pathTimeoutMillis);
 	}
 }
@@ -0,0 +1,367 @@
+/*
+ * This file is part of the CA Trust Management System (CA-TMS)
+ *
+ * Copyright 2015 by CA-TMS Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package services.bindings;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * State of a persistent HTTP/1.1 connection of the {@link WebServer}.
+ *
+ * <p>Requests are parsed incrementally from the bytes that are available on
+ * the non-blocking channel, so that a request can arrive in any number of
+ * fragments without blocking a thread. A connection handles one request at a
+ * time; further requests sent by the client are buffered until the response
+ * to the current request has been written.</p>
+ *
+ * <p>A connection is only used by the thread that runs the selector of the
+ * web server.</p>
+ *
+ * @author Pascal Weisenburger
+ */
+final class HttpConnection {
+	/** maximum size of the request line and the request headers */
+	static final int MAX_HEADER_BYTES = 16 * 1024;
+
+	/** maximum size of the request body */
+	static final int MAX_BODY_BYTES = 8 * 1024 * 1024;
+
+	private static final int INITIAL_BUFFER_BYTES = 8 * 1024;
+
+	/**
+	 * Parsed HTTP request
+	 */
+	static final class Request {
+		private final String method;
+		private final String target;
+		private final Map<String, String> headers;
+		private final byte[] body;
+		private final boolean keepAlive;
+
+		Request(String method, String target, Map<String, String> headers,
+				byte[] body, boolean keepAlive) {
+			this.method = method;
+			this.target = target;
+			this.headers = headers;
+			this.body = body;
+			this.keepAlive = keepAlive;
+		}
+
+		/**
+		 * @return the request method
+		 */
+		String getMethod() {
+			return method;
+		}
+
+		/**
+		 * @return the request target
+		 */
+		String getTarget() {
+			return target;
+		}
+
+		/**
+		 * @return the value of the given header or <code>null</code> if
+		 * the header is not present; header names are case-insensitive
+		 * @param name
+		 */
+		String getHeader(String name) {
+			return headers.get(name.toLowerCase(Locale.ROOT));
+		}
+
+		/**
+		 * @return the request body
+		 */
+		byte[] getBody() {
+			return body;
+		}
+
+		/**
+		 * @return whether the client keeps the connection open
+		 * for further requests
+		 */
+		boolean isKeepAlive() {
+			return keepAlive;
+		}
+	}
+
+	/**
+	 * Indicates that a request cannot be processed; the connection is closed
+	 * after the given status has been sent
+	 */
+	static final class RequestException extends Exception {
+		private static final long serialVersionUID = 1L;
+
+		private final String status;
+
+		RequestException(String status, String message) {
+			super(message);
+			this.status = status;
+		}
+
+		/**
+		 * @return the HTTP status to be sent to the client
+		 */
+		String getStatus() {
+			return status;
+		}
+	}
+
+	private final SocketChannel channel;
+	private ByteBuffer input = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+	private ByteBuffer output;
+	private int headerScanPosition = 0;
+
+	// parsed request line and headers of the request whose body is read
+	private String method;
+	private String target;
+	private Map<String, String> headers;
+	private boolean keepAlive;
+	private int headerBytes = -1;
+	private int bodyBytes;
+
+	private boolean processing = false;
+	private boolean closeAfterOutput = false;
+	private long deadline;
+
+	HttpConnection(SocketChannel channel, long deadline) {
+		this.channel = channel;
+		this.deadline = deadline;
+	}
+
+	/**
+	 * @return the underlying channel
+	 */
+	SocketChannel getChannel() {
+		return channel;
+	}
+
+	/**
+	 * Reads the bytes that are available on the channel
+	 * @return <code>false</code> if the client closed the connection
+	 * @throws IOException
+	 * @throws RequestException if the request exceeds the size limits
+	 */
+	boolean read() throws IOException, RequestException {
+		if (!input.hasRemaining()) {
+			int capacity = input.capacity() * 2;
+			int limit = headerBytes < 0
+					? MAX_HEADER_BYTES
+					: headerBytes + bodyBytes;
+			if (input.capacity() >= limit)
+				throw new RequestException("413 Payload Too Large",
+						"Request exceeds the maximum size");
+			ByteBuffer buffer = ByteBuffer.allocate(Math.min(capacity, limit));
+			input.flip();
+			buffer.put(input);
+			input = buffer;
+		}
+		return channel.read(input) >= 0;
+	}
+
+	/**
+	 * @return the next request that has been received completely or
+	 * <code>null</code> if more bytes are needed; the bytes of the returned
+	 * request are removed from the input buffer
+	 * @throws RequestException if the request is malformed
+	 */
+	Request nextRequest() throws RequestException {
+		if (headerBytes < 0 && !parseHeaders())
+			return null;
+
+		if (input.position() < headerBytes + bodyBytes)
+			return null;
+
+		byte[] body = new byte[bodyBytes];
+		input.flip();
+		input.position(headerBytes);
+		input.get(body);
+		input.compact();
+
+		// do not keep a large buffer for an idle connection
+		if (input.capacity() > INITIAL_BUFFER_BYTES &&
+				input.position() <= INITIAL_BUFFER_BYTES) {
+			ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+			input.flip();
+			buffer.put(input);
+			input = buffer;
+		}
+
+		Request request = new Request(method, target, headers, body, keepAlive);
+		method = null;
+		target = null;
+		headers = null;
+		headerBytes = -1;
+		headerScanPosition = 0;
+		return request;
+	}
+
+	/**
+	 * @return whether there are bytes of a request that has not been
+	 * received completely
+	 */
+	boolean hasPartialRequest() {
+		return input.position() > 0;
+	}
+
+	/**
+	 * @return whether a request of this connection is being processed
+	 */
+	boolean isProcessing() {
+		return processing;
+	}
+
+	void setProcessing(boolean processing) {
+		this.processing = processing;
+	}
+
+	/**
+	 * @return the time in milliseconds after which the connection
+	 * is closed if it is idle or has not received a complete request
+	 */
+	long getDeadline() {
+		return deadline;
+	}
+
+	void setDeadline(long deadline) {
+		this.deadline = deadline;
+	}
+
+	/**
+	 * Sets the response to be written to the channel
+	 * @param response
+	 * @param close whether the connection is to be closed
+	 * after the response is written
+	 */
+	void setOutput(byte[] response, boolean close) {
+		output = ByteBuffer.wrap(response);
+		closeAfterOutput = close;
+	}
+
+	/**
+	 * Writes as many bytes of the response as the channel accepts
+	 * @return whether the response has been written completely
+	 * @throws IOException
+	 */
+	boolean write() throws IOException {
+		if (output != null) {
+			channel.write(output);
+			if (output.hasRemaining())
+				return false;
+			output = null;
+		}
+		return true;
+	}
+
+	/**
+	 * @return whether a response is being written
+	 */
+	boolean isWriting() {
+		return output != null;
+	}
+
+	/**
+	 * @return whether the connection is to be closed after the current
+	 * response has been written
+	 */
+	boolean isCloseAfterOutput() {
+		return closeAfterOutput;
+	}
+
+	private boolean parseHeaders() throws RequestException {
+		// find the empty line that terminates the headers
+		int end = -1;
+		for (int i = Math.max(headerScanPosition, 3); i < input.position(); i++)
+			if (input.get(i) == '\n' && input.get(i - 1) == '\r' &&
+					input.get(i - 2) == '\n' && input.get(i - 3) == '\r') {
+				end = i + 1;
+				break;
+			}
+
+		if (end < 0) {
+			headerScanPosition = input.position();
+			if (input.position() >= MAX_HEADER_BYTES)
+				throw new RequestException("431 Request Header Fields Too Large",
+						"Request headers exceed the maximum size");
+			return false;
+		}
+
+		String[] lines = new String(input.array(), 0, end - 4,
+				StandardCharsets.ISO_8859_1).split("\r\n");
+
+		String[] requestLine = lines[0].split(" ");
+		if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1."))
+			throw new RequestException("400 Bad Request",
+					"Malformed request line");
+
+		Map<String, String> headers = new HashMap<>();
+		for (int i = 1; i < lines.length; i++) {
+			int separator = lines[i].indexOf(':');
+			if (separator <= 0)
+				throw new RequestException("400 Bad Request",
+						"Malformed request header");
+			headers.put(
+					lines[i].substring(0, separator).trim().toLowerCase(Locale.ROOT),
+					lines[i].substring(separator + 1).trim());
+		}
+
+		String connection = headers.get("connection");
+		boolean keepAlive = requestLine[2].equals("HTTP/1.0")
+				? "keep-alive".equalsIgnoreCase(connection)
+				: !"close".equalsIgnoreCase(connection);
+
+		if (headers.containsKey("transfer-encoding"))
+			throw new RequestException("411 Length Required",
+					"Transfer encodings are not supported");
+
+		int bodyBytes = 0;
+		String contentLength = headers.get("content-length");
+		if (contentLength != null)
+			try {
+				bodyBytes = Integer.parseInt(contentLength);
+			}
+			catch (NumberFormatException e) {
+				throw new RequestException("400 Bad Request",
+						"Malformed content length");
+			}
+		else if (requestLine[0].equals("POST"))
+			throw new RequestException("411 Length Required",
+					"Content length required");
+
+		if (bodyBytes < 0)
+			throw new RequestException("400 Bad Request",
+					"Malformed content length");
+		if (bodyBytes > MAX_BODY_BYTES)
+			throw new RequestException("413 Payload Too Large",
+					"Request exceeds the maximum size");
+
+		this.method = requestLine[0];
+		this.target = requestLine[1];
+		this.headers = headers;
+		this.keepAlive = keepAlive;
+		this.headerBytes = end;
+		this.bodyBytes = bodyBytes;
+		return true;
+	}
+}
@@ -17,18 +17,23 @@
  */
 package services.bindings;
 
-import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
-import javax.json.JsonArray;
-import javax.json.JsonNumber;
-import javax.json.JsonObject;
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParser.Event;
+import javax.xml.bind.DatatypeConverter;
 
 import services.ValidationRequest;
 import services.ValidationRequestSpec;
+import util.CertificateCache;
 import util.CertificatePathValidity;
 import data.Configuration;
 import data.Model;
@@ -38,36 +43,102 @@ import data.TrustCertificate;
 /**
  * Decoder for JSON requests
  *
+ * <p>Requests are decoded from a stream of parser events without building a
+ * tree of JSON values. The certificates of the <code>certChain</code> array
+ * are either base64 encoded strings or, as sent by previous versions of the
+ * extension, arrays of byte values.</p>
+ *
  * @author Pascal Weisenburger
  */
 final class JsonRequestDecoder {
+	private static final int INITIAL_CERTIFICATE_BYTES = 2048;
+
 	private JsonRequestDecoder() { }
 
 	/**
-	 * Decodes a JSON request resulting in a {@link ValidationRequest} object
+	 * Decodes a JSON request that is read from the given stream
+	 * resulting in a {@link ValidationRequest} object
 	 */
-	public static ValidationRequest decode(JsonObject object)
+	public static ValidationRequest decode(InputStream stream)
 			throws CertificateException, ModelAccessException {
-		// get certificate chain
-		JsonArray chain = object.getJsonArray("certChain");
-
-		CertificateFactory factory = CertificateFactory.getInstance("X.509");
-		List<TrustCertificate> certificatePath = new ArrayList<>(chain.size());
+		try (JsonParser parser = Json.createParser(
+				new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+			if (!parser.hasNext() || parser.next() != Event.START_OBJECT)
+				throw new JsonException("Request is not a JSON object");
+			return decode(parser);
+		}
+	}
 
-		for (JsonArray jsonCert : chain.getValuesAs(JsonArray.class)) {
-			int i = 0;
-			byte[] certBytes = new byte[jsonCert.size()];
-			for (JsonNumber jsonByte : jsonCert.getValuesAs(JsonNumber.class))
-				certBytes[i++] = (byte) jsonByte.intValue();
+	/**
+	 * Decodes a JSON array of requests that is read from the given stream
+	 * resulting in a {@link ValidationRequest} object for each request
+	 * at the index of the respective request
+	 * @param maxRequests the maximum number of requests
+	 * @throws JsonException if the array contains more requests than allowed
+	 */
+	public static List<ValidationRequest> decodeAll(InputStream stream,
+			int maxRequests) throws CertificateException, ModelAccessException {
+		try (JsonParser parser = Json.createParser(
+				new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+			if (!parser.hasNext() || parser.next() != Event.START_ARRAY)
+				throw new JsonException("Request is not a JSON array");
 
-			certificatePath.add(new TrustCertificate(
-					factory.generateCertificate(
-							new ByteArrayInputStream(certBytes))));
+			List<ValidationRequest> requests = new ArrayList<>();
+			for (Event event = parser.next(); event != Event.END_ARRAY;
+					event = parser.next()) {
+				if (event != Event.START_OBJECT)
+					throw new JsonException("Request is not a JSON object");
+				if (requests.size() >= maxRequests)
+					throw new JsonException("Too many requests");
+				requests.add(decode(parser));
+			}
+			return requests;
 		}
+	}
+
+	/**
+	 * Decodes a JSON request resulting in a {@link ValidationRequest} object;
+	 * the parser is positioned after the start of the request object and is
+	 * positioned after its end when the request is decoded
+	 */
+	static ValidationRequest decode(JsonParser parser)
+			throws CertificateException, ModelAccessException {
+		List<TrustCertificate> certificatePath = null;
+		String secLevel = "";
+		String validationResult = "";
+		String url = null;
+		String validationSpec = "";
+
+		for (Event event = parser.next(); event != Event.END_OBJECT;
+				event = parser.next())
+			switch (parser.getString()) {
+			case "certChain":
+				certificatePath = decodeCertificatePath(parser);
+				break;
+			case "secLevel":
+				secLevel = decodeString(parser, "");
+				break;
+			case "validationResult":
+				validationResult = decodeString(parser, "");
+				break;
+			case "url":
+				url = decodeString(parser, null);
+				break;
+			case "validationSpec":
+				validationSpec = decodeString(parser, "");
+				break;
+			default:
+				skipValue(parser, parser.next());
+				break;
+			}
+
+		// get certificate chain
+		if (certificatePath == null)
+			throw new JsonException("Request does not contain a certificate chain");
 
 		// get security level
 		String securityLevel = Configuration.SECURITY_LEVEL_HIGH;
-		switch (object.getString("secLevel", "")) {
+		switch (secLevel) {
 		case "high":
 			securityLevel = Configuration.SECURITY_LEVEL_HIGH;
 			break;
@@ -82,7 +153,7 @@ final class JsonRequestDecoder {
 		// get validation result
 		CertificatePathValidity certificatePathValidity =
 				CertificatePathValidity.UNKNOWN;
-		switch (object.getString("validationResult", "")) {
+		switch (validationResult) {
 		case "valid":
 			certificatePathValidity = CertificatePathValidity.VALID;
 			break;
@@ -95,12 +166,13 @@ final class JsonRequestDecoder {
 		}
 
 		// get host url
-		String host = object.getString("url");
+		if (url == null)
+			throw new JsonException("Request does not contain a URL");
 
 		// determine the validation request specification
 		ValidationRequestSpec validationRequestSpec =
 				ValidationRequestSpec.VALIDATE;
-		switch (object.getString("validationSpec", "")) {
+		switch (validationSpec) {
 		case "validate":
 			validationRequestSpec = ValidationRequestSpec.VALIDATE;
 			break;
@@ -119,9 +191,64 @@ final class JsonRequestDecoder {
 		}
 
 		// return the decoded the request object
-		try (Configuration config = Model.openConfiguration()) {
-			return new ValidationRequest(host, certificatePath, certificatePathValidity,
-					config.get(securityLevel, Double.class), validationRequestSpec);
+		Configuration config = Model.getConfigurationSnapshot();
+		return new ValidationRequest(url, certificatePath, certificatePathValidity,
+				config.get(securityLevel, Double.class), validationRequestSpec);
+	}
+
+	private static List<TrustCertificate> decodeCertificatePath(JsonParser parser)
+			throws CertificateException {
+		if (parser.next() != Event.START_ARRAY)
+			throw new JsonException("Certificate chain is not an array");
+
+		List<TrustCertificate> certificatePath = new ArrayList<>();
+		for (Event event = parser.next(); event != Event.END_ARRAY;
+				event = parser.next()) {
+			byte[] certBytes;
+			if (event == Event.VALUE_STRING)
+				certBytes = DatatypeConverter.parseBase64Binary(parser.getString());
+			else if (event == Event.START_ARRAY)
+				certBytes = decodeByteArray(parser);
+			else
+				throw new JsonException(
+						"Certificate is neither a base64 string nor a byte array");
+
+			certificatePath.add(TrustCertificate.intern(new TrustCertificate(
+					CertificateCache.getCertificate(certBytes))));
 		}
+		return certificatePath;
+	}
+
+	private static byte[] decodeByteArray(JsonParser parser) {
+		byte[] bytes = new byte[INITIAL_CERTIFICATE_BYTES];
+		int length = 0;
+		for (Event event = parser.next(); event != Event.END_ARRAY;
+				event = parser.next()) {
+			if (event != Event.VALUE_NUMBER)
+				throw new JsonException("Certificate byte is not a number");
+			if (length == bytes.length)
+				bytes = Arrays.copyOf(bytes, bytes.length * 2);
+			bytes[length++] = (byte) parser.getInt();
+		}
+		return Arrays.copyOf(bytes, length);
+	}
+
+	private static String decodeString(JsonParser parser, String defaultValue) {
+		Event event = parser.next();
+		if (event == Event.VALUE_STRING)
+			return parser.getString();
+		skipValue(parser, event);
+		return defaultValue;
+	}
+
+	private static void skipValue(JsonParser parser, Event event) {
+		if (event == Event.START_OBJECT || event == Event.START_ARRAY)
+			for (int depth = 1; depth > 0; ) {
+				event = parser.next();
+				if (event == Event.START_OBJECT || event == Event.START_ARRAY)
+					depth++;
+				else if (event == Event.END_OBJECT || event == Event.END_ARRAY)
+					depth--;
+			}
 	}
 }
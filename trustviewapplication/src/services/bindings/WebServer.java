@@ -17,29 +17,31 @@
  */
 package services.bindings;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.Reader;
-import java.io.Writer;
 import java.net.InetSocketAddress;
-import java.nio.channels.Channels;
-import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
 import java.util.TimeZone;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
-
-import javax.json.Json;
-import javax.json.JsonObject;
-import javax.json.JsonReader;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import services.AsyncValidator;
 import services.ValidationInformation;
 import services.ValidationRequest;
 import services.Validator;
@@ -51,21 +53,66 @@ import data.Model;
  * Implements a web server binding. The web server can be queried by using a
  * HTTP interface from a local client.
  *
+ * <p>All connections are served by a single thread using a selector.
+ * Connections are kept open for further requests (HTTP/1.1 persistent
+ * connections) and requests are parsed incrementally as their bytes arrive.
+ * Complete requests are processed by a bounded pool of worker threads.
+ * A request that is not received completely within the request timeout
+ * is answered with <code>408 Request Timeout</code>; a connection that is
+ * idle for longer than the keep-alive time is closed.</p>
+ *
+ * <p>Requests to <code>/batch</code> carry a JSON array of requests, which
+ * are validated together, and are answered with a JSON array containing the
+ * result for each request.</p>
+ *
+ * <p>Requests to <code>/async</code> are answered right away with a
+ * provisional result and a ticket (<code>202 Accepted</code>) while the
+ * validation continues in the background, or with the actual result
+ * (<code>200 OK</code>) if the validation does not need any external service.
+ * The actual result is retrieved from <code>/result?ticket=...</code>, which
+ * is answered as soon as the validation completed or with the provisional
+ * result again after the long-poll time passed. Waiting for the result does
+ * not occupy a worker thread. If too many validations are pending, requests
+ * to <code>/async</code> are answered with
+ * <code>503 Service Unavailable</code>.</p>
+ *
  * @author Pascal Weisenburger
  * @author Jannik Vieten
  * @author Haixin Cai
  */
 public class WebServer {
+	// interval in which the deadlines of the connections are checked
+	private static final long DEADLINE_CHECK_INTERVAL_MILLIS = 250;
+
+	// request target of batch requests, whose body is a JSON array of requests
+	private static final String BATCH_PATH = "/batch";
+
+	// maximum number of requests that are validated by a single batch request
+	private static final int MAX_BATCH_REQUESTS = 64;
+
+	// request target of requests that are answered with a provisional result
+	private static final String ASYNC_PATH = "/async";
+
+	// request target for retrieving the result of an asynchronous request
+	private static final String RESULT_PATH = "/result";
+
+	// amount of time a request for the result of an asynchronous request
+	// is held open if the validation has not completed yet
+	private static final long LONG_POLL_MILLIS = 25000;
+
+	private final static SimpleDateFormat dateFormat;
+
+	static {
+		dateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss z", Locale.US);
+		dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+	}
+
 	private Thread thread;
-	private ServerSocketChannel serverSocketChannel;
-	private ExecutorService executorService;
 
 	/**
 	 * Creates a new <code>WebServer</code> instance
 	 */
-	public WebServer() {
-		executorService = Executors.newCachedThreadPool();
-	}
+	public WebServer() { }
 
 	/**
 	 * Starts the web server listening on the configured port
@@ -75,9 +122,16 @@ public class WebServer {
 		if (thread == null) {
 			final int port;
 			final int timeoutMillis;
-			try (Configuration config = Model.openConfiguration()) {
+			final int keepAliveMillis;
+			final int workerThreads;
+			final int workerQueueSize;
+			try {
+				Configuration config = Model.getConfigurationSnapshot();
 				port = config.get(Configuration.SERVER_PORT, Integer.class);
 				timeoutMillis = config.get(Configuration.SERVER_REQUEST_TIMEOUT_MILLIS, Integer.class);
+				keepAliveMillis = config.get(Configuration.SERVER_KEEP_ALIVE_MILLIS, Integer.class);
+				workerThreads = config.get(Configuration.SERVER_WORKER_THREADS, Integer.class);
+				workerQueueSize = config.get(Configuration.SERVER_WORKER_QUEUE_SIZE, Integer.class);
 			}
 			catch (Exception e) {
 				// this should never happen, since we only read configuration values
@@ -85,35 +139,27 @@ public class WebServer {
 				return;
 			}
 
-			serverSocketChannel = ServerSocketChannel.open();
-			serverSocketChannel.socket().setReuseAddress(true);
-			serverSocketChannel.socket().bind(new InetSocketAddress(port));
+			Selector selector = Selector.open();
+			ServerSocketChannel serverSocketChannel = ServerSocketChannel.open();
+			try {
+				serverSocketChannel.configureBlocking(false);
+				serverSocketChannel.socket().setReuseAddress(true);
+				serverSocketChannel.socket().bind(new InetSocketAddress(port));
+				serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);
+			}
+			catch (IOException e) {
+				serverSocketChannel.close();
+				selector.close();
+				throw e;
+			}
 
-			thread = new Thread() {
-				@Override
-				public void run() {
-					while(!Thread.currentThread().isInterrupted()) {
-						try {
-							SocketChannel socketChannel = serverSocketChannel.accept();
-							if (socketChannel != null)
-								executorService.execute(new CommunicationHandler(
-										socketChannel, executorService, timeoutMillis));
-						}
-						catch(ClosedByInterruptException e) {
-							// this happens regularly on server shutdown
-							try {
-								serverSocketChannel.close();
-							}
-							catch (IOException e1) {
-								e1.printStackTrace();
-							}
-						}
-						catch (IOException e) {
-							e.printStackTrace();
-						}
-					}
-				}
-			};
+			ThreadPoolExecutor executorService = new ThreadPoolExecutor(
+					workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+					new ArrayBlockingQueue<Runnable>(workerQueueSize));
+			executorService.allowCoreThreadTimeOut(true);
+
+			thread = new Thread(new Dispatcher(selector, serverSocketChannel,
+					executorService, timeoutMillis, keepAliveMillis), "web-server");
 			thread.start();
 		}
 	}
@@ -130,160 +176,302 @@ public class WebServer {
 	}
 
 	/**
-	 * Implements the parsing of HTTP requests, the creation of HTTP responses
-	 * and the delegation of queries to the {@link Validator}
+	 * Accepts connections, reads requests and writes responses on the
+	 * selector thread and delegates complete requests to the worker threads
 	 */
-	static private class CommunicationHandler implements Runnable {
-		private final SocketChannel socketChannel;
-		private final ExecutorService executorService;
+	static private class Dispatcher implements Runnable {
+		private final Selector selector;
+		private final ServerSocketChannel serverSocketChannel;
+		private final ThreadPoolExecutor executorService;
 		private final int timeoutMillis;
+		private final int keepAliveMillis;
 
-		private final static SimpleDateFormat dateFormat;
+		// responses of processed requests,
+		// which are handed over to the selector thread
+		private final Queue<Runnable> pendingResponses =
+				new ConcurrentLinkedQueue<>();
 
-		static {
-			dateFormat = new SimpleDateFormat("EEE, MMM d yyyy HH:mm:ss z");
-			dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
-		}
+		// requests waiting for the result of an asynchronous request
+		private final List<Poll> polls = new ArrayList<>();
 
-		public CommunicationHandler(SocketChannel socketChannel,
-				ExecutorService executorService, int timeoutMillis) {
-			this.socketChannel = socketChannel;
+		public Dispatcher(Selector selector,
+				ServerSocketChannel serverSocketChannel,
+				ThreadPoolExecutor executorService,
+				int timeoutMillis, int keepAliveMillis) {
+			this.selector = selector;
+			this.serverSocketChannel = serverSocketChannel;
 			this.executorService = executorService;
 			this.timeoutMillis = timeoutMillis;
+			this.keepAliveMillis = keepAliveMillis;
 		}
 
 		@Override
 		public void run() {
-			try (Reader reader = Channels.newReader(socketChannel, "UTF-8");
-			     Writer writer = Channels.newWriter(socketChannel, "UTF-8")) {
+			try {
+				long nextDeadlineCheck =
+						System.currentTimeMillis() + DEADLINE_CHECK_INTERVAL_MILLIS;
 
-				Future<JsonObject> objectFuture = null;
-				try {
-					if (socketChannel.socket().getInetAddress().isLoopbackAddress()) {
-						// parse incoming data as JSON
-						// but cancel if a specified timeout expires
-						objectFuture = executorService.submit(
-								new JsonObjectReader(reader));
-						JsonObject object = objectFuture.get(
-								timeoutMillis, TimeUnit.MILLISECONDS);
-
-						// decode JSON object
-						ValidationRequest request = JsonRequestDecoder.decode(object);
-
-						// perform trust validation
-						ValidationInformation result = Validator.validate(request);
-
-						// create answer JSON string
-						StringBuilder jsonResult = new StringBuilder();
-
-						jsonResult.append("{\n  \"result\": ");
-						switch (result.getValidationResult()) {
-						case TRUSTED:
-							jsonResult.append("\"trusted\"");
-							break;
-						case UNTRUSTED:
-							jsonResult.append("\"untrusted\"");
-							break;
-						case UNKNOWN:
-							jsonResult.append("\"unknown\"");
-							break;
-						}
+				while (!Thread.currentThread().isInterrupted()) {
+					selector.select(DEADLINE_CHECK_INTERVAL_MILLIS);
 
-						jsonResult.append(",\n  \"resultSpec\": ");
-						switch (result.getValidationResultSpec()) {
-						case VALIDATED:
-							jsonResult.append("\"validated\"");
-							break;
-						case VALIDATED_FIRST_SEEN:
-							jsonResult.append("\"validated-first-seen\"");
-							break;
-						case VALIDATED_EXISTING_EXPIRED_SAME_CA:
-							jsonResult.append("\"validated-existing-expired-same-ca\"");
-							break;
-						case VALIDATED_EXISTING_EXPIRED_SAME_CA_KEY:
-							jsonResult.append("\"validated-existing-expired-same-ca-key\"");
-							break;
-						case VALIDATED_EXISTING_VALID_SAME_CA:
-							jsonResult.append("\"validated-existing-valid-same-ca\"");
-							break;
-						case VALIDATED_EXISTING_VALID_SAME_KEY:
-							jsonResult.append("\"validated-existing-valid-same-key\"");
-							break;
-						case VALIDATED_EXISTING:
-							jsonResult.append("\"validated-existing\"");
-							break;
-						case VALIDATED_ON_WATCHLIST:
-							jsonResult.append("\"validated-on-watchlist\"");
-							break;
-						case VALIDATED_REVOKED:
-							jsonResult.append("\"validated-revoked\"");
-							break;
-						case RECOMMENDED:
-							jsonResult.append("\"recommended\"");
-							break;
-						}
+					for (Runnable response; (response = pendingResponses.poll()) != null; )
+						response.run();
 
-						jsonResult.append("\n}");
+					Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+					while (iterator.hasNext()) {
+						SelectionKey key = iterator.next();
+						iterator.remove();
 
-						writer.write(
-								"HTTP/1.1 200 OK\r\n" +
-								"Content-Type: application/json;charset=utf-8\r\n" +
-								"Date: " + dateFormat.format(new Date()) + "\r\n" +
-								"Connection: close\r\n" +
-								"\r\n" +
-								jsonResult.toString());
+						try {
+							if (!key.isValid())
+								continue;
+							if (key.isAcceptable())
+								accept();
+							else {
+								if (key.isReadable())
+									read(key);
+								if (key.isValid() && key.isWritable())
+									write(key);
+							}
+						}
+						catch (IOException | CancelledKeyException e) {
+							// the client closed or reset the connection
+							close(key);
+						}
 					}
-					else {
-						System.err.println("403 Forbidden");
-						System.err.println("Request not from loopback address");
-						writer.write(
-								"HTTP/1.1 403 Forbidden\r\n" +
-								"Content-Type: text/plain;charset=utf-8\r\n" +
-								"Date: " + dateFormat.format(new Date()) + "\r\n" +
-								"Connection: close\r\n" +
-								"\r\n" +
-								"403 Forbidden\r\n" +
-								"Request not from loopback address\r\n" +
-								dateFormat.format(new Date()));
+
+					long now = System.currentTimeMillis();
+					if (now >= nextDeadlineCheck) {
+						checkDeadlines(now);
+						nextDeadlineCheck = now + DEADLINE_CHECK_INTERVAL_MILLIS;
 					}
 				}
-				catch (TimeoutException e) {
-					if (objectFuture != null)
-						objectFuture.cancel(true);
-
-					System.err.println("408 Request Timeout");
+			}
+			catch (IOException e) {
+				e.printStackTrace();
+			}
+			finally {
+				executorService.shutdown();
+				for (SelectionKey key : selector.keys())
+					close(key);
+				try {
+					selector.close();
+				}
+				catch (IOException e) {
 					e.printStackTrace();
-					writer.write(
-							"HTTP/1.1 408 Request Timeout\r\n" +
-							"Content-Type: text/plain;charset=utf-8\r\n" +
-							"Date: " + dateFormat.format(new Date()) + "\r\n" +
-							"Connection: close\r\n" +
-							"\r\n" +
-							"408 Request Timeout\r\n" +
-							dateFormat.format(new Date()));
 				}
-				catch (Exception e) {
-					if (objectFuture != null)
-						objectFuture.cancel(true);
+			}
+		}
 
-					System.err.println("500 Internal Server Error");
-					e.printStackTrace();
-					writer.write(
-							"HTTP/1.1 500 Internal Server Error\r\n" +
-							"Content-Type: text/plain;charset=utf-8\r\n" +
-							"Date: " + dateFormat.format(new Date()) + "\r\n" +
-							"Connection: close\r\n" +
-							"\r\n" +
-							"500 Internal Server Error\r\n" +
-							dateFormat.format(new Date()));
+		private void accept() throws IOException {
+			SocketChannel socketChannel = serverSocketChannel.accept();
+			if (socketChannel == null)
+				return;
+
+			socketChannel.configureBlocking(false);
+			socketChannel.socket().setTcpNoDelay(true);
+
+			HttpConnection connection = new HttpConnection(socketChannel,
+					System.currentTimeMillis() + timeoutMillis);
+			SelectionKey key = socketChannel.register(
+					selector, SelectionKey.OP_READ, connection);
+
+			if (!socketChannel.socket().getInetAddress().isLoopbackAddress()) {
+				System.err.println("403 Forbidden");
+				System.err.println("Request not from loopback address");
+				respond(key, connection, textResponse("403 Forbidden",
+						"Request not from loopback address", false));
+			}
+		}
+
+		private void read(SelectionKey key) throws IOException {
+			HttpConnection connection = (HttpConnection) key.attachment();
+			boolean idle = !connection.hasPartialRequest();
+
+			try {
+				if (!connection.read()) {
+					close(key);
+					return;
 				}
 			}
-			catch (IOException e) {
-				e.printStackTrace();
+			catch (HttpConnection.RequestException e) {
+				reject(key, connection, e);
+				return;
 			}
 
+			// the request timeout starts with the first byte of a request
+			if (idle && connection.hasPartialRequest())
+				connection.setDeadline(System.currentTimeMillis() + timeoutMillis);
+
+			dispatch(key, connection);
+		}
+
+		private void dispatch(final SelectionKey key,
+				final HttpConnection connection) {
+			final HttpConnection.Request request;
 			try {
-				socketChannel.close();
+				request = connection.nextRequest();
+			}
+			catch (HttpConnection.RequestException e) {
+				reject(key, connection, e);
+				return;
+			}
+
+			if (request == null)
+				return;
+
+			// further requests are not read before the response is written
+			connection.setProcessing(true);
+			key.interestOps(0);
+
+			if (getPath(request.getTarget()).equals(RESULT_PATH)) {
+				poll(key, connection, request);
+				return;
+			}
+
+			try {
+				executorService.execute(new Runnable() {
+					@Override
+					public void run() {
+						final Response response = handle(request);
+						pendingResponses.add(new Runnable() {
+							@Override
+							public void run() {
+								if (key.isValid())
+									respond(key, connection, response);
+							}
+						});
+						selector.wakeup();
+					}
+				});
+			}
+			catch (RejectedExecutionException e) {
+				System.err.println("503 Service Unavailable");
+				respond(key, connection, textResponse("503 Service Unavailable",
+						"Too many pending requests", false));
+			}
+		}
+
+		private void poll(final SelectionKey key,
+				final HttpConnection connection,
+				final HttpConnection.Request request) {
+			final AsyncValidator.Ticket ticket = AsyncValidator.getTicket(
+					getQueryParameter(request.getTarget(), "ticket"));
+			if (ticket == null) {
+				respond(key, connection, textResponse("404 Not Found",
+						"Unknown ticket", request.isKeepAlive()));
+				return;
+			}
+
+			final Poll poll = new Poll(key, connection, ticket,
+					request.isKeepAlive(),
+					System.currentTimeMillis() + LONG_POLL_MILLIS);
+			polls.add(poll);
+
+			// answer the request as soon as the validation completed
+			ticket.whenDone(new Runnable() {
+				@Override
+				public void run() {
+					if (!poll.answer())
+						return;
+
+					final Response response =
+							ticketResponse(ticket, request.isKeepAlive());
+					pendingResponses.add(new Runnable() {
+						@Override
+						public void run() {
+							if (key.isValid())
+								respond(key, connection, response);
+						}
+					});
+					selector.wakeup();
+				}
+			});
+		}
+
+		private void reject(SelectionKey key, HttpConnection connection,
+				HttpConnection.RequestException e) {
+			System.err.println(e.getStatus());
+			System.err.println(e.getMessage());
+			respond(key, connection,
+					textResponse(e.getStatus(), e.getMessage(), false));
+		}
+
+		private void respond(SelectionKey key, HttpConnection connection,
+				Response response) {
+			connection.setProcessing(false);
+			connection.setOutput(response.bytes, !response.keepAlive);
+			connection.setDeadline(System.currentTimeMillis() + timeoutMillis);
+			try {
+				write(key);
+			}
+			catch (IOException | CancelledKeyException e) {
+				close(key);
+			}
+		}
+
+		private void write(SelectionKey key) throws IOException {
+			HttpConnection connection = (HttpConnection) key.attachment();
+			if (!connection.write()) {
+				key.interestOps(SelectionKey.OP_WRITE);
+				return;
+			}
+
+			if (connection.isCloseAfterOutput()) {
+				close(key);
+				return;
+			}
+
+			key.interestOps(SelectionKey.OP_READ);
+			if (connection.hasPartialRequest()) {
+				// the client already sent the next request
+				connection.setDeadline(System.currentTimeMillis() + timeoutMillis);
+				dispatch(key, connection);
+			}
+			else
+				connection.setDeadline(System.currentTimeMillis() + keepAliveMillis);
+		}
+
+		private void checkDeadlines(long now) {
+			// answer requests for the result of an asynchronous request
+			// with the provisional result if the validation has not
+			// completed in time
+			Iterator<Poll> iterator = polls.iterator();
+			while (iterator.hasNext()) {
+				Poll poll = iterator.next();
+				if (!poll.key.isValid())
+					poll.answer();
+				else if (now >= poll.deadline && poll.answer())
+					respond(poll.key, poll.connection,
+							ticketResponse(poll.ticket, poll.keepAlive));
+				else if (!poll.isAnswered())
+					continue;
+				iterator.remove();
+			}
+
+			for (SelectionKey key : selector.keys()) {
+				Object attachment = key.attachment();
+				if (!key.isValid() || !(attachment instanceof HttpConnection))
+					continue;
+
+				HttpConnection connection = (HttpConnection) attachment;
+				if (connection.isProcessing() || now < connection.getDeadline())
+					continue;
+
+				if (connection.isWriting() || !connection.hasPartialRequest())
+					close(key);
+				else {
+					System.err.println("408 Request Timeout");
+					respond(key, connection, textResponse("408 Request Timeout",
+							"Request not received in time", false));
+				}
+			}
+		}
+
+		private static void close(SelectionKey key) {
+			key.cancel();
+			try {
+				key.channel().close();
 			}
 			catch (IOException e) {
 				e.printStackTrace();
@@ -292,26 +480,262 @@ public class WebServer {
 	}
 
 	/**
-	 * Reads a JSON object from a HTTP stream's content
+	 * Request waiting for the result of an asynchronous request, which
+	 * is answered either when the validation completed or when the
+	 * deadline passed
 	 */
-	static private class JsonObjectReader implements Callable<JsonObject> {
-		private final BufferedReader reader;
+	static private class Poll {
+		final SelectionKey key;
+		final HttpConnection connection;
+		final AsyncValidator.Ticket ticket;
+		final boolean keepAlive;
+		final long deadline;
+		private final AtomicBoolean answered = new AtomicBoolean(false);
 
-		public JsonObjectReader(Reader reader) {
-			this.reader = reader instanceof BufferedReader
-					? (BufferedReader) reader
-					: new BufferedReader(reader);
+		Poll(SelectionKey key, HttpConnection connection,
+				AsyncValidator.Ticket ticket, boolean keepAlive, long deadline) {
+			this.key = key;
+			this.connection = connection;
+			this.ticket = ticket;
+			this.keepAlive = keepAlive;
+			this.deadline = deadline;
 		}
 
-		@Override
-		public JsonObject call() throws Exception {
-			// skip lines of HTTP protocol
-			while (!reader.readLine().isEmpty());
+		/**
+		 * @return whether the caller is to answer the request,
+		 * which is the case for the first caller only
+		 */
+		boolean answer() {
+			return answered.compareAndSet(false, true);
+		}
+
+		boolean isAnswered() {
+			return answered.get();
+		}
+	}
+
+	/**
+	 * Encoded HTTP response
+	 */
+	static private class Response {
+		final byte[] bytes;
+		final boolean keepAlive;
+
+		Response(byte[] bytes, boolean keepAlive) {
+			this.bytes = bytes;
+			this.keepAlive = keepAlive;
+		}
+	}
+
+	/**
+	 * @return the response to the given request, which is created by decoding
+	 * the JSON request and delegating it to the {@link Validator}
+	 * @param request
+	 */
+	private static Response handle(HttpConnection.Request request) {
+		try {
+			if (!request.getMethod().equals("POST"))
+				return textResponse("405 Method Not Allowed",
+						"Only POST requests are supported",
+						request.isKeepAlive());
+
+			if (getPath(request.getTarget()).equals(BATCH_PATH))
+				return handleBatch(request);
+
+			if (getPath(request.getTarget()).equals(ASYNC_PATH))
+				try {
+					return handleAsync(request);
+				}
+				catch (RejectedExecutionException e) {
+					System.err.println("503 Service Unavailable");
+					return textResponse("503 Service Unavailable",
+							"Too many pending validations", request.isKeepAlive());
+				}
+
+			// decode incoming JSON data
+			ValidationRequest validationRequest = JsonRequestDecoder.decode(
+					new ByteArrayInputStream(request.getBody()));
+
+			// perform trust validation
+			ValidationInformation result = Validator.validate(validationRequest);
+
+			return response("200 OK", "application/json",
+					toJson(result), request.isKeepAlive());
+		}
+		catch (Exception e) {
+			System.err.println("500 Internal Server Error");
+			e.printStackTrace();
+			return textResponse("500 Internal Server Error", null,
+					request.isKeepAlive());
+		}
+	}
 
-			// read JSON object
-			JsonReader jsonReader = Json.createReader(reader);
-			return jsonReader.readObject();
+	private static Response handleBatch(HttpConnection.Request request)
+			throws Exception {
+		// decode incoming JSON data
+		List<ValidationRequest> validationRequests =
+				JsonRequestDecoder.decodeAll(
+					new ByteArrayInputStream(request.getBody()),
+					MAX_BATCH_REQUESTS);
+
+		// perform trust validation for all requests at once
+		List<ValidationInformation> results =
+				Validator.validateAll(validationRequests);
+
+		StringBuilder jsonResults = new StringBuilder("[");
+		for (ValidationInformation result : results) {
+			if (jsonResults.length() > 1)
+				jsonResults.append(",");
+			jsonResults.append("\n").append(toJson(result));
 		}
+		jsonResults.append("\n]");
+
+		return response("200 OK", "application/json",
+				jsonResults.toString(), request.isKeepAlive());
+	}
+
+	private static Response handleAsync(HttpConnection.Request request)
+			throws Exception {
+		// decode incoming JSON data
+		ValidationRequest validationRequest = JsonRequestDecoder.decode(
+				new ByteArrayInputStream(request.getBody()));
+
+		// start trust validation
+		AsyncValidator.Ticket ticket = AsyncValidator.validate(validationRequest);
+
+		return ticketResponse(ticket, request.isKeepAlive());
+	}
+
+	private static Response ticketResponse(AsyncValidator.Ticket ticket,
+			boolean keepAlive) {
+		try {
+			ValidationInformation result = ticket.getResult();
+			if (result != null)
+				return response("200 OK", "application/json",
+						toJson(result, ticket.getId(), false), keepAlive);
+
+			return response("202 Accepted", "application/json",
+					toJson(ticket.getProvisionalResult(), ticket.getId(), true),
+					keepAlive);
+		}
+		catch (Exception e) {
+			System.err.println("500 Internal Server Error");
+			e.printStackTrace();
+			return textResponse("500 Internal Server Error", null, keepAlive);
+		}
+	}
+
+	private static String getQueryParameter(String target, String name) {
+		int query = target.indexOf('?');
+		if (query < 0)
+			return null;
 
+		for (String parameter : target.substring(query + 1).split("&")) {
+			int separator = parameter.indexOf('=');
+			if (separator > 0 && parameter.substring(0, separator).equals(name))
+				return parameter.substring(separator + 1);
+		}
+		return null;
+	}
+
+	private static String getPath(String target) {
+		int query = target.indexOf('?');
+		return query < 0 ? target : target.substring(0, query);
+	}
+
+	private static String toJson(ValidationInformation result) {
+		return toJson(result, null, false);
+	}
+
+	private static String toJson(ValidationInformation result,
+			String ticket, boolean provisional) {
+		// create answer JSON string
+		StringBuilder jsonResult = new StringBuilder();
+
+		jsonResult.append("{\n  \"result\": ");
+		switch (result.getValidationResult()) {
+		case TRUSTED:
+			jsonResult.append("\"trusted\"");
+			break;
+		case UNTRUSTED:
+			jsonResult.append("\"untrusted\"");
+			break;
+		case UNKNOWN:
+			jsonResult.append("\"unknown\"");
+			break;
+		}
+
+		jsonResult.append(",\n  \"resultSpec\": ");
+		switch (result.getValidationResultSpec()) {
+		case VALIDATED:
+			jsonResult.append("\"validated\"");
+			break;
+		case VALIDATED_FIRST_SEEN:
+			jsonResult.append("\"validated-first-seen\"");
+			break;
+		case VALIDATED_EXISTING_EXPIRED_SAME_CA:
+			jsonResult.append("\"validated-existing-expired-same-ca\"");
+			break;
+		case VALIDATED_EXISTING_EXPIRED_SAME_CA_KEY:
+			jsonResult.append("\"validated-existing-expired-same-ca-key\"");
+			break;
+		case VALIDATED_EXISTING_VALID_SAME_CA:
+			jsonResult.append("\"validated-existing-valid-same-ca\"");
+			break;
+		case VALIDATED_EXISTING_VALID_SAME_KEY:
+			jsonResult.append("\"validated-existing-valid-same-key\"");
+			break;
+		case VALIDATED_EXISTING:
+			jsonResult.append("\"validated-existing\"");
+			break;
+		case VALIDATED_ON_WATCHLIST:
+			jsonResult.append("\"validated-on-watchlist\"");
+			break;
+		case VALIDATED_REVOKED:
+			jsonResult.append("\"validated-revoked\"");
+			break;
+		case RECOMMENDED:
+			jsonResult.append("\"recommended\"");
+			break;
+		}
+
+		if (ticket != null) {
+			jsonResult.append(",\n  \"provisional\": ").append(provisional);
+			jsonResult.append(",\n  \"ticket\": \"").append(ticket).append('"');
+		}
+
+		jsonResult.append("\n}");
+		return jsonResult.toString();
+	}
+
+	private static Response textResponse(String status, String message,
+			boolean keepAlive) {
+		return response(status, "text/plain",
+				status + "\r\n" +
+				(message != null ? message + "\r\n" : "") +
+				formatDate(new Date()), keepAlive);
+	}
+
+	private static Response response(String status, String contentType,
+			String content, boolean keepAlive) {
+		byte[] body = content.getBytes(StandardCharsets.UTF_8);
+		byte[] header = (
+				"HTTP/1.1 " + status + "\r\n" +
+				"Content-Type: " + contentType + ";charset=utf-8\r\n" +
+				"Content-Length: " + body.length + "\r\n" +
+				"Date: " + formatDate(new Date()) + "\r\n" +
+				"Connection: " + (keepAlive ? "keep-alive" : "close") + "\r\n" +
+				"\r\n").getBytes(StandardCharsets.ISO_8859_1);
+
+		byte[] bytes = new byte[header.length + body.length];
+		System.arraycopy(header, 0, bytes, 0, header.length);
+		System.arraycopy(body, 0, bytes, header.length, body.length);
+		return new Response(bytes, keepAlive);
+	}
+
+	private static String formatDate(Date date) {
+		synchronized (dateFormat) {
+			return dateFormat.format(date);
+		}
 	}
 }
@@ -31,6 +31,7 @@ import util.CertificatePathValidity;
 import util.Util;
 import data.TrustCertificate;
 
+import services.TrustViewWriter;
 import services.ValidationRequest;
 import services.ValidationRequestSpec;
 import services.Validator;
@@ -90,7 +91,7 @@ final class URLBootstrapping {
 							securityLevel,
 							ValidationRequestSpec.VALIDATE_WITH_SERVICES);
 
-					Validator.validate(request);
+					Validator.validate(request, TrustViewWriter.Priority.BOOTSTRAP);
 				}
 			}
 			catch (Exception e) {
@@ -0,0 +1,189 @@
+/*
+ * This file is part of the CA Trust Management System (CA-TMS)
+ *
+ * Copyright 2015 by CA-TMS Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package util;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide cache of parsed X.509 certificates keyed by the SHA-256
+ * fingerprint of their encoded form, so that certificates that are seen
+ * repeatedly do not need to be parsed again.
+ *
+ * <p>The cache is bounded by the number of cached certificates as well as by
+ * the total size of their encoded forms. The least recently used certificates
+ * are evicted first.</p>
+ *
+ * @author Pascal Weisenburger
+ */
+public final class CertificateCache {
+	/** the maximum number of cached certificates */
+	public static final int MAX_ENTRIES = 4096;
+
+	/** the maximum total size of the encoded forms of cached certificates */
+	public static final long MAX_ENCODED_BYTES = 16L * 1024 * 1024;
+
+	private static final class Entry {
+		final X509Certificate certificate;
+		final int encodedBytes;
+
+		Entry(X509Certificate certificate, int encodedBytes) {
+			this.certificate = certificate;
+			this.encodedBytes = encodedBytes;
+		}
+	}
+
+	private static final Map<ByteBuffer, Entry> entries =
+			new LinkedHashMap<>(16, 0.75f, true);
+	private static long encodedBytes = 0;
+	private static long hits = 0;
+	private static long misses = 0;
+	private static long evictions = 0;
+
+	private CertificateCache() { }
+
+	/**
+	 * @return the certificate that is encoded by the given data,
+	 * which is either taken from the cache or parsed and cached
+	 * @param encoded the DER or PEM encoded certificate
+	 * @throws CertificateException if the data cannot be parsed
+	 * as X.509 certificate
+	 */
+	public static X509Certificate getCertificate(byte[] encoded)
+			throws CertificateException {
+		ByteBuffer fingerprint = fingerprint(encoded);
+
+		synchronized (entries) {
+			Entry entry = entries.get(fingerprint);
+			if (entry != null) {
+				hits++;
+				return entry.certificate;
+			}
+			misses++;
+		}
+
+		X509Certificate certificate = (X509Certificate)
+				CertificateFactory.getInstance("X.509").generateCertificate(
+						new ByteArrayInputStream(encoded));
+
+		synchronized (entries) {
+			if (encoded.length <= MAX_ENCODED_BYTES &&
+					!entries.containsKey(fingerprint)) {
+				entries.put(fingerprint, new Entry(certificate, encoded.length));
+				encodedBytes += encoded.length;
+
+				Iterator<Entry> iterator = entries.values().iterator();
+				while (entries.size() > MAX_ENTRIES ||
+						encodedBytes > MAX_ENCODED_BYTES) {
+					encodedBytes -= iterator.next().encodedBytes;
+					iterator.remove();
+					evictions++;
+				}
+			}
+		}
+
+		return certificate;
+	}
+
+	/**
+	 * Removes all certificates from the cache
+	 */
+	public static void clear() {
+		synchronized (entries) {
+			entries.clear();
+			encodedBytes = 0;
+		}
+	}
+
+	/**
+	 * @return the number of currently cached certificates
+	 */
+	public static int getSize() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * @return the total size of the encoded forms of the currently
+	 * cached certificates
+	 */
+	public static long getEncodedBytes() {
+		synchronized (entries) {
+			return encodedBytes;
+		}
+	}
+
+	/**
+	 * @return the number of lookups that were served from the cache
+	 */
+	public static long getHitCount() {
+		synchronized (entries) {
+			return hits;
+		}
+	}
+
+	/**
+	 * @return the number of lookups that required parsing the certificate
+	 */
+	public static long getMissCount() {
+		synchronized (entries) {
+			return misses;
+		}
+	}
+
+	/**
+	 * @return the number of certificates that were evicted from the cache
+	 * to stay within its limits
+	 */
+	public static long getEvictionCount() {
+		synchronized (entries) {
+			return evictions;
+		}
+	}
+
+	/**
+	 * @return a textual summary of the cache statistics
+	 */
+	public static String getStatistics() {
+		synchronized (entries) {
+			return "certificate cache: " + entries.size() + " certificates, " +
+					encodedBytes + " bytes, " + hits + " hits, " +
+					misses + " misses, " + evictions + " evictions";
+		}
+	}
+
+	private static ByteBuffer fingerprint(byte[] encoded) {
+		try {
+			return ByteBuffer.wrap(
+					MessageDigest.getInstance("SHA-256").digest(encoded));
+		}
+		catch (NoSuchAlgorithmException e) {
+			// every Java platform implementation is required to support SHA-256
+			throw new RuntimeException(e);
+		}
+	}
+}
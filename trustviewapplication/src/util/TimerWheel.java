@@ -0,0 +1,133 @@
+/*
+ * This file is part of the CA Trust Management System (CA-TMS)
+ *
+ * Copyright 2015 by CA-TMS Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hashed timer wheel that keeps track of the expiration times of keys.
+ *
+ * <p>Keys are distributed over a fixed number of slots according to their
+ * expiration time. Advancing the wheel only visits the slots whose time has
+ * passed since the last advance, so that expired keys can be found without
+ * scanning all keys. Keys that expire more than one revolution of the wheel
+ * ahead stay in their slot until their expiration time is reached.</p>
+ *
+ * @param <K> the type of the keys
+ *
+ * @author Pascal Weisenburger
+ */
+public final class TimerWheel<K> {
+	private final long tickMillis;
+	private final List<Set<K>> slots;
+	private final Map<K, Long> expirations = new HashMap<>();
+	private long currentTick;
+
+	/**
+	 * Creates a new <code>TimerWheel</code> instance
+	 * @param slotCount the number of slots of the wheel
+	 * @param tickMillis the time span covered by each slot in milliseconds
+	 */
+	public TimerWheel(int slotCount, long tickMillis) {
+		if (slotCount <= 0 || tickMillis <= 0)
+			throw new IllegalArgumentException(
+					"slot count and tick duration must be positive");
+
+		this.tickMillis = tickMillis;
+		this.slots = new ArrayList<>(slotCount);
+		for (int i = 0; i < slotCount; i++)
+			slots.add(new HashSet<K>());
+		this.currentTick = System.currentTimeMillis() / tickMillis;
+	}
+
+	/**
+	 * Schedules the given key to expire at the given time; a previously
+	 * scheduled expiration time for the key is replaced
+	 * @param key
+	 * @param expirationMillis
+	 */
+	public synchronized void schedule(K key, long expirationMillis) {
+		Long previousExpirationMillis = expirations.put(key, expirationMillis);
+		if (previousExpirationMillis != null)
+			getSlot(previousExpirationMillis).remove(key);
+		getSlot(expirationMillis).add(key);
+	}
+
+	/**
+	 * Removes the given key from the wheel
+	 * @param key
+	 */
+	public synchronized void cancel(K key) {
+		Long expirationMillis = expirations.remove(key);
+		if (expirationMillis != null)
+			getSlot(expirationMillis).remove(key);
+	}
+
+	/**
+	 * Advances the wheel to the given time and removes all keys
+	 * that expired until then
+	 * @return the expired keys
+	 * @param nowMillis
+	 */
+	public synchronized List<K> advance(long nowMillis) {
+		final List<K> expired = new ArrayList<>();
+		final long nowTick = nowMillis / tickMillis;
+		if (nowTick < currentTick)
+			return expired;
+
+		// the slot of the current tick is visited again on the next advance,
+		// since it may contain keys expiring later within the same tick
+		final long ticks = Math.min(nowTick - currentTick + 1, slots.size());
+		for (long tick = currentTick; tick < currentTick + ticks; tick++) {
+			Iterator<K> iterator = slots.get(getSlotIndex(tick)).iterator();
+			while (iterator.hasNext()) {
+				K key = iterator.next();
+				if (expirations.get(key) <= nowMillis) {
+					expirations.remove(key);
+					iterator.remove();
+					expired.add(key);
+				}
+			}
+		}
+
+		currentTick = nowTick;
+		return expired;
+	}
+
+	/**
+	 * @return the number of keys that are currently scheduled
+	 */
+	public synchronized int size() {
+		return expirations.size();
+	}
+
+	private Set<K> getSlot(long expirationMillis) {
+		return slots.get(getSlotIndex(
+				Math.max(expirationMillis / tickMillis, currentTick)));
+	}
+
+	private int getSlotIndex(long tick) {
+		return (int) (tick % slots.size());
+	}
+}
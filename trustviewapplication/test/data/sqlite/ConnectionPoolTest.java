@@ -0,0 +1,104 @@
+package data.sqlite;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ConnectionPoolTest {
+	private static final String DATABASE_FILE_NAME =
+			"catms-test-working-dir" + File.separator + "connection-pool.sqlite";
+
+	private static ConnectionPool createPool(int maxConnections) {
+		File databaseFile = new File(DATABASE_FILE_NAME);
+		databaseFile.getParentFile().mkdirs();
+		databaseFile.delete();
+
+		SQLiteStorageProfile storageProfile = SQLiteStorageProfile.DEFAULT;
+		return new ConnectionPool("jdbc:sqlite:" + databaseFile.getPath(),
+				storageProfile.createConfig(), storageProfile, maxConnections);
+	}
+
+	@Test
+	public void returnedConnectionIsReusedWithItsStatements() throws Exception {
+		ConnectionPool pool = createPool(2);
+		try {
+			CachingConnection connection = pool.getConnection();
+			PreparedStatement statement = connection.prepareStatement("SELECT 1");
+			connection.close();
+
+			try (CachingConnection reusedConnection = pool.getConnection()) {
+				assertSame(connection, reusedConnection);
+				assertSame(statement, reusedConnection.prepareStatement("SELECT 1"));
+			}
+		}
+		finally {
+			pool.dispose();
+		}
+	}
+
+	@Test
+	public void checkoutWaitsForReturnedConnection() throws Exception {
+		final ConnectionPool pool = createPool(1);
+		try {
+			CachingConnection connection = pool.getConnection();
+
+			FutureTask<CachingConnection> checkout = new FutureTask<>(
+					new Callable<CachingConnection>() {
+				@Override
+				public CachingConnection call() throws SQLException {
+					return pool.getConnection();
+				}
+			});
+			Thread thread = new Thread(checkout);
+			thread.start();
+
+			long deadline = System.currentTimeMillis() + 10000;
+			while (thread.getState() != Thread.State.TIMED_WAITING &&
+					System.currentTimeMillis() < deadline)
+				Thread.sleep(10);
+			assertFalse(checkout.isDone());
+
+			connection.close();
+			try (CachingConnection waitingConnection =
+					checkout.get(10, TimeUnit.SECONDS)) {
+				assertSame(connection, waitingConnection);
+			}
+		}
+		finally {
+			pool.dispose();
+		}
+	}
+
+	@Test
+	public void disposedPoolClosesReturnedConnections() throws Exception {
+		ConnectionPool pool = createPool(2);
+		CachingConnection idleConnection = pool.getConnection();
+		CachingConnection connection = pool.getConnection();
+		idleConnection.close();
+
+		pool.dispose();
+		assertTrue(idleConnection.getConnection().isClosed());
+		assertFalse(connection.getConnection().isClosed());
+
+		connection.close();
+		assertTrue(connection.getConnection().isClosed());
+
+		boolean rejected = false;
+		try {
+			pool.getConnection();
+		}
+		catch (SQLException e) {
+			rejected = true;
+		}
+		assertTrue(rejected);
+	}
+}
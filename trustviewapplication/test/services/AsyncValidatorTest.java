@@ -0,0 +1,67 @@
+package services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Test;
+
+import util.CertificatePathValidity;
+import data.TrustCertificate;
+
+public class AsyncValidatorTest {
+	// requests for invalid certificate paths are validated right away
+	// without accessing the data model
+	private static ValidationRequest invalidRequest() {
+		return new ValidationRequest("https://invalid.example.com/",
+				Collections.<TrustCertificate>emptyList(),
+				CertificatePathValidity.INVALID, 0.5,
+				ValidationRequestSpec.VALIDATE);
+	}
+
+	@Test
+	public void ticketsAreIssuedUntilTheLimitIsReached() throws Exception {
+		// the tickets are registered for the whole process,
+		// so they are forgotten again when the test is finished
+		List<AsyncValidator.Ticket> tickets = new ArrayList<>();
+		try {
+			AsyncValidator.Ticket ticket = AsyncValidator.validate(invalidRequest());
+			tickets.add(ticket);
+			assertTrue(ticket.isDone());
+			assertEquals(ValidationResult.UNKNOWN,
+					ticket.getResult().getValidationResult());
+			assertSame(ticket, AsyncValidator.getTicket(ticket.getId()));
+			assertNull(AsyncValidator.getTicket("unknown"));
+
+			for (int i = 1; i < AsyncValidator.MAX_OUTSTANDING_TICKETS; i++)
+				tickets.add(AsyncValidator.validate(invalidRequest()));
+
+			boolean rejected = false;
+			try {
+				tickets.add(AsyncValidator.validate(invalidRequest()));
+			}
+			catch (RejectedExecutionException e) {
+				rejected = true;
+			}
+			assertTrue(rejected);
+
+			// tickets that were issued remain available
+			assertSame(ticket, AsyncValidator.getTicket(ticket.getId()));
+		}
+		finally {
+			for (AsyncValidator.Ticket ticket : tickets)
+				AsyncValidator.unregister(ticket);
+		}
+
+		// tickets are issued again once there are fewer outstanding tickets
+		AsyncValidator.Ticket ticket = AsyncValidator.validate(invalidRequest());
+		AsyncValidator.unregister(ticket);
+		assertNull(AsyncValidator.getTicket(ticket.getId()));
+	}
+}
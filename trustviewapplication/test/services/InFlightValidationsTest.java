@@ -0,0 +1,167 @@
+package services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import util.CertificatePathValidity;
+import data.ModelAccessException;
+import data.TrustCertificate;
+
+public class InFlightValidationsTest {
+	Date notBefore = new Date();
+	Date notAfter = new Date(notBefore.getTime() + 86400000);
+
+	private ValidationRequest request(String url) {
+		// the certificates are equal to, but not the same instances as
+		// the certificates of other requests
+		return new ValidationRequest(url,
+				Arrays.asList(
+					new TrustCertificate("01", "RCA1", "RCA1", "RCA1-Key", notBefore, notAfter),
+					new TrustCertificate("02", "RCA1", "EE1", "EE1-Key", notBefore, notAfter)),
+				CertificatePathValidity.VALID, 0.5,
+				ValidationRequestSpec.VALIDATE);
+	}
+
+	/**
+	 * Validation that blocks until it is released
+	 */
+	private static final class BlockingValidation
+			implements Callable<ValidationInformation> {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch released = new CountDownLatch(1);
+		final AtomicInteger calls = new AtomicInteger();
+		final ValidationInformation result = new ValidationInformation(
+				ValidationResult.TRUSTED, ValidationResultSpec.VALIDATED);
+
+		@Override
+		public ValidationInformation call() throws Exception {
+			calls.incrementAndGet();
+			started.countDown();
+			released.await();
+			return result;
+		}
+	}
+
+	private static Future<ValidationInformation> validateConcurrently(
+			ExecutorService executor, final ValidationRequest request,
+			final Callable<ValidationInformation> validation) {
+		return executor.submit(new Callable<ValidationInformation>() {
+			@Override
+			public ValidationInformation call() throws Exception {
+				return InFlightValidations.validate(request, validation);
+			}
+		});
+	}
+
+	@Test
+	public void identicalRequestsAreValidatedOnce() throws Exception {
+		ExecutorService executor = Executors.newCachedThreadPool();
+		try {
+			BlockingValidation validation = new BlockingValidation();
+			final BlockingValidation identicalValidation = new BlockingValidation();
+
+			Future<ValidationInformation> first = validateConcurrently(executor,
+					request("https://www.example.com/"), validation);
+			assertTrue(validation.started.await(10, TimeUnit.SECONDS));
+
+			// the request targets the same host
+			final ValidationRequest identicalRequest =
+					request("https://www.example.com/index.html");
+			FutureTask<ValidationInformation> second = new FutureTask<>(
+					new Callable<ValidationInformation>() {
+				@Override
+				public ValidationInformation call() throws Exception {
+					return InFlightValidations.validate(
+							identicalRequest, identicalValidation);
+				}
+			});
+			Thread thread = new Thread(second);
+			thread.start();
+
+			// the first validation completes only after
+			// the identical request waits for it
+			long deadline = System.currentTimeMillis() + 10000;
+			while (thread.getState() != Thread.State.WAITING &&
+					System.currentTimeMillis() < deadline)
+				Thread.sleep(10);
+
+			validation.released.countDown();
+			identicalValidation.released.countDown();
+			assertSame(validation.result, first.get(10, TimeUnit.SECONDS));
+			assertSame(validation.result, second.get(10, TimeUnit.SECONDS));
+			assertEquals(1, validation.calls.get());
+			assertEquals(0, identicalValidation.calls.get());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void requestsForDifferentHostsAreValidatedSeparately()
+			throws Exception {
+		ExecutorService executor = Executors.newCachedThreadPool();
+		try {
+			BlockingValidation validation = new BlockingValidation();
+			BlockingValidation otherValidation = new BlockingValidation();
+
+			Future<ValidationInformation> first = validateConcurrently(executor,
+					request("https://www.example.com/"), validation);
+			assertTrue(validation.started.await(10, TimeUnit.SECONDS));
+
+			Future<ValidationInformation> second = validateConcurrently(executor,
+					request("https://mail.example.com/"), otherValidation);
+			assertTrue(otherValidation.started.await(10, TimeUnit.SECONDS));
+
+			validation.released.countDown();
+			otherValidation.released.countDown();
+			assertSame(validation.result, first.get(10, TimeUnit.SECONDS));
+			assertSame(otherValidation.result, second.get(10, TimeUnit.SECONDS));
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void finishedValidationIsNotReused() throws Exception {
+		final AtomicInteger calls = new AtomicInteger();
+		Callable<ValidationInformation> validation =
+				new Callable<ValidationInformation>() {
+			@Override
+			public ValidationInformation call() throws ModelAccessException {
+				if (calls.incrementAndGet() == 1)
+					throw new ModelAccessException("validation failed");
+				return new ValidationInformation(
+						ValidationResult.TRUSTED, ValidationResultSpec.VALIDATED);
+			}
+		};
+
+		boolean failed = false;
+		try {
+			InFlightValidations.validate(request("https://www.example.com/"), validation);
+		}
+		catch (ModelAccessException e) {
+			failed = true;
+		}
+		assertTrue(failed);
+
+		assertEquals(ValidationResult.TRUSTED, InFlightValidations.validate(
+				request("https://www.example.com/"), validation).getValidationResult());
+		assertEquals(2, calls.get());
+	}
+}
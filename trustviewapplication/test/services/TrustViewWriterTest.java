@@ -0,0 +1,205 @@
+package services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import test.GlobalModel;
+import data.Model;
+import data.ModelAccessException;
+import data.TrustCertificate;
+import data.TrustView;
+
+public class TrustViewWriterTest {
+	Date notBefore = new Date();
+	Date notAfter = new Date(notBefore.getTime() + 86400000);
+
+	TrustCertificate RCA1_EE1 = new TrustCertificate("02", "RCA1", "EE1", "EE1-Key", notBefore, notAfter);
+	TrustCertificate RCA1_EE2 = new TrustCertificate("03", "RCA1", "EE2", "EE2-Key", notBefore, notAfter);
+
+	/**
+	 * Update that keeps the writer busy until it is released,
+	 * so that the following updates are queued
+	 */
+	private static final class BlockingUpdate
+			extends TrustViewWriter.Update<Void> {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch released = new CountDownLatch(1);
+
+		@Override
+		protected Void update(TrustView trustView) {
+			started.countDown();
+			try {
+				released.await();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Update that trusts the given certificate and counts how often
+	 * it is performed
+	 */
+	private static class TrustingUpdate extends TrustViewWriter.Update<Void> {
+		final TrustCertificate certificate;
+		final AtomicInteger performed = new AtomicInteger();
+
+		TrustingUpdate(TrustCertificate certificate) {
+			this.certificate = certificate;
+		}
+
+		@Override
+		protected Void update(TrustView trustView) throws ModelAccessException {
+			performed.incrementAndGet();
+			trustView.setTrustedCertificate(certificate);
+			return null;
+		}
+	}
+
+	private static BlockingUpdate blockWriter() throws InterruptedException {
+		BlockingUpdate update = new BlockingUpdate();
+		TrustViewWriter.submit(update, TrustViewWriter.Priority.BACKGROUND);
+		assertTrue(update.started.await(10, TimeUnit.SECONDS));
+		return update;
+	}
+
+	/**
+	 * Performs the given update in a new thread and returns after
+	 * the update is queued
+	 */
+	private static <T> FutureTask<T> updateConcurrently(
+			final TrustViewWriter.Update<T> update,
+			final TrustViewWriter.Priority priority) throws InterruptedException {
+		FutureTask<T> task = new FutureTask<>(new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				return TrustViewWriter.update(update, priority);
+			}
+		});
+		Thread thread = new Thread(task);
+		thread.start();
+
+		long deadline = System.currentTimeMillis() + 10000;
+		while (thread.getState() != Thread.State.WAITING &&
+				System.currentTimeMillis() < deadline)
+			Thread.sleep(10);
+		return task;
+	}
+
+	private static boolean isCertificateTrusted(TrustCertificate certificate)
+			throws ModelAccessException {
+		try (TrustView trustView = Model.openReadOnlyTrustView()) {
+			return trustView.isCertificateTrusted(certificate);
+		}
+	}
+
+	@Test
+	public void queuedUpdatesArePerformedByPriority() throws Exception {
+		GlobalModel.install();
+
+		final List<TrustViewWriter.Priority> performed =
+				Collections.synchronizedList(new ArrayList<TrustViewWriter.Priority>());
+		List<FutureTask<Void>> tasks = new ArrayList<>();
+
+		BlockingUpdate blockingUpdate = blockWriter();
+		for (final TrustViewWriter.Priority priority : Arrays.asList(
+				TrustViewWriter.Priority.BACKGROUND,
+				TrustViewWriter.Priority.INTERACTIVE,
+				TrustViewWriter.Priority.BOOTSTRAP))
+			tasks.add(updateConcurrently(new TrustViewWriter.Update<Void>() {
+				@Override
+				protected Void update(TrustView trustView) {
+					performed.add(priority);
+					return null;
+				}
+			}, priority));
+		blockingUpdate.released.countDown();
+
+		for (FutureTask<Void> task : tasks)
+			task.get(10, TimeUnit.SECONDS);
+		assertEquals(Arrays.asList(
+				TrustViewWriter.Priority.INTERACTIVE,
+				TrustViewWriter.Priority.BOOTSTRAP,
+				TrustViewWriter.Priority.BACKGROUND), performed);
+	}
+
+	@Test
+	public void discardedUpdateIsRolledBackAndOthersAreReplayed()
+			throws Exception {
+		GlobalModel.install();
+
+		TrustingUpdate committedUpdate = new TrustingUpdate(RCA1_EE1);
+		TrustingUpdate discardedUpdate = new TrustingUpdate(RCA1_EE2) {
+			@Override
+			protected boolean isCommittable(Void result) {
+				return false;
+			}
+		};
+
+		BlockingUpdate blockingUpdate = blockWriter();
+		FutureTask<Void> committed = updateConcurrently(
+				committedUpdate, TrustViewWriter.Priority.BACKGROUND);
+		FutureTask<Void> discarded = updateConcurrently(
+				discardedUpdate, TrustViewWriter.Priority.BACKGROUND);
+		blockingUpdate.released.countDown();
+
+		committed.get(10, TimeUnit.SECONDS);
+		discarded.get(10, TimeUnit.SECONDS);
+		assertEquals(2, committedUpdate.performed.get());
+		assertEquals(1, discardedUpdate.performed.get());
+		assertTrue(isCertificateTrusted(RCA1_EE1));
+		assertFalse(isCertificateTrusted(RCA1_EE2));
+	}
+
+	@Test
+	public void failedUpdateIsReportedAndOthersAreCommitted() throws Exception {
+		GlobalModel.install();
+
+		TrustingUpdate committedUpdate = new TrustingUpdate(RCA1_EE1);
+		TrustingUpdate failedUpdate = new TrustingUpdate(RCA1_EE2) {
+			@Override
+			protected Void update(TrustView trustView)
+					throws ModelAccessException {
+				super.update(trustView);
+				throw new ModelAccessException("update failed");
+			}
+		};
+
+		BlockingUpdate blockingUpdate = blockWriter();
+		FutureTask<Void> committed = updateConcurrently(
+				committedUpdate, TrustViewWriter.Priority.BACKGROUND);
+		FutureTask<Void> failed = updateConcurrently(
+				failedUpdate, TrustViewWriter.Priority.BACKGROUND);
+		blockingUpdate.released.countDown();
+
+		committed.get(10, TimeUnit.SECONDS);
+		boolean reported = false;
+		try {
+			failed.get(10, TimeUnit.SECONDS);
+		}
+		catch (ExecutionException e) {
+			reported = e.getCause() instanceof ModelAccessException;
+		}
+		assertTrue(reported);
+		assertEquals(2, committedUpdate.performed.get());
+		assertTrue(isCertificateTrusted(RCA1_EE1));
+		assertFalse(isCertificateTrusted(RCA1_EE2));
+	}
+}
@@ -0,0 +1,205 @@
+package services.bindings;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class HttpConnectionTest {
+	// a connection of the web server and the client connected to it
+	private static final class Pair {
+		final ServerSocketChannel server;
+		final SocketChannel client;
+		final HttpConnection connection;
+
+		Pair() throws IOException {
+			server = ServerSocketChannel.open();
+			server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+			client = SocketChannel.open(server.getLocalAddress());
+			connection = new HttpConnection(server.accept(), Long.MAX_VALUE);
+		}
+
+		void send(String data) throws IOException {
+			send(data.getBytes(StandardCharsets.ISO_8859_1));
+		}
+
+		void send(byte[] data) throws IOException {
+			ByteBuffer buffer = ByteBuffer.wrap(data);
+			while (buffer.hasRemaining())
+				client.write(buffer);
+		}
+
+		// reads from the channel until a complete request is available
+		HttpConnection.Request receive()
+				throws IOException, HttpConnection.RequestException {
+			HttpConnection.Request request;
+			while ((request = connection.nextRequest()) == null)
+				assertTrue(connection.read());
+			return request;
+		}
+
+		// reads from the channel until the request is rejected
+		String receiveStatus() throws IOException {
+			try {
+				HttpConnection.Request request = receive();
+				return "parsed " + request.getMethod() + " " + request.getTarget();
+			}
+			catch (HttpConnection.RequestException e) {
+				return e.getStatus();
+			}
+		}
+
+		void close() throws IOException {
+			client.close();
+			connection.getChannel().close();
+			server.close();
+		}
+	}
+
+	private static String rejectionStatus(String request) throws IOException {
+		Pair pair = new Pair();
+		try {
+			pair.send(request);
+			return pair.receiveStatus();
+		}
+		finally {
+			pair.close();
+		}
+	}
+
+	@Test
+	public void requestIsParsedFromFragments() throws Exception {
+		Pair pair = new Pair();
+		try {
+			String body = "{\"url\":\"https://example.com\"}";
+			String[] fragments = {
+					"PO", "ST / HT", "TP/1.1\r\nHost: local", "host\r",
+					"\nContent-Type: application/json\r\nContent-Length: " +
+					body.length() + "\r\n\r", "\n{\"url\":", "\"https://example.com\"}" };
+
+			for (int i = 0; i < fragments.length - 1; i++) {
+				pair.send(fragments[i]);
+				assertTrue(pair.connection.read());
+				assertNull(pair.connection.nextRequest());
+				assertTrue(pair.connection.hasPartialRequest());
+			}
+			pair.send(fragments[fragments.length - 1]);
+
+			HttpConnection.Request request = pair.receive();
+			assertEquals("POST", request.getMethod());
+			assertEquals("/", request.getTarget());
+			assertEquals("localhost", request.getHeader("HOST"));
+			assertEquals("application/json", request.getHeader("content-type"));
+			assertEquals(body, new String(request.getBody(), StandardCharsets.UTF_8));
+			assertTrue(request.isKeepAlive());
+			assertFalse(pair.connection.hasPartialRequest());
+		}
+		finally {
+			pair.close();
+		}
+	}
+
+	@Test
+	public void pipelinedRequestsAreParsedInOrder() throws Exception {
+		Pair pair = new Pair();
+		try {
+			pair.send(
+					"POST /batch HTTP/1.1\r\nContent-Length: 2\r\n\r\n[]" +
+					"GET /result?ticket=1 HTTP/1.1\r\n\r\n" +
+					"POST /async HTTP/1.1\r\nConnection: close\r\n" +
+					"Content-Length: 3\r\n\r\nabc");
+
+			HttpConnection.Request first = pair.receive();
+			assertEquals("/batch", first.getTarget());
+			assertEquals("[]", new String(first.getBody(), StandardCharsets.UTF_8));
+			assertTrue(first.isKeepAlive());
+
+			HttpConnection.Request second = pair.receive();
+			assertEquals("GET", second.getMethod());
+			assertEquals("/result?ticket=1", second.getTarget());
+			assertEquals(0, second.getBody().length);
+
+			HttpConnection.Request third = pair.receive();
+			assertEquals("/async", third.getTarget());
+			assertEquals("abc", new String(third.getBody(), StandardCharsets.UTF_8));
+			assertFalse(third.isKeepAlive());
+
+			assertNull(pair.connection.nextRequest());
+			assertFalse(pair.connection.hasPartialRequest());
+		}
+		finally {
+			pair.close();
+		}
+	}
+
+	@Test
+	public void requestsLargerThanTheInitialBufferAreParsed() throws Exception {
+		Pair pair = new Pair();
+		try {
+			byte[] body = new byte[40 * 1024];
+			Arrays.fill(body, (byte) 'x');
+			pair.send("POST / HTTP/1.0\r\nConnection: keep-alive\r\n" +
+					"Content-Length: " + body.length + "\r\n\r\n");
+			pair.send(body);
+			pair.send("GET / HTTP/1.0\r\n\r\n");
+
+			HttpConnection.Request first = pair.receive();
+			assertTrue(Arrays.equals(body, first.getBody()));
+			assertTrue(first.isKeepAlive());
+
+			HttpConnection.Request second = pair.receive();
+			assertEquals("GET", second.getMethod());
+			assertFalse(second.isKeepAlive());
+		}
+		finally {
+			pair.close();
+		}
+	}
+
+	@Test
+	public void malformedRequestsAreRejected() throws Exception {
+		assertEquals("400 Bad Request",
+				rejectionStatus("POST /\r\nContent-Length: 0\r\n\r\n"));
+		assertEquals("400 Bad Request",
+				rejectionStatus("POST / SPDY/3\r\nContent-Length: 0\r\n\r\n"));
+		assertEquals("400 Bad Request",
+				rejectionStatus("POST / HTTP/1.1\r\nContent-Length 0\r\n\r\n"));
+		assertEquals("400 Bad Request",
+				rejectionStatus("POST / HTTP/1.1\r\nContent-Length: ten\r\n\r\n"));
+		assertEquals("400 Bad Request",
+				rejectionStatus("POST / HTTP/1.1\r\nContent-Length: -1\r\n\r\n"));
+	}
+
+	@Test
+	public void requestsWithoutContentLengthAreRejected() throws Exception {
+		assertEquals("411 Length Required",
+				rejectionStatus("POST / HTTP/1.1\r\n\r\n"));
+		assertEquals("411 Length Required",
+				rejectionStatus("POST / HTTP/1.1\r\n" +
+						"Transfer-Encoding: chunked\r\n\r\n0\r\n\r\n"));
+	}
+
+	@Test
+	public void oversizedRequestsAreRejected() throws Exception {
+		assertEquals("413 Payload Too Large",
+				rejectionStatus("POST / HTTP/1.1\r\nContent-Length: " +
+						(HttpConnection.MAX_BODY_BYTES + 1) + "\r\n\r\n"));
+
+		StringBuilder header = new StringBuilder("POST / HTTP/1.1\r\nX-Padding: ");
+		while (header.length() <= HttpConnection.MAX_HEADER_BYTES)
+			header.append("padding");
+		assertEquals("431 Request Header Fields Too Large",
+				rejectionStatus(header.toString()));
+	}
+}
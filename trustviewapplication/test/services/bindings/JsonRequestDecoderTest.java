@@ -0,0 +1,104 @@
+package services.bindings;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.X509Certificate;
+import java.util.List;
+
+import javax.json.JsonException;
+import javax.xml.bind.DatatypeConverter;
+
+import org.junit.Test;
+
+import services.ValidationRequest;
+import services.ValidationRequestSpec;
+import test.GlobalModel;
+import test.TestCertificates;
+import util.CertificatePathValidity;
+
+public class JsonRequestDecoderTest {
+	private static ByteArrayInputStream stream(String json) {
+		return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String base64(X509Certificate certificate) throws Exception {
+		return "\"" + DatatypeConverter.printBase64Binary(certificate.getEncoded()) + "\"";
+	}
+
+	private static String byteArray(X509Certificate certificate) throws Exception {
+		StringBuilder builder = new StringBuilder("[");
+		for (byte b : certificate.getEncoded()) {
+			if (builder.length() > 1)
+				builder.append(",");
+			builder.append(b);
+		}
+		return builder.append("]").toString();
+	}
+
+	@Test
+	public void requestIsDecodedFromStream() throws Exception {
+		GlobalModel.install();
+		TestCertificates certificates = new TestCertificates();
+		X509Certificate ca = certificates.getCACertificate();
+		X509Certificate host = certificates.issueCertificate(2, "www.example.com");
+
+		// certificates are either base64 strings or arrays of byte values,
+		// unknown members are skipped
+		ValidationRequest request = JsonRequestDecoder.decode(stream(
+				"{\"url\": \"https://www.example.com/\"," +
+				" \"unknown\": {\"nested\": [1, {\"array\": []}]}," +
+				" \"certChain\": [" + base64(host) + ", " + byteArray(ca) + "]," +
+				" \"validationResult\": \"valid\"," +
+				" \"validationSpec\": \"retrieve-recommendation\"}"));
+
+		assertEquals("https://www.example.com/", request.getURL());
+		assertEquals(2, request.getCertificatePath().size());
+		assertEquals(host.getSerialNumber().toString(),
+				request.getCertificatePath().get(0).getSerial());
+		assertEquals(ca.getSerialNumber().toString(),
+				request.getCertificatePath().get(1).getSerial());
+		assertEquals(CertificatePathValidity.VALID,
+				request.getCertificatePathValidity());
+		assertEquals(ValidationRequestSpec.RETRIEVE_RECOMMENDATION,
+				request.getValidationRequestSpec());
+	}
+
+	@Test
+	public void requestsAreDecodedFromStreamUpToTheLimit() throws Exception {
+		GlobalModel.install();
+		TestCertificates certificates = new TestCertificates();
+		String request = "{\"url\": \"https://www.example.com/\", \"certChain\": [" +
+				base64(certificates.issueCertificate(2, "www.example.com")) + "]}";
+		String requests = "[" + request + ", " + request + "]";
+
+		List<ValidationRequest> decodedRequests =
+				JsonRequestDecoder.decodeAll(stream(requests), 2);
+		assertEquals(2, decodedRequests.size());
+		assertEquals(CertificatePathValidity.UNKNOWN,
+				decodedRequests.get(1).getCertificatePathValidity());
+
+		boolean rejected = false;
+		try {
+			JsonRequestDecoder.decodeAll(stream(requests), 1);
+		}
+		catch (JsonException e) {
+			rejected = true;
+		}
+		assertTrue(rejected);
+	}
+
+	@Test
+	public void requestWithoutCertificateChainIsRejected() throws Exception {
+		boolean rejected = false;
+		try {
+			JsonRequestDecoder.decode(stream("{\"url\": \"https://www.example.com/\"}"));
+		}
+		catch (JsonException e) {
+			rejected = true;
+		}
+		assertTrue(rejected);
+	}
+}
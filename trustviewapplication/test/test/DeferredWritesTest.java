@@ -0,0 +1,98 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.Test;
+
+import util.Option;
+
+import CertainTrust.CertainTrust;
+import data.ModelAccessException;
+import data.TrustAssessment;
+import data.TrustCertificate;
+import data.TrustView;
+
+public class DeferredWritesTest {
+	static final double EPSILON = 1e-10;
+
+	Date notBefore = new Date();
+	Date notAfter = new Date(notBefore.getTime() + 86400000);
+
+	TrustCertificate RCA1_RCA1 = new TrustCertificate("01", "RCA1", "RCA1", "RCA1-Key", notBefore, notAfter);
+	TrustCertificate RCA1_SCA1 = new TrustCertificate("02", "RCA1", "SCA1", "SCA1-Key", notBefore, notAfter);
+
+	private static TrustAssessment assessment(String k, String ca,
+			TrustCertificate S, CertainTrust o_it_ca) {
+		return new TrustAssessment(k, ca,
+				Collections.singleton(S), new Option<CertainTrust>(),
+				o_it_ca, new CertainTrust(10));
+	}
+
+	@Test
+	public void interleavedWritesKeepTheirOrder() throws Exception {
+		CertainTrust first = new CertainTrust(10);
+		first.addR(1);
+		CertainTrust second = new CertainTrust(10);
+		second.addR(2);
+
+		try (EmptyModel model = new EmptyModel()) {
+			try (TrustView trustView = model.openTrustView()) {
+				trustView.setAssessment(assessment("RCA1-Key", "RCA1", RCA1_RCA1, first));
+				trustView.setTrustedCertificate(RCA1_SCA1);
+				trustView.setAssessment(assessment("RCA1-Key", "RCA1", RCA1_RCA1, second));
+				trustView.setUntrustedCertificate(RCA1_SCA1);
+				trustView.setTrustedCertificate(RCA1_SCA1);
+				trustView.save();
+			}
+
+			try (TrustView trustView = model.openTrustView()) {
+				TrustAssessment assessment = trustView.getAssessment("RCA1-Key", "RCA1");
+				assertNotNull(assessment);
+				assertEquals(2.0, assessment.getO_it_ca().getR(), EPSILON);
+				assertEquals(1, assessment.getS().size());
+				assertTrue(trustView.isCertificateTrusted(RCA1_SCA1));
+				assertFalse(trustView.isCertificateUntrusted(RCA1_SCA1));
+			}
+		}
+	}
+
+	@Test
+	public void failedWriteIsNotCommitted() throws Exception {
+		try (EmptyModel model = new EmptyModel()) {
+			try (TrustView trustView = model.openTrustView()) {
+				trustView.setTrustedCertificate(RCA1_SCA1);
+
+				// a trust value out of range violates a CHECK constraint
+				// when the queued write is executed by the following query
+				trustView.setAssessment(assessment("RCA1-Key", "RCA1", RCA1_RCA1,
+						new CertainTrust(10) {
+							@Override
+							public double getT() {
+								return 2;
+							}
+						}));
+				trustView.getAssessment("SCA1-Key", "SCA1");
+
+				boolean failed = false;
+				try {
+					trustView.save();
+				}
+				catch (ModelAccessException e) {
+					failed = true;
+				}
+				assertTrue(failed);
+			}
+
+			try (TrustView trustView = model.openTrustView()) {
+				assertFalse(trustView.isCertificateTrusted(RCA1_SCA1));
+				assertEquals(0, trustView.getAssessments().size());
+			}
+		}
+	}
+}
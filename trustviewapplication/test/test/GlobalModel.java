@@ -0,0 +1,39 @@
+package test;
+
+import java.io.File;
+import java.lang.reflect.Field;
+
+import data.Model;
+import data.sqlite.SQLiteBackedModel;
+
+/**
+ * Sets up the data model that is accessed through {@link Model}, which is
+ * used by the services, so that it is stored in the test working directory
+ * instead of the user's data directory
+ */
+public final class GlobalModel {
+	private static final String DATABASE_FILE_NAME =
+			"catms-test-working-dir" + File.separator + "catms-global.sqlite";
+
+	private static boolean installed = false;
+
+	private GlobalModel() { }
+
+	public static synchronized void install() throws Exception {
+		if (!installed) {
+			File databaseFile = new File(DATABASE_FILE_NAME);
+			databaseFile.delete();
+
+			Field model = Model.class.getDeclaredField("model");
+			model.setAccessible(true);
+			SQLiteBackedModel previousModel = (SQLiteBackedModel) model.get(null);
+			model.set(null, new SQLiteBackedModel(databaseFile));
+			if (previousModel != null)
+				previousModel.close();
+			installed = true;
+		}
+
+		// erasing the data model also publishes its configuration snapshot
+		Model.erase();
+	}
+}
@@ -0,0 +1,182 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import util.Option;
+
+import buisness.RevocationValidation;
+import buisness.RevocationValidation.Validator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import data.CRLInfo;
+import data.RevocationStatus;
+import data.TrustCertificate;
+import data.TrustView;
+
+public class RevocationValidationTest {
+	static final int CRL_TIMEOUT_MILLIS = 10000;
+	static final int OCSP_TIMEOUT_MILLIS = 30000;
+	static final int OCSP_DELAY_MILLIS = 5000;
+
+	@Test
+	public void revokedCertificateIsRejectedBeforeAllServicesResponded()
+			throws Exception {
+		TestCertificates certificates = new TestCertificates();
+		HttpServer server = startServer(certificates.issueCRL(2).getEncoded());
+
+		try (EmptyModel model = new EmptyModel()) {
+			String url = "http://127.0.0.1:" + server.getAddress().getPort();
+			TrustCertificate ca = new TrustCertificate(certificates.getCACertificate());
+			TrustCertificate revoked = new TrustCertificate(
+					certificates.issueCertificate(2, "revoked.example.com",
+							url + "/ca.crl", url + "/ocsp"));
+
+			Validator validator = RevocationValidation.createValidator(
+					Arrays.asList(ca, revoked),
+					CRL_TIMEOUT_MILLIS, OCSP_TIMEOUT_MILLIS, OCSP_TIMEOUT_MILLIS);
+
+			try (TrustView trustView = model.openTrustView()) {
+				long startMillis = System.currentTimeMillis();
+				assertFalse(validator.validate(trustView));
+				assertTrue(System.currentTimeMillis() - startMillis < OCSP_DELAY_MILLIS);
+
+				assertTrue(trustView.isCertificateRevoked(revoked));
+				assertEquals(RevocationStatus.Status.REVOKED,
+						trustView.getRevocationStatus(revoked).getStatus());
+				trustView.save();
+			}
+		}
+		finally {
+			server.stop(0);
+		}
+	}
+
+	@Test
+	public void trustViewValidatorQueriesServicesWhenPrepared() throws Exception {
+		TestCertificates certificates = new TestCertificates();
+		HttpServer server = startServer(certificates.issueCRL(2).getEncoded());
+
+		try (EmptyModel model = new EmptyModel()) {
+			String url = "http://127.0.0.1:" + server.getAddress().getPort();
+			TrustCertificate ca = new TrustCertificate(certificates.getCACertificate());
+			TrustCertificate revoked = new TrustCertificate(
+					certificates.issueCertificate(2, "revoked.example.com",
+							url + "/ca.crl", null));
+
+			Validator validator;
+			try (TrustView trustView = model.openTrustView()) {
+				trustView.setTrustedCertificate(ca);
+				trustView.setTrustedCertificate(revoked);
+				trustView.save();
+			}
+			try (TrustView trustView = model.openTrustView()) {
+				validator = RevocationValidation.createValidator(
+						trustView, CRL_TIMEOUT_MILLIS, OCSP_TIMEOUT_MILLIS);
+				validator.prepare(trustView, 1);
+			}
+			validator.await();
+
+			// the revocation services are not queried again when validating
+			server.stop(0);
+
+			try (TrustView trustView = model.openTrustView()) {
+				assertFalse(validator.validate(trustView, 1));
+				assertTrue(trustView.isCertificateRevoked(revoked));
+				trustView.save();
+			}
+			assertTrue(validator.isFinished());
+		}
+		finally {
+			server.stop(0);
+		}
+	}
+
+	private static HttpServer startServer(final byte[] crl) throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/ca.crl", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				exchange.sendResponseHeaders(200, crl.length);
+				try (OutputStream stream = exchange.getResponseBody()) {
+					stream.write(crl);
+				}
+			}
+		});
+		// the OCSP service does not respond before the CRL revealed
+		// that the certificate is revoked
+		server.createContext("/ocsp", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					Thread.sleep(OCSP_DELAY_MILLIS);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				exchange.sendResponseHeaders(500, -1);
+				exchange.close();
+			}
+		});
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+		return server;
+	}
+
+	@Test
+	public void certificateIsValidatedAgainstStoredCRL() throws Exception {
+		TestCertificates certificates = new TestCertificates();
+		TrustCertificate ca = new TrustCertificate(certificates.getCACertificate());
+		TrustCertificate revoked = new TrustCertificate(
+				certificates.issueCertificate(4, "revoked.example.com"));
+		TrustCertificate good = new TrustCertificate(
+				certificates.issueCertificate(5, "good.example.com"));
+		List<String> urls = Collections.singletonList(TestCertificates.CRL_URL);
+
+		try (EmptyModel model = new EmptyModel()) {
+			try (TrustView trustView = model.openTrustView()) {
+				trustView.addCRL(new CRLInfo(ca, urls,
+						new Option<Date>(new Date(System.currentTimeMillis() +
+								TestCertificates.DAY_MILLIS)),
+						new Option<>(certificates.issueCRL(4))));
+				trustView.save();
+			}
+
+			// the revocation information is gathered using a trust view
+			// that is closed before the certificates are validated
+			Validator revokedValidator = RevocationValidation.createValidator(
+					Arrays.asList(ca, revoked), CRL_TIMEOUT_MILLIS, OCSP_TIMEOUT_MILLIS);
+			Validator goodValidator = RevocationValidation.createValidator(
+					Arrays.asList(ca, good), CRL_TIMEOUT_MILLIS, OCSP_TIMEOUT_MILLIS);
+			try (TrustView trustView = model.openTrustView()) {
+				revokedValidator.prepare(trustView);
+				goodValidator.prepare(trustView);
+			}
+			revokedValidator.await();
+			goodValidator.await();
+
+			try (TrustView trustView = model.openTrustView()) {
+				assertFalse(revokedValidator.validate(trustView));
+				assertTrue(goodValidator.validate(trustView));
+				assertTrue(trustView.isCertificateRevoked(revoked));
+				assertFalse(trustView.isCertificateRevoked(good));
+				trustView.save();
+			}
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+import util.Option;
+
+import data.CRLAccessException;
+import data.CRLInfo;
+import data.TrustCertificate;
+import data.TrustView;
+
+public class StoredCRLTest {
+	static final List<String> URLS = Collections.singletonList(TestCertificates.CRL_URL);
+
+	static final List<String> OTHER_URLS =
+			Collections.singletonList("http://crl.example.invalid/other.crl");
+
+	private static void addCRL(EmptyModel model, TrustCertificate crlIssuer,
+			java.security.cert.CRL crl) throws Exception {
+		addCRL(model, crlIssuer, URLS, crl);
+	}
+
+	private static void addCRL(EmptyModel model, TrustCertificate crlIssuer,
+			List<String> urls, java.security.cert.CRL crl) throws Exception {
+		try (TrustView trustView = model.openTrustView()) {
+			trustView.addCRL(new CRLInfo(crlIssuer, urls,
+					new Option<Date>(new Date(System.currentTimeMillis() +
+							TestCertificates.DAY_MILLIS)),
+					new Option<>(crl)));
+			trustView.save();
+		}
+	}
+
+	private static CRLInfo getCRL(EmptyModel model, TrustCertificate crlIssuer)
+			throws Exception {
+		return getCRL(model, crlIssuer, URLS);
+	}
+
+	private static CRLInfo getCRL(EmptyModel model, TrustCertificate crlIssuer,
+			List<String> urls) throws Exception {
+		try (TrustView trustView = model.openTrustView()) {
+			return trustView.getCRL(new CRLInfo(crlIssuer, urls));
+		}
+	}
+
+	@Test
+	public void storedCRLIsUsableAfterClosingTheTrustView() throws Exception {
+		TestCertificates certificates = new TestCertificates();
+		TrustCertificate ca = new TrustCertificate(certificates.getCACertificate());
+		TrustCertificate revoked = new TrustCertificate(
+				certificates.issueCertificate(2, "revoked.example.com"));
+		TrustCertificate good = new TrustCertificate(
+				certificates.issueCertificate(3, "good.example.com"));
+
+		try (EmptyModel model = new EmptyModel()) {
+			addCRL(model, ca, certificates.issueCRL(2));
+
+			CRLInfo crlInfo = getCRL(model, ca);
+			assertNotNull(crlInfo);
+			assertTrue(crlInfo.getCRL().isSet());
+			assertTrue(crlInfo.isRevoked(revoked));
+			assertFalse(crlInfo.isRevoked(good));
+		}
+	}
+
+	@Test
+	public void newerCRLReplacesRevokedSerials() throws Exception {
+		TestCertificates certificates = new TestCertificates();
+		TrustCertificate ca = new TrustCertificate(certificates.getCACertificate());
+		TrustCertificate first = new TrustCertificate(
+				certificates.issueCertificate(2, "first.example.com"));
+		TrustCertificate second = new TrustCertificate(
+				certificates.issueCertificate(3, "second.example.com"));
+
+		try (EmptyModel model = new EmptyModel()) {
+			addCRL(model, ca, certificates.issueCRL(2));
+			addCRL(model, ca, certificates.issueCRL(3));
+
+			CRLInfo crlInfo = getCRL(model, ca);
+			assertNotNull(crlInfo);
+			assertFalse(crlInfo.isRevoked(first));
+			assertTrue(crlInfo.isRevoked(second));
+		}
+	}
+
+	@Test
+	public void crlsOfTheSameIssuerKeepTheirRevokedSerials() throws Exception {
+		TestCertificates certificates = new TestCertificates();
+		TrustCertificate ca = new TrustCertificate(certificates.getCACertificate());
+		TrustCertificate first = new TrustCertificate(
+				certificates.issueCertificate(2, "first.example.com"));
+		TrustCertificate second = new TrustCertificate(
+				certificates.issueCertificate(3, "second.example.com"));
+
+		try (EmptyModel model = new EmptyModel()) {
+			addCRL(model, ca, URLS, certificates.issueCRL(2));
+			addCRL(model, ca, OTHER_URLS, certificates.issueCRL(3));
+
+			CRLInfo crlInfo = getCRL(model, ca, URLS);
+			assertTrue(crlInfo.isRevoked(first));
+			assertFalse(crlInfo.isRevoked(second));
+
+			CRLInfo otherCRLInfo = getCRL(model, ca, OTHER_URLS);
+			assertFalse(otherCRLInfo.isRevoked(first));
+			assertTrue(otherCRLInfo.isRevoked(second));
+		}
+	}
+
+	@Test
+	public void failedLookupIsNotTreatedAsNotRevoked() throws Exception {
+		TestCertificates certificates = new TestCertificates();
+		TrustCertificate ca = new TrustCertificate(certificates.getCACertificate());
+		TrustCertificate good = new TrustCertificate(
+				certificates.issueCertificate(3, "good.example.com"));
+
+		CRLInfo crlInfo;
+		try (EmptyModel model = new EmptyModel()) {
+			addCRL(model, ca, certificates.issueCRL(2));
+			crlInfo = getCRL(model, ca);
+		}
+
+		// the revoked serials cannot be looked up
+		// after the data model has been closed
+		boolean failed = false;
+		try {
+			crlInfo.isRevoked(good);
+		}
+		catch (CRLAccessException e) {
+			failed = true;
+		}
+		assertTrue(failed);
+	}
+}
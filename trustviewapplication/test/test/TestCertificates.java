@@ -0,0 +1,129 @@
+package test;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.bouncycastle.asn1.x509.AccessDescription;
+import org.bouncycastle.asn1.x509.AuthorityInformationAccess;
+import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier;
+import org.bouncycastle.asn1.x509.CRLDistPoint;
+import org.bouncycastle.asn1.x509.DistributionPoint;
+import org.bouncycastle.asn1.x509.DistributionPointName;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.asn1.x509.SubjectKeyIdentifier;
+import org.bouncycastle.x509.X509V2CRLGenerator;
+import org.bouncycastle.x509.X509V3CertificateGenerator;
+
+@SuppressWarnings("deprecation")
+public class TestCertificates {
+	static final String CRL_URL = "http://crl.example.invalid/ca.crl";
+	static final long DAY_MILLIS = 86400000;
+
+	private final KeyPair caKeyPair;
+	private final X509Certificate caCertificate;
+	private final Map<String, KeyPair> subjectKeyPairs = new HashMap<>();
+	private final Date notBefore = new Date(System.currentTimeMillis() - DAY_MILLIS);
+	private final Date notAfter = new Date(System.currentTimeMillis() + DAY_MILLIS);
+
+	public TestCertificates() throws GeneralSecurityException {
+		caKeyPair = generateKeyPair();
+
+		X509V3CertificateGenerator generator = new X509V3CertificateGenerator();
+		generator.setSerialNumber(BigInteger.ONE);
+		generator.setIssuerDN(new X500Principal("CN=Test CA"));
+		generator.setSubjectDN(new X500Principal("CN=Test CA"));
+		generator.setNotBefore(notBefore);
+		generator.setNotAfter(notAfter);
+		generator.setPublicKey(caKeyPair.getPublic());
+		generator.setSignatureAlgorithm("SHA256withRSA");
+		generator.addExtension(Extension.subjectKeyIdentifier, false,
+				new SubjectKeyIdentifier(keyIdentifier(caKeyPair)));
+		caCertificate = parse(generator.generate(caKeyPair.getPrivate()));
+	}
+
+	public X509Certificate getCACertificate() {
+		return caCertificate;
+	}
+
+	public X509Certificate issueCertificate(long serial, String subject)
+			throws GeneralSecurityException {
+		return issueCertificate(serial, subject, CRL_URL, null);
+	}
+
+	public X509Certificate issueCertificate(long serial, String subject,
+			String crlURL, String ocspURL) throws GeneralSecurityException {
+		X509V3CertificateGenerator generator = new X509V3CertificateGenerator();
+		generator.setSerialNumber(BigInteger.valueOf(serial));
+		generator.setIssuerDN(caCertificate.getSubjectX500Principal());
+		generator.setSubjectDN(new X500Principal("CN=" + subject));
+		generator.setNotBefore(notBefore);
+		generator.setNotAfter(notAfter);
+		KeyPair subjectKeyPair = subjectKeyPairs.get(subject);
+		if (subjectKeyPair == null)
+			subjectKeyPairs.put(subject, subjectKeyPair = generateKeyPair());
+		generator.setPublicKey(subjectKeyPair.getPublic());
+		generator.setSignatureAlgorithm("SHA256withRSA");
+		generator.addExtension(Extension.authorityKeyIdentifier, false,
+				new AuthorityKeyIdentifier(keyIdentifier(caKeyPair)));
+		if (crlURL != null)
+			generator.addExtension(Extension.cRLDistributionPoints, false,
+					new CRLDistPoint(new DistributionPoint[] {
+						new DistributionPoint(
+							new DistributionPointName(new GeneralNames(
+								new GeneralName(GeneralName.uniformResourceIdentifier, crlURL))),
+							null, null) }));
+		if (ocspURL != null)
+			generator.addExtension(Extension.authorityInfoAccess, false,
+					new AuthorityInformationAccess(new AccessDescription(
+						AccessDescription.id_ad_ocsp,
+						new GeneralName(GeneralName.uniformResourceIdentifier, ocspURL))));
+		return parse(generator.generate(caKeyPair.getPrivate()));
+	}
+
+	public X509CRL issueCRL(long... revokedSerials)
+			throws GeneralSecurityException {
+		Date now = new Date();
+		X509V2CRLGenerator generator = new X509V2CRLGenerator();
+		generator.setIssuerDN(caCertificate.getSubjectX500Principal());
+		generator.setThisUpdate(now);
+		generator.setNextUpdate(new Date(now.getTime() + DAY_MILLIS));
+		generator.setSignatureAlgorithm("SHA256withRSA");
+		for (long serial : revokedSerials)
+			generator.addCRLEntry(BigInteger.valueOf(serial), now, 0);
+		return generator.generate(caKeyPair.getPrivate());
+	}
+
+	// certificates are parsed again, so that they are
+	// represented by the platform implementation
+	private static X509Certificate parse(X509Certificate certificate)
+			throws GeneralSecurityException {
+		return (X509Certificate) CertificateFactory.getInstance("X.509")
+				.generateCertificate(new ByteArrayInputStream(certificate.getEncoded()));
+	}
+
+	private static byte[] keyIdentifier(KeyPair keyPair)
+			throws GeneralSecurityException {
+		return MessageDigest.getInstance("SHA-1").digest(
+				keyPair.getPublic().getEncoded());
+	}
+
+	private static KeyPair generateKeyPair() throws GeneralSecurityException {
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+		generator.initialize(1024);
+		return generator.generateKeyPair();
+	}
+}
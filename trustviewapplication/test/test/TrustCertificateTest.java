@@ -0,0 +1,77 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import data.TrustCertificate;
+
+public class TrustCertificateTest {
+	private static X509Certificate parse(X509Certificate certificate)
+			throws Exception {
+		return (X509Certificate) CertificateFactory.getInstance("X.509")
+				.generateCertificate(new ByteArrayInputStream(certificate.getEncoded()));
+	}
+
+	@Test
+	public void internSharesCertificatesWithEqualEncodings() throws Exception {
+		X509Certificate certificate = new TestCertificates().issueCertificate(2, "a.example.com");
+
+		TrustCertificate first = new TrustCertificate(certificate);
+		TrustCertificate second = new TrustCertificate(parse(certificate));
+
+		assertSame(first, TrustCertificate.intern(first));
+		assertSame(first, TrustCertificate.intern(second));
+	}
+
+	@Test
+	public void internKeepsCertificatesWithDifferentEncodings() throws Exception {
+		TestCertificates certificates = new TestCertificates();
+		X509Certificate withCRL = certificates.issueCertificate(
+				3, "b.example.com", TestCertificates.CRL_URL, null);
+		X509Certificate withoutCRL = certificates.issueCertificate(
+				3, "b.example.com", null, null);
+
+		TrustCertificate first = new TrustCertificate(withCRL);
+		TrustCertificate second = new TrustCertificate(withoutCRL);
+		assertEquals(first, second);
+		assertFalse(Arrays.equals(withCRL.getEncoded(), withoutCRL.getEncoded()));
+
+		assertSame(first, TrustCertificate.intern(first));
+		TrustCertificate interned = TrustCertificate.intern(second);
+		assertSame(second, interned);
+		assertTrue(Arrays.equals(withoutCRL.getEncoded(),
+				interned.getCertificate().getEncoded()));
+	}
+
+	@Test
+	public void internDoesNotHandMetadataOverToParsedCertificates() throws Exception {
+		final X509Certificate certificate =
+				new TestCertificates().issueCertificate(4, "c.example.com");
+
+		TrustCertificate parsed = new TrustCertificate(certificate);
+		TrustCertificate metadata = new TrustCertificate(parsed.getSerial(),
+				parsed.getIssuer(), parsed.getSubject(), parsed.getPublicKey(),
+				parsed.getNotBefore(), parsed.getNotAfter(),
+				new TrustCertificate.CertificateLoader() {
+					@Override
+					public Certificate loadCertificate(TrustCertificate trustCertificate) {
+						return certificate;
+					}
+				});
+
+		assertSame(parsed, TrustCertificate.intern(parsed));
+		assertSame(metadata, TrustCertificate.intern(metadata));
+		assertFalse(metadata.isCertificateLoaded());
+		assertSame(certificate, metadata.getCertificate());
+	}
+}
@@ -20,29 +20,105 @@
  *      Pascal Weisenburger
  */
 (function() {
-    function request(data, callback) {
+    // encode the DER encoded certificates of the chain as base64 strings,
+    // which are about a fourth of the size of arrays of byte values
+    function encodeCertChain(certChain) {
+        return certChain.map(function(cert) {
+            let binary = ""
+            for (let i = 0; i < cert.length; i++)
+                binary += String.fromCharCode(cert[i])
+            return btoa(binary)
+        })
+    }
+
+    function send(method, path, data, callback) {
         // read catms address from preferences
         let catms = TVE.Prefs.getCharPref("catmsURL") + ":" + TVE.Prefs.getCharPref("catmsPort")
 
-        // send JSON encoded data over HTTP POST via asynchronous XMLHttpRequest
+        // send JSON encoded data over HTTP via asynchronous XMLHttpRequest
         // using synchronous requests is deprecated and cause Firefox to freeze
         let req = new XMLHttpRequest()
         req.onload = function(event) {
-            callback(JSON.parse(event.target.responseText))
+            if (event.target.status != 200 && event.target.status != 202)
+                callback(null)
+            else
+                callback(JSON.parse(event.target.responseText))
         }
         req.onerror = function(event) {
             callback(null)
         }
         try {
-            req.open("POST", catms);
-            req.setRequestHeader("Content-Type", "application/json")
-            req.send(JSON.stringify(data))
+            req.open(method, catms + path);
+            if (data !== undefined) {
+                req.setRequestHeader("Content-Type", "application/json")
+                req.send(JSON.stringify(data))
+            }
+            else
+                req.send()
         }
         catch (e) {
             callback(null)
         }
     }
 
+    function request(data, callback) {
+        send("POST", "", data, callback)
+    }
+
+    // validation requests are collected for a short time and sent together
+    // to the batch endpoint, since a single page load often opens several
+    // TLS connections to different hosts at once
+    const BATCH_DELAY_MILLIS = 20
+    const BATCH_MAX_REQUESTS = 64
+
+    let pendingRequests = []
+    let pendingCallbacks = []
+    let pendingTimeout = null
+
+    function flushBatch() {
+        let requests = pendingRequests
+        let callbacks = pendingCallbacks
+        pendingRequests = []
+        pendingCallbacks = []
+        if (pendingTimeout !== null) {
+            clearTimeout(pendingTimeout)
+            pendingTimeout = null
+        }
+
+        // a single request is sent as it is
+        if (requests.length == 1) {
+            request(requests[0], callbacks[0])
+            return
+        }
+
+        // the batch endpoint answers with the results in the order of the requests
+        send("POST", "/batch", requests, function(responses) {
+            for (let i = 0; i < callbacks.length; i++)
+                callbacks[i](responses && responses.length == callbacks.length ? responses[i] : null)
+        })
+    }
+
+    function batchRequest(data, callback) {
+        pendingRequests.push(data)
+        pendingCallbacks.push(callback)
+        if (pendingRequests.length >= BATCH_MAX_REQUESTS)
+            flushBatch()
+        else if (pendingTimeout === null)
+            pendingTimeout = setTimeout(flushBatch, BATCH_DELAY_MILLIS)
+    }
+
+    // wait for the actual result of an asynchronous request,
+    // the CA-TMS answers with the provisional result again
+    // if the validation did not complete in time
+    function pollResult(ticket, callback) {
+        send("GET", "/result?ticket=" + ticket, undefined, function(response) {
+            if (response && response.provisional)
+                pollResult(ticket, callback)
+            else
+                callback(response)
+        })
+    }
+
     /**
      * Communicates with the CA-TMS Application.
      */
@@ -59,13 +135,51 @@
         requestValidation: function(url, certChain, validationResult, secLevel, trustHostCert, callback) {
             request({
                 url: url,
-                certChain: certChain,
+                certChain: encodeCertChain(certChain),
                 validationResult: validationResult,
                 secLevel: secLevel,
                 validationSpec: trustHostCert ? "validate-trust-end-certificate" : "validate"
             }, callback)
         },
 
+        /**
+         * Sends a validation request to the CA-TMS together with the other validation requests
+         * made within a short time, which are validated at once
+         * url, certChain, validationResult, secLevel, trustHostCert - as for requestValidation
+         * callback - callback function that gets the response for this request as object or null if the request failed
+         */
+        requestValidations: function(url, certChain, validationResult, secLevel, trustHostCert, callback) {
+            batchRequest({
+                url: url,
+                certChain: encodeCertChain(certChain),
+                validationResult: validationResult,
+                secLevel: secLevel,
+                validationSpec: trustHostCert ? "validate-trust-end-certificate" : "validate"
+            }, callback)
+        },
+
+        /**
+         * Sends a validation request to the CA-TMS that is answered right away with a provisional result
+         * while the validation continues in the background
+         * url, certChain, validationResult, secLevel, trustHostCert - as for requestValidation
+         * callback - callback function that gets the response as object or null if the request failed;
+         *            if the response's provisional property is true, the callback function is called
+         *            again with the actual result as soon as it is available
+         */
+        requestValidationAsync: function(url, certChain, validationResult, secLevel, trustHostCert, callback) {
+            send("POST", "/async", {
+                url: url,
+                certChain: encodeCertChain(certChain),
+                validationResult: validationResult,
+                secLevel: secLevel,
+                validationSpec: trustHostCert ? "validate-trust-end-certificate" : "validate"
+            }, function(response) {
+                callback(response)
+                if (response && response.provisional)
+                    pollResult(response.ticket, callback)
+            })
+        },
+
         /**
          * Sends a validation request to the CA-TMS and sets callback functions to deal with the result
          * url - the url which delivers the certificate to check
@@ -75,7 +189,7 @@
         requestRecommendation: function(url, certChain, callback) {
             request({
                 url: url,
-                certChain: certChain,
+                certChain: encodeCertChain(certChain),
                 validationSpec: "retrieve-recommendation"
             }, callback)
         }
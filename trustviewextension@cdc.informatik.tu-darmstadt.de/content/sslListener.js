@@ -82,8 +82,8 @@ TVE.SSLListener = {
                                         TVE.State.warnUser(aBrowser, url, warningType, warningInfo, rawChain);
                                 }
                                 
-                                // query CA-TMS!
-                                TVE.CATMSCommunicator.requestValidation(url, rawChain, validationResult, secLevel, hostCertTrusted, callback);
+                                // query CA-TMS together with the other connections of the page load!
+                                TVE.CATMSCommunicator.requestValidations(url, rawChain, validationResult, secLevel, hostCertTrusted, callback);
                             
                             } else {
                                 // when standard validation result is not valid